@@ -23,7 +23,7 @@ public class AssetsPermissionsConfig {
             @Qualifier("assetsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("assets", permissionsRepo, eventPublisher);
     }
 
 }
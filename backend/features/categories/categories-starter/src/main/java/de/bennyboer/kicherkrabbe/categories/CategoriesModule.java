@@ -4,6 +4,7 @@ import de.bennyboer.kicherkrabbe.categories.persistence.lookup.CategoryLookupRep
 import de.bennyboer.kicherkrabbe.categories.persistence.lookup.LookupCategory;
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
@@ -118,10 +119,10 @@ public class CategoriesModule {
                 ));
     }
 
-    public Flux<ResourceChange> getCategoryChanges(Agent agent) {
+    public Flux<ResourceChange> getCategoryChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         var receiverId = ReceiverId.of(agent.getId().getValue());
 
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     public Mono<Void> allowUserToCreateCategories(String userId) {
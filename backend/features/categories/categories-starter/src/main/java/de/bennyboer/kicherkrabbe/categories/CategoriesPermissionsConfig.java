@@ -22,7 +22,7 @@ public class CategoriesPermissionsConfig {
             @Qualifier("categoriesPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("categories", permissionsRepo, eventPublisher);
     }
 
 }
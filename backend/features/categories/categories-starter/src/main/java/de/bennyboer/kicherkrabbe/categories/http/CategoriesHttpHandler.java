@@ -19,11 +19,14 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.getLastEventId;
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.toServerSentEvents;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
 
@@ -72,24 +75,25 @@ public class CategoriesHttpHandler {
     }
 
     public Mono<ServerResponse> getChanges(ServerRequest request) {
-        var events$ = toAgent(request)
-                .flatMapMany(module::getCategoryChanges)
-                .map(change -> {
-                    var result = new CategoryChangeDTO();
-
-                    result.type = change.getType().getValue();
-                    result.affected = change.getAffected()
-                            .stream()
-                            .map(ResourceId::getValue)
-                            .toList();
-                    result.payload = change.getPayload();
-
-                    return result;
-                });
+        var lastEventId = getLastEventId(request).orElse(null);
+        var changes$ = toAgent(request)
+                .flatMapMany(agent -> module.getCategoryChanges(agent, lastEventId));
+        var events$ = toServerSentEvents(changes$, change -> {
+            var result = new CategoryChangeDTO();
+
+            result.type = change.getType().getValue();
+            result.affected = change.getAffected()
+                    .stream()
+                    .map(ResourceId::getValue)
+                    .toList();
+            result.payload = change.getPayload();
+
+            return result;
+        });
 
         return ServerResponse.ok()
                 .header("Content-Type", "text/event-stream")
-                .body(events$, CategoryChangeDTO.class);
+                .body(BodyInserters.fromServerSentEvents(events$));
     }
 
     public Mono<ServerResponse> createCategory(ServerRequest request) {
@@ -1,10 +1,13 @@
 package de.bennyboer.kicherkrabbe.colors.http;
 
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceId;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
 import java.util.Map;
@@ -24,7 +27,8 @@ public class ChangesHttpHandlerTest extends HttpHandlerTest {
 
         // and: the module is configured to return a successful response
         when(module.getColorChanges(
-                Agent.user(AgentId.of("USER_ID"))
+                Agent.user(AgentId.of("USER_ID")),
+                null
         )).thenReturn(Flux.just(
                 ResourceChange.of(PERMISSIONS_ADDED, Set.of(ResourceId.of("COLOR_ID")), Map.of()),
                 ResourceChange.of(PERMISSIONS_REMOVED, Set.of(ResourceId.of("COLOR_ID")), Map.of())
@@ -49,6 +53,46 @@ public class ChangesHttpHandlerTest extends HttpHandlerTest {
         );
     }
 
+    @Test
+    void shouldResumeColorChangesAfterLastEventId() {
+        // given: a valid token for a user
+        var token = createTokenForUser("USER_ID");
+
+        // and: the module is configured to return the changes after the last seen one
+        when(module.getColorChanges(
+                Agent.user(AgentId.of("USER_ID")),
+                ResourceChangeId.of("FEED_ID:41")
+        )).thenReturn(Flux.just(
+                ResourceChange.of(PERMISSIONS_REMOVED, Set.of(ResourceId.of("COLOR_ID")), Map.of())
+                        .withId(ResourceChangeId.of("FEED_ID:42")),
+                ResourceChange.resyncRequired()
+                        .withId(ResourceChangeId.of("FEED_ID:50"))
+        ));
+
+        // when: reconnecting with the ID of the last seen change
+        var exchange = client.get()
+                .uri("/colors/changes")
+                .headers(headers -> {
+                    headers.setBearerAuth(token);
+                    headers.set("Last-Event-ID", "FEED_ID:41");
+                })
+                .exchange();
+
+        // then: the response is successful
+        exchange.expectStatus().isOk();
+
+        // and: the response contains the missed changes with their IDs
+        var events = exchange.expectBodyList(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .returnResult()
+                .getResponseBody();
+        assertThat(events).extracting(ServerSentEvent::id).containsExactly("FEED_ID:42", "FEED_ID:50");
+        assertThat(events).extracting(ServerSentEvent::data).containsExactly(
+                "{\"affected\":[\"COLOR_ID\"],\"payload\":{},\"type\":\"PERMISSIONS_REMOVED\"}",
+                "{\"affected\":[],\"payload\":{},\"type\":\"RESYNC_REQUIRED\"}"
+        );
+    }
+
     @Test
     void shouldNotAllowUnauthorizedAccess() {
         // when: posting the request without a token
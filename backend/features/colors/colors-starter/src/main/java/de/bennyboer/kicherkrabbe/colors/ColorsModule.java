@@ -2,6 +2,7 @@ package de.bennyboer.kicherkrabbe.colors;
 
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.colors.persistence.lookup.ColorLookupRepo;
 import de.bennyboer.kicherkrabbe.colors.persistence.lookup.LookupColor;
@@ -51,10 +52,10 @@ public class ColorsModule {
                 ));
     }
 
-    public Flux<ResourceChange> getColorChanges(Agent agent) {
+    public Flux<ResourceChange> getColorChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         var receiverId = ReceiverId.of(agent.getId().getValue());
 
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     @Transactional(propagation = MANDATORY)
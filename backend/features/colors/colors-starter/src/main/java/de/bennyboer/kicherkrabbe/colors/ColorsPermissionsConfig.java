@@ -22,7 +22,7 @@ public class ColorsPermissionsConfig {
             @Qualifier("colorsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("colors", permissionsRepo, eventPublisher);
     }
 
 }
@@ -22,7 +22,7 @@ public class CredentialsPermissionsConfig {
             @Qualifier("credentialsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("credentials", permissionsRepo, eventPublisher);
     }
 
 }
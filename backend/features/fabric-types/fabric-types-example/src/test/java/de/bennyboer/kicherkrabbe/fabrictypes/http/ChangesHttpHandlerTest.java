@@ -24,7 +24,8 @@ public class ChangesHttpHandlerTest extends HttpHandlerTest {
 
         // and: the module is configured to return a successful response
         when(module.getFabricTypeChanges(
-                Agent.user(AgentId.of("USER_ID"))
+                Agent.user(AgentId.of("USER_ID")),
+                null
         )).thenReturn(Flux.just(
                 ResourceChange.of(PERMISSIONS_ADDED, Set.of(ResourceId.of("FABRIC_TYPE_ID")), Map.of()),
                 ResourceChange.of(PERMISSIONS_REMOVED, Set.of(ResourceId.of("FABRIC_TYPE_ID")), Map.of())
@@ -2,6 +2,7 @@ package de.bennyboer.kicherkrabbe.fabrictypes;
 
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
@@ -47,10 +48,10 @@ public class FabricTypesModule {
                 ));
     }
 
-    public Flux<ResourceChange> getFabricTypeChanges(Agent agent) {
+    public Flux<ResourceChange> getFabricTypeChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         var receiverId = ReceiverId.of(agent.getId().getValue());
 
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     @Transactional(propagation = MANDATORY)
@@ -22,7 +22,7 @@ public class FabricTypesPermissionsConfig {
             @Qualifier("fabricTypesPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("fabric-types", permissionsRepo, eventPublisher);
     }
 
 }
@@ -16,11 +16,14 @@ import de.bennyboer.kicherkrabbe.fabrictypes.http.api.responses.UpdateFabricType
 import lombok.AllArgsConstructor;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.getLastEventId;
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.toServerSentEvents;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CONFLICT;
 
@@ -62,24 +65,25 @@ public class FabricTypesHttpHandler {
     }
 
     public Mono<ServerResponse> getChanges(ServerRequest request) {
-        var events$ = toAgent(request)
-                .flatMapMany(module::getFabricTypeChanges)
-                .map(change -> {
-                    var result = new FabricTypeChangeDTO();
-
-                    result.type = change.getType().getValue();
-                    result.affected = change.getAffected()
-                            .stream()
-                            .map(ResourceId::getValue)
-                            .toList();
-                    result.payload = change.getPayload();
-
-                    return result;
-                });
+        var lastEventId = getLastEventId(request).orElse(null);
+        var changes$ = toAgent(request)
+                .flatMapMany(agent -> module.getFabricTypeChanges(agent, lastEventId));
+        var events$ = toServerSentEvents(changes$, change -> {
+            var result = new FabricTypeChangeDTO();
+
+            result.type = change.getType().getValue();
+            result.affected = change.getAffected()
+                    .stream()
+                    .map(ResourceId::getValue)
+                    .toList();
+            result.payload = change.getPayload();
+
+            return result;
+        });
 
         return ServerResponse.ok()
                 .header("Content-Type", "text/event-stream")
-                .body(events$, FabricTypeChangeDTO.class);
+                .body(BodyInserters.fromServerSentEvents(events$));
     }
 
     public Mono<ServerResponse> createFabricType(ServerRequest request) {
@@ -4,6 +4,7 @@ import de.bennyboer.kicherkrabbe.eventsourcing.Version;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.Aggregate;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.ApplyCommandResult;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.SnapshotMode;
 import de.bennyboer.kicherkrabbe.eventsourcing.command.Command;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
@@ -110,6 +111,15 @@ public class Fabric implements Aggregate {
         );
     }
 
+    /**
+     * Fabrics are updated frequently from the admin UI, so the command crossing the snapshot threshold should not pay
+     * for serializing and writing the snapshot.
+     */
+    @Override
+    public SnapshotMode getSnapshotMode() {
+        return SnapshotMode.BACKGROUND;
+    }
+
     @Override
     public ApplyCommandResult apply(Command cmd, Agent agent) {
         check(isCreated() || cmd instanceof CreateCmd, "Cannot apply command to not yet created aggregate");
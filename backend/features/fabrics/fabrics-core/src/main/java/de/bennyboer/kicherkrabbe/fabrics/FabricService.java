@@ -6,6 +6,9 @@ import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateIdAndVersion;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateService;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache.AggregateCache;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.AdaptiveSnapshotPolicy;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.EventPublisher;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
@@ -32,14 +35,30 @@ import java.util.Set;
 
 public class FabricService extends AggregateService<Fabric, FabricId> {
 
+    /**
+     * Creates a service writing all snapshots inline, as a background snapshotter needs to be disposed by its owner.
+     */
     public FabricService(EventSourcingRepo repo, EventPublisher eventPublisher, Clock clock) {
+        this(repo, eventPublisher, clock, null, null);
+    }
+
+    public FabricService(
+            EventSourcingRepo repo,
+            EventPublisher eventPublisher,
+            Clock clock,
+            @Nullable BackgroundSnapshotter backgroundSnapshotter,
+            @Nullable AdaptiveSnapshotPolicy snapshotPolicy
+    ) {
         super(new EventSourcingService<>(
                 Fabric.TYPE,
                 Fabric.init(),
                 repo,
                 eventPublisher,
                 List.of(),
-                clock
+                clock,
+                AggregateCache.create(Fabric.TYPE, 10_000),
+                backgroundSnapshotter,
+                snapshotPolicy
         ));
     }
 
@@ -3,6 +3,7 @@ package de.bennyboer.kicherkrabbe.fabrics;
 import de.bennyboer.kicherkrabbe.eventsourcing.AggregateVersionOutdatedError;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
@@ -12,9 +13,12 @@ import de.bennyboer.kicherkrabbe.fabrics.publish.AlreadyPublishedError;
 import de.bennyboer.kicherkrabbe.fabrics.samples.SampleFabric;
 import de.bennyboer.kicherkrabbe.fabrics.unfeature.AlreadyUnfeaturedError;
 import de.bennyboer.kicherkrabbe.fabrics.unpublish.AlreadyUnpublishedError;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 
@@ -27,7 +31,20 @@ public class FabricServiceTest {
 
     private final LoggingEventPublisher eventPublisher = new LoggingEventPublisher();
 
-    private final FabricService fabricService = new FabricService(repo, eventPublisher, Clock.systemUTC());
+    private final BackgroundSnapshotter snapshotter = BackgroundSnapshotter.create(Fabric.TYPE);
+
+    private final FabricService fabricService = new FabricService(
+            repo,
+            eventPublisher,
+            Clock.systemUTC(),
+            snapshotter,
+            null
+    );
+
+    @AfterEach
+    void tearDown() {
+        snapshotter.dispose();
+    }
 
     @Test
     void shouldCreateFabric() {
@@ -460,31 +477,46 @@ public class FabricServiceTest {
     }
 
     @Test
-    void shouldSnapshotEvery100Events() {
+    void shouldSnapshotInBackgroundAfter100Events() {
         // given: a fabric
         var id = create(SampleFabric.builder().build());
 
-        // when: updating the fabric 200 times
+        // when: updating the fabric until the snapshot threshold is reached
         var version = Version.zero();
-        for (int i = 0; i < 200; i++) {
+        for (int i = 0; i < 99; i++) {
             version = rename(id, version, FabricName.of("Fabric " + i));
         }
 
-        // then: the fabric is updated
+        // then: the command crossing the threshold did not write the snapshot itself
+        assertThat(version).isEqualTo(Version.of(99));
+
+        // and: the snapshot is written in the background
+        assertThat(awaitSnapshotVersions(id)).containsExactly(100L);
+
+        // and: the fabric is unchanged
         var fabric = get(id);
-        assertThat(fabric.getVersion()).isEqualTo(Version.of(202));
-        assertThat(fabric.getName()).isEqualTo(FabricName.of("Fabric 199"));
-
-        // and: there are exactly 2 snapshot events in the repository
-        var events = repo.findEventsByAggregateIdAndType(
-                AggregateId.of(id.getValue()),
-                Fabric.TYPE,
-                Version.zero()
-        ).collectList().block();
-        var snapshotEvents = events.stream().filter(e -> e.getMetadata().isSnapshot()).toList();
-        assertThat(snapshotEvents).hasSize(2);
-        assertThat(snapshotEvents.getFirst().getMetadata().getAggregateVersion()).isEqualTo(Version.of(100));
-        assertThat(snapshotEvents.getLast().getMetadata().getAggregateVersion()).isEqualTo(Version.of(200));
+        assertThat(fabric.getVersion()).isEqualTo(Version.of(100));
+        assertThat(fabric.getName()).isEqualTo(FabricName.of("Fabric 98"));
+
+        // and: commands issued against the version before the snapshot are still applied
+        var updatedVersion = rename(id, version, FabricName.of("Fabric 99"));
+        assertThat(updatedVersion).isEqualTo(Version.of(101));
+        assertThat(get(id).getName()).isEqualTo(FabricName.of("Fabric 99"));
+    }
+
+    private List<Long> awaitSnapshotVersions(FabricId id) {
+        return Mono.fromSupplier(() -> findSnapshotVersions(id))
+                .filter(versions -> !versions.isEmpty())
+                .repeatWhenEmpty(50, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private List<Long> findSnapshotVersions(FabricId id) {
+        return repo.findEventsByAggregateIdAndType(AggregateId.of(id.getValue()), Fabric.TYPE, Version.zero())
+                .filter(event -> event.getMetadata().isSnapshot())
+                .map(event -> event.getMetadata().getAggregateVersion().getValue())
+                .collectList()
+                .block();
     }
 
     private Fabric get(FabricId id) {
@@ -0,0 +1,62 @@
+package de.bennyboer.kicherkrabbe.fabrics;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.testing.AggregateSnapshotBenchmark;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Set;
+
+public class FabricSnapshotPerformanceTest extends AggregateSnapshotBenchmark<Fabric> {
+
+    private final FabricService fabricService = new FabricService(
+            new InMemoryEventSourcingRepo(),
+            new LoggingEventPublisher(),
+            Clock.systemUTC()
+    );
+
+    @Override
+    protected AggregateType getAggregateType() {
+        return Fabric.TYPE;
+    }
+
+    @Override
+    protected Fabric createAggregate() {
+        var id = fabricService.create(
+                FabricName.of("Ice bear party"),
+                FabricKind.PATTERNED,
+                ImageId.of("ICE_BEAR_IMAGE_ID"),
+                List.of(ImageId.of("EXAMPLE_IMAGE_ID_1"), ImageId.of("EXAMPLE_IMAGE_ID_2")),
+                Set.of(ColorId.of("BLUE_ID"), ColorId.of("WHITE_ID"), ColorId.of("BLACK_ID")),
+                Set.of(TopicId.of("WINTER_ID"), TopicId.of("ANIMALS_ID")),
+                Set.of(
+                        FabricTypeAvailability.of(FabricTypeId.of("JERSEY_ID"), true),
+                        FabricTypeAvailability.of(FabricTypeId.of("COTTON_ID"), false)
+                ),
+                Agent.system()
+        ).block().getId();
+
+        return fabricService.get(id).block();
+    }
+
+    @Override
+    protected Fabric getInitialState() {
+        return Fabric.init();
+    }
+
+    @Override
+    protected AggregateId getAggregateId(Fabric aggregate) {
+        return AggregateId.of(aggregate.getId().getValue());
+    }
+
+    @Override
+    protected Version getAggregateVersion(Fabric aggregate) {
+        return aggregate.getVersion();
+    }
+
+}
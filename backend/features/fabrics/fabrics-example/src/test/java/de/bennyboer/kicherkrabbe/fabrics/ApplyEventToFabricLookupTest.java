@@ -0,0 +1,118 @@
+package de.bennyboer.kicherkrabbe.fabrics;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplyEventToFabricLookupTest extends FabricsModuleTest {
+
+    @Test
+    void shouldApplyEventDirectlyToLookup() {
+        // given: a user is allowed to create fabrics
+        allowUserToCreateFabrics("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a fabric
+        String fabricId = createSampleFabric(agent);
+
+        // when: a renamed event following the lookup version is applied
+        applyEventToFabricLookup(fabricId, 1L, "RENAMED", Map.of("name", "Projected name"));
+
+        // then: the event payload is applied to the lookup without replaying the fabric
+        var fabric = getFabrics(agent).getFirst();
+        assertThat(fabric.getVersion()).isEqualTo(Version.of(1));
+        assertThat(fabric.getName()).isEqualTo(FabricName.of("Projected name"));
+    }
+
+    @Test
+    void shouldApplyMultipleEventsInOrder() {
+        // given: a user is allowed to create fabrics
+        allowUserToCreateFabrics("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a fabric
+        String fabricId = createSampleFabric(agent);
+
+        // when: consecutive events are applied
+        applyEventToFabricLookup(fabricId, 1L, "PUBLISHED", Map.of());
+        applyEventToFabricLookup(fabricId, 2L, "FEATURED", Map.of());
+
+        // then: both events are reflected in the lookup
+        var fabric = getFabrics(agent).getFirst();
+        assertThat(fabric.getVersion()).isEqualTo(Version.of(2));
+        assertThat(fabric.isPublished()).isTrue();
+        assertThat(fabric.isFeatured()).isTrue();
+    }
+
+    @Test
+    void shouldReplayFabricOnVersionGap() {
+        // given: a user is allowed to create fabrics
+        allowUserToCreateFabrics("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a fabric
+        String fabricId = createSampleFabric(agent);
+
+        // and: the fabric is renamed twice without updating the lookup
+        module.renameFabric(fabricId, 0L, "First name", agent).block();
+        module.renameFabric(fabricId, 1L, "Second name", agent).block();
+
+        // when: only the second renamed event is applied
+        applyEventToFabricLookup(fabricId, 2L, "RENAMED", Map.of("name", "Ignored name"));
+
+        // then: the lookup is rebuilt from the fabric instead
+        var fabric = getFabrics(agent).getFirst();
+        assertThat(fabric.getVersion()).isEqualTo(Version.of(2));
+        assertThat(fabric.getName()).isEqualTo(FabricName.of("Second name"));
+    }
+
+    @Test
+    void shouldSkipEventAlreadyReflectedInLookup() {
+        // given: a user is allowed to create fabrics
+        allowUserToCreateFabrics("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates and renames a fabric
+        String fabricId = createSampleFabric(agent);
+        renameFabric(fabricId, 0L, "New name", agent);
+
+        // when: the renamed event is applied again with a different payload
+        applyEventToFabricLookup(fabricId, 1L, "RENAMED", Map.of("name", "Ignored name"));
+
+        // then: the lookup is unchanged
+        var fabric = getFabrics(agent).getFirst();
+        assertThat(fabric.getVersion()).isEqualTo(Version.of(1));
+        assertThat(fabric.getName()).isEqualTo(FabricName.of("New name"));
+    }
+
+    private void applyEventToFabricLookup(
+            String fabricId,
+            long version,
+            String eventName,
+            Map<String, Object> payload
+    ) {
+        var metadata = EventMetadata.of(
+                AggregateId.of(fabricId),
+                AggregateType.of("FABRIC"),
+                Version.of(version),
+                Agent.system(),
+                Instant.now(),
+                false
+        );
+        var event = HandleableEvent.of(metadata, EventName.of(eventName), Version.zero(), payload);
+
+        module.applyEventToFabricLookup(event).block();
+    }
+
+}
@@ -43,7 +43,7 @@ public class FabricsMessagingTest extends EventListenerTest {
     void setup() {
         when(module.allowUserToCreateFabrics(anyString())).thenReturn(Mono.empty());
         when(module.removePermissionsForUser(anyString())).thenReturn(Mono.empty());
-        when(module.updateFabricInLookup(anyString())).thenReturn(Mono.empty());
+        when(module.applyEventToFabricLookup(any())).thenReturn(Mono.empty());
         when(module.removeFabricFromLookup(anyString())).thenReturn(Mono.empty());
         when(module.allowUserToManageFabric(anyString(), anyString())).thenReturn(Mono.empty());
         when(module.removePermissionsForUser(anyString())).thenReturn(Mono.empty());
@@ -120,7 +120,9 @@ public class FabricsMessagingTest extends EventListenerTest {
         );
 
         // then: the fabric is updated in the lookup
-        verify(module, timeout(5000).times(1)).updateFabricInLookup(eq("FABRIC_ID"));
+        verify(module, timeout(5000).times(1)).applyEventToFabricLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("FABRIC_ID"))
+        ));
     }
 
     @Test
@@ -138,7 +140,9 @@ public class FabricsMessagingTest extends EventListenerTest {
         );
 
         // then: the fabric is updated in the lookup
-        verify(module, timeout(5000).times(1)).updateFabricInLookup(eq("FABRIC_ID"));
+        verify(module, timeout(5000).times(1)).applyEventToFabricLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("FABRIC_ID"))
+        ));
     }
 
     @Test
@@ -246,7 +250,9 @@ public class FabricsMessagingTest extends EventListenerTest {
         );
 
         // then: the fabric is updated in the lookup
-        verify(module, timeout(5000).times(1)).updateFabricInLookup(eq("FABRIC_ID"));
+        verify(module, timeout(5000).times(1)).applyEventToFabricLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("FABRIC_ID"))
+        ));
     }
 
     @Test
@@ -264,7 +270,9 @@ public class FabricsMessagingTest extends EventListenerTest {
         );
 
         // then: the fabric is updated in the lookup
-        verify(module, timeout(5000).times(1)).updateFabricInLookup(eq("FABRIC_ID"));
+        verify(module, timeout(5000).times(1)).applyEventToFabricLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("FABRIC_ID"))
+        ));
     }
 
     @Test
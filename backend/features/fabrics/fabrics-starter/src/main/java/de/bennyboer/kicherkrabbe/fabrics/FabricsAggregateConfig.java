@@ -1,5 +1,7 @@
 package de.bennyboer.kicherkrabbe.fabrics;
 
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.AdaptiveSnapshotPolicy;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.messaging.MessagingEventPublisher;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEventSourcingRepo;
@@ -11,6 +13,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Optional;
 
 @Configuration
@@ -30,13 +33,31 @@ public class FabricsAggregateConfig {
         );
     }
 
+    @Bean(value = "fabricsBackgroundSnapshotter", destroyMethod = "dispose")
+    public BackgroundSnapshotter fabricsBackgroundSnapshotter() {
+        return BackgroundSnapshotter.create(Fabric.TYPE);
+    }
+
+    @Bean("fabricsSnapshotPolicy")
+    public AdaptiveSnapshotPolicy fabricsSnapshotPolicy() {
+        return AdaptiveSnapshotPolicy.create(Fabric.TYPE, Duration.ofMillis(20));
+    }
+
     @Bean
     public FabricService fabricService(
             @Qualifier("fabricsEventSourcingRepo") EventSourcingRepo eventSourcingRepo,
             @Qualifier("fabricsEventPublisher") MessagingEventPublisher eventPublisher,
+            @Qualifier("fabricsBackgroundSnapshotter") BackgroundSnapshotter backgroundSnapshotter,
+            @Qualifier("fabricsSnapshotPolicy") AdaptiveSnapshotPolicy snapshotPolicy,
             Optional<Clock> clock
     ) {
-        return new FabricService(eventSourcingRepo, eventPublisher, clock.orElse(Clock.systemUTC()));
+        return new FabricService(
+                eventSourcingRepo,
+                eventPublisher,
+                clock.orElse(Clock.systemUTC()),
+                backgroundSnapshotter,
+                snapshotPolicy
+        );
     }
 
 }
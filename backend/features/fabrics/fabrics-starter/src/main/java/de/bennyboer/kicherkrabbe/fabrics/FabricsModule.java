@@ -2,9 +2,12 @@ package de.bennyboer.kicherkrabbe.fabrics;
 
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
 import de.bennyboer.kicherkrabbe.fabrics.http.FabricKindTransformer;
 import de.bennyboer.kicherkrabbe.fabrics.http.api.FabricKindDTO;
 import de.bennyboer.kicherkrabbe.fabrics.http.api.FabricTypeAvailabilityDTO;
@@ -16,6 +19,7 @@ import de.bennyboer.kicherkrabbe.fabrics.persistence.colors.ColorRepo;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.fabrictypes.FabricType;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.fabrictypes.FabricTypeName;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.fabrictypes.FabricTypeRepo;
+import de.bennyboer.kicherkrabbe.fabrics.persistence.lookup.FabricLookupProjection;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.lookup.FabricLookupRepo;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.lookup.LookupFabric;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.topics.Topic;
@@ -23,7 +27,6 @@ import de.bennyboer.kicherkrabbe.fabrics.persistence.topics.TopicName;
 import de.bennyboer.kicherkrabbe.fabrics.persistence.topics.TopicRepo;
 import de.bennyboer.kicherkrabbe.permissions.*;
 import jakarta.annotation.Nullable;
-import lombok.AllArgsConstructor;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -40,7 +43,6 @@ import static de.bennyboer.kicherkrabbe.fabrics.Actions.*;
 import static de.bennyboer.kicherkrabbe.fabrics.http.api.FabricsSortDirectionDTO.ASCENDING;
 import static org.springframework.transaction.annotation.Propagation.MANDATORY;
 
-@AllArgsConstructor
 public class FabricsModule {
 
     private final FabricService fabricService;
@@ -57,9 +59,33 @@ public class FabricsModule {
 
     private final FabricTypeRepo fabricTypeRepo;
 
-    public Flux<ResourceChange> getFabricChanges(Agent agent) {
+    private final ReadModelProjection<FabricId, LookupFabric> fabricLookupProjection;
+
+    public FabricsModule(
+            FabricService fabricService,
+            PermissionsService permissionsService,
+            FabricLookupRepo fabricLookupRepo,
+            ResourceChangesTracker changesTracker,
+            TopicRepo topicRepo,
+            ColorRepo colorRepo,
+            FabricTypeRepo fabricTypeRepo
+    ) {
+        this.fabricService = fabricService;
+        this.permissionsService = permissionsService;
+        this.fabricLookupRepo = fabricLookupRepo;
+        this.changesTracker = changesTracker;
+        this.topicRepo = topicRepo;
+        this.colorRepo = colorRepo;
+        this.fabricTypeRepo = fabricTypeRepo;
+        this.fabricLookupProjection = FabricLookupProjection.create(
+                fabricLookupRepo,
+                id -> updateFabricInLookup(id.getValue())
+        );
+    }
+
+    public Flux<ResourceChange> getFabricChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         ReceiverId receiverId = ReceiverId.of(agent.getId().getValue());
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     public Flux<Topic> getAvailableTopicsForFabrics(Agent agent) {
@@ -480,6 +506,10 @@ public class FabricsModule {
                 .flatMap(fabricLookupRepo::update);
     }
 
+    public Mono<Void> applyEventToFabricLookup(HandleableEvent event) {
+        return fabricLookupProjection.handle(event);
+    }
+
     public Mono<Void> removeFabricFromLookup(String fabricId) {
         return fabricLookupRepo.remove(FabricId.of(fabricId));
     }
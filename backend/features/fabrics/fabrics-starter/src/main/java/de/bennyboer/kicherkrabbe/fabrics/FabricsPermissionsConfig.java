@@ -22,7 +22,7 @@ public class FabricsPermissionsConfig {
             @Qualifier("fabricsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("fabrics", permissionsRepo, eventPublisher);
     }
 
 }
@@ -19,6 +19,7 @@ import de.bennyboer.kicherkrabbe.fabrics.unpublish.AlreadyUnpublishedError;
 import lombok.AllArgsConstructor;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.server.ResponseStatusException;
@@ -32,6 +33,8 @@ import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.getLastEventId;
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeServerSentEvents.toServerSentEvents;
 import static org.springframework.http.HttpStatus.*;
 
 @AllArgsConstructor
@@ -42,24 +45,25 @@ public class FabricsHttpHandler {
     private final ReactiveTransactionManager transactionManager;
 
     public Mono<ServerResponse> getChanges(ServerRequest request) {
-        var events$ = toAgent(request)
-                .flatMapMany(module::getFabricChanges)
-                .map(change -> {
-                    var result = new FabricChangeDTO();
-
-                    result.type = change.getType().getValue();
-                    result.affected = change.getAffected()
-                            .stream()
-                            .map(ResourceId::getValue)
-                            .toList();
-                    result.payload = change.getPayload();
-
-                    return result;
-                });
+        var lastEventId = getLastEventId(request).orElse(null);
+        var changes$ = toAgent(request)
+                .flatMapMany(agent -> module.getFabricChanges(agent, lastEventId));
+        var events$ = toServerSentEvents(changes$, change -> {
+            var result = new FabricChangeDTO();
+
+            result.type = change.getType().getValue();
+            result.affected = change.getAffected()
+                    .stream()
+                    .map(ResourceId::getValue)
+                    .toList();
+            result.payload = change.getPayload();
+
+            return result;
+        });
 
         return ServerResponse.ok()
                 .header("Content-Type", "text/event-stream")
-                .body(events$, FabricChangeDTO.class);
+                .body(BodyInserters.fromServerSentEvents(events$));
     }
 
     public Mono<ServerResponse> getAvailableTopicsForFabrics(ServerRequest request) {
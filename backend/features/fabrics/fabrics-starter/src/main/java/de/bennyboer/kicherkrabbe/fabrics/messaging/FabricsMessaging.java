@@ -62,17 +62,17 @@ public class FabricsMessaging {
             EventListenerFactory factory,
             FabricsModule module
     ) {
-        return factory.createEventListenerForAllEvents(
+        return factory.createConcurrentEventListenerForAllEvents(
                 "fabrics.fabric-created-or-updated-update-lookup",
                 AggregateType.of("FABRIC"),
+                8,
                 (event) -> {
-                    String fabricId = event.getMetadata().getAggregateId().getValue();
                     boolean isDeleted = event.getEventName().equals(EventName.of("DELETED"));
                     if (isDeleted) {
                         return Mono.empty();
                     }
 
-                    return module.updateFabricInLookup(fabricId);
+                    return module.applyEventToFabricLookup(event);
                 }
         );
     }
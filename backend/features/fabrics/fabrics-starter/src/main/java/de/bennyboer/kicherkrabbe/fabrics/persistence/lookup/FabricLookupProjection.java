@@ -0,0 +1,95 @@
+package de.bennyboer.kicherkrabbe.fabrics.persistence.lookup;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
+import de.bennyboer.kicherkrabbe.fabrics.*;
+import de.bennyboer.kicherkrabbe.fabrics.delete.colors.ColorRemovedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.delete.fabrictype.FabricTypeRemovedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.delete.topics.TopicRemovedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.feature.FeaturedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.persistence.FabricEventPayloadSerializer;
+import de.bennyboer.kicherkrabbe.fabrics.publish.PublishedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.rename.RenamedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.unfeature.UnfeaturedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.unpublish.UnpublishedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.update.availability.AvailabilityUpdatedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.update.colors.ColorsUpdatedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.update.images.ImagesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.fabrics.update.topics.TopicsUpdatedEvent;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Applies fabric events directly to the fabric lookup.
+ * Creation and any event not listed here are handled by replaying the fabric.
+ */
+public class FabricLookupProjection {
+
+    private static final FabricEventPayloadSerializer SERIALIZER = new FabricEventPayloadSerializer();
+
+    public static ReadModelProjection<FabricId, LookupFabric> create(
+            FabricLookupRepo repo,
+            Function<FabricId, Mono<Void>> replay
+    ) {
+        return ReadModelProjection.builder("fabrics_lookup", repo)
+                .reader(repo::findById)
+                .idMapper(aggregateId -> FabricId.of(aggregateId.getValue()))
+                .replay(replay)
+                .on(RenamedEvent.NAME, FabricLookupProjection::apply)
+                .on(PublishedEvent.NAME, FabricLookupProjection::apply)
+                .on(UnpublishedEvent.NAME, FabricLookupProjection::apply)
+                .on(FeaturedEvent.NAME, FabricLookupProjection::apply)
+                .on(UnfeaturedEvent.NAME, FabricLookupProjection::apply)
+                .on(ImagesUpdatedEvent.NAME, FabricLookupProjection::apply)
+                .on(ColorsUpdatedEvent.NAME, FabricLookupProjection::apply)
+                .on(TopicsUpdatedEvent.NAME, FabricLookupProjection::apply)
+                .on(AvailabilityUpdatedEvent.NAME, FabricLookupProjection::apply)
+                .on(ColorRemovedEvent.NAME, FabricLookupProjection::apply)
+                .on(TopicRemovedEvent.NAME, FabricLookupProjection::apply)
+                .on(FabricTypeRemovedEvent.NAME, FabricLookupProjection::apply)
+                .build();
+    }
+
+    private static LookupFabric apply(LookupFabric fabric, HandleableEvent handleableEvent, Version version) {
+        Event event = SERIALIZER.deserialize(
+                handleableEvent.getEventName(),
+                handleableEvent.getEventVersion(),
+                handleableEvent.getEvent()
+        );
+
+        return (switch (event) {
+            case RenamedEvent e -> fabric.withName(e.getName()).withAlias(FabricAlias.fromName(e.getName()));
+            case PublishedEvent ignored -> fabric.withPublished(true);
+            case UnpublishedEvent ignored -> fabric.withPublished(false);
+            case FeaturedEvent ignored -> fabric.withFeatured(true);
+            case UnfeaturedEvent ignored -> fabric.withFeatured(false);
+            case ImagesUpdatedEvent e -> fabric.withImage(e.getImage().orElse(null))
+                    .withExampleImages(e.getExampleImages());
+            case ColorsUpdatedEvent e -> fabric.withColors(e.getColors());
+            case TopicsUpdatedEvent e -> fabric.withTopics(e.getTopics());
+            case AvailabilityUpdatedEvent e -> fabric.withAvailability(e.getAvailability());
+            case ColorRemovedEvent e -> {
+                Set<ColorId> updatedColors = new HashSet<>(fabric.getColors());
+                updatedColors.remove(e.getColorId());
+                yield fabric.withColors(updatedColors);
+            }
+            case TopicRemovedEvent e -> {
+                Set<TopicId> updatedTopics = new HashSet<>(fabric.getTopics());
+                updatedTopics.remove(e.getTopicId());
+                yield fabric.withTopics(updatedTopics);
+            }
+            case FabricTypeRemovedEvent e -> {
+                Set<FabricTypeAvailability> updatedAvailability = new HashSet<>(fabric.getAvailability());
+                updatedAvailability.removeIf(a -> a.getTypeId().equals(e.getFabricTypeId()));
+                yield fabric.withAvailability(updatedAvailability);
+            }
+            default -> throw new IllegalArgumentException("Unknown event " + event.getClass().getSimpleName());
+        }).withVersion(version);
+    }
+
+}
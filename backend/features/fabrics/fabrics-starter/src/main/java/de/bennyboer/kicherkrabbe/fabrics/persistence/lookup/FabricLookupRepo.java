@@ -17,6 +17,8 @@ public interface FabricLookupRepo extends EventSourcingReadModelRepo<FabricId, L
 
     Mono<LookupFabricPage> find(Collection<FabricId> fabricIds, String searchTerm, long skip, long limit);
 
+    Mono<LookupFabric> findById(FabricId id);
+
     Mono<LookupFabric> findPublished(FabricId id);
 
     Mono<LookupFabric> findByAlias(FabricAlias alias);
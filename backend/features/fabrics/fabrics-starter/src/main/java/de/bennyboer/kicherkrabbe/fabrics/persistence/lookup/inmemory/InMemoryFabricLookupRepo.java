@@ -43,6 +43,11 @@ public class InMemoryFabricLookupRepo extends InMemoryEventSourcingReadModelRepo
                 });
     }
 
+    @Override
+    public Mono<LookupFabric> findById(FabricId id) {
+        return get(id);
+    }
+
     @Override
     public Mono<LookupFabric> findPublished(FabricId id) {
         return getAll()
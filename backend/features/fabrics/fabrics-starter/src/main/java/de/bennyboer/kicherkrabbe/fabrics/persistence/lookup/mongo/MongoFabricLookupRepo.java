@@ -86,6 +86,12 @@ public class MongoFabricLookupRepo extends MongoEventSourcingReadModelRepo<Fabri
                 ));
     }
 
+    @Override
+    public Mono<LookupFabric> findById(FabricId id) {
+        return template.findById(id.getValue(), MongoLookupFabric.class, collectionName)
+                .map(serializer::deserialize);
+    }
+
     @Override
     public Mono<LookupFabric> findPublished(FabricId id) {
         Criteria criteria = where("_id").is(id.getValue())
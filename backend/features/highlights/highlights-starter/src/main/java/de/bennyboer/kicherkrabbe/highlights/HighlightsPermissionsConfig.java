@@ -22,7 +22,7 @@ public class HighlightsPermissionsConfig {
             @Qualifier("highlightsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("highlights", permissionsRepo, eventPublisher);
     }
 
 }
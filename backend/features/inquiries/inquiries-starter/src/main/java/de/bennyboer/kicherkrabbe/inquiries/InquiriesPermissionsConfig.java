@@ -22,7 +22,7 @@ public class InquiriesPermissionsConfig {
             @Qualifier("inquiriesPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("inquiries", permissionsRepo, eventPublisher);
     }
 
 }
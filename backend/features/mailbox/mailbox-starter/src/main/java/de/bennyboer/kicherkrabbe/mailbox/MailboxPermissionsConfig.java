@@ -22,7 +22,7 @@ public class MailboxPermissionsConfig {
             @Qualifier("mailboxPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("mailbox", permissionsRepo, eventPublisher);
     }
 
 }
@@ -6,6 +6,7 @@ import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateIdAndVersion;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateService;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache.AggregateCache;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.EventPublisher;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
@@ -28,7 +29,8 @@ public class SettingsService extends AggregateService<Settings, SettingsId> {
                 repo,
                 eventPublisher,
                 List.of(),
-                clock
+                clock,
+                AggregateCache.createWithMaximumSize(Settings.TYPE, 10)
         ));
     }
 
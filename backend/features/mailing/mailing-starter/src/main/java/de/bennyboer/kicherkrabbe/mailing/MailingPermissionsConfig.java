@@ -22,7 +22,7 @@ public class MailingPermissionsConfig {
             @Qualifier("mailingPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("mailing", permissionsRepo, eventPublisher);
     }
 
 }
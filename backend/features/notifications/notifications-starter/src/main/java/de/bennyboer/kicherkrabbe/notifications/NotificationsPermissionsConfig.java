@@ -22,7 +22,7 @@ public class NotificationsPermissionsConfig {
             @Qualifier("notificationsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("notifications", permissionsRepo, eventPublisher);
     }
 
 }
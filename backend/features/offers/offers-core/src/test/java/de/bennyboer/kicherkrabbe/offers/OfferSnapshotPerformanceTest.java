@@ -0,0 +1,74 @@
+package de.bennyboer.kicherkrabbe.offers;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.testing.AggregateSnapshotBenchmark;
+import de.bennyboer.kicherkrabbe.money.Money;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Set;
+
+public class OfferSnapshotPerformanceTest extends AggregateSnapshotBenchmark<Offer> {
+
+    private final OfferService offerService = new OfferService(
+            new InMemoryEventSourcingRepo(),
+            new LoggingEventPublisher(),
+            Clock.systemUTC()
+    );
+
+    @Override
+    protected AggregateType getAggregateType() {
+        return Offer.TYPE;
+    }
+
+    @Override
+    protected Offer createAggregate() {
+        var agent = Agent.system();
+        var result = offerService.create(
+                OfferTitle.of("Sommerkleid"),
+                OfferSize.of("M"),
+                Set.of(OfferCategoryId.of("DRESSES_ID"), OfferCategoryId.of("SUMMER_ID")),
+                ProductId.of("PRODUCT_ID"),
+                List.of(ImageId.of("IMAGE_ID_1"), ImageId.of("IMAGE_ID_2"), ImageId.of("IMAGE_ID_3")),
+                Notes.of(
+                        Note.of("Ein sommerliches Kleid für heiße Tage."),
+                        Note.of("100% Baumwolle"),
+                        Note.of("Bei 30°C waschen"),
+                        Note.of("Nicht für Kinder unter 3 Jahren geeignet")
+                ),
+                Money.euro(2900),
+                agent
+        ).block();
+
+        var id = result.getId();
+        var version = result.getVersion();
+
+        // a price history makes the snapshot more realistic
+        version = offerService.updatePrice(id, version, Money.euro(3100), agent).block();
+        version = offerService.updatePrice(id, version, Money.euro(3300), agent).block();
+        offerService.addDiscount(id, version, Money.euro(2500), agent).block();
+
+        return offerService.get(id).block();
+    }
+
+    @Override
+    protected Offer getInitialState() {
+        return Offer.init();
+    }
+
+    @Override
+    protected AggregateId getAggregateId(Offer aggregate) {
+        return AggregateId.of(aggregate.getId().getValue());
+    }
+
+    @Override
+    protected Version getAggregateVersion(Offer aggregate) {
+        return aggregate.getVersion();
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.bennyboer.kicherkrabbe.offers;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplyEventToOfferLookupTest extends OffersModuleTest {
+
+    @Test
+    void shouldApplyEventDirectlyToLookup() {
+        allowUserToCreateOffers("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        String offerId = createSampleOffer(agent);
+
+        applyEventToOfferLookup(offerId, 1L, "TITLE_UPDATED", Map.of("title", "Projected title"));
+
+        var offer = getOffers(agent).getFirst();
+        assertThat(offer.getVersion()).isEqualTo(Version.of(1));
+        assertThat(offer.getTitle()).isEqualTo(OfferTitle.of("Projected title"));
+    }
+
+    @Test
+    void shouldApplyMultipleEventsInOrder() {
+        allowUserToCreateOffers("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        String offerId = createSampleOffer(agent);
+
+        applyEventToOfferLookup(offerId, 1L, "PUBLISHED", Map.of());
+        applyEventToOfferLookup(offerId, 2L, "RESERVED", Map.of());
+
+        var offer = getOffers(agent).getFirst();
+        assertThat(offer.getVersion()).isEqualTo(Version.of(2));
+        assertThat(offer.isPublished()).isTrue();
+        assertThat(offer.isReserved()).isTrue();
+    }
+
+    @Test
+    void shouldReplayOfferOnVersionGap() {
+        allowUserToCreateOffers("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        String offerId = createSampleOffer(agent);
+        module.updateOfferTitle(offerId, 0L, "First title", agent).block();
+        module.updateOfferTitle(offerId, 1L, "Second title", agent).block();
+
+        applyEventToOfferLookup(offerId, 2L, "TITLE_UPDATED", Map.of("title", "Ignored title"));
+
+        var offer = getOffers(agent).getFirst();
+        assertThat(offer.getVersion()).isEqualTo(Version.of(2));
+        assertThat(offer.getTitle()).isEqualTo(OfferTitle.of("Second title"));
+    }
+
+    @Test
+    void shouldSkipEventAlreadyReflectedInLookup() {
+        allowUserToCreateOffers("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        String offerId = createSampleOffer(agent);
+        updateOfferTitle(offerId, 0L, "New title", agent);
+
+        applyEventToOfferLookup(offerId, 1L, "TITLE_UPDATED", Map.of("title", "Ignored title"));
+
+        var offer = getOffers(agent).getFirst();
+        assertThat(offer.getVersion()).isEqualTo(Version.of(1));
+        assertThat(offer.getTitle()).isEqualTo(OfferTitle.of("New title"));
+    }
+
+    private void applyEventToOfferLookup(
+            String offerId,
+            long version,
+            String eventName,
+            Map<String, Object> payload
+    ) {
+        var metadata = EventMetadata.of(
+                AggregateId.of(offerId),
+                AggregateType.of("OFFER"),
+                Version.of(version),
+                Agent.system(),
+                Instant.now(),
+                false
+        );
+        var event = HandleableEvent.of(metadata, EventName.of(eventName), Version.zero(), payload);
+
+        module.applyEventToOfferLookup(event).block();
+    }
+
+}
@@ -45,7 +45,7 @@ public class OffersMessagingTest extends EventListenerTest {
     void setup() {
         when(module.allowUserToCreateOffers(any())).thenReturn(Mono.empty());
         when(module.removePermissionsForUser(any())).thenReturn(Mono.empty());
-        when(module.updateOfferInLookup(any())).thenReturn(Mono.empty());
+        when(module.applyEventToOfferLookup(any())).thenReturn(Mono.empty());
         when(module.removeOfferFromLookup(any())).thenReturn(Mono.empty());
         when(module.allowUserToManageOffer(any(), any())).thenReturn(Mono.empty());
         when(module.removePermissionsOnOffer(any())).thenReturn(Mono.empty());
@@ -110,7 +110,9 @@ public class OffersMessagingTest extends EventListenerTest {
                 Map.of()
         );
 
-        verify(module, timeout(5000).times(1)).updateOfferInLookup(eq("OFFER_ID"));
+        verify(module, timeout(5000).times(1)).applyEventToOfferLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("OFFER_ID"))
+        ));
     }
 
     @Test
@@ -2,9 +2,12 @@ package de.bennyboer.kicherkrabbe.offers;
 
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
 import de.bennyboer.kicherkrabbe.money.Currency;
 import de.bennyboer.kicherkrabbe.money.Money;
 import de.bennyboer.kicherkrabbe.offers.api.*;
@@ -14,7 +17,6 @@ import de.bennyboer.kicherkrabbe.offers.persistence.lookup.product.LookupProduct
 import de.bennyboer.kicherkrabbe.offers.persistence.lookup.product.ProductForOfferLookupRepo;
 import de.bennyboer.kicherkrabbe.permissions.*;
 import jakarta.annotation.Nullable;
-import lombok.AllArgsConstructor;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -29,7 +31,6 @@ import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 import static de.bennyboer.kicherkrabbe.offers.Actions.*;
 import static org.springframework.transaction.annotation.Propagation.MANDATORY;
 
-@AllArgsConstructor
 public class OffersModule {
 
     private final OfferService offerService;
@@ -44,9 +45,31 @@ public class OffersModule {
 
     private final ResourceChangesTracker changesTracker;
 
-    public Flux<ResourceChange> getOfferChanges(Agent agent) {
+    private final ReadModelProjection<OfferId, LookupOffer> offerLookupProjection;
+
+    public OffersModule(
+            OfferService offerService,
+            PermissionsService permissionsService,
+            OfferLookupRepo offerLookupRepo,
+            ProductForOfferLookupRepo productForOfferLookupRepo,
+            OfferCategoryRepo offerCategoryRepo,
+            ResourceChangesTracker changesTracker
+    ) {
+        this.offerService = offerService;
+        this.permissionsService = permissionsService;
+        this.offerLookupRepo = offerLookupRepo;
+        this.productForOfferLookupRepo = productForOfferLookupRepo;
+        this.offerCategoryRepo = offerCategoryRepo;
+        this.changesTracker = changesTracker;
+        this.offerLookupProjection = OfferLookupProjection.create(
+                offerLookupRepo,
+                id -> updateOfferInLookup(id.getValue())
+        );
+    }
+
+    public Flux<ResourceChange> getOfferChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         var receiverId = ReceiverId.of(agent.getId().getValue());
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     public Mono<OfferDetails> getOffer(String offerId, Agent agent) {
@@ -524,6 +547,10 @@ public class OffersModule {
                 .flatMap(offerLookupRepo::update);
     }
 
+    public Mono<Void> applyEventToOfferLookup(HandleableEvent event) {
+        return offerLookupProjection.handle(event);
+    }
+
     public Mono<Void> removeOfferFromLookup(String offerId) {
         return offerLookupRepo.remove(OfferId.of(offerId));
     }
@@ -22,7 +22,7 @@ public class OffersPermissionsConfig {
             @Qualifier("offersPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("offers", permissionsRepo, eventPublisher);
     }
 
 }
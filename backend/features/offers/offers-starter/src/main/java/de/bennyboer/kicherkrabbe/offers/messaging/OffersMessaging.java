@@ -5,10 +5,13 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListener;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListenerFactory;
 import de.bennyboer.kicherkrabbe.offers.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -62,20 +65,19 @@ public class OffersMessaging {
     @Bean("offers_onOfferCreatedOrUpdatedUpdateLookup")
     public EventListener onOfferCreatedOrUpdatedUpdateLookup(
             EventListenerFactory factory,
-            OffersModule module
+            OffersModule module,
+            @Value("${offers.lookup.batch-size:10}") int batchSize,
+            @Value("${offers.lookup.batch-window:100ms}") Duration batchWindow
     ) {
-        return factory.createEventListenerForAllEvents(
+        return factory.createBatchEventListenerForAllEvents(
                 "offers.offer-created-or-updated-update-lookup",
                 AggregateType.of("OFFER"),
-                (event) -> {
-                    String offerId = event.getMetadata().getAggregateId().getValue();
-                    boolean isDeleted = event.getEventName().equals(EventName.of("DELETED"));
-                    if (isDeleted) {
-                        return Mono.empty();
-                    }
-
-                    return module.updateOfferInLookup(offerId);
-                }
+                batchSize,
+                batchWindow,
+                (events) -> Flux.fromIterable(events)
+                        .filter(event -> !event.getEventName().equals(EventName.of("DELETED")))
+                        .concatMap(module::applyEventToOfferLookup)
+                        .then()
         );
     }
 
@@ -6,6 +6,7 @@ import de.bennyboer.kicherkrabbe.offers.*;
 import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Value;
+import lombok.With;
 
 import java.time.Instant;
 import java.util.List;
@@ -13,9 +14,11 @@ import java.util.Optional;
 import java.util.Set;
 
 import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PACKAGE;
 import static lombok.AccessLevel.PRIVATE;
 
 @Value
+@With(PACKAGE)
 @AllArgsConstructor(access = PRIVATE)
 public class LookupOffer implements VersionedReadModel<OfferId> {
 
@@ -0,0 +1,98 @@
+package de.bennyboer.kicherkrabbe.offers.persistence.lookup;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
+import de.bennyboer.kicherkrabbe.offers.OfferAlias;
+import de.bennyboer.kicherkrabbe.offers.OfferCategoryId;
+import de.bennyboer.kicherkrabbe.offers.OfferId;
+import de.bennyboer.kicherkrabbe.offers.archive.ArchivedEvent;
+import de.bennyboer.kicherkrabbe.offers.categories.remove.CategoryRemovedEvent;
+import de.bennyboer.kicherkrabbe.offers.categories.update.CategoriesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.discount.add.DiscountAddedEvent;
+import de.bennyboer.kicherkrabbe.offers.discount.remove.DiscountRemovedEvent;
+import de.bennyboer.kicherkrabbe.offers.images.update.ImagesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.notes.update.NotesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.persistence.OfferEventPayloadSerializer;
+import de.bennyboer.kicherkrabbe.offers.price.update.PriceUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.publish.PublishedEvent;
+import de.bennyboer.kicherkrabbe.offers.reserve.ReservedEvent;
+import de.bennyboer.kicherkrabbe.offers.size.update.SizeUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.title.update.TitleUpdatedEvent;
+import de.bennyboer.kicherkrabbe.offers.unpublish.UnpublishedEvent;
+import de.bennyboer.kicherkrabbe.offers.unreserve.UnreservedEvent;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Applies offer events directly to the offer lookup.
+ * Creation and any event not listed here are handled by replaying the offer, which also resolves the product data.
+ */
+public class OfferLookupProjection {
+
+    private static final OfferEventPayloadSerializer SERIALIZER = new OfferEventPayloadSerializer();
+
+    public static ReadModelProjection<OfferId, LookupOffer> create(
+            OfferLookupRepo repo,
+            Function<OfferId, Mono<Void>> replay
+    ) {
+        return ReadModelProjection.builder("offers_lookup", repo)
+                .reader(repo::findById)
+                .idMapper(aggregateId -> OfferId.of(aggregateId.getValue()))
+                .replay(replay)
+                .on(PublishedEvent.NAME, OfferLookupProjection::apply)
+                .on(UnpublishedEvent.NAME, OfferLookupProjection::apply)
+                .on(ReservedEvent.NAME, OfferLookupProjection::apply)
+                .on(UnreservedEvent.NAME, OfferLookupProjection::apply)
+                .on(ArchivedEvent.NAME, OfferLookupProjection::apply)
+                .on(ImagesUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(NotesUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(PriceUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(DiscountAddedEvent.NAME, OfferLookupProjection::apply)
+                .on(DiscountRemovedEvent.NAME, OfferLookupProjection::apply)
+                .on(TitleUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(SizeUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(CategoriesUpdatedEvent.NAME, OfferLookupProjection::apply)
+                .on(CategoryRemovedEvent.NAME, OfferLookupProjection::apply)
+                .build();
+    }
+
+    private static LookupOffer apply(LookupOffer offer, HandleableEvent handleableEvent, Version version) {
+        Event event = SERIALIZER.deserialize(
+                handleableEvent.getEventName(),
+                handleableEvent.getEventVersion(),
+                handleableEvent.getEvent()
+        );
+        Instant date = handleableEvent.getMetadata().getDate();
+
+        return (switch (event) {
+            case PublishedEvent ignored -> offer.withPublished(true);
+            case UnpublishedEvent ignored -> offer.withPublished(false);
+            case ReservedEvent ignored -> offer.withReserved(true);
+            case UnreservedEvent ignored -> offer.withReserved(false);
+            case ArchivedEvent ignored -> offer.withPublished(false)
+                    .withReserved(false)
+                    .withArchivedAt(date);
+            case ImagesUpdatedEvent e -> offer.withImages(e.getImages());
+            case NotesUpdatedEvent e -> offer.withNotes(e.getNotes());
+            case PriceUpdatedEvent e -> offer.withPricing(offer.getPricing().withUpdatedPrice(e.getPrice(), date));
+            case DiscountAddedEvent e -> offer.withPricing(offer.getPricing().withDiscount(e.getDiscountedPrice()));
+            case DiscountRemovedEvent ignored -> offer.withPricing(offer.getPricing().withoutDiscount());
+            case TitleUpdatedEvent e -> offer.withTitle(e.getTitle()).withAlias(OfferAlias.fromTitle(e.getTitle()));
+            case SizeUpdatedEvent e -> offer.withSize(e.getSize());
+            case CategoriesUpdatedEvent e -> offer.withCategories(e.getCategories());
+            case CategoryRemovedEvent e -> {
+                Set<OfferCategoryId> updatedCategories = new HashSet<>(offer.getCategories());
+                updatedCategories.remove(e.getCategoryId());
+                yield offer.withCategories(updatedCategories);
+            }
+            default -> throw new IllegalArgumentException("Unknown event " + event.getClass().getSimpleName());
+        }).withVersion(version);
+    }
+
+}
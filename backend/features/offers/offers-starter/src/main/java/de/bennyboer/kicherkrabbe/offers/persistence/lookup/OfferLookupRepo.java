@@ -16,6 +16,8 @@ public interface OfferLookupRepo extends EventSourcingReadModelRepo<OfferId, Loo
 
     Mono<LookupOfferPage> findPublished(PublishedOfferQuery query);
 
+    Mono<LookupOffer> findById(OfferId id);
+
     Mono<LookupOffer> findPublished(OfferId id);
 
     Mono<LookupOffer> findPublishedByAlias(OfferAlias alias);
@@ -68,6 +68,11 @@ public class InMemoryOfferLookupRepo extends InMemoryEventSourcingReadModelRepo<
                 });
     }
 
+    @Override
+    public Mono<LookupOffer> findById(OfferId id) {
+        return get(id);
+    }
+
     @Override
     public Mono<LookupOffer> findPublished(OfferId id) {
         return getAll()
@@ -150,6 +150,12 @@ public class MongoOfferLookupRepo extends MongoEventSourcingReadModelRepo<OfferI
                 ));
     }
 
+    @Override
+    public Mono<LookupOffer> findById(OfferId id) {
+        return template.findById(id.getValue(), MongoLookupOffer.class, collectionName)
+                .map(serializer::deserialize);
+    }
+
     @Override
     public Mono<LookupOffer> findPublished(OfferId id) {
         Criteria criteria = where("_id").is(id.getValue())
@@ -0,0 +1,61 @@
+package de.bennyboer.kicherkrabbe.patterns;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.testing.AggregateSnapshotBenchmark;
+import de.bennyboer.kicherkrabbe.patterns.samples.SamplePattern;
+
+import java.time.Clock;
+
+public class PatternSnapshotPerformanceTest extends AggregateSnapshotBenchmark<Pattern> {
+
+    private final PatternService patternService = new PatternService(
+            new InMemoryEventSourcingRepo(),
+            new LoggingEventPublisher(),
+            Clock.systemUTC()
+    );
+
+    @Override
+    protected AggregateType getAggregateType() {
+        return Pattern.TYPE;
+    }
+
+    @Override
+    protected Pattern createAggregate() {
+        var sample = SamplePattern.builder().build();
+
+        var id = patternService.create(
+                sample.getName(),
+                sample.getNumber(),
+                sample.getDescription(),
+                sample.getAttribution(),
+                sample.getCategoryIds(),
+                sample.getImageIds(),
+                sample.getVariants(),
+                sample.getExtras(),
+                Agent.system()
+        ).block().getId();
+
+        return patternService.get(id).block();
+    }
+
+    @Override
+    protected Pattern getInitialState() {
+        return Pattern.init();
+    }
+
+    @Override
+    protected AggregateId getAggregateId(Pattern aggregate) {
+        return AggregateId.of(aggregate.getId().getValue());
+    }
+
+    @Override
+    protected Version getAggregateVersion(Pattern aggregate) {
+        return aggregate.getVersion();
+    }
+
+}
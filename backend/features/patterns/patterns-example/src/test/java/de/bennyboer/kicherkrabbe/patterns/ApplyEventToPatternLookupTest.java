@@ -0,0 +1,118 @@
+package de.bennyboer.kicherkrabbe.patterns;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplyEventToPatternLookupTest extends PatternsModuleTest {
+
+    @Test
+    void shouldApplyEventDirectlyToLookup() {
+        // given: a user is allowed to create patterns
+        allowUserToCreatePatterns("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a pattern
+        String patternId = createSamplePattern(agent);
+
+        // when: a renamed event following the lookup version is applied
+        applyEventToPatternLookup(patternId, 1L, "RENAMED", Map.of("name", "Projected name"));
+
+        // then: the event payload is applied to the lookup without replaying the pattern
+        var pattern = getPatterns(agent).getFirst();
+        assertThat(pattern.getVersion()).isEqualTo(Version.of(1));
+        assertThat(pattern.getName()).isEqualTo(PatternName.of("Projected name"));
+    }
+
+    @Test
+    void shouldApplyMultipleEventsInOrder() {
+        // given: a user is allowed to create patterns
+        allowUserToCreatePatterns("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a pattern
+        String patternId = createSamplePattern(agent);
+
+        // when: consecutive events are applied
+        applyEventToPatternLookup(patternId, 1L, "PUBLISHED", Map.of());
+        applyEventToPatternLookup(patternId, 2L, "FEATURED", Map.of());
+
+        // then: both events are reflected in the lookup
+        var pattern = getPatterns(agent).getFirst();
+        assertThat(pattern.getVersion()).isEqualTo(Version.of(2));
+        assertThat(pattern.isPublished()).isTrue();
+        assertThat(pattern.isFeatured()).isTrue();
+    }
+
+    @Test
+    void shouldReplayPatternOnVersionGap() {
+        // given: a user is allowed to create patterns
+        allowUserToCreatePatterns("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates a pattern
+        String patternId = createSamplePattern(agent);
+
+        // and: the pattern is renamed twice without updating the lookup
+        module.renamePattern(patternId, 0L, "First name", agent).block();
+        module.renamePattern(patternId, 1L, "Second name", agent).block();
+
+        // when: only the second renamed event is applied
+        applyEventToPatternLookup(patternId, 2L, "RENAMED", Map.of("name", "Ignored name"));
+
+        // then: the lookup is rebuilt from the pattern instead
+        var pattern = getPatterns(agent).getFirst();
+        assertThat(pattern.getVersion()).isEqualTo(Version.of(2));
+        assertThat(pattern.getName()).isEqualTo(PatternName.of("Second name"));
+    }
+
+    @Test
+    void shouldSkipEventAlreadyReflectedInLookup() {
+        // given: a user is allowed to create patterns
+        allowUserToCreatePatterns("USER_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // and: the user creates and renames a pattern
+        String patternId = createSamplePattern(agent);
+        renamePattern(patternId, 0L, "New name", agent);
+
+        // when: the renamed event is applied again with a different payload
+        applyEventToPatternLookup(patternId, 1L, "RENAMED", Map.of("name", "Ignored name"));
+
+        // then: the lookup is unchanged
+        var pattern = getPatterns(agent).getFirst();
+        assertThat(pattern.getVersion()).isEqualTo(Version.of(1));
+        assertThat(pattern.getName()).isEqualTo(PatternName.of("New name"));
+    }
+
+    private void applyEventToPatternLookup(
+            String patternId,
+            long version,
+            String eventName,
+            Map<String, Object> payload
+    ) {
+        var metadata = EventMetadata.of(
+                AggregateId.of(patternId),
+                AggregateType.of("PATTERN"),
+                Version.of(version),
+                Agent.system(),
+                Instant.now(),
+                false
+        );
+        var event = HandleableEvent.of(metadata, EventName.of(eventName), Version.zero(), payload);
+
+        module.applyEventToPatternLookup(event).block();
+    }
+
+}
@@ -43,7 +43,7 @@ public class PatternsMessagingTest extends EventListenerTest {
     void setup() {
         when(module.allowUserToCreatePatterns(anyString())).thenReturn(Mono.empty());
         when(module.removePermissionsForUser(anyString())).thenReturn(Mono.empty());
-        when(module.updatePatternInLookup(anyString())).thenReturn(Mono.empty());
+        when(module.applyEventToPatternLookup(any())).thenReturn(Mono.empty());
         when(module.removePatternFromLookup(anyString())).thenReturn(Mono.empty());
         when(module.allowUserToManagePattern(anyString(), anyString())).thenReturn(Mono.empty());
         when(module.removePermissionsOnPattern(anyString())).thenReturn(Mono.empty());
@@ -107,7 +107,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -125,7 +127,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -143,7 +147,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -161,7 +167,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -179,7 +187,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -197,7 +207,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -215,7 +227,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -233,7 +247,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -251,7 +267,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -269,7 +287,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -287,7 +307,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -305,7 +327,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -323,7 +347,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
@@ -341,7 +367,9 @@ public class PatternsMessagingTest extends EventListenerTest {
         );
 
         // then: the pattern is updated in the lookup
-        verify(module, timeout(10000).times(1)).updatePatternInLookup(eq("PATTERN_ID"));
+        verify(module, timeout(10000).times(1)).applyEventToPatternLookup(argThat(event ->
+                event.getMetadata().getAggregateId().equals(AggregateId.of("PATTERN_ID"))
+        ));
     }
 
     @Test
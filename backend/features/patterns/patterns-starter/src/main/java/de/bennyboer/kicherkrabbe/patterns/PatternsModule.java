@@ -2,17 +2,20 @@ package de.bennyboer.kicherkrabbe.patterns;
 
 import de.bennyboer.kicherkrabbe.changes.ReceiverId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChange;
+import de.bennyboer.kicherkrabbe.changes.ResourceChangeId;
 import de.bennyboer.kicherkrabbe.changes.ResourceChangesTracker;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
 import de.bennyboer.kicherkrabbe.money.Money;
 import de.bennyboer.kicherkrabbe.patterns.http.api.*;
 import de.bennyboer.kicherkrabbe.patterns.persistence.categories.PatternCategoryRepo;
 import de.bennyboer.kicherkrabbe.patterns.persistence.lookup.LookupPattern;
+import de.bennyboer.kicherkrabbe.patterns.persistence.lookup.PatternLookupProjection;
 import de.bennyboer.kicherkrabbe.patterns.persistence.lookup.PatternLookupRepo;
 import de.bennyboer.kicherkrabbe.permissions.*;
 import jakarta.annotation.Nullable;
-import lombok.AllArgsConstructor;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -29,7 +32,6 @@ import static de.bennyboer.kicherkrabbe.patterns.Actions.*;
 import static de.bennyboer.kicherkrabbe.patterns.http.api.PatternsSortDirectionDTO.ASCENDING;
 import static org.springframework.transaction.annotation.Propagation.MANDATORY;
 
-@AllArgsConstructor
 public class PatternsModule {
 
     private final PatternService patternService;
@@ -42,6 +44,26 @@ public class PatternsModule {
 
     private final PatternCategoryRepo patternCategoryRepo;
 
+    private final ReadModelProjection<PatternId, LookupPattern> patternLookupProjection;
+
+    public PatternsModule(
+            PatternService patternService,
+            PermissionsService permissionsService,
+            PatternLookupRepo patternLookupRepo,
+            ResourceChangesTracker changesTracker,
+            PatternCategoryRepo patternCategoryRepo
+    ) {
+        this.patternService = patternService;
+        this.permissionsService = permissionsService;
+        this.patternLookupRepo = patternLookupRepo;
+        this.changesTracker = changesTracker;
+        this.patternCategoryRepo = patternCategoryRepo;
+        this.patternLookupProjection = PatternLookupProjection.create(
+                patternLookupRepo,
+                id -> updatePatternInLookup(id.getValue())
+        );
+    }
+
     public Mono<PatternsPage> getPatterns(
             String searchTerm,
             Set<String> categories,
@@ -194,10 +216,10 @@ public class PatternsModule {
                 .flatMapMany(patternCategoryRepo::findByIds);
     }
 
-    public Flux<ResourceChange> getPatternChanges(Agent agent) {
+    public Flux<ResourceChange> getPatternChanges(Agent agent, @Nullable ResourceChangeId lastSeenChangeId) {
         var receiverId = ReceiverId.of(agent.getId().getValue());
 
-        return changesTracker.getChanges(receiverId);
+        return changesTracker.getChanges(receiverId, lastSeenChangeId);
     }
 
     @Transactional(propagation = MANDATORY)
@@ -561,6 +583,10 @@ public class PatternsModule {
                 .then();
     }
 
+    public Mono<Void> applyEventToPatternLookup(HandleableEvent event) {
+        return patternLookupProjection.handle(event);
+    }
+
     public Mono<Void> removePatternFromLookup(String patternId) {
         return patternLookupRepo.remove(PatternId.of(patternId));
     }
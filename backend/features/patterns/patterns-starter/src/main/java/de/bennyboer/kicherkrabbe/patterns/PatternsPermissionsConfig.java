@@ -22,7 +22,7 @@ public class PatternsPermissionsConfig {
             @Qualifier("patternsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("patterns", permissionsRepo, eventPublisher);
     }
 
 }
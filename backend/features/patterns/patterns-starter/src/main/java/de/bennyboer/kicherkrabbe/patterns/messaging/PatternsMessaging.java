@@ -5,10 +5,13 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListener;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListenerFactory;
 import de.bennyboer.kicherkrabbe.patterns.PatternsModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Configuration
 public class PatternsMessaging {
 
@@ -58,19 +61,20 @@ public class PatternsMessaging {
     @Bean("patterns_onPatternCreatedOrUpdatedUpdateLookup")
     public EventListener onPatternCreatedOrUpdatedUpdateLookup(
             EventListenerFactory factory,
-            PatternsModule module
+            PatternsModule module,
+            @Value("${patterns.lookup.coalescing-window:100ms}") Duration coalescingWindow
     ) {
-        return factory.createEventListenerForAllEvents(
+        return factory.createCoalescingEventListenerForAllEvents(
                 "patterns.pattern-created-or-updated-update-lookup",
                 AggregateType.of("PATTERN"),
+                coalescingWindow,
                 (event) -> {
-                    String patternId = event.getMetadata().getAggregateId().getValue();
                     boolean isDeleted = event.getEventName().equals(EventName.of("DELETED"));
                     if (isDeleted) {
                         return Mono.empty();
                     }
 
-                    return module.updatePatternInLookup(patternId);
+                    return module.applyEventToPatternLookup(event);
                 }
         );
     }
@@ -0,0 +1,91 @@
+package de.bennyboer.kicherkrabbe.patterns.persistence.lookup;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.ReadModelProjection;
+import de.bennyboer.kicherkrabbe.patterns.PatternAlias;
+import de.bennyboer.kicherkrabbe.patterns.PatternCategoryId;
+import de.bennyboer.kicherkrabbe.patterns.PatternId;
+import de.bennyboer.kicherkrabbe.patterns.delete.category.CategoryRemovedEvent;
+import de.bennyboer.kicherkrabbe.patterns.feature.FeaturedEvent;
+import de.bennyboer.kicherkrabbe.patterns.persistence.PatternEventPayloadSerializer;
+import de.bennyboer.kicherkrabbe.patterns.publish.PublishedEvent;
+import de.bennyboer.kicherkrabbe.patterns.rename.RenamedEvent;
+import de.bennyboer.kicherkrabbe.patterns.unfeature.UnfeaturedEvent;
+import de.bennyboer.kicherkrabbe.patterns.unpublish.UnpublishedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.attribution.AttributionUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.categories.CategoriesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.description.DescriptionUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.extras.ExtrasUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.images.ImagesUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.number.NumberUpdatedEvent;
+import de.bennyboer.kicherkrabbe.patterns.update.variants.VariantsUpdatedEvent;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Applies pattern events directly to the pattern lookup.
+ * Creation and any event not listed here are handled by replaying the pattern.
+ */
+public class PatternLookupProjection {
+
+    private static final PatternEventPayloadSerializer SERIALIZER = new PatternEventPayloadSerializer();
+
+    public static ReadModelProjection<PatternId, LookupPattern> create(
+            PatternLookupRepo repo,
+            Function<PatternId, Mono<Void>> replay
+    ) {
+        return ReadModelProjection.builder("patterns_lookup", repo)
+                .reader(repo::findById)
+                .idMapper(aggregateId -> PatternId.of(aggregateId.getValue()))
+                .replay(replay)
+                .on(RenamedEvent.NAME, PatternLookupProjection::apply)
+                .on(PublishedEvent.NAME, PatternLookupProjection::apply)
+                .on(UnpublishedEvent.NAME, PatternLookupProjection::apply)
+                .on(FeaturedEvent.NAME, PatternLookupProjection::apply)
+                .on(UnfeaturedEvent.NAME, PatternLookupProjection::apply)
+                .on(NumberUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(AttributionUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(CategoriesUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(ImagesUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(VariantsUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(ExtrasUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(DescriptionUpdatedEvent.NAME, PatternLookupProjection::apply)
+                .on(CategoryRemovedEvent.NAME, PatternLookupProjection::apply)
+                .build();
+    }
+
+    private static LookupPattern apply(LookupPattern pattern, HandleableEvent handleableEvent, Version version) {
+        Event event = SERIALIZER.deserialize(
+                handleableEvent.getEventName(),
+                handleableEvent.getEventVersion(),
+                handleableEvent.getEvent()
+        );
+
+        return (switch (event) {
+            case RenamedEvent e -> pattern.withName(e.getName()).withAlias(PatternAlias.fromName(e.getName()));
+            case PublishedEvent ignored -> pattern.withPublished(true);
+            case UnpublishedEvent ignored -> pattern.withPublished(false);
+            case FeaturedEvent ignored -> pattern.withFeatured(true);
+            case UnfeaturedEvent ignored -> pattern.withFeatured(false);
+            case NumberUpdatedEvent e -> pattern.withNumber(e.getNumber());
+            case AttributionUpdatedEvent e -> pattern.withAttribution(e.getAttribution());
+            case CategoriesUpdatedEvent e -> pattern.withCategories(e.getCategories());
+            case ImagesUpdatedEvent e -> pattern.withImages(e.getImages());
+            case VariantsUpdatedEvent e -> pattern.withVariants(e.getVariants());
+            case ExtrasUpdatedEvent e -> pattern.withExtras(e.getExtras());
+            case DescriptionUpdatedEvent e -> pattern.withDescription(e.getDescription().orElse(null));
+            case CategoryRemovedEvent e -> {
+                Set<PatternCategoryId> updatedCategories = new HashSet<>(pattern.getCategories());
+                updatedCategories.remove(e.getCategoryId());
+                yield pattern.withCategories(updatedCategories);
+            }
+            default -> throw new IllegalArgumentException("Unknown event " + event.getClass().getSimpleName());
+        }).withVersion(version);
+    }
+
+}
@@ -22,7 +22,7 @@ public class ProductsPermissionsConfig {
             @Qualifier("productsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("products", permissionsRepo, eventPublisher);
     }
 
 }
@@ -22,7 +22,7 @@ public class TelegramPermissionsConfig {
             @Qualifier("telegramPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("telegram", permissionsRepo, eventPublisher);
     }
 
 }
@@ -22,7 +22,7 @@ public class TopicsPermissionsConfig {
             @Qualifier("topicsPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("topics", permissionsRepo, eventPublisher);
     }
 
 }
@@ -22,7 +22,7 @@ public class UsersPermissionsConfig {
             @Qualifier("usersPermissionsRepo") PermissionsRepo permissionsRepo,
             PermissionsEventPublisher eventPublisher
     ) {
-        return new PermissionsService(permissionsRepo, eventPublisher);
+        return new PermissionsService("users", permissionsRepo, eventPublisher);
     }
 
 }
@@ -1,11 +1,14 @@
 package de.bennyboer.kicherkrabbe.changes;
 
+import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeType.RESYNC_REQUIRED;
 import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 import static lombok.AccessLevel.PRIVATE;
 
@@ -13,6 +16,9 @@ import static lombok.AccessLevel.PRIVATE;
 @AllArgsConstructor(access = PRIVATE)
 public class ResourceChange {
 
+    @Nullable
+    ResourceChangeId id;
+
     ResourceChangeType type;
 
     Set<ResourceId> affected;
@@ -24,7 +30,25 @@ public class ResourceChange {
         notNull(affected, "Affected resource IDs must be given");
         notNull(payload, "Payload must be given");
 
-        return new ResourceChange(type, affected, payload);
+        return new ResourceChange(null, type, affected, payload);
+    }
+
+    /**
+     * Tells the receiver that changes have been missed that cannot be replayed,
+     * so it has to reload the resources it is interested in.
+     */
+    public static ResourceChange resyncRequired() {
+        return of(RESYNC_REQUIRED, Set.of(), Map.of());
+    }
+
+    public ResourceChange withId(ResourceChangeId id) {
+        notNull(id, "Resource change ID must be given");
+
+        return new ResourceChange(id, type, affected, payload);
+    }
+
+    public Optional<ResourceChangeId> getId() {
+        return Optional.ofNullable(id);
     }
 
 }
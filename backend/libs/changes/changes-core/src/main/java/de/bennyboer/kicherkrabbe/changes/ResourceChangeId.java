@@ -0,0 +1,32 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Identifies a change within the feed of a resource type.
+ * Receivers that reconnect pass the ID of the last change they have seen to only receive the missed changes.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class ResourceChangeId {
+
+    String value;
+
+    public static ResourceChangeId of(String value) {
+        notNull(value, "Resource change ID must be given");
+        check(!value.isBlank(), "Resource change ID must not be blank");
+
+        return new ResourceChangeId(value);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceChangeId(%s)".formatted(value);
+    }
+
+}
@@ -15,6 +15,8 @@ public class ResourceChangeType {
 
     public static final ResourceChangeType PERMISSIONS_REMOVED = ResourceChangeType.of("PERMISSIONS_REMOVED");
 
+    public static final ResourceChangeType RESYNC_REQUIRED = ResourceChangeType.of("RESYNC_REQUIRED");
+
     String value;
 
     public static ResourceChangeType of(String value) {
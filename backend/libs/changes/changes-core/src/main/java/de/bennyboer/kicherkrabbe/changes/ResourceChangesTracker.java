@@ -1,9 +1,23 @@
 package de.bennyboer.kicherkrabbe.changes;
 
+import jakarta.annotation.Nullable;
 import reactor.core.publisher.Flux;
 
 public interface ResourceChangesTracker {
 
     Flux<ResourceChange> getChanges(ReceiverId receiverId);
 
+    /**
+     * Get the changes for a receiver that reconnects after having seen the change with the given ID.
+     * The changes missed in the meantime are emitted first. If they cannot be replayed anymore,
+     * a change of type {@link ResourceChangeType#RESYNC_REQUIRED} is emitted instead.
+     */
+    default Flux<ResourceChange> getChanges(ReceiverId receiverId, @Nullable ResourceChangeId lastSeenChangeId) {
+        if (lastSeenChangeId == null) {
+            return getChanges(receiverId);
+        }
+
+        return getChanges(receiverId).startWith(ResourceChange.resyncRequired());
+    }
+
 }
@@ -0,0 +1,99 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import de.bennyboer.kicherkrabbe.changes.ChangeRingBuffer.SequencedChange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeRingBufferTest {
+
+    private final ChangeRingBuffer<String> buffer = new ChangeRingBuffer<>(3);
+
+    @Test
+    void shouldNumberChangesStartingAtOne() {
+        // when: appending two changes
+        var first = buffer.append("A");
+        var second = buffer.append("B");
+
+        // then: the changes are numbered in order
+        assertThat(first.getSequence()).isEqualTo(1);
+        assertThat(second.getSequence()).isEqualTo(2);
+        assertThat(buffer.getLastSequence()).isEqualTo(2);
+
+        // and: all of them are available
+        assertThat(changes(buffer.getAllAfter(0))).containsExactly("A", "B");
+    }
+
+    @Test
+    void shouldOverwriteOldestChangesOnWrapAround() {
+        // when: appending more changes than the capacity
+        for (String change : List.of("A", "B", "C", "D", "E")) {
+            buffer.append(change);
+        }
+
+        // then: the most recent changes are still available in order
+        assertThat(changes(buffer.getAllAfter(2))).containsExactly("C", "D", "E");
+        assertThat(changes(buffer.getAllAfter(4))).containsExactly("E");
+
+        // and: a range ends at the given upper bound
+        assertThat(changes(buffer.getRange(2, 4))).containsExactly("C", "D");
+
+        // and: nothing is missing after the last change
+        assertThat(changes(buffer.getAllAfter(5))).isEmpty();
+    }
+
+    @Test
+    void shouldNotResumeFromEvictedChange() {
+        // given: a buffer that has wrapped around
+        for (String change : List.of("A", "B", "C", "D", "E")) {
+            buffer.append(change);
+        }
+
+        // when: resuming after a change whose successor has been overwritten
+        var missed = buffer.getAllAfter(1);
+
+        // then: the missed changes are not available
+        assertThat(missed).isEmpty();
+    }
+
+    @Test
+    void shouldNotResumeFromUnknownSequence() {
+        // given: a buffer with some changes
+        buffer.append("A");
+        buffer.append("B");
+
+        // then: sequences that have never been issued are not available
+        assertThat(buffer.getAllAfter(3)).isEmpty();
+        assertThat(buffer.getAllAfter(-1)).isEmpty();
+    }
+
+    @Test
+    void shouldNotResumeAcrossInterruption() {
+        // given: a change before the feed was interrupted
+        buffer.append("A");
+        buffer.interrupt();
+
+        // when: appending a change after the interruption
+        var next = buffer.append("B");
+
+        // then: the change is not mistaken as the direct successor of the last one
+        assertThat(next.getSequence()).isEqualTo(3);
+
+        // and: the changes before the interruption are not available
+        assertThat(buffer.getAllAfter(1)).isEmpty();
+        assertThat(changes(buffer.getAllAfter(2))).containsExactly("B");
+    }
+
+    private List<String> changes(Optional<List<SequencedChange<String>>> changes) {
+        assertThat(changes).isPresent();
+
+        return changes.get()
+                .stream()
+                .map(SequencedChange::getChange)
+                .toList();
+    }
+
+}
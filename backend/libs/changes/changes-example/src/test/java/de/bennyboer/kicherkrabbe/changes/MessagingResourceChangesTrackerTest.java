@@ -0,0 +1,338 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListenerFactory;
+import de.bennyboer.kicherkrabbe.messaging.MessagingJsonMappers;
+import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageBatching;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageCoalescing;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageConcurrency;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageListener;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerFactory;
+import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
+import de.bennyboer.kicherkrabbe.permissions.Action;
+import de.bennyboer.kicherkrabbe.permissions.Holder;
+import de.bennyboer.kicherkrabbe.permissions.HolderId;
+import de.bennyboer.kicherkrabbe.permissions.Permission;
+import de.bennyboer.kicherkrabbe.permissions.PermissionsService;
+import de.bennyboer.kicherkrabbe.permissions.Resource;
+import de.bennyboer.kicherkrabbe.permissions.events.PermissionEventListenerFactory;
+import de.bennyboer.kicherkrabbe.permissions.persistence.inmemory.InMemoryPermissionsRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessagingResourceChangesTrackerTest {
+
+    private final CountingMessageListenerFactory messageListenerFactory = new CountingMessageListenerFactory();
+
+    private final PermissionsService permissionsService = new PermissionsService(
+            new InMemoryPermissionsRepo(),
+            event -> Mono.empty()
+    );
+
+    private VirtualTimeScheduler scheduler;
+
+    private MessagingResourceChangesTracker offerChanges;
+
+    private MessagingResourceChangesTracker patternChanges;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+
+        offerChanges = createTracker(ResourceType.of("OFFER"));
+        patternChanges = createTracker(ResourceType.of("PATTERN"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void shouldSubscribeOncePerResourceTypeForAllReceivers() {
+        // when: several receivers listen for changes of two resource types
+        List<Disposable> receivers = List.of(
+                offerChanges.getChanges(ReceiverId.of("USER_1")).subscribe(),
+                offerChanges.getChanges(ReceiverId.of("USER_2")).subscribe(),
+                offerChanges.getChanges(ReceiverId.of("USER_2")).subscribe(),
+                patternChanges.getChanges(ReceiverId.of("USER_1")).subscribe()
+        );
+
+        // then: there is a single subscription to the events of each resource type
+        assertThat(messageListenerFactory.getSubscriptions("offer")).isEqualTo(1);
+        assertThat(messageListenerFactory.getSubscriptions("pattern")).isEqualTo(1);
+
+        // and: a single subscription to the permission events per resource type
+        assertThat(messageListenerFactory.getSubscriptions("permissions")).isEqualTo(2);
+
+        receivers.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void shouldReleaseSubscriptionsGracePeriodAfterLastReceiverLeft() {
+        // given: two receivers
+        Disposable first = offerChanges.getChanges(ReceiverId.of("USER_1")).subscribe();
+        Disposable second = offerChanges.getChanges(ReceiverId.of("USER_2")).subscribe();
+
+        // when: both receivers leave
+        first.dispose();
+        second.dispose();
+
+        // then: the subscriptions are kept for 30 seconds
+        scheduler.advanceTimeBy(Duration.ofSeconds(29));
+        assertThat(messageListenerFactory.getActiveSubscriptions("offer")).isEqualTo(1);
+        assertThat(messageListenerFactory.getActiveSubscriptions("permissions")).isEqualTo(1);
+
+        // and: released afterwards
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(messageListenerFactory.getActiveSubscriptions("offer")).isZero();
+        assertThat(messageListenerFactory.getActiveSubscriptions("permissions")).isZero();
+    }
+
+    @Test
+    void shouldKeepSubscriptionsWhenReceiverReconnectsWithinGracePeriod() {
+        // given: a receiver that left
+        offerChanges.getChanges(ReceiverId.of("USER_1")).subscribe().dispose();
+
+        // when: the receiver reconnects within the grace period
+        scheduler.advanceTimeBy(Duration.ofSeconds(20));
+        Disposable reconnected = offerChanges.getChanges(ReceiverId.of("USER_1")).subscribe();
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+
+        // then: the subscriptions have not been recreated
+        assertThat(messageListenerFactory.getSubscriptions("offer")).isEqualTo(1);
+        assertThat(messageListenerFactory.getActiveSubscriptions("offer")).isEqualTo(1);
+        assertThat(messageListenerFactory.getSubscriptions("permissions")).isEqualTo(1);
+
+        reconnected.dispose();
+    }
+
+    @Test
+    void shouldAuthorizeReplayedEventsAgainstCurrentPermissions() {
+        // given: a receiver that may read the events of an offer
+        Permission permission = Permission.builder()
+                .holder(Holder.user(HolderId.of("USER_1")))
+                .isAllowedTo(Action.of("READ"))
+                .on(offer("OFFER_ID"));
+        permissionsService.addPermission(permission).block();
+
+        List<ResourceChange> received = new CopyOnWriteArrayList<>();
+        Disposable receiver = offerChanges.getChanges(ReceiverId.of("USER_1")).subscribe(received::add);
+
+        // when: two events of the offer arrive
+        messageListenerFactory.publish("offer", eventMessage("OFFER_ID", 1, "CREATED"));
+        messageListenerFactory.publish("offer", eventMessage("OFFER_ID", 2, "UPDATED"));
+
+        // then: the receiver is sent both
+        assertThat(received).extracting(ResourceChange::getType)
+                .containsExactly(ResourceChangeType.of("CREATED"), ResourceChangeType.of("UPDATED"));
+
+        // when: the receiver disconnects and the permission is revoked in the meantime
+        receiver.dispose();
+        permissionsService.removePermission(permission).block();
+        messageListenerFactory.publish("permissions", permissionRemovedMessage("USER_1", "OFFER_ID"));
+
+        // and: the receiver reconnects with the ID of the first change
+        List<ResourceChange> replayed = new CopyOnWriteArrayList<>();
+        Disposable reconnected = offerChanges.getChanges(
+                ReceiverId.of("USER_1"),
+                received.getFirst().getId().orElseThrow()
+        ).subscribe(replayed::add);
+
+        // then: the second event is not replayed anymore, only the removal of the permission
+        assertThat(replayed).extracting(ResourceChange::getType)
+                .containsExactly(ResourceChangeType.PERMISSIONS_REMOVED);
+
+        reconnected.dispose();
+    }
+
+    @Test
+    void shouldRequestResyncForUnknownLastSeenChange() {
+        // when: a receiver reconnects with the ID of a change from another tracker instance
+        List<ResourceChange> received = new CopyOnWriteArrayList<>();
+        Disposable receiver = offerChanges.getChanges(
+                ReceiverId.of("USER_1"),
+                ResourceChangeId.of("OTHER_FEED:42")
+        ).subscribe(received::add);
+
+        // then: the receiver is asked to resync
+        assertThat(received).extracting(ResourceChange::getType)
+                .containsExactly(ResourceChangeType.RESYNC_REQUIRED);
+
+        receiver.dispose();
+    }
+
+    private MessagingResourceChangesTracker createTracker(ResourceType resourceType) {
+        JsonMapper jsonMapper = MessagingJsonMappers.create();
+
+        return new MessagingResourceChangesTracker(
+                new EventListenerFactory(messageListenerFactory, jsonMapper),
+                new PermissionEventListenerFactory(messageListenerFactory, jsonMapper),
+                permissionsService,
+                resourceType,
+                Action.of("READ"),
+                event -> Map.of()
+        );
+    }
+
+    private Resource offer(String offerId) {
+        return Resource.of(
+                de.bennyboer.kicherkrabbe.permissions.ResourceType.of("OFFER"),
+                de.bennyboer.kicherkrabbe.permissions.ResourceId.of(offerId)
+        );
+    }
+
+    private String eventMessage(String offerId, long version, String eventName) {
+        return """
+                {
+                    "metadata": {
+                        "aggregateId": "%s",
+                        "aggregateType": "OFFER",
+                        "aggregateVersion": %d,
+                        "eventName": "%s",
+                        "eventVersion": 0,
+                        "agentType": "SYSTEM",
+                        "agentId": "SYSTEM",
+                        "date": "2024-03-12T10:00:00Z",
+                        "isSnapshot": false
+                    },
+                    "event": {}
+                }
+                """.formatted(offerId, version, eventName);
+    }
+
+    private String permissionRemovedMessage(String userId, String offerId) {
+        return """
+                {
+                    "type": "REMOVED",
+                    "permissions": [
+                        {
+                            "holder": { "type": "USER", "id": "%s" },
+                            "action": "READ",
+                            "resource": { "type": "OFFER", "id": "%s" }
+                        }
+                    ]
+                }
+                """.formatted(userId, offerId);
+    }
+
+    /**
+     * Counts the subscriptions to transient listeners per exchange, which correspond to queues on the broker.
+     * Messages published to an exchange are delivered to its subscribed transient listeners.
+     */
+    private static class CountingMessageListenerFactory implements MessageListenerFactory {
+
+        private final Map<String, AtomicInteger> subscriptions = new ConcurrentHashMap<>();
+
+        private final Map<String, AtomicInteger> activeSubscriptions = new ConcurrentHashMap<>();
+
+        private final Map<String, Sinks.Many<Message>> exchanges = new ConcurrentHashMap<>();
+
+        @Override
+        public Flux<Message> createTransientListener(
+                ExchangeTarget exchange,
+                RoutingKey routingKey,
+                String listenerName
+        ) {
+            String name = exchange.getName();
+
+            return exchange(name).asFlux()
+                    .doOnSubscribe(ignored -> {
+                        counter(subscriptions, name).incrementAndGet();
+                        counter(activeSubscriptions, name).incrementAndGet();
+                    })
+                    .doOnCancel(() -> counter(activeSubscriptions, name).decrementAndGet());
+        }
+
+        void publish(String exchangeName, String body) {
+            var message = new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+            exchange(exchangeName).tryEmitNext(message);
+        }
+
+        int getSubscriptions(String exchangeName) {
+            return counter(subscriptions, exchangeName).get();
+        }
+
+        int getActiveSubscriptions(String exchangeName) {
+            return counter(activeSubscriptions, exchangeName).get();
+        }
+
+        @Override
+        public MessageListener<Message> createListener(
+                ExchangeTarget exchange,
+                RoutingKey routingKey,
+                String listenerName,
+                Function<Message, Mono<Void>> handler
+        ) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> MessageListener<T> createCoalescingListener(
+                ExchangeTarget exchange,
+                RoutingKey routingKey,
+                String listenerName,
+                Function<Message, T> decoder,
+                MessageCoalescing<T> coalescing,
+                Function<T, Mono<Void>> handler
+        ) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> MessageListener<T> createConcurrentListener(
+                ExchangeTarget exchange,
+                RoutingKey routingKey,
+                String listenerName,
+                Function<Message, T> decoder,
+                MessageConcurrency<T> concurrency,
+                Function<T, Mono<Void>> handler
+        ) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageListener<Message> createBatchListener(
+                ExchangeTarget exchange,
+                RoutingKey routingKey,
+                String listenerName,
+                MessageBatching batching,
+                Function<List<Message>, Mono<Void>> handler
+        ) {
+            throw new UnsupportedOperationException();
+        }
+
+        private Sinks.Many<Message> exchange(String exchangeName) {
+            return exchanges.computeIfAbsent(
+                    exchangeName,
+                    ignored -> Sinks.many().multicast().directBestEffort()
+            );
+        }
+
+        private AtomicInteger counter(Map<String, AtomicInteger> counters, String exchangeName) {
+            return counters.computeIfAbsent(exchangeName, ignored -> new AtomicInteger());
+        }
+
+    }
+
+}
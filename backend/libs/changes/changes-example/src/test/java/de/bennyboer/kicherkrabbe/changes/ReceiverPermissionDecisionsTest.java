@@ -0,0 +1,171 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import de.bennyboer.kicherkrabbe.permissions.Action;
+import de.bennyboer.kicherkrabbe.permissions.Holder;
+import de.bennyboer.kicherkrabbe.permissions.HolderId;
+import de.bennyboer.kicherkrabbe.permissions.Permission;
+import de.bennyboer.kicherkrabbe.permissions.PermissionsService;
+import de.bennyboer.kicherkrabbe.permissions.Resource;
+import de.bennyboer.kicherkrabbe.permissions.ResourceId;
+import de.bennyboer.kicherkrabbe.permissions.ResourceType;
+import de.bennyboer.kicherkrabbe.permissions.events.PermissionEvent;
+import de.bennyboer.kicherkrabbe.permissions.persistence.inmemory.InMemoryPermissionsRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReceiverPermissionDecisionsTest {
+
+    private final Action readEvents = Action.of("READ_EVENTS");
+
+    private final Resource resource = Resource.of(ResourceType.of("OFFER"), ResourceId.of("OFFER_ID"));
+
+    private GatedPermissionsService permissionsService;
+
+    private ReceiverPermissionDecisions decisions;
+
+    @BeforeEach
+    void setUp() {
+        permissionsService = new GatedPermissionsService();
+        decisions = new ReceiverPermissionDecisions(permissionsService, readEvents, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldDecideForAllReceiversWithSingleQuery() {
+        // given: only the first user may read the events of the resource
+        permissionsService.addPermission(permissionFor("USER_1")).block();
+
+        // when: evaluating the decisions for three receivers
+        var result = decisions.evaluate(resource, receivers("USER_1", "USER_2", "USER_3")).block();
+
+        // then: the decisions are correct
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(
+                ReceiverId.of("USER_1"), true,
+                ReceiverId.of("USER_2"), false,
+                ReceiverId.of("USER_3"), false
+        ));
+
+        // and: a single query has been made for all receivers
+        assertThat(permissionsService.getQueries()).isEqualTo(1);
+        assertThat(permissionsService.getLastQueriedHolders()).isEqualTo(3);
+
+        // when: evaluating again with a receiver that is not known yet
+        result = decisions.evaluate(resource, receivers("USER_1", "USER_2", "USER_4")).block();
+
+        // then: only the unknown receiver has been queried
+        assertThat(result).containsEntry(ReceiverId.of("USER_4"), false);
+        assertThat(permissionsService.getQueries()).isEqualTo(2);
+        assertThat(permissionsService.getLastQueriedHolders()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldForgetDecisionOnPermissionEvent() {
+        // given: known decisions for two receivers
+        decisions.evaluate(resource, receivers("USER_1", "USER_2")).block();
+
+        // when: the first user is granted the permission
+        Permission permission = permissionFor("USER_1");
+        permissionsService.addPermission(permission).block();
+        decisions.invalidate(PermissionEvent.added(permission));
+
+        // then: the decision of the first receiver is queried again
+        var result = decisions.evaluate(resource, receivers("USER_1", "USER_2")).block();
+        assertThat(result).containsEntry(ReceiverId.of("USER_1"), true)
+                .containsEntry(ReceiverId.of("USER_2"), false);
+        assertThat(permissionsService.getQueries()).isEqualTo(2);
+        assertThat(permissionsService.getLastQueriedHolders()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheDecisionOfQueryInvalidatedWhileInFlight() {
+        // given: a query for a receiver without the permission is in flight
+        permissionsService.closeGate();
+        CompletableFuture<Boolean> inFlight = decisions.evaluate(resource, ReceiverId.of("USER_1")).toFuture();
+
+        // when: the permission is granted before the query completes
+        Permission permission = permissionFor("USER_1");
+        permissionsService.addPermission(permission).block();
+        decisions.invalidate(PermissionEvent.added(permission));
+        permissionsService.openGate();
+
+        // then: the query in flight may still see the old state
+        assertThat(inFlight.join()).isFalse();
+
+        // and: the outdated decision has not been kept
+        assertThat(decisions.evaluate(resource, ReceiverId.of("USER_1")).block()).isTrue();
+        assertThat(permissionsService.getQueries()).isEqualTo(2);
+    }
+
+    private List<ReceiverId> receivers(String... userIds) {
+        return Arrays.stream(userIds)
+                .map(ReceiverId::of)
+                .toList();
+    }
+
+    private Permission permissionFor(String userId) {
+        return Permission.builder()
+                .holder(Holder.user(HolderId.of(userId)))
+                .isAllowedTo(readEvents)
+                .on(resource);
+    }
+
+    /**
+     * Counts the holder queries and holds back their results until the gate is opened.
+     * The results reflect the permissions at the time the query was made.
+     */
+    private static class GatedPermissionsService extends PermissionsService {
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private final AtomicInteger lastQueriedHolders = new AtomicInteger();
+
+        private Sinks.Empty<Void> gate = Sinks.empty();
+
+        GatedPermissionsService() {
+            super(new InMemoryPermissionsRepo(), event -> Mono.empty());
+            openGate();
+        }
+
+        @Override
+        public Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource) {
+            Mono<Void> currentGate = gate.asMono();
+            queries.incrementAndGet();
+            lastQueriedHolders.set(holders.size());
+
+            return super.findHoldersWithPermission(holders, action, resource)
+                    .collectList()
+                    .delayUntil(ignored -> currentGate)
+                    .flatMapMany(Flux::fromIterable);
+        }
+
+        int getQueries() {
+            return queries.get();
+        }
+
+        int getLastQueriedHolders() {
+            return lastQueriedHolders.get();
+        }
+
+        void closeGate() {
+            gate = Sinks.empty();
+        }
+
+        void openGate() {
+            gate.tryEmitEmpty();
+        }
+
+    }
+
+}
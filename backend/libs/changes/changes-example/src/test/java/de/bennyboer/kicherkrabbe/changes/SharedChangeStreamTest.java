@@ -0,0 +1,166 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedChangeStreamTest {
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private final AtomicInteger activeSubscriptions = new AtomicInteger();
+
+    private final Sinks.Many<String> upstream = Sinks.many().multicast().directBestEffort();
+
+    private VirtualTimeScheduler scheduler;
+
+    private SharedChangeStream<String> stream;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.getOrSet();
+        stream = new SharedChangeStream<>(
+                "test",
+                () -> upstream.asFlux()
+                        .doOnSubscribe(ignored -> {
+                            subscriptions.incrementAndGet();
+                            activeSubscriptions.incrementAndGet();
+                        })
+                        .doOnCancel(activeSubscriptions::decrementAndGet),
+                2,
+                Duration.ofSeconds(30)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void shouldShareUpstreamSubscriptionBetweenSubscribers() {
+        // when: subscribing three times
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<Disposable> subscribers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            subscribers.add(stream.subscribe().subscribe(received::add));
+        }
+
+        // then: the upstream has been subscribed once
+        assertThat(subscriptions.get()).isEqualTo(1);
+
+        // when: the upstream emits a change
+        upstream.tryEmitNext("CHANGE");
+
+        // then: every subscriber received it
+        assertThat(received).containsExactly("CHANGE", "CHANGE", "CHANGE");
+
+        subscribers.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void shouldCancelUpstreamGracePeriodAfterLastSubscriberLeft() {
+        // given: two subscribers
+        Disposable first = stream.subscribe().subscribe();
+        Disposable second = stream.subscribe().subscribe();
+
+        // when: both subscribers leave
+        first.dispose();
+        second.dispose();
+
+        // then: the upstream is kept until the grace period is over
+        scheduler.advanceTimeBy(Duration.ofSeconds(29));
+        assertThat(activeSubscriptions.get()).isEqualTo(1);
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertThat(activeSubscriptions.get()).isZero();
+
+        // when: subscribing again
+        Disposable third = stream.subscribe().subscribe();
+
+        // then: the upstream has been subscribed again
+        assertThat(subscriptions.get()).isEqualTo(2);
+        assertThat(activeSubscriptions.get()).isEqualTo(1);
+
+        third.dispose();
+    }
+
+    @Test
+    void shouldKeepUpstreamWhenSubscribingAgainWithinGracePeriod() {
+        // given: a subscriber that left
+        stream.subscribe().subscribe().dispose();
+
+        // when: subscribing again within the grace period
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+        Disposable reconnected = stream.subscribe().subscribe();
+
+        // then: the upstream is still the same after the grace period
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        assertThat(subscriptions.get()).isEqualTo(1);
+        assertThat(activeSubscriptions.get()).isEqualTo(1);
+
+        reconnected.dispose();
+    }
+
+    @Test
+    void shouldFailSlowSubscriberWithoutHoldingBackOthers() {
+        // given: a subscriber that does not request any changes and one that keeps up
+        var slow = new NonRequestingSubscriber();
+        stream.subscribe().subscribe(slow);
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        Disposable fast = stream.subscribe().subscribe(received::add);
+
+        // when: more changes arrive than fit in the buffer of the slow subscriber
+        upstream.tryEmitNext("CHANGE_1");
+        upstream.tryEmitNext("CHANGE_2");
+        upstream.tryEmitNext("CHANGE_3");
+
+        // then: the slow subscriber failed with an overflow
+        assertThat(slow.getError()).matches(Exceptions::isOverflow);
+
+        // and: the other subscriber still receives all changes
+        upstream.tryEmitNext("CHANGE_4");
+        assertThat(received).containsExactly("CHANGE_1", "CHANGE_2", "CHANGE_3", "CHANGE_4");
+        assertThat(subscriptions.get()).isEqualTo(1);
+
+        fast.dispose();
+    }
+
+    private static class NonRequestingSubscriber extends BaseSubscriber<String> {
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // never request any changes
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        Throwable getError() {
+            return error.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Keeps the most recent changes of a feed, numbered by a monotonic sequence starting at 1.
+ * Once the capacity is reached, the oldest change is overwritten.
+ */
+class ChangeRingBuffer<T> {
+
+    private final Object[] entries;
+
+    /**
+     * The sequence number the next appended change will get.
+     */
+    private long nextSequence = 1;
+
+    /**
+     * The sequence number of the oldest change that may still be replayed.
+     * Changes before it have been overwritten or were never seen because the feed was interrupted.
+     */
+    private long firstAvailableSequence = 1;
+
+    ChangeRingBuffer(int capacity) {
+        check(capacity > 0, "Capacity must be positive");
+
+        this.entries = new Object[capacity];
+    }
+
+    synchronized SequencedChange<T> append(T change) {
+        long sequence = nextSequence++;
+        entries[index(sequence)] = change;
+
+        int capacity = entries.length;
+        if (sequence - firstAvailableSequence >= capacity) {
+            firstAvailableSequence = sequence - capacity + 1;
+        }
+
+        return SequencedChange.of(sequence, change);
+    }
+
+    /**
+     * Get the changes after the given sequence number up to and including the given upper bound.
+     * Returns empty if some of them are no longer available.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized Optional<List<SequencedChange<T>>> getRange(long afterSequence, long upToSequence) {
+        if (afterSequence + 1 < firstAvailableSequence || afterSequence >= nextSequence) {
+            return Optional.empty();
+        }
+
+        long last = Math.min(upToSequence, nextSequence - 1);
+        List<SequencedChange<T>> result = new ArrayList<>();
+        for (long sequence = afterSequence + 1; sequence <= last; sequence++) {
+            result.add(SequencedChange.of(sequence, (T) entries[index(sequence)]));
+        }
+
+        return Optional.of(result);
+    }
+
+    synchronized Optional<List<SequencedChange<T>>> getAllAfter(long afterSequence) {
+        return getRange(afterSequence, Long.MAX_VALUE);
+    }
+
+    synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Marks all changes up to now as unavailable, for example because the feed was interrupted
+     * and changes might have been missed. A sequence number is skipped, so that receivers having seen
+     * the last change before the interruption do not mistake the next change as its direct successor.
+     */
+    synchronized void interrupt() {
+        nextSequence++;
+        firstAvailableSequence = nextSequence;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % entries.length);
+    }
+
+    @Value
+    @AllArgsConstructor(access = PRIVATE)
+    static class SequencedChange<T> {
+
+        long sequence;
+
+        T change;
+
+        static <T> SequencedChange<T> of(long sequence, T change) {
+            return new SequencedChange<>(sequence, change);
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package de.bennyboer.kicherkrabbe.changes;
 
+import de.bennyboer.kicherkrabbe.changes.ChangeRingBuffer.SequencedChange;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventListenerFactory;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
@@ -8,19 +9,58 @@ import de.bennyboer.kicherkrabbe.permissions.*;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionEvent;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionEventListenerFactory;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionEventType;
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static de.bennyboer.kicherkrabbe.changes.ResourceChangeType.PERMISSIONS_ADDED;
 import static de.bennyboer.kicherkrabbe.changes.ResourceChangeType.PERMISSIONS_REMOVED;
-
+import static de.bennyboer.kicherkrabbe.changes.ResourceChangeType.RESYNC_REQUIRED;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Tracks changes of a resource type for any number of receivers.
+ * All receivers on this node share one subscription to the resource events and one to the permission events,
+ * merged into a single feed, so the broker load does not grow with the number of connected receivers.
+ * Each event is authorized once for all connected receivers with a single permission query.
+ * The decisions are cached per receiver and resource until a permission event concerning them arrives.
+ * <p>
+ * The most recent changes are kept in a ring buffer, so that a receiver reconnecting with the ID of the last change
+ * it has seen is only sent the changes it missed. Replayed events are authorized again against the current
+ * permissions. Change IDs are only valid for the tracker instance that issued them, so a receiver reconnecting
+ * to another instance is asked to resync.
+ */
+@Slf4j
 public class MessagingResourceChangesTracker implements ResourceChangesTracker {
 
+    private static final int BUFFER_SIZE_PER_RECEIVER = 256;
+
+    private static final Duration SHARED_SUBSCRIPTION_GRACE_PERIOD = Duration.ofSeconds(30);
+
+    private static final int REPLAY_BUFFER_SIZE = 1024;
+
+    private static final long MAX_CACHED_PERMISSION_DECISIONS = 100_000;
+
+    /**
+     * Permission events are the only way decisions are invalidated. In case one is missed (for example
+     * during a broker reconnect) decisions are still fetched again after some time.
+     */
+    private static final Duration PERMISSION_DECISION_EXPIRY = Duration.ofMinutes(10);
+
     EventListenerFactory eventListenerFactory;
 
     PermissionEventListenerFactory permissionEventListenerFactory;
@@ -35,6 +75,16 @@ public class MessagingResourceChangesTracker implements ResourceChangesTracker {
 
     ResourceChangeFilter resourceChangeFilter;
 
+    ReceiverPermissionDecisions permissionDecisions;
+
+    Map<ReceiverId, Integer> connectedReceivers = new ConcurrentHashMap<>();
+
+    String feedId = UUID.randomUUID().toString();
+
+    ChangeRingBuffer<TrackedChange> replayBuffer = new ChangeRingBuffer<>(REPLAY_BUFFER_SIZE);
+
+    SharedChangeStream<SequencedChange<TrackedChange>> changes;
+
     public MessagingResourceChangesTracker(
             EventListenerFactory eventListenerFactory,
             PermissionEventListenerFactory permissionEventListenerFactory,
@@ -51,6 +101,36 @@ public class MessagingResourceChangesTracker implements ResourceChangesTracker {
         this.readEventsAction = readEventsAction;
         this.eventResourceChangePayloadTransformer = eventResourceChangePayloadTransformer;
         this.resourceChangeFilter = resourceChangeFilter;
+
+        this.permissionDecisions = new ReceiverPermissionDecisions(
+                permissionsService,
+                readEventsAction,
+                MAX_CACHED_PERMISSION_DECISIONS,
+                PERMISSION_DECISION_EXPIRY
+        );
+
+        String resourceTypeName = resourceType.getValue().toLowerCase(Locale.ROOT);
+        this.changes = new SharedChangeStream<>(
+                "%s-changes".formatted(resourceTypeName),
+                () -> Flux.merge(
+                                eventListenerFactory.createTransientEventListenerForAllEvents(
+                                        "track-changes",
+                                        toAggregateType(resourceType)
+                                ).concatMap(this::authorize),
+                                permissionEventListenerFactory.listen(
+                                        toPermissionsResourceType(resourceType),
+                                        "track-permission-changes"
+                                ).doOnNext(permissionDecisions::invalidate).map(TrackedChange::permissions)
+                        )
+                        .doOnSubscribe(ignored -> {
+                            permissionDecisions.invalidateAll();
+                            replayBuffer.interrupt();
+                        })
+                        .doFinally(ignored -> permissionDecisions.invalidateAll())
+                        .map(replayBuffer::append),
+                BUFFER_SIZE_PER_RECEIVER,
+                SHARED_SUBSCRIPTION_GRACE_PERIOD
+        );
     }
 
     public MessagingResourceChangesTracker(
@@ -74,39 +154,179 @@ public class MessagingResourceChangesTracker implements ResourceChangesTracker {
 
     @Override
     public Flux<ResourceChange> getChanges(ReceiverId receiverId) {
-        Flux<ResourceChange> permissionChanges$ = getPermissionChanges(receiverId);
-        Flux<ResourceChange> eventChanges$ = getEventChanges(receiverId);
+        return getChanges(receiverId, null);
+    }
 
-        return Flux.merge(permissionChanges$, eventChanges$)
-                .filter(resourceChangeFilter::isRelevant);
+    @Override
+    public Flux<ResourceChange> getChanges(ReceiverId receiverId, @Nullable ResourceChangeId lastSeenChangeId) {
+        Flux<SequencedChange<TrackedChange>> live$ = changes.subscribe()
+                .doOnSubscribe(ignored -> connectedReceivers.merge(receiverId, 1, Integer::sum))
+                .doFinally(ignored -> connectedReceivers.computeIfPresent(
+                        receiverId,
+                        (id, count) -> count > 1 ? count - 1 : null
+                ));
+        Flux<DeliveredChange> changes$ = lastSeenChangeId == null
+                ? live$.map(DeliveredChange::live)
+                : resume(toSequence(lastSeenChangeId), live$);
+
+        return changes$.concatMap(change -> toResourceChange(change, receiverId))
+                .filter(change -> isResyncRequest(change) || resourceChangeFilter.isRelevant(change));
     }
 
-    private Flux<ResourceChange> getEventChanges(ReceiverId receiverId) {
-        String listenerName = "track-changes-for-receiver-%s".formatted(receiverId.getValue());
+    /**
+     * Emits the changes after the last seen one from the replay buffer before continuing with the live changes.
+     * Live changes that have already been replayed are skipped and gaps between them are filled from the buffer.
+     * Whenever the missed changes are no longer in the buffer, a resync is requested instead.
+     */
+    private Flux<DeliveredChange> resume(
+            long lastSeenSequence,
+            Flux<SequencedChange<TrackedChange>> live$
+    ) {
+        AtomicLong cursor = new AtomicLong(lastSeenSequence);
 
-        return eventListenerFactory.createTransientEventListenerForAllEvents(
-                        listenerName,
-                        toAggregateType(resourceType)
+        return Flux.concat(
+                        Mono.fromSupplier(() -> catchUp(cursor, null)),
+                        live$.map(change -> catchUp(cursor, change))
                 )
-                .filterWhen(event -> {
-                    ReceiverId eventAgentReceiverId = ReceiverId.of(event.getMetadata().getAgent().getId().getValue());
-                    boolean isEventAgentTheReceiver = eventAgentReceiverId.equals(receiverId);
-                    if (isEventAgentTheReceiver) {
-                        return Mono.just(true);
+                .concatMapIterable(caughtUp -> caughtUp);
+    }
+
+    private List<DeliveredChange> catchUp(
+            AtomicLong cursor,
+            @Nullable SequencedChange<TrackedChange> liveChange
+    ) {
+        long lastSeenSequence = cursor.get();
+        if (liveChange != null) {
+            long sequence = liveChange.getSequence();
+            if (sequence <= lastSeenSequence) {
+                return List.of();
+            }
+            if (sequence == lastSeenSequence + 1) {
+                cursor.set(sequence);
+                return List.of(DeliveredChange.live(liveChange));
+            }
+        }
+
+        Optional<List<SequencedChange<TrackedChange>>> missed = liveChange != null
+                ? replayBuffer.getRange(lastSeenSequence, liveChange.getSequence())
+                : replayBuffer.getAllAfter(lastSeenSequence);
+
+        return missed
+                .map(replayed -> {
+                    if (!replayed.isEmpty()) {
+                        cursor.set(replayed.getLast().getSequence());
                     }
 
-                    return permissionsService.hasPermission(toPermission(event, receiverId));
+                    return replayed.stream()
+                            .map(DeliveredChange::replayed)
+                            .toList();
                 })
-                .map(this::toResourceChange);
+                .orElseGet(() -> {
+                    long sequence = liveChange != null ? liveChange.getSequence() : replayBuffer.getLastSequence();
+                    cursor.set(sequence);
+
+                    return List.of(DeliveredChange.live(SequencedChange.of(sequence, TrackedChange.resyncRequired())));
+                });
+    }
+
+    private Mono<ResourceChange> toResourceChange(DeliveredChange deliveredChange, ReceiverId receiverId) {
+        SequencedChange<TrackedChange> sequencedChange = deliveredChange.getChange();
+        ResourceChangeId id = toResourceChangeId(sequencedChange.getSequence());
+        TrackedChange change = sequencedChange.getChange();
+
+        if (change.getEvent() != null) {
+            return toEventChange(change.getEvent(), receiverId, deliveredChange.isReplayed())
+                    .map(resourceChange -> resourceChange.withId(id));
+        }
+        if (change.getPermissionEvent() != null) {
+            return Mono.justOrEmpty(filterPermissionsForReceiver(change.getPermissionEvent(), receiverId))
+                    .filter(event -> !event.getPermissions().isEmpty())
+                    .map(event -> toResourceChange(event).withId(id));
+        }
+
+        return Mono.just(ResourceChange.resyncRequired().withId(id));
+    }
+
+    /**
+     * Replayed events are authorized against the current permissions, since the decisions made when the event
+     * arrived may have been revoked in the meantime.
+     */
+    private Mono<ResourceChange> toEventChange(
+            AuthorizedEvent authorizedEvent,
+            ReceiverId receiverId,
+            boolean isReplayed
+    ) {
+        HandleableEvent event = authorizedEvent.getEvent();
+
+        Mono<Boolean> isAllowed$;
+        Boolean decision = isReplayed ? null : authorizedEvent.getDecisions().get(receiverId);
+        if (isEventAgent(event, receiverId)) {
+            isAllowed$ = Mono.just(true);
+        } else if (decision != null) {
+            isAllowed$ = Mono.just(decision);
+        } else {
+            /*
+            The receiver connected while the event was authorized for the others or the event is replayed.
+             */
+            isAllowed$ = permissionDecisions.evaluate(toResource(event), receiverId);
+        }
+
+        return isAllowed$
+                .filter(isAllowed -> isAllowed)
+                .map(ignored -> toResourceChange(event));
     }
 
-    private Flux<ResourceChange> getPermissionChanges(ReceiverId receiverId) {
-        String listenerName = "track-permission-changes-for-receiver-%s".formatted(receiverId.getValue());
+    private boolean isResyncRequest(ResourceChange change) {
+        return change.getType().equals(RESYNC_REQUIRED);
+    }
 
-        return permissionEventListenerFactory.listen(toPermissionsResourceType(resourceType), listenerName)
-                .mapNotNull(event -> filterPermissionsForReceiver(event, receiverId).orElse(null))
-                .filter(event -> !event.getPermissions().isEmpty())
-                .map(this::toResourceChange);
+    private ResourceChangeId toResourceChangeId(long sequence) {
+        return ResourceChangeId.of("%s:%d".formatted(feedId, sequence));
+    }
+
+    /**
+     * Change IDs issued by another tracker instance or malformed ones map to a sequence that is never available,
+     * so the receiver is asked to resync.
+     */
+    private long toSequence(ResourceChangeId changeId) {
+        String value = changeId.getValue();
+        int separatorIndex = value.lastIndexOf(':');
+        if (separatorIndex < 0 || !value.substring(0, separatorIndex).equals(feedId)) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(value.substring(separatorIndex + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Decides for all connected receivers at once whether they may see the event.
+     * Receivers whose decision is missing fall back to deciding on their own.
+     */
+    private Mono<TrackedChange> authorize(HandleableEvent event) {
+        List<ReceiverId> receiverIds = connectedReceivers.keySet()
+                .stream()
+                .filter(receiverId -> !isEventAgent(event, receiverId))
+                .toList();
+        if (receiverIds.isEmpty()) {
+            return Mono.just(TrackedChange.event(AuthorizedEvent.of(event, Map.of())));
+        }
+
+        return permissionDecisions.evaluate(toResource(event), receiverIds)
+                .map(decisions -> AuthorizedEvent.of(event, decisions))
+                .onErrorResume(e -> {
+                    log.warn("Could not authorize event for {} receivers at once", receiverIds.size(), e);
+                    return Mono.just(AuthorizedEvent.of(event, Map.of()));
+                })
+                .map(TrackedChange::event);
+    }
+
+    private boolean isEventAgent(HandleableEvent event, ReceiverId receiverId) {
+        ReceiverId eventAgentReceiverId = ReceiverId.of(event.getMetadata().getAgent().getId().getValue());
+        return eventAgentReceiverId.equals(receiverId);
     }
 
     private ResourceChange toResourceChange(PermissionEvent event) {
@@ -150,19 +370,13 @@ public class MessagingResourceChangesTracker implements ResourceChangesTracker {
         }
     }
 
-    private Permission toPermission(HandleableEvent event, ReceiverId receiverId) {
-        var holder = Holder.user(HolderId.of(receiverId.getValue()));
-
+    private Resource toResource(HandleableEvent event) {
         EventMetadata metadata = event.getMetadata();
         var resourceType = de.bennyboer.kicherkrabbe.permissions.ResourceType.of(metadata.getAggregateType()
                 .getValue());
         var resourceId = de.bennyboer.kicherkrabbe.permissions.ResourceId.of(metadata.getAggregateId().getValue());
-        var resource = Resource.of(resourceType, resourceId);
 
-        return Permission.builder()
-                .holder(holder)
-                .isAllowedTo(readEventsAction)
-                .on(resource);
+        return Resource.of(resourceType, resourceId);
     }
 
     private de.bennyboer.kicherkrabbe.permissions.ResourceType toPermissionsResourceType(ResourceType resourceType) {
@@ -173,4 +387,69 @@ public class MessagingResourceChangesTracker implements ResourceChangesTracker {
         return AggregateType.of(resourceType.getValue());
     }
 
+    /**
+     * A change of the feed. It is either an event, a permission event or the request to resync.
+     */
+    @Value
+    @AllArgsConstructor(access = PRIVATE)
+    private static class TrackedChange {
+
+        @Nullable
+        AuthorizedEvent event;
+
+        @Nullable
+        PermissionEvent permissionEvent;
+
+        static TrackedChange event(AuthorizedEvent event) {
+            return new TrackedChange(event, null);
+        }
+
+        static TrackedChange permissions(PermissionEvent event) {
+            return new TrackedChange(null, event);
+        }
+
+        static TrackedChange resyncRequired() {
+            return new TrackedChange(null, null);
+        }
+
+    }
+
+    /**
+     * A change as delivered to a single receiver, either live or replayed from the buffer after a reconnect.
+     */
+    @Value
+    @AllArgsConstructor(access = PRIVATE)
+    private static class DeliveredChange {
+
+        SequencedChange<TrackedChange> change;
+
+        boolean replayed;
+
+        static DeliveredChange live(SequencedChange<TrackedChange> change) {
+            return new DeliveredChange(change, false);
+        }
+
+        static DeliveredChange replayed(SequencedChange<TrackedChange> change) {
+            return new DeliveredChange(change, true);
+        }
+
+    }
+
+    /**
+     * An event together with the decisions whether the receivers connected at the time may see it.
+     */
+    @Value
+    @AllArgsConstructor(access = PRIVATE)
+    private static class AuthorizedEvent {
+
+        HandleableEvent event;
+
+        Map<ReceiverId, Boolean> decisions;
+
+        static AuthorizedEvent of(HandleableEvent event, Map<ReceiverId, Boolean> decisions) {
+            return new AuthorizedEvent(event, decisions);
+        }
+
+    }
+
 }
@@ -0,0 +1,155 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.bennyboer.kicherkrabbe.permissions.Action;
+import de.bennyboer.kicherkrabbe.permissions.Holder;
+import de.bennyboer.kicherkrabbe.permissions.HolderId;
+import de.bennyboer.kicherkrabbe.permissions.HolderType;
+import de.bennyboer.kicherkrabbe.permissions.Permission;
+import de.bennyboer.kicherkrabbe.permissions.PermissionsService;
+import de.bennyboer.kicherkrabbe.permissions.Resource;
+import de.bennyboer.kicherkrabbe.permissions.events.PermissionEvent;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Remembers whether a receiver may read the events of a resource.
+ * Decisions that are not known yet are fetched for all requested receivers with a single permission query.
+ * The decisions are kept until a permission event concerning the receiver and resource arrives.
+ */
+class ReceiverPermissionDecisions {
+
+    private final PermissionsService permissionsService;
+
+    private final Action readEventsAction;
+
+    private final Cache<Decision, Boolean> decisions;
+
+    /**
+     * Incremented on every invalidation, so that a query that was started before an invalidation
+     * does not put an outdated decision into the cache.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ReceiverPermissionDecisions(
+            PermissionsService permissionsService,
+            Action readEventsAction,
+            long maxSize,
+            Duration expireAfterWrite
+    ) {
+        notNull(permissionsService, "Permissions service must be given");
+        notNull(readEventsAction, "Read events action must be given");
+        notNull(expireAfterWrite, "Expire after write must be given");
+        check(maxSize > 0, "Max size must be positive");
+
+        this.permissionsService = permissionsService;
+        this.readEventsAction = readEventsAction;
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Emits for each of the given receivers whether it may read the events of the resource.
+     */
+    Mono<Map<ReceiverId, Boolean>> evaluate(Resource resource, Collection<ReceiverId> receiverIds) {
+        Map<ReceiverId, Boolean> result = new HashMap<>();
+        for (ReceiverId receiverId : receiverIds) {
+            Boolean known = decisions.getIfPresent(Decision.of(receiverId, resource));
+            if (known != null) {
+                result.put(receiverId, known);
+            }
+        }
+
+        List<Holder> unknown = receiverIds.stream()
+                .filter(receiverId -> !result.containsKey(receiverId))
+                .distinct()
+                .map(this::toHolder)
+                .toList();
+        if (unknown.isEmpty()) {
+            return Mono.just(result);
+        }
+
+        long invalidationsBeforeQuery = invalidations.get();
+        return permissionsService.findHoldersWithPermission(unknown, readEventsAction, resource)
+                .collect(Collectors.toSet())
+                .map(allowed -> {
+                    boolean isUpToDate = invalidations.get() == invalidationsBeforeQuery;
+
+                    for (Holder holder : unknown) {
+                        ReceiverId receiverId = ReceiverId.of(holder.getId().getValue());
+                        boolean isAllowed = allowed.contains(holder);
+
+                        result.put(receiverId, isAllowed);
+                        if (isUpToDate) {
+                            decisions.put(Decision.of(receiverId, resource), isAllowed);
+                        }
+                    }
+
+                    return result;
+                });
+    }
+
+    Mono<Boolean> evaluate(Resource resource, ReceiverId receiverId) {
+        return evaluate(resource, List.of(receiverId))
+                .map(result -> result.get(receiverId));
+    }
+
+    /**
+     * Forgets the decisions affected by the permissions of the event.
+     * Only permissions held by a single user on a single resource are ever part of a decision.
+     */
+    void invalidate(PermissionEvent event) {
+        invalidations.incrementAndGet();
+
+        for (Permission permission : event.getPermissions()) {
+            Holder holder = permission.getHolder();
+            Resource resource = permission.getResource();
+            if (holder.getType() != HolderType.USER || resource.getId().isEmpty()) {
+                continue;
+            }
+
+            ReceiverId receiverId = ReceiverId.of(holder.getId().getValue());
+            decisions.invalidate(Decision.of(receiverId, resource));
+        }
+    }
+
+    void invalidateAll() {
+        invalidations.incrementAndGet();
+        decisions.invalidateAll();
+    }
+
+    private Holder toHolder(ReceiverId receiverId) {
+        return Holder.user(HolderId.of(receiverId.getValue()));
+    }
+
+    @Value
+    @AllArgsConstructor(access = PRIVATE)
+    private static class Decision {
+
+        ReceiverId receiverId;
+
+        Resource resource;
+
+        static Decision of(ReceiverId receiverId, Resource resource) {
+            return new Decision(receiverId, resource);
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+public class ResourceChangeServerSentEvents {
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    /**
+     * Proxies and load balancers close connections that are idle for too long.
+     */
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    /**
+     * Get the ID of the last change a reconnecting client has seen, as sent by the browser on reconnects.
+     */
+    public static Optional<ResourceChangeId> getLastEventId(ServerRequest request) {
+        return Optional.ofNullable(request.headers().firstHeader(LAST_EVENT_ID_HEADER))
+                .filter(id -> !id.isBlank())
+                .map(ResourceChangeId::of);
+    }
+
+    /**
+     * Maps the changes to server-sent events carrying the change ID, so that clients can resume after reconnecting.
+     * A heartbeat comment is sent periodically to keep idle connections open.
+     */
+    public static <T> Flux<ServerSentEvent<T>> toServerSentEvents(
+            Flux<ResourceChange> changes,
+            Function<ResourceChange, T> mapper
+    ) {
+        return changes.map(change -> toServerSentEvent(change, mapper))
+                .publish(events -> Flux.merge(
+                        events,
+                        Flux.interval(HEARTBEAT_INTERVAL)
+                                .map(ignored -> ServerSentEvent.<T>builder().comment("heartbeat").build())
+                                .takeUntilOther(events.ignoreElements())
+                ));
+    }
+
+    private static <T> ServerSentEvent<T> toServerSentEvent(ResourceChange change, Function<ResourceChange, T> mapper) {
+        var builder = ServerSentEvent.builder(mapper.apply(change));
+        change.getId().ifPresent(id -> builder.id(id.getValue()));
+
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,50 @@
+package de.bennyboer.kicherkrabbe.changes;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Multicasts a single upstream subscription to any number of subscribers in-process.
+ * The upstream is subscribed with the first subscriber and cancelled once the last subscriber is gone
+ * for the grace period, so short reconnects of clients do not recreate it.
+ * Each subscriber has its own bounded buffer. A subscriber that cannot keep up fails with an overflow error
+ * instead of slowing down the others.
+ */
+@Slf4j
+class SharedChangeStream<T> {
+
+    private final String name;
+
+    private final Flux<T> shared;
+
+    private final int bufferSizePerSubscriber;
+
+    SharedChangeStream(String name, Supplier<Flux<T>> upstream, int bufferSizePerSubscriber, Duration gracePeriod) {
+        notNull(name, "Name must be given");
+        notNull(upstream, "Upstream must be given");
+        notNull(gracePeriod, "Grace period must be given");
+        check(bufferSizePerSubscriber > 0, "Buffer size per subscriber must be positive");
+
+        this.name = name;
+        this.bufferSizePerSubscriber = bufferSizePerSubscriber;
+        this.shared = Flux.defer(upstream)
+                .doOnSubscribe(ignored -> log.info("Subscribing to shared change stream '{}'", name))
+                .doOnCancel(() -> log.info("Unsubscribed from shared change stream '{}'", name))
+                .publish()
+                .refCount(1, gracePeriod);
+    }
+
+    Flux<T> subscribe() {
+        return shared.onBackpressureBuffer(
+                bufferSizePerSubscriber,
+                dropped -> log.warn("Subscriber of shared change stream '{}' is too slow, failing its stream", name)
+        );
+    }
+
+}
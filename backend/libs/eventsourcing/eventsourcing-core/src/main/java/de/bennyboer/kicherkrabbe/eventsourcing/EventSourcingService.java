@@ -1,6 +1,9 @@
 package de.bennyboer.kicherkrabbe.eventsourcing;
 
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.*;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache.AggregateCache;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.AdaptiveSnapshotPolicy;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
 import de.bennyboer.kicherkrabbe.eventsourcing.command.Command;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
@@ -13,11 +16,15 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.snapshot.SnapshotEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.patch.EventPatcher;
 import de.bennyboer.kicherkrabbe.eventsourcing.patch.Patch;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
-import reactor.core.publisher.Flux;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Mono;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +48,26 @@ public class EventSourcingService<A extends Aggregate> {
 
     private final AggregateSnapshotDeserializer snapshotDeserializer;
 
+    /**
+     * Optional in-memory cache of rehydrated aggregates. When absent, every read starts from the latest snapshot.
+     */
+    @Nullable
+    private final AggregateCache cache;
+
+    /**
+     * Optional snapshotter for aggregates using {@link SnapshotMode#BACKGROUND}.
+     * When absent, all snapshots are written inline.
+     */
+    @Nullable
+    private final BackgroundSnapshotter backgroundSnapshotter;
+
+    /**
+     * Optional policy deriving the snapshot threshold from the measured replay cost.
+     * When absent, the static threshold of the aggregate is used.
+     */
+    @Nullable
+    private final AdaptiveSnapshotPolicy snapshotPolicy;
+
     public EventSourcingService(
             AggregateType aggregateType,
             A initialState,
@@ -48,6 +75,45 @@ public class EventSourcingService<A extends Aggregate> {
             EventPublisher eventPublisher,
             List<Patch> patches,
             Clock clock
+    ) {
+        this(aggregateType, initialState, repo, eventPublisher, patches, clock, null);
+    }
+
+    public EventSourcingService(
+            AggregateType aggregateType,
+            A initialState,
+            EventSourcingRepo repo,
+            EventPublisher eventPublisher,
+            List<Patch> patches,
+            Clock clock,
+            @Nullable AggregateCache cache
+    ) {
+        this(aggregateType, initialState, repo, eventPublisher, patches, clock, cache, null);
+    }
+
+    public EventSourcingService(
+            AggregateType aggregateType,
+            A initialState,
+            EventSourcingRepo repo,
+            EventPublisher eventPublisher,
+            List<Patch> patches,
+            Clock clock,
+            @Nullable AggregateCache cache,
+            @Nullable BackgroundSnapshotter backgroundSnapshotter
+    ) {
+        this(aggregateType, initialState, repo, eventPublisher, patches, clock, cache, backgroundSnapshotter, null);
+    }
+
+    public EventSourcingService(
+            AggregateType aggregateType,
+            A initialState,
+            EventSourcingRepo repo,
+            EventPublisher eventPublisher,
+            List<Patch> patches,
+            Clock clock,
+            @Nullable AggregateCache cache,
+            @Nullable BackgroundSnapshotter backgroundSnapshotter,
+            @Nullable AdaptiveSnapshotPolicy snapshotPolicy
     ) {
         this.aggregateType = aggregateType;
         this.initialState = initialState;
@@ -57,6 +123,9 @@ public class EventSourcingService<A extends Aggregate> {
         this.clock = clock;
         this.snapshotSerializer = new AggregateSnapshotSerializer();
         this.snapshotDeserializer = new AggregateSnapshotDeserializer();
+        this.cache = cache;
+        this.backgroundSnapshotter = backgroundSnapshotter;
+        this.snapshotPolicy = snapshotPolicy;
     }
 
     @SuppressWarnings("unchecked")
@@ -87,6 +156,7 @@ public class EventSourcingService<A extends Aggregate> {
      */
     public Mono<Version> dispatchCommand(AggregateId aggregateId, Version version, Command cmd, Agent agent) {
         return aggregateInContainer(aggregateId, version)
+                .flatMap(container -> rebaseOnSnapshots(aggregateId, container))
                 .flatMap(container -> handleCommandInAggregate(aggregateId, container, cmd, agent));
     }
 
@@ -99,11 +169,43 @@ public class EventSourcingService<A extends Aggregate> {
     public Mono<Version> collapseEvents(AggregateId aggregateId, Version version, Agent agent) {
         return aggregateInContainer(aggregateId, version)
                 .flatMap(container -> snapshot(aggregateId, agent, container))
+                .map(AggregateContainer::getVersion)
                 .flatMap(snapshotVersion -> repo.removeEventsByAggregateIdAndTypeUntilVersion(
                         aggregateId,
                         aggregateType,
                         snapshotVersion.decrement()
-                ).thenReturn(snapshotVersion));
+                ).thenReturn(snapshotVersion))
+                .doOnNext(ignored -> invalidateCache(aggregateId));
+    }
+
+    /**
+     * Background snapshots are written between commands and thus increase the version of an aggregate without
+     * changing its state. A command that has been issued against the version before such a snapshot must not fail
+     * because of it, so in that case it is applied on top of the snapshot.
+     * This is decided before writing any events, as a failed write aborts a surrounding Mongo transaction and
+     * a retry within the same transaction would fail as well.
+     */
+    private Mono<AggregateContainer> rebaseOnSnapshots(AggregateId aggregateId, AggregateContainer container) {
+        if (backgroundSnapshotter == null || !container.hasSeenEvents()) {
+            return Mono.just(container);
+        }
+
+        return repo.findEventsByAggregateIdAndType(aggregateId, aggregateType, container.getVersion().increment())
+                .takeUntil(event -> !event.getMetadata().isSnapshot())
+                .collectList()
+                .map(newerEvents -> {
+                    boolean onlySnapshots = newerEvents.stream().allMatch(event -> event.getMetadata().isSnapshot());
+                    if (!onlySnapshots) {
+                        return container;
+                    }
+
+                    AggregateContainer rebased = container;
+                    for (EventWithMetadata event : newerEvents) {
+                        rebased = applyEvent(rebased, event);
+                    }
+
+                    return rebased;
+                });
     }
 
     private Mono<Version> handleCommandInAggregate(
@@ -113,69 +215,192 @@ public class EventSourcingService<A extends Aggregate> {
             Agent agent
     ) {
         ApplyCommandResult result = container.getAggregate().apply(cmd, agent);
+        Instant now = clock.instant();
 
-        return saveAndPublishEvents(aggregateId, container, agent, result)
-                .collectList()
-                .flatMap(events -> snapshotIfNecessary(aggregateId, agent, container, events));
+        var events = new ArrayList<>(toEventsWithMetadata(aggregateId, container, agent, result.getEvents(), now));
+        AggregateContainer updatedContainer = applyNewEvents(container, events);
+
+        boolean snapshotNecessary = isSnapshotNecessary(updatedContainer);
+        boolean snapshotInBackground = snapshotNecessary && isSnapshotInBackground(updatedContainer);
+        if (snapshotNecessary && !snapshotInBackground) {
+            var snapshotEvents = toSnapshotEventsWithMetadata(aggregateId, updatedContainer, agent, now);
+            events.addAll(snapshotEvents);
+            updatedContainer = applyNewEvents(updatedContainer, snapshotEvents);
+        }
+
+        AggregateContainer finalContainer = updatedContainer;
+        return saveAndPublishEvents(events)
+                .thenReturn(finalContainer)
+                .delayUntil(c -> updateCacheAfterCommit(aggregateId, c))
+                .doOnNext(ignored -> recordCommand())
+                .doOnNext(c -> {
+                    if (snapshotInBackground) {
+                        requestBackgroundSnapshot(aggregateId);
+                    }
+                })
+                .map(AggregateContainer::getVersion);
     }
 
-    private Mono<Version> snapshotIfNecessary(
+    private boolean isSnapshotInBackground(AggregateContainer container) {
+        return backgroundSnapshotter != null && container.getSnapshotMode() == SnapshotMode.BACKGROUND;
+    }
+
+    private void requestBackgroundSnapshot(AggregateId aggregateId) {
+        backgroundSnapshotter.request(aggregateId, () -> aggregateLatestInContainer(aggregateId)
+                .filter(this::isSnapshotNecessary)
+                .flatMap(container -> snapshot(aggregateId, Agent.system(), container))
+                .delayUntil(container -> updateCacheAfterCommit(aggregateId, container))
+                .onErrorResume(AggregateVersionOutdatedError.class, e -> Mono.empty())
+                .then());
+    }
+
+    private boolean isSnapshotNecessary(AggregateContainer container) {
+        int staticThreshold = container.getCountOfEventsToSnapshotAfter();
+        boolean autoSnapshotDisabled = staticThreshold <= 0;
+        if (autoSnapshotDisabled) {
+            return false;
+        }
+
+        int snapshotThreshold = snapshotPolicy != null ? snapshotPolicy.getThreshold(staticThreshold) : staticThreshold;
+        return container.getVersionCountFromLastSnapshot() >= snapshotThreshold;
+    }
+
+    private Mono<AggregateContainer> snapshot(AggregateId aggregateId, Agent agent, AggregateContainer container) {
+        var events = toSnapshotEventsWithMetadata(aggregateId, container, agent, clock.instant());
+
+        return saveAndPublishEvents(events)
+                .thenReturn(applyNewEvents(container, events));
+    }
+
+    private List<EventWithMetadata> toSnapshotEventsWithMetadata(
             AggregateId aggregateId,
-            Agent agent,
             AggregateContainer container,
-            List<EventWithMetadata> newEvents
+            Agent agent,
+            Instant now
     ) {
-        for (EventWithMetadata event : newEvents) {
+        var snapshotEvent = snapshotSerializer.serialize(container.getAggregate());
+
+        return toEventsWithMetadata(aggregateId, container, agent, List.of(snapshotEvent), now);
+    }
+
+    private AggregateContainer applyNewEvents(AggregateContainer container, List<EventWithMetadata> events) {
+        for (EventWithMetadata event : events) {
             container = container.apply(event.getEvent(), event.getMetadata());
         }
 
-        int snapshotThreshold = container.getCountOfEventsToSnapshotAfter();
-        boolean autoSnapshotDisabled = snapshotThreshold <= 0;
-        if (autoSnapshotDisabled) {
-            return Mono.just(container.getVersion());
+        return container;
+    }
+
+    private Mono<AggregateContainer> aggregateLatestInContainer(AggregateId id) {
+        if (cache == null) {
+            return rehydrateLatestInContainer(id);
+        }
+
+        return Mono.defer(() -> cache.get(id, aggregateType)
+                        .map(cached -> catchUpInContainer(id, cached))
+                        .orElseGet(() -> rehydrateLatestInContainer(id)))
+                .delayUntil(container -> updateCacheAfterCommit(id, container));
+    }
+
+    private Mono<AggregateContainer> rehydrateLatestInContainer(AggregateId id) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return repo.findEventsSinceLatestSnapshotByAggregateIdAndType(id, aggregateType)
+                    .reduce(
+                            AggregateContainer.init(initialState),
+                            this::applyEvent
+                    )
+                    .doOnNext(container -> recordRehydration(countReplayedEvents(container), startNanos));
+        });
+    }
+
+    /**
+     * Brings a cached aggregate up to date by only applying events that are newer than the cached version.
+     */
+    private Mono<AggregateContainer> catchUpInContainer(AggregateId id, AggregateContainer cached) {
+        Version cachedVersion = cached.getVersion();
+
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return repo.findEventsByAggregateIdAndType(id, aggregateType, cachedVersion.increment())
+                    .reduce(cached, this::applyEvent)
+                    .doOnNext(container -> recordRehydration(
+                            container.getVersion().getValue() - cachedVersion.getValue(),
+                            startNanos
+                    ));
+        });
+    }
+
+    /**
+     * Events seen within a transaction may never be committed, so an aggregate rehydrated within a transaction is
+     * only cached once the transaction has been committed. Otherwise, a rolled back command would leave a version in
+     * the cache that does not exist in the event store.
+     * Transactions that do not support synchronizations cannot tell us about the commit and thus bypass the cache.
+     */
+    private Mono<Void> updateCacheAfterCommit(AggregateId id, AggregateContainer container) {
+        if (cache == null) {
+            return Mono.empty();
         }
 
-        if (container.getVersionCountFromLastSnapshot() >= snapshotThreshold) {
-            return snapshot(aggregateId, agent, container);
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(synchronizationManager -> {
+                    if (synchronizationManager.isSynchronizationActive()) {
+                        synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCommit() {
+                                return Mono.fromRunnable(() -> updateCache(id, container));
+                            }
+                        });
+                    }
+                })
+                .then()
+                .onErrorResume(NoTransactionException.class, e -> Mono.fromRunnable(() -> updateCache(id, container)));
+    }
+
+    private void updateCache(AggregateId id, AggregateContainer container) {
+        if (cache != null) {
+            cache.put(id, aggregateType, container);
         }
+    }
 
-        return Mono.just(container.getVersion());
+    private void invalidateCache(AggregateId id) {
+        if (cache != null) {
+            cache.invalidate(id, aggregateType);
+        }
     }
 
-    private Mono<Version> snapshot(AggregateId aggregateId, Agent agent, AggregateContainer container) {
-        var snapshotEvent = snapshotSerializer.serialize(container.getAggregate());
-        var result = ApplyCommandResult.of(snapshotEvent);
+    private void recordRehydration(long replayedEvents, long startNanos) {
+        if (cache != null) {
+            cache.recordReplayedEvents(replayedEvents);
+        }
+        if (snapshotPolicy != null) {
+            snapshotPolicy.recordRehydration(replayedEvents, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
 
-        return saveAndPublishEvents(aggregateId, container, agent, result)
-                .last()
-                .map(event -> event.getMetadata().getAggregateVersion());
+    private void recordCommand() {
+        if (snapshotPolicy != null) {
+            snapshotPolicy.recordCommand();
+        }
     }
 
-    private Mono<AggregateContainer> aggregateLatestInContainer(AggregateId id) {
-        return repo.findLatestSnapshotEventByAggregateIdAndType(id, aggregateType)
-                .map(event -> event.getMetadata().getAggregateVersion())
-                .defaultIfEmpty(Version.zero())
-                .flatMapMany(fromVersion -> repo.findEventsByAggregateIdAndType(id, aggregateType, fromVersion))
-                .reduce(
-                        AggregateContainer.init(initialState),
-                        this::applyEvent
-                );
+    private long countReplayedEvents(AggregateContainer container) {
+        return container.hasSeenEvents() ? container.getVersionCountFromLastSnapshot() : 0;
     }
 
     private Mono<AggregateContainer> aggregateInContainer(AggregateId id, Version version) {
-        return repo.findNearestSnapshotEventByAggregateIdAndType(id, aggregateType, version)
-                .map(event -> event.getMetadata().getAggregateVersion())
-                .defaultIfEmpty(Version.zero())
-                .flatMapMany(fromVersion -> repo.findEventsByAggregateIdAndTypeUntilVersion(
-                        id,
-                        aggregateType,
-                        fromVersion,
-                        version
-                ))
-                .reduce(
-                        AggregateContainer.init(initialState),
-                        this::applyEvent
-                );
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            return repo.findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(id, aggregateType, version)
+                    .reduce(
+                            AggregateContainer.init(initialState),
+                            this::applyEvent
+                    )
+                    .doOnNext(container -> recordRehydration(countReplayedEvents(container), startNanos));
+        });
     }
 
     private AggregateContainer applyEvent(AggregateContainer container, EventWithMetadata event) {
@@ -191,19 +416,13 @@ public class EventSourcingService<A extends Aggregate> {
         return container.apply(patchedEvent, metadata);
     }
 
-    private Flux<EventWithMetadata> saveAndPublishEvents(
+    private List<EventWithMetadata> toEventsWithMetadata(
             AggregateId aggregateId,
             AggregateContainer container,
             Agent agent,
-            ApplyCommandResult result
+            List<Event> events,
+            Instant now
     ) {
-        Instant now = clock.instant();
-
-        var events = result.getEvents();
-        if (events.isEmpty()) {
-            return Flux.empty();
-        }
-
         var eventsWithMetadata = new ArrayList<EventWithMetadata>();
         var currentVersion = container.hasSeenEvents() ? container.getVersion().increment() : Version.zero();
         for (Event event : events) {
@@ -221,18 +440,26 @@ public class EventSourcingService<A extends Aggregate> {
             currentVersion = currentVersion.increment();
         }
 
-        return Flux.fromIterable(eventsWithMetadata)
-                .concatMap(this::insertEventInRepoAndPublish);
+        return eventsWithMetadata;
     }
 
-    private Mono<EventWithMetadata> insertEventInRepoAndPublish(EventWithMetadata event) {
-        return repo.insert(event)
-                .flatMap(e -> {
-                    if (e.getMetadata().isSnapshot()) {
-                        return Mono.just(e);
-                    }
-                    return eventPublisher.publish(e).thenReturn(e);
-                });
+    /**
+     * Saves all events of a command (including a possible snapshot) in a single write and then publishes
+     * the non-snapshot events in a single batch.
+     */
+    private Mono<Void> saveAndPublishEvents(List<EventWithMetadata> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<EventWithMetadata> eventsToPublish = events.stream()
+                .filter(event -> !event.getMetadata().isSnapshot())
+                .toList();
+
+        return repo.insertAll(events)
+                .then(Mono.defer(() -> eventsToPublish.isEmpty()
+                        ? Mono.empty()
+                        : eventPublisher.publishAll(eventsToPublish)));
     }
 
 }
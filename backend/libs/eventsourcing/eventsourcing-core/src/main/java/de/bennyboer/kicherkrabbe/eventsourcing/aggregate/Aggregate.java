@@ -27,4 +27,11 @@ public interface Aggregate {
         return 100;
     }
 
+    /**
+     * Whether snapshots are written inline with the command crossing the threshold or in the background.
+     */
+    default SnapshotMode getSnapshotMode() {
+        return SnapshotMode.INLINE;
+    }
+
 }
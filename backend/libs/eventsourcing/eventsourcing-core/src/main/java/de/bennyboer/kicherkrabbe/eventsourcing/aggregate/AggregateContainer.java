@@ -60,6 +60,11 @@ public class AggregateContainer implements Aggregate {
         return aggregate.getCountOfEventsToSnapshotAfter();
     }
 
+    @Override
+    public SnapshotMode getSnapshotMode() {
+        return aggregate.getSnapshotMode();
+    }
+
     public Optional<EventMetadata> getLastEventMetadata() {
         return Optional.ofNullable(lastEventMetadata);
     }
@@ -0,0 +1,19 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.aggregate;
+
+/**
+ * Decides when a snapshot is written once an aggregate crosses its snapshot threshold.
+ */
+public enum SnapshotMode {
+
+    /**
+     * The snapshot is written together with the events of the command that crossed the threshold.
+     */
+    INLINE,
+
+    /**
+     * Crossing the threshold only requests a snapshot that is written later outside the request path.
+     * Falls back to {@link #INLINE} if the service has no background snapshotter configured.
+     */
+    BACKGROUND
+
+}
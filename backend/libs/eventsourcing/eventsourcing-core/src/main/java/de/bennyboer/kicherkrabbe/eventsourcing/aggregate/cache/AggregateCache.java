@@ -0,0 +1,179 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateContainer;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Rehydrating an aggregate means reading its latest snapshot and replaying all events after it.
+ * For aggregates that are read on almost every request this is a lot of unnecessary load on the database.
+ * This cache keeps the last rehydrated state of an aggregate in-memory. It is never trusted blindly: on every
+ * lookup the caller fetches only the events newer than the cached version and applies them on top.
+ * That way the cache stays correct even when other nodes write to the same aggregate.
+ */
+public class AggregateCache {
+
+    private final Cache<Key, AggregateContainer> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final DistributionSummary replayedEvents;
+
+    public AggregateCache(AggregateType type, Config config) {
+        this(type, config, Metrics.globalRegistry);
+    }
+
+    public AggregateCache(AggregateType type, Config config, MeterRegistry meterRegistry) {
+        notNull(type, "Aggregate type must be given");
+        notNull(config, "Config must be given");
+        notNull(meterRegistry, "Meter registry must be given");
+        check(
+                (config.getMaximumWeight() > 0) != (config.getMaximumSize() > 0),
+                "Either a maximum weight or a maximum size must be given"
+        );
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterAccess(config.getExpireAfterAccess());
+        if (config.getMaximumWeight() > 0) {
+            builder.maximumWeight(config.getMaximumWeight())
+                    .weigher((Key key, AggregateContainer container) -> weigh(container));
+        } else {
+            builder.maximumSize(config.getMaximumSize());
+        }
+        this.cache = builder.build();
+
+        String typeTag = type.getValue();
+        this.hits = Counter.builder("eventsourcing.aggregate.cache.hits")
+                .description("Rehydrations that could start from a cached aggregate")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+        this.misses = Counter.builder("eventsourcing.aggregate.cache.misses")
+                .description("Rehydrations that had to start from the latest snapshot")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+        this.replayedEvents = DistributionSummary.builder("eventsourcing.aggregate.replay.length")
+                .description("Number of events read from the event store to rehydrate an aggregate")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+    }
+
+    public static AggregateCache create(AggregateType type, long maximumWeight) {
+        return new AggregateCache(type, Config.builder()
+                .maximumWeight(maximumWeight)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build());
+    }
+
+    /**
+     * Creates a cache bounded by the number of aggregates rather than their weight.
+     * Meant for a handful of aggregates (like settings singletons) that should stay cached no matter how many events
+     * they have seen since their last snapshot, as a single heavy entry would exceed a small maximum weight.
+     */
+    public static AggregateCache createWithMaximumSize(AggregateType type, long maximumSize) {
+        return new AggregateCache(type, Config.builder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build());
+    }
+
+    public Optional<AggregateContainer> get(AggregateId id, AggregateType type) {
+        var container = Optional.ofNullable(cache.getIfPresent(Key.of(id, type)));
+        if (container.isPresent()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        return container;
+    }
+
+    public void put(AggregateId id, AggregateType type, AggregateContainer container) {
+        if (!container.hasSeenEvents()) {
+            return;
+        }
+
+        cache.asMap().merge(
+                Key.of(id, type),
+                container,
+                (existing, updated) -> existing.getVersion().compareTo(updated.getVersion()) > 0 ? existing : updated
+        );
+    }
+
+    public void invalidate(AggregateId id, AggregateType type) {
+        cache.invalidate(Key.of(id, type));
+    }
+
+    public void recordReplayedEvents(long count) {
+        replayedEvents.record(count);
+    }
+
+    /**
+     * Aggregates that have seen many events since their last snapshot tend to be larger.
+     * Every entry weighs at least one, so the maximum weight also caps the number of entries.
+     * Note that an entry weighing more than the maximum weight is evicted right away, so the maximum weight
+     * should be well above the snapshot threshold of the aggregate.
+     */
+    private static int weigh(AggregateContainer container) {
+        return (int) Math.min(Integer.MAX_VALUE, 1 + container.getVersionCountFromLastSnapshot());
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Builder
+    public static class Config {
+
+        /**
+         * Bounds the cache by the summed weight of its entries. Mutually exclusive with {@link #maximumSize}.
+         */
+        long maximumWeight;
+
+        /**
+         * Bounds the cache by the number of its entries. Mutually exclusive with {@link #maximumWeight}.
+         */
+        long maximumSize;
+
+        /**
+         * Entries that have not been read for this duration are dropped.
+         * As entries are validated against the event store on every read, this is only about memory usage
+         * and not about staleness.
+         */
+        Duration expireAfterAccess;
+
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class Key {
+
+        AggregateId id;
+
+        AggregateType type;
+
+        static Key of(AggregateId id, AggregateType type) {
+            notNull(id, "Aggregate ID must be given");
+            notNull(type, "Aggregate type must be given");
+
+            return new Key(id, type);
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Derives the snapshot threshold of an aggregate type from the measured cost of replaying its events.
+ * The static {@code getCountOfEventsToSnapshotAfter()} of an aggregate does not know how large its events are,
+ * how many patches have to be applied to them or how often the aggregate is read. All of that shows up in the
+ * time it takes to rehydrate it, so this policy records rehydration time and replayed events per aggregate type.
+ * <p>
+ * Every rehydration pays a fixed cost (the round trip to the database) plus a cost per replayed event.
+ * Both are estimated by fitting {@code time = fixed + perEvent * events} to the recorded rehydrations, weighting recent
+ * ones more. Only the cost per event can be saved by snapshotting, as the fixed cost is paid either way.
+ * <p>
+ * Every command on an aggregate is followed by a number of rehydrations, each of them replaying the events since
+ * the last snapshot. The expected replay cost per command thus is {@code reads per command * events * cost per event}.
+ * A snapshot is taken once that exceeds the configured budget. Until enough samples with differing numbers of replayed
+ * events have been recorded, the static threshold of the aggregate is used.
+ */
+public class AdaptiveSnapshotPolicy {
+
+    /**
+     * As long as (nearly) all rehydrations replayed the same number of events, the fixed cost cannot be told apart
+     * from the cost per event.
+     */
+    private static final double MIN_EVENTS_VARIANCE = 1e-3;
+
+    private final Config config;
+
+    private final Timer rehydrationTime;
+
+    /**
+     * Exponentially weighted means of the replayed events {@code n}, the rehydration time {@code t} and their products,
+     * from which the fixed cost and the cost per event are derived by linear regression.
+     */
+    private double meanEvents;
+
+    private double meanNanos;
+
+    private double meanEventsSquared;
+
+    private double meanEventsTimesNanos;
+
+    private double nanosPerEvent;
+
+    private double fixedNanos;
+
+    private long rehydrations;
+
+    private long commands;
+
+    private long samples;
+
+    private volatile int threshold;
+
+    public AdaptiveSnapshotPolicy(AggregateType type, Config config) {
+        this(type, config, Metrics.globalRegistry);
+    }
+
+    public AdaptiveSnapshotPolicy(AggregateType type, Config config, MeterRegistry meterRegistry) {
+        notNull(type, "Aggregate type must be given");
+        notNull(config, "Config must be given");
+        notNull(meterRegistry, "Meter registry must be given");
+        notNull(config.getReplayBudget(), "Replay budget must be given");
+        check(config.getReplayBudget().isPositive(), "Replay budget must be positive");
+        check(config.getMinThreshold() > 0, "Min threshold must be greater than 0");
+        check(config.getMaxThreshold() >= config.getMinThreshold(), "Max threshold must not be less than min threshold");
+        check(config.getSmoothing() > 0 && config.getSmoothing() <= 1, "Smoothing must be in (0, 1]");
+
+        this.config = config;
+
+        String typeTag = type.getValue();
+        this.rehydrationTime = Timer.builder("eventsourcing.aggregate.rehydration.time")
+                .description("Time it takes to read and replay the events of an aggregate")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+        Gauge.builder("eventsourcing.snapshot.threshold", this, policy -> policy.threshold)
+                .description("Adaptive number of events after which a snapshot is taken (0 while using the static threshold)")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+    }
+
+    public static AdaptiveSnapshotPolicy create(AggregateType type, Duration replayBudget) {
+        return new AdaptiveSnapshotPolicy(type, Config.builder()
+                .replayBudget(replayBudget)
+                .minThreshold(10)
+                .maxThreshold(1000)
+                .minSamples(20)
+                .smoothing(0.1)
+                .build());
+    }
+
+    /**
+     * Records a rehydration that replayed the given number of events in the given time.
+     * Rehydrations that did not replay any events are samples of the fixed cost alone.
+     */
+    public void recordRehydration(long replayedEvents, Duration duration) {
+        rehydrationTime.record(duration);
+
+        synchronized (this) {
+            rehydrations++;
+            addSample(replayedEvents, duration.toNanos());
+            updateThreshold();
+        }
+    }
+
+    public synchronized void recordCommand() {
+        commands++;
+        updateThreshold();
+    }
+
+    /**
+     * Returns the adaptive threshold, or the given static threshold while not enough samples are recorded.
+     */
+    public int getThreshold(int staticThreshold) {
+        int current = threshold;
+        return current > 0 ? current : staticThreshold;
+    }
+
+    public synchronized double getNanosPerEvent() {
+        return nanosPerEvent;
+    }
+
+    public synchronized double getFixedNanos() {
+        return fixedNanos;
+    }
+
+    private void addSample(double events, double nanos) {
+        if (samples == 0) {
+            meanEvents = events;
+            meanNanos = nanos;
+            meanEventsSquared = events * events;
+            meanEventsTimesNanos = events * nanos;
+        } else {
+            double smoothing = config.getSmoothing();
+            meanEvents += smoothing * (events - meanEvents);
+            meanNanos += smoothing * (nanos - meanNanos);
+            meanEventsSquared += smoothing * (events * events - meanEventsSquared);
+            meanEventsTimesNanos += smoothing * (events * nanos - meanEventsTimesNanos);
+        }
+        samples++;
+
+        double variance = meanEventsSquared - meanEvents * meanEvents;
+        if (variance > MIN_EVENTS_VARIANCE) {
+            double covariance = meanEventsTimesNanos - meanEvents * meanNanos;
+            nanosPerEvent = Math.max(0, covariance / variance);
+            fixedNanos = Math.max(0, meanNanos - nanosPerEvent * meanEvents);
+        }
+    }
+
+    private void updateThreshold() {
+        boolean isCostKnown = samples >= config.getMinSamples()
+                && meanEventsSquared - meanEvents * meanEvents > MIN_EVENTS_VARIANCE;
+        if (!isCostKnown) {
+            threshold = 0;
+            return;
+        }
+
+        double readsPerCommand = Math.max(1.0, (double) rehydrations / Math.max(1, commands));
+        double budgetNanos = config.getReplayBudget().toNanos();
+        double events = nanosPerEvent > 0
+                ? budgetNanos / (readsPerCommand * nanosPerEvent)
+                : config.getMaxThreshold();
+
+        threshold = (int) Math.max(config.getMinThreshold(), Math.min(config.getMaxThreshold(), Math.round(events)));
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Builder
+    public static class Config {
+
+        /**
+         * Replay time per command that is acceptable before a snapshot is taken.
+         */
+        Duration replayBudget;
+
+        int minThreshold;
+
+        int maxThreshold;
+
+        /**
+         * Number of recorded rehydrations before the measured cost is trusted.
+         */
+        long minSamples;
+
+        /**
+         * Weight of a new sample in the moving averages the costs are derived from.
+         */
+        double smoothing;
+
+    }
+
+}
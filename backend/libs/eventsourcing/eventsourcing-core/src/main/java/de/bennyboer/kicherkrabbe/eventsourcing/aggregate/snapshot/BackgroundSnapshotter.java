@@ -0,0 +1,173 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Writes snapshots outside the request path.
+ * Commands crossing the snapshot threshold only request a snapshot here instead of serializing the aggregate
+ * and writing the snapshot event themselves. Requests for an aggregate that already has a pending snapshot are
+ * dropped, and at most {@link Config#getMaxConcurrency()} snapshots are written at the same time.
+ * When the queue is full, requests are dropped as well - the next command on the aggregate will request again.
+ */
+@Slf4j
+public class BackgroundSnapshotter {
+
+    private final AggregateType type;
+
+    private final Config config;
+
+    private final Set<AggregateId> pending = ConcurrentHashMap.newKeySet();
+
+    private final Sinks.Many<SnapshotTask> queue;
+
+    private final Disposable worker;
+
+    private final Counter requested;
+
+    private final Counter dropped;
+
+    private final Counter failed;
+
+    public BackgroundSnapshotter(AggregateType type, Config config) {
+        this(type, config, Metrics.globalRegistry);
+    }
+
+    public BackgroundSnapshotter(AggregateType type, Config config, MeterRegistry meterRegistry) {
+        notNull(type, "Aggregate type must be given");
+        notNull(config, "Config must be given");
+        notNull(meterRegistry, "Meter registry must be given");
+        check(config.getMaxConcurrency() > 0, "Max concurrency must be greater than 0");
+        check(config.getQueueCapacity() > 0, "Queue capacity must be greater than 0");
+        notNull(config.getDelay(), "Delay must be given");
+
+        this.type = type;
+        this.config = config;
+        this.queue = Sinks.many()
+                .unicast()
+                .onBackpressureBuffer(Queues.<SnapshotTask>get(config.getQueueCapacity()).get());
+
+        String typeTag = type.getValue();
+        this.requested = Counter.builder("eventsourcing.snapshot.background.requested")
+                .description("Snapshots requested to be written in the background")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("eventsourcing.snapshot.background.dropped")
+                .description("Snapshot requests dropped because the queue was full")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+        this.failed = Counter.builder("eventsourcing.snapshot.background.failed")
+                .description("Background snapshots that could not be written")
+                .tag("aggregateType", typeTag)
+                .register(meterRegistry);
+
+        this.worker = queue.asFlux()
+                .flatMap(this::run, config.getMaxConcurrency())
+                .subscribe();
+    }
+
+    public static BackgroundSnapshotter create(AggregateType type) {
+        return new BackgroundSnapshotter(type, Config.builder()
+                .maxConcurrency(2)
+                .queueCapacity(1024)
+                .delay(Duration.ofSeconds(1))
+                .build());
+    }
+
+    /**
+     * Requests a snapshot of the given aggregate. The task is expected to re-read the latest state of the aggregate,
+     * since it is run with a delay and other commands may have been applied in the meantime.
+     *
+     * @return whether the request has been queued
+     */
+    public boolean request(AggregateId id, Supplier<Mono<Void>> task) {
+        notNull(id, "Aggregate ID must be given");
+        notNull(task, "Snapshot task must be given");
+
+        if (!pending.add(id)) {
+            return false;
+        }
+
+        var snapshotTask = new SnapshotTask(id, task);
+        Sinks.EmitResult result;
+        do {
+            result = queue.tryEmitNext(snapshotTask);
+        } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+
+        if (result.isFailure()) {
+            pending.remove(id);
+            dropped.increment();
+            log.debug("Dropped snapshot request for aggregate {} of type {}: {}", id.getValue(), type.getValue(), result);
+            return false;
+        }
+
+        requested.increment();
+        return true;
+    }
+
+    public boolean isPending(AggregateId id) {
+        return pending.contains(id);
+    }
+
+    public void dispose() {
+        queue.tryEmitComplete();
+        worker.dispose();
+    }
+
+    private Mono<Void> run(SnapshotTask task) {
+        return Mono.defer(task.task())
+                .delaySubscription(config.getDelay())
+                .doOnError(e -> {
+                    failed.increment();
+                    log.warn(
+                            "Failed to write background snapshot for aggregate {} of type {}",
+                            task.id().getValue(),
+                            type.getValue(),
+                            e
+                    );
+                })
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> pending.remove(task.id()));
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Builder
+    public static class Config {
+
+        int maxConcurrency;
+
+        int queueCapacity;
+
+        /**
+         * Time to wait before writing a requested snapshot.
+         * Gives the transaction of the command that requested the snapshot the chance to commit first.
+         */
+        Duration delay;
+
+    }
+
+    private record SnapshotTask(AggregateId id, Supplier<Mono<Void>> task) {
+    }
+
+}
@@ -0,0 +1,11 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.event.listener;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface BatchEventListenerHandler {
+
+    Mono<Void> handle(List<HandleableEvent> events);
+
+}
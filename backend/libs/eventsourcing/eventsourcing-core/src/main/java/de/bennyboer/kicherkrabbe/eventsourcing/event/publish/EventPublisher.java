@@ -1,8 +1,11 @@
 package de.bennyboer.kicherkrabbe.eventsourcing.event.publish;
 
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Any event that is created by any aggregate is publishable by an event publisher.
  * You may want to use a messaging system to publish events.
@@ -11,4 +14,14 @@ public interface EventPublisher {
 
     Mono<Void> publish(EventWithMetadata event);
 
+    /**
+     * Publishes all events emitted by a single command. Implementations should override this
+     * when they are able to publish a batch of events more efficiently than one by one.
+     */
+    default Mono<Void> publishAll(List<EventWithMetadata> events) {
+        return Flux.fromIterable(events)
+                .concatMap(this::publish)
+                .then();
+    }
+
 }
@@ -7,17 +7,49 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * Deserializes a snapshot state map back into an aggregate.
+ * For every class we resolve once how to instantiate it, which fields to set and which factory methods or
+ * constructors to try for value objects. These plans are cached as method handles, so rehydrating from a
+ * snapshot does not need any reflective lookups.
+ */
 @Slf4j
 public class AggregateSnapshotDeserializer {
 
     private static final List<String> FACTORY_METHOD_NAMES = List.of("of", "from", "create", "valueOf");
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final ClassValue<AggregatePlan> AGGREGATE_PLANS = new ClassValue<>() {
+        @Override
+        protected AggregatePlan computeValue(Class<?> type) {
+            return resolveAggregatePlan(type);
+        }
+    };
+
+    private static final ClassValue<ObjectPlan> OBJECT_PLANS = new ClassValue<>() {
+        @Override
+        protected ObjectPlan computeValue(Class<?> type) {
+            return resolveObjectPlan(type);
+        }
+    };
+
+    private static final Map<Type, ValueDecoder> DECODERS = new ConcurrentHashMap<>();
+
     @SuppressWarnings("unchecked")
     public <A extends Aggregate> A deserialize(
             SnapshotEvent snapshot,
@@ -28,155 +60,198 @@ public class AggregateSnapshotDeserializer {
         Map<String, Object> state = snapshot.getState();
 
         try {
-            A aggregate = createInstance(aggregateClass);
-            Set<String> processedFields = new HashSet<>();
+            AggregatePlan plan = AGGREGATE_PLANS.get(aggregateClass);
+            A aggregate = (A) invoke(plan.instantiator(), plan.instantiatorArgs());
 
-            for (Field field : getAllFields(aggregateClass)) {
-                field.setAccessible(true);
-                String fieldName = field.getName();
-                processedFields.add(fieldName);
-
-                if (field.isAnnotationPresent(SnapshotExclude.class)) {
-                    if (isIdField(field)) {
-                        field.set(aggregate, deserializeId(field.getType(), metadata.getAggregateId()));
-                    } else if (isVersionField(field)) {
-                        field.set(aggregate, metadata.getAggregateVersion());
+            for (AggregateField field : plan.fields()) {
+                String fieldName = field.name();
+
+                switch (field.kind()) {
+                    case ID -> field.set(aggregate, deserializeId(field.idClass(), metadata.getAggregateId()));
+                    case VERSION -> field.set(aggregate, metadata.getAggregateVersion());
+                    case EXCLUDED -> {
+                    }
+                    case STATE -> {
+                        if (state.containsKey(fieldName)) {
+                            Object rawValue = state.get(fieldName);
+                            Object value = decode(rawValue, field.decoder());
+                            field.set(aggregate, value);
+                        } else {
+                            log.debug(
+                                    "Field '{}' in aggregate {} not found in snapshot (may have been added after snapshot was created)",
+                                    fieldName,
+                                    aggregateClass.getSimpleName()
+                            );
+                        }
                     }
-                    continue;
                 }
+            }
 
-                if (state.containsKey(fieldName)) {
-                    Object rawValue = state.get(fieldName);
-                    Object value = deserializeValue(rawValue, field.getGenericType());
-                    field.set(aggregate, value);
-                } else {
+            if (log.isDebugEnabled()) {
+                Set<String> extraFields = new HashSet<>(state.keySet());
+                extraFields.removeAll(plan.fieldNames());
+                if (!extraFields.isEmpty()) {
                     log.debug(
-                            "Field '{}' in aggregate {} not found in snapshot (may have been added after snapshot was created)",
-                            fieldName,
-                            aggregateClass.getSimpleName()
+                            "Snapshot for {} contains fields not present in aggregate (may have been removed): {}",
+                            aggregateClass.getSimpleName(),
+                            extraFields
                     );
                 }
             }
 
-            Set<String> extraFields = new HashSet<>(state.keySet());
-            extraFields.removeAll(processedFields);
-            if (!extraFields.isEmpty()) {
-                log.debug(
-                        "Snapshot for {} contains fields not present in aggregate (may have been removed): {}",
-                        aggregateClass.getSimpleName(),
-                        extraFields
-                );
-            }
-
             return aggregate;
         } catch (Exception e) {
             throw new RuntimeException("Failed to deserialize snapshot for " + aggregateClass.getName(), e);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <A extends Aggregate> A createInstance(Class<A> clazz) throws Exception {
+    private static AggregatePlan resolveAggregatePlan(Class<?> aggregateClass) {
+        try {
+            Constructor<?> constructor = findAggregateConstructor(aggregateClass);
+            MethodHandle instantiator = toInvoker(constructor);
+            Object[] instantiatorArgs = toDefaultArgs(constructor.getParameterTypes());
+
+            List<AggregateField> fields = new ArrayList<>();
+            Set<String> fieldNames = new HashSet<>();
+            for (Field field : getAllFields(aggregateClass)) {
+                fieldNames.add(field.getName());
+                fields.add(toAggregateField(field));
+            }
+
+            return new AggregatePlan(instantiator, instantiatorArgs, List.copyOf(fields), Set.copyOf(fieldNames));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to access members of " + aggregateClass.getName(), e);
+        }
+    }
+
+    private static Constructor<?> findAggregateConstructor(Class<?> clazz) {
         Constructor<?>[] constructors = clazz.getDeclaredConstructors();
         for (Constructor<?> constructor : constructors) {
             if (constructor.getParameterCount() == 0) {
-                constructor.setAccessible(true);
-                return (A) constructor.newInstance();
+                return constructor;
             }
         }
 
-        Constructor<?> constructor = constructors[0];
-        constructor.setAccessible(true);
+        return constructors[0];
+    }
+
+    private static AggregateField toAggregateField(Field field) throws IllegalAccessException {
+        MethodHandle setter = toSetter(field);
 
-        Object[] args = new Object[constructor.getParameterCount()];
-        Class<?>[] paramTypes = constructor.getParameterTypes();
-        for (int i = 0; i < paramTypes.length; i++) {
-            args[i] = getDefaultValue(paramTypes[i]);
+        if (field.isAnnotationPresent(SnapshotExclude.class)) {
+            if (isIdField(field)) {
+                return new AggregateField(field.getName(), FieldKind.ID, setter, field.getType(), null);
+            } else if (isVersionField(field)) {
+                return new AggregateField(field.getName(), FieldKind.VERSION, setter, null, null);
+            }
+
+            return new AggregateField(field.getName(), FieldKind.EXCLUDED, setter, null, null);
         }
 
-        return (A) constructor.newInstance(args);
+        return new AggregateField(field.getName(), FieldKind.STATE, setter, null, decoderFor(field.getGenericType()));
     }
 
-    private @Nullable Object deserializeValue(Object value, Type targetType) {
+    private static @Nullable Object decode(@Nullable Object value, ValueDecoder decoder) throws Exception {
         if (value == null) {
             return null;
         }
 
+        return decoder.decode(value);
+    }
+
+    private static ValueDecoder decoderFor(Type targetType) {
+        ValueDecoder decoder = DECODERS.get(targetType);
+        if (decoder == null) {
+            decoder = resolveDecoder(targetType);
+            DECODERS.putIfAbsent(targetType, decoder);
+        }
+
+        return decoder;
+    }
+
+    private static ValueDecoder resolveDecoder(Type targetType) {
         Class<?> targetClass = getClassFromType(targetType);
 
         if (targetClass == String.class) {
-            return value.toString();
+            return Object::toString;
         }
 
         if (targetClass == boolean.class || targetClass == Boolean.class) {
-            return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            return value -> value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
         }
 
         if (targetClass == int.class || targetClass == Integer.class) {
-            return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+            return value -> value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString());
         }
 
         if (targetClass == long.class || targetClass == Long.class) {
-            return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+            return value -> value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
         }
 
         if (targetClass == double.class || targetClass == Double.class) {
-            return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+            return value -> value instanceof Number number
+                    ? number.doubleValue()
+                    : Double.parseDouble(value.toString());
         }
 
         if (targetClass == float.class || targetClass == Float.class) {
-            return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+            return value -> value instanceof Number number
+                    ? number.floatValue()
+                    : Float.parseFloat(value.toString());
         }
 
         if (targetClass == Instant.class) {
-            return Instant.parse(value.toString());
+            return value -> Instant.parse(value.toString());
         }
 
         if (targetClass == Duration.class) {
-            return Duration.parse(value.toString());
+            return value -> Duration.parse(value.toString());
         }
 
         if (targetClass == Version.class) {
-            return Version.of(((Number) value).longValue());
+            return value -> Version.of(((Number) value).longValue());
         }
 
         if (targetClass.isEnum()) {
-            return deserializeEnum(targetClass, value.toString());
+            return value -> deserializeEnum(targetClass, value.toString());
         }
 
         if (Set.class.isAssignableFrom(targetClass)) {
-            return deserializeCollection(value, targetType, true);
+            return collectionDecoder(targetType, true);
         }
 
         if (List.class.isAssignableFrom(targetClass) || Collection.class.isAssignableFrom(targetClass)) {
-            return deserializeCollection(value, targetType, false);
+            return collectionDecoder(targetType, false);
         }
 
         if (Map.class.isAssignableFrom(targetClass)) {
-            return deserializeMap(value, targetType);
+            return mapDecoder(targetType);
         }
 
-        return deserializeObject(value, targetClass);
+        return value -> deserializeObject(value, targetClass);
     }
 
-    private boolean isIdField(Field field) {
+    private static boolean isIdField(Field field) {
         return field.getName().equals("id") || field.getName().endsWith("Id");
     }
 
-    private boolean isVersionField(Field field) {
+    private static boolean isVersionField(Field field) {
         return field.getType() == Version.class && field.getName().equals("version");
     }
 
-    private Object deserializeId(Class<?> idClass, AggregateId aggregateId) {
+    private static Object deserializeId(Class<?> idClass, AggregateId aggregateId) {
         if (idClass == String.class) {
             return aggregateId.getValue();
         }
 
-        Object result = tryFactoryMethod(idClass, aggregateId.getValue());
+        ObjectPlan plan = OBJECT_PLANS.get(idClass);
+
+        Object result = tryCreators(plan.singleArgFactories(), idClass, aggregateId.getValue());
         if (result != null) {
             return result;
         }
 
-        result = tryConstructor(idClass, aggregateId.getValue());
+        result = tryCreators(plan.singleArgConstructors(), idClass, aggregateId.getValue());
         if (result != null) {
             return result;
         }
@@ -186,15 +261,11 @@ public class AggregateSnapshotDeserializer {
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private Object deserializeEnum(Class<?> enumClass, String value) {
+    private static Object deserializeEnum(Class<?> enumClass, String value) {
         return Enum.valueOf((Class<Enum>) enumClass, value);
     }
 
-    private Object deserializeCollection(Object value, Type targetType, boolean asSet) {
-        if (!(value instanceof Collection<?> collection)) {
-            throw new RuntimeException("Expected collection but got: " + value.getClass());
-        }
-
+    private static ValueDecoder collectionDecoder(Type targetType, boolean asSet) {
         Type elementType = Object.class;
         if (targetType instanceof ParameterizedType paramType) {
             Type[] typeArgs = paramType.getActualTypeArguments();
@@ -203,19 +274,22 @@ public class AggregateSnapshotDeserializer {
             }
         }
 
-        Type finalElementType = elementType;
-        List<Object> list = collection.stream()
-                .map(item -> deserializeValue(item, finalElementType))
-                .collect(Collectors.toList());
+        ValueDecoder elementDecoder = decoderFor(elementType);
+        return value -> {
+            if (!(value instanceof Collection<?> collection)) {
+                throw new RuntimeException("Expected collection but got: " + value.getClass());
+            }
 
-        return asSet ? new HashSet<>(list) : list;
-    }
+            List<Object> list = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+                list.add(decode(item, elementDecoder));
+            }
 
-    private Object deserializeMap(Object value, Type targetType) {
-        if (!(value instanceof Map<?, ?> map)) {
-            throw new RuntimeException("Expected map but got: " + value.getClass());
-        }
+            return asSet ? new HashSet<>(list) : list;
+        };
+    }
 
+    private static ValueDecoder mapDecoder(Type targetType) {
         Type keyType = String.class;
         Type valueType = Object.class;
         if (targetType instanceof ParameterizedType paramType) {
@@ -226,177 +300,262 @@ public class AggregateSnapshotDeserializer {
             }
         }
 
-        Map<Object, Object> result = new LinkedHashMap<>();
-        Type finalKeyType = keyType;
-        Type finalValueType = valueType;
-        map.forEach((k, v) -> result.put(
-                deserializeValue(k, finalKeyType),
-                deserializeValue(v, finalValueType)
-        ));
-        return result;
+        ValueDecoder keyDecoder = decoderFor(keyType);
+        ValueDecoder valueDecoder = decoderFor(valueType);
+        return value -> {
+            if (!(value instanceof Map<?, ?> map)) {
+                throw new RuntimeException("Expected map but got: " + value.getClass());
+            }
+
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                result.put(decode(entry.getKey(), keyDecoder), decode(entry.getValue(), valueDecoder));
+            }
+            return result;
+        };
     }
 
-    private Object deserializeObject(Object value, Class<?> targetClass) {
+    private static Object deserializeObject(Object value, Class<?> targetClass) {
+        ObjectPlan plan = OBJECT_PLANS.get(targetClass);
+
         if (!(value instanceof Map)) {
-            Object result = tryFactoryMethod(targetClass, value);
+            Object result = tryCreators(plan.singleArgFactories(), targetClass, value);
             if (result != null) {
                 return result;
             }
 
-            result = tryConstructor(targetClass, value);
+            result = tryCreators(plan.singleArgConstructors(), targetClass, value);
             if (result != null) {
                 return result;
             }
         }
 
         if (value instanceof Map<?, ?> map) {
-            return deserializeFromMap(map, targetClass);
+            return deserializeFromMap(map, targetClass, plan);
         }
 
         throw new RuntimeException("Cannot deserialize " + value.getClass() + " to " + targetClass.getName() +
                 ". No suitable factory method, constructor, or map-based instantiation available.");
     }
 
-    private @Nullable Object tryFactoryMethod(Class<?> clazz, Object value) {
-        for (String methodName : FACTORY_METHOD_NAMES) {
-            Method method = findStaticMethod(clazz, methodName, 1);
-            if (method != null) {
-                try {
-                    method.setAccessible(true);
-                    Object arg = deserializeValue(value, method.getParameterTypes()[0]);
-                    return method.invoke(null, arg);
-                } catch (Exception e) {
-                    log.trace("Factory method {}() on {} failed: {}", methodName, clazz.getSimpleName(), e.getMessage());
-                }
+    private static Object deserializeFromMap(Map<?, ?> map, Class<?> targetClass, ObjectPlan plan) {
+        Object result = tryMapCreators(plan.mapFactories(), targetClass, map);
+        if (result != null) {
+            return result;
+        }
+
+        result = tryMapCreators(plan.mapConstructors(), targetClass, map);
+        if (result != null) {
+            return result;
+        }
+
+        result = tryFieldBasedInstantiation(plan.fieldBased(), targetClass, map);
+        if (result != null) {
+            return result;
+        }
+
+        throw new RuntimeException("Failed to create instance of " + targetClass.getName() +
+                ". No suitable factory method, constructor, or field-based instantiation available.");
+    }
+
+    /**
+     * Tries the given creators in order. The result of the first one not failing is returned, even if it is null.
+     */
+    private static @Nullable Object tryCreators(List<SingleArgCreator> creators, Class<?> clazz, Object value) {
+        for (SingleArgCreator creator : creators) {
+            try {
+                Object arg = decode(value, creator.argDecoder());
+                return invoke(creator.invoker(), new Object[]{arg});
+            } catch (Exception e) {
+                log.trace("{} on {} failed: {}", creator.label(), clazz.getSimpleName(), e.getMessage());
             }
         }
         return null;
     }
 
-    private @Nullable Object tryConstructor(Class<?> clazz, Object value) {
-        for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
-            if (constructor.getParameterCount() == 1) {
-                try {
-                    constructor.setAccessible(true);
-                    Object arg = deserializeValue(value, constructor.getParameterTypes()[0]);
-                    return constructor.newInstance(arg);
-                } catch (Exception e) {
-                    log.trace("Constructor on {} failed: {}", clazz.getSimpleName(), e.getMessage());
+    /**
+     * Tries the given creators in order, skipping those whose parameters are not all present in the map.
+     * The result of the first one not failing is returned, even if it is null.
+     */
+    private static @Nullable Object tryMapCreators(List<MapCreator> creators, Class<?> clazz, Map<?, ?> map) {
+        for (MapCreator creator : creators) {
+            try {
+                Object[] args = creator.buildArgs(map);
+                if (args != null) {
+                    return invoke(creator.invoker(), args);
                 }
+            } catch (Exception e) {
+                log.trace("{} on {} failed: {}", creator.label(), clazz.getSimpleName(), e.getMessage());
             }
         }
         return null;
     }
 
-    private Object deserializeFromMap(Map<?, ?> map, Class<?> targetClass) {
-        Object result = tryFactoryMethodForMap(targetClass, map);
-        if (result != null) {
-            return result;
+    private static @Nullable Object tryFieldBasedInstantiation(
+            @Nullable FieldBasedCreator creator,
+            Class<?> clazz,
+            Map<?, ?> map
+    ) {
+        if (creator == null) {
+            return null;
         }
 
-        result = tryConstructorForMap(targetClass, map);
-        if (result != null) {
-            return result;
+        try {
+            Object instance = invoke(creator.instantiator(), creator.instantiatorArgs());
+            for (ObjectField field : creator.fields()) {
+                if (map.containsKey(field.name())) {
+                    Object rawValue = map.get(field.name());
+                    Object deserializedValue = decode(rawValue, field.decoder());
+                    setField(field.setter(), instance, deserializedValue);
+                }
+            }
+            return instance;
+        } catch (Exception e) {
+            log.trace("Field-based instantiation on {} failed: {}", clazz.getSimpleName(), e.getMessage());
+            return null;
         }
+    }
 
-        result = tryFieldBasedInstantiation(targetClass, map);
-        if (result != null) {
-            return result;
+    private static ObjectPlan resolveObjectPlan(Class<?> clazz) {
+        List<SingleArgCreator> singleArgFactories = new ArrayList<>();
+        for (String methodName : FACTORY_METHOD_NAMES) {
+            Method method = findStaticMethod(clazz, methodName, 1);
+            if (method != null) {
+                toSingleArgCreator(method, "Factory method " + methodName + "()").ifPresent(singleArgFactories::add);
+            }
         }
 
-        throw new RuntimeException("Failed to create instance of " + targetClass.getName() +
-                ". No suitable factory method, constructor, or field-based instantiation available.");
-    }
+        List<SingleArgCreator> singleArgConstructors = new ArrayList<>();
+        for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == 1) {
+                toSingleArgCreator(constructor, "Constructor").ifPresent(singleArgConstructors::add);
+            }
+        }
 
-    private @Nullable Object tryFactoryMethodForMap(Class<?> clazz, Map<?, ?> map) {
+        List<MapCreator> mapFactories = new ArrayList<>();
         for (String methodName : FACTORY_METHOD_NAMES) {
             for (Method method : clazz.getMethods()) {
                 if (Modifier.isStatic(method.getModifiers())
                         && methodName.equals(method.getName())
                         && method.getParameterCount() > 0) {
-                    try {
-                        method.setAccessible(true);
-                        Object[] args = buildArgsFromMap(method.getParameters(), map);
-                        if (args != null) {
-                            return method.invoke(null, args);
-                        }
-                    } catch (Exception e) {
-                        log.trace("Factory method {}() on {} failed: {}", methodName, clazz.getSimpleName(), e.getMessage());
-                    }
+                    toMapCreator(method, "Factory method " + methodName + "()").ifPresent(mapFactories::add);
                 }
             }
         }
-        return null;
-    }
 
-    private @Nullable Object tryConstructorForMap(Class<?> clazz, Map<?, ?> map) {
         Constructor<?>[] constructors = clazz.getDeclaredConstructors();
         Arrays.sort(constructors, (c1, c2) -> Integer.compare(c2.getParameterCount(), c1.getParameterCount()));
-
+        List<MapCreator> mapConstructors = new ArrayList<>();
         for (Constructor<?> constructor : constructors) {
-            if (constructor.getParameterCount() == 0) {
-                continue;
-            }
-            try {
-                constructor.setAccessible(true);
-                Object[] args = buildArgsFromMap(constructor.getParameters(), map);
-                if (args != null) {
-                    return constructor.newInstance(args);
-                }
-            } catch (Exception e) {
-                log.trace("Constructor on {} failed: {}", clazz.getSimpleName(), e.getMessage());
+            if (constructor.getParameterCount() > 0) {
+                toMapCreator(constructor, "Constructor").ifPresent(mapConstructors::add);
             }
         }
-        return null;
+
+        return new ObjectPlan(
+                List.copyOf(singleArgFactories),
+                List.copyOf(singleArgConstructors),
+                List.copyOf(mapFactories),
+                List.copyOf(mapConstructors),
+                toFieldBasedCreator(clazz)
+        );
     }
 
-    private @Nullable Object[] buildArgsFromMap(Parameter[] params, Map<?, ?> map) {
-        Object[] args = new Object[params.length];
-        for (int i = 0; i < params.length; i++) {
-            String paramName = params[i].getName();
-            if (!map.containsKey(paramName)) {
-                return null;
+    /*
+    Creators that cannot be made accessible are skipped, just like a creator failing when invoked.
+     */
+    private static Optional<SingleArgCreator> toSingleArgCreator(Executable executable, String label) {
+        try {
+            MethodHandle invoker = toInvoker(executable);
+            ValueDecoder argDecoder = decoderFor(executable.getParameterTypes()[0]);
+            return Optional.of(new SingleArgCreator(label, invoker, argDecoder));
+        } catch (Exception e) {
+            log.trace("{} on {} is not usable: {}", label, executable.getDeclaringClass().getSimpleName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<MapCreator> toMapCreator(Executable executable, String label) {
+        try {
+            MethodHandle invoker = toInvoker(executable);
+            Parameter[] params = executable.getParameters();
+            String[] names = new String[params.length];
+            ValueDecoder[] decoders = new ValueDecoder[params.length];
+            for (int i = 0; i < params.length; i++) {
+                names[i] = params[i].getName();
+                decoders[i] = decoderFor(params[i].getParameterizedType());
             }
-            Object rawValue = map.get(paramName);
-            args[i] = deserializeValue(rawValue, params[i].getParameterizedType());
+            return Optional.of(new MapCreator(label, invoker, names, decoders));
+        } catch (Exception e) {
+            log.trace("{} on {} is not usable: {}", label, executable.getDeclaringClass().getSimpleName(), e.getMessage());
+            return Optional.empty();
         }
-        return args;
     }
 
-    private @Nullable Object tryFieldBasedInstantiation(Class<?> clazz, Map<?, ?> map) {
+    private static @Nullable FieldBasedCreator toFieldBasedCreator(Class<?> clazz) {
         try {
-            Object instance = createObjectInstance(clazz);
+            Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+            if (constructors.length == 0) {
+                return null;
+            }
+            Constructor<?> constructor = constructors[0];
+            MethodHandle instantiator = toInvoker(constructor);
+            Object[] instantiatorArgs = toDefaultArgs(constructor.getParameterTypes());
+
+            List<ObjectField> fields = new ArrayList<>();
             for (Field field : getAllFields(clazz)) {
-                field.setAccessible(true);
-                String fieldName = field.getName();
-                if (map.containsKey(fieldName)) {
-                    Object rawValue = map.get(fieldName);
-                    Object deserializedValue = deserializeValue(rawValue, field.getGenericType());
-                    field.set(instance, deserializedValue);
-                }
+                fields.add(new ObjectField(field.getName(), toSetter(field), decoderFor(field.getGenericType())));
             }
-            return instance;
+
+            return new FieldBasedCreator(instantiator, instantiatorArgs, List.copyOf(fields));
         } catch (Exception e) {
-            log.trace("Field-based instantiation on {} failed: {}", clazz.getSimpleName(), e.getMessage());
+            log.trace("Field-based instantiation on {} is not usable: {}", clazz.getSimpleName(), e.getMessage());
             return null;
         }
     }
 
-    private Object createObjectInstance(Class<?> clazz) throws Exception {
-        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
-        for (Constructor<?> constructor : constructors) {
-            constructor.setAccessible(true);
-            Object[] args = new Object[constructor.getParameterCount()];
-            Class<?>[] paramTypes = constructor.getParameterTypes();
-            for (int i = 0; i < paramTypes.length; i++) {
-                args[i] = getDefaultValue(paramTypes[i]);
-            }
-            return constructor.newInstance(args);
+    /**
+     * Creates a method handle of type {@code (Object[]) -> Object} for the given method or constructor.
+     */
+    private static MethodHandle toInvoker(Executable executable) throws IllegalAccessException {
+        executable.setAccessible(true);
+
+        MethodHandle handle = (executable instanceof Constructor<?> constructor
+                ? LOOKUP.unreflectConstructor(constructor)
+                : LOOKUP.unreflect((Method) executable)).asFixedArity();
+
+        return handle.asType(handle.type().generic())
+                .asSpreader(Object[].class, executable.getParameterCount())
+                .asType(INVOKER_TYPE);
+    }
+
+    private static MethodHandle toSetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+
+        return LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+    }
+
+    private static Object invoke(MethodHandle invoker, Object[] args) throws Exception {
+        try {
+            return (Object) invoker.invokeExact(args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
         }
-        throw new RuntimeException("No constructor found for " + clazz.getName());
     }
 
-    private @Nullable Method findStaticMethod(Class<?> clazz, String name, int paramCount) {
+    private static void setField(MethodHandle setter, Object target, @Nullable Object value) throws Exception {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static @Nullable Method findStaticMethod(Class<?> clazz, String name, int paramCount) {
         for (Method method : clazz.getMethods()) {
             if (Modifier.isStatic(method.getModifiers())
                     && name.equals(method.getName())
@@ -407,7 +566,7 @@ public class AggregateSnapshotDeserializer {
         return null;
     }
 
-    private Class<?> getClassFromType(Type type) {
+    private static Class<?> getClassFromType(Type type) {
         if (type instanceof Class<?> clazz) {
             return clazz;
         }
@@ -417,7 +576,13 @@ public class AggregateSnapshotDeserializer {
         return Object.class;
     }
 
-    private @Nullable Object getDefaultValue(Class<?> clazz) {
+    private static Object[] toDefaultArgs(Class<?>[] paramTypes) {
+        return Arrays.stream(paramTypes)
+                .map(AggregateSnapshotDeserializer::getDefaultValue)
+                .toArray();
+    }
+
+    private static @Nullable Object getDefaultValue(Class<?> clazz) {
         if (clazz == boolean.class) return false;
         if (clazz == int.class) return 0;
         if (clazz == long.class) return 0L;
@@ -429,7 +594,7 @@ public class AggregateSnapshotDeserializer {
         return null;
     }
 
-    private List<Field> getAllFields(Class<?> clazz) {
+    private static List<Field> getAllFields(Class<?> clazz) {
         List<Field> fields = new ArrayList<>();
         Class<?> current = clazz;
 
@@ -441,7 +606,80 @@ public class AggregateSnapshotDeserializer {
         return fields.stream()
                 .filter(f -> !f.isSynthetic())
                 .filter(f -> !Modifier.isStatic(f.getModifiers()))
-                .toList();
+                .collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface ValueDecoder {
+
+        /**
+         * Decodes the given non-null raw snapshot value.
+         */
+        @Nullable
+        Object decode(Object value) throws Exception;
+
+    }
+
+    private enum FieldKind {
+        ID,
+        VERSION,
+        EXCLUDED,
+        STATE
+    }
+
+    private record AggregatePlan(
+            MethodHandle instantiator,
+            Object[] instantiatorArgs,
+            List<AggregateField> fields,
+            Set<String> fieldNames
+    ) {
+    }
+
+    private record AggregateField(
+            String name,
+            FieldKind kind,
+            MethodHandle setter,
+            @Nullable Class<?> idClass,
+            @Nullable ValueDecoder decoder
+    ) {
+
+        void set(Object target, @Nullable Object value) throws Exception {
+            setField(setter, target, value);
+        }
+
+    }
+
+    private record ObjectPlan(
+            List<SingleArgCreator> singleArgFactories,
+            List<SingleArgCreator> singleArgConstructors,
+            List<MapCreator> mapFactories,
+            List<MapCreator> mapConstructors,
+            @Nullable FieldBasedCreator fieldBased
+    ) {
+    }
+
+    private record SingleArgCreator(String label, MethodHandle invoker, ValueDecoder argDecoder) {
+    }
+
+    private record MapCreator(String label, MethodHandle invoker, String[] parameterNames, ValueDecoder[] decoders) {
+
+        @Nullable Object[] buildArgs(Map<?, ?> map) throws Exception {
+            Object[] args = new Object[parameterNames.length];
+            for (int i = 0; i < parameterNames.length; i++) {
+                if (!map.containsKey(parameterNames[i])) {
+                    return null;
+                }
+                args[i] = decode(map.get(parameterNames[i]), decoders[i]);
+            }
+            return args;
+        }
+
+    }
+
+    private record FieldBasedCreator(MethodHandle instantiator, Object[] instantiatorArgs, List<ObjectField> fields) {
+    }
+
+    private record ObjectField(String name, MethodHandle setter, ValueDecoder decoder) {
     }
 
 }
@@ -3,6 +3,9 @@ package de.bennyboer.kicherkrabbe.eventsourcing.event.snapshot;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.Aggregate;
 import org.jspecify.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -10,24 +13,41 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
+/**
+ * Serializes aggregates to a snapshot state map.
+ * Which fields to read and how is resolved only once per class and cached as method handles,
+ * so that serializing a snapshot does not need any reflective lookups.
+ */
 public class AggregateSnapshotSerializer {
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<List<FieldGetter>> AGGREGATE_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<FieldGetter> computeValue(Class<?> type) {
+            return getAllFields(type).stream()
+                    .filter(field -> !shouldExclude(field))
+                    .map(AggregateSnapshotSerializer::toFieldGetter)
+                    .toList();
+        }
+    };
+
+    private static final ClassValue<ObjectPlan> OBJECT_PLANS = new ClassValue<>() {
+        @Override
+        protected ObjectPlan computeValue(Class<?> type) {
+            return resolveObjectPlan(type);
+        }
+    };
+
     public SnapshotEvent serialize(Aggregate aggregate) {
         Map<String, Object> state = new LinkedHashMap<>();
 
-        for (Field field : getAllFields(aggregate.getClass())) {
-            if (shouldExclude(field)) {
-                continue;
-            }
-
-            try {
-                field.setAccessible(true);
-                Object value = field.get(aggregate);
-                Object serializedValue = serializeValue(value);
-                state.put(field.getName(), serializedValue);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Failed to access field: " + field.getName(), e);
-            }
+        for (FieldGetter field : AGGREGATE_FIELDS.get(aggregate.getClass())) {
+            Object value = field.get(aggregate);
+            Object serializedValue = serializeValue(value);
+            state.put(field.name(), serializedValue);
         }
 
         return SnapshotEvent.of(state);
@@ -75,30 +95,61 @@ public class AggregateSnapshotSerializer {
     }
 
     private Object serializeObject(Object obj) {
-        Method getValueMethod = findGetValueMethod(obj.getClass());
-        if (getValueMethod != null) {
+        ObjectPlan plan = OBJECT_PLANS.get(obj.getClass());
+
+        if (plan.getValue() != null) {
+            Object value;
             try {
-                getValueMethod.setAccessible(true);
-                return serializeValue(getValueMethod.invoke(obj));
-            } catch (Exception e) {
+                value = (Object) plan.getValue().invokeExact(obj);
+            } catch (Throwable e) {
                 throw new RuntimeException("Failed to invoke getValue() on " + obj.getClass().getName(), e);
             }
+
+            return serializeValue(value);
         }
 
         Map<String, Object> serialized = new LinkedHashMap<>();
-        for (Field field : getAllFields(obj.getClass())) {
+        for (FieldGetter field : plan.fields()) {
+            Object value = field.get(obj);
+            serialized.put(field.name(), serializeValue(value));
+        }
+        return serialized;
+    }
+
+    /**
+     * Value objects exposing a {@code getValue()} method are serialized as that value,
+     * all other objects as a map of their fields.
+     */
+    private static ObjectPlan resolveObjectPlan(Class<?> clazz) {
+        Method getValueMethod = findGetValueMethod(clazz);
+        if (getValueMethod != null) {
             try {
-                field.setAccessible(true);
-                Object value = field.get(obj);
-                serialized.put(field.getName(), serializeValue(value));
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Failed to access field: " + field.getName(), e);
+                getValueMethod.setAccessible(true);
+                MethodHandle handle = LOOKUP.unreflect(getValueMethod).asType(GETTER_TYPE);
+                return new ObjectPlan(handle, List.of());
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to invoke getValue() on " + clazz.getName(), e);
             }
         }
-        return serialized;
+
+        List<FieldGetter> fields = getAllFields(clazz).stream()
+                .map(AggregateSnapshotSerializer::toFieldGetter)
+                .toList();
+
+        return new ObjectPlan(null, fields);
+    }
+
+    private static FieldGetter toFieldGetter(Field field) {
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+            return new FieldGetter(field.getName(), getter);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to access field: " + field.getName(), e);
+        }
     }
 
-    private @Nullable Method findGetValueMethod(Class<?> clazz) {
+    private static @Nullable Method findGetValueMethod(Class<?> clazz) {
         try {
             return clazz.getMethod("getValue");
         } catch (NoSuchMethodException e) {
@@ -106,11 +157,11 @@ public class AggregateSnapshotSerializer {
         }
     }
 
-    private boolean shouldExclude(Field field) {
+    private static boolean shouldExclude(Field field) {
         return field.isAnnotationPresent(SnapshotExclude.class);
     }
 
-    private List<Field> getAllFields(Class<?> clazz) {
+    private static List<Field> getAllFields(Class<?> clazz) {
         List<Field> fields = new ArrayList<>();
         Class<?> current = clazz;
 
@@ -125,4 +176,19 @@ public class AggregateSnapshotSerializer {
                 .toList();
     }
 
+    private record FieldGetter(String name, MethodHandle getter) {
+
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to access field: " + name, e);
+            }
+        }
+
+    }
+
+    private record ObjectPlan(@Nullable MethodHandle getValue, List<FieldGetter> fields) {
+    }
+
 }
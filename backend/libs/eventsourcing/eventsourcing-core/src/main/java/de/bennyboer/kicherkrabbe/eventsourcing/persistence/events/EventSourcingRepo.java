@@ -7,10 +7,19 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface EventSourcingRepo {
 
     Mono<EventWithMetadata> insert(EventWithMetadata event);
 
+    /**
+     * Inserts the given events in order with a single write. If any of the events conflicts with an
+     * already existing version of the aggregate, an {@link de.bennyboer.kicherkrabbe.eventsourcing.AggregateVersionOutdatedError}
+     * is raised.
+     */
+    Flux<EventWithMetadata> insertAll(List<EventWithMetadata> events);
+
     Mono<EventWithMetadata> findNearestSnapshotEventByAggregateIdAndType(
             AggregateId aggregateId,
             AggregateType type,
@@ -35,6 +44,46 @@ public interface EventSourcingRepo {
             Version untilVersion
     );
 
+    /**
+     * Finds everything needed to rehydrate the latest version of the aggregate in a single round trip:
+     * the latest snapshot event (if any) followed by all events after it, ordered by ascending version.
+     */
+    Flux<EventWithMetadata> findEventsSinceLatestSnapshotByAggregateIdAndType(
+            AggregateId aggregateId,
+            AggregateType type
+    );
+
+    /**
+     * Same as {@link #findEventsSinceLatestSnapshotByAggregateIdAndType(AggregateId, AggregateType)} but only
+     * considers events until the given version (inclusive).
+     */
+    Flux<EventWithMetadata> findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(
+            AggregateId aggregateId,
+            AggregateType type,
+            Version version
+    );
+
+    /**
+     * Streams all events of the given aggregate type in insertion order, starting right after the given position.
+     * The events are read lazily in batches of the given size, so that the whole stream can be consumed with
+     * constant memory. Every event carries its position, which may be persisted to resume reading later on.
+     * <p>
+     * Insertion order is only approximated for events that have been written by different nodes at nearly
+     * the same time. Consumers that depend on the order of events of an aggregate should check the versions they apply.
+     * <p>
+     * Positions do not follow commit order. While other nodes are writing, an event committed after a position has
+     * been read may still be sorted before it, for example when it was created earlier on another node or belongs
+     * to a transaction that committed late. Resuming after a position may thus skip such events for good.
+     * A position is only a safe resume point if no events of the type have been written concurrently. Otherwise,
+     * consumers have to reconcile afterwards, for example by comparing the versions they have applied per aggregate
+     * with the latest versions in the event store.
+     */
+    Flux<PositionedEvent> findEventsByAggregateType(
+            AggregateType type,
+            EventStreamPosition after,
+            int batchSize
+    );
+
     /**
      * Removes all events of the aggregate with the given id and type until the given version (inclusive).
      */
@@ -0,0 +1,46 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.events;
+
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Optional;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Opaque position of an event in the stream of all events of an aggregate type.
+ * Its value is only meaningful to the repository that produced it and may be persisted to resume reading later.
+ * Resuming may skip events that were written concurrently, see {@link EventSourcingRepo#findEventsByAggregateType}.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class EventStreamPosition {
+
+    private static final EventStreamPosition START = new EventStreamPosition(null);
+
+    @Nullable
+    String value;
+
+    public static EventStreamPosition start() {
+        return START;
+    }
+
+    public static EventStreamPosition of(String value) {
+        notNull(value, "Event stream position must be given");
+        check(!value.isBlank(), "Event stream position must not be blank");
+
+        return new EventStreamPosition(value);
+    }
+
+    public boolean isStart() {
+        return value == null;
+    }
+
+    public Optional<String> getValue() {
+        return Optional.ofNullable(value);
+    }
+
+}
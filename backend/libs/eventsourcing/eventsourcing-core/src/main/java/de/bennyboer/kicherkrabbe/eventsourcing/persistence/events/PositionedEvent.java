@@ -0,0 +1,29 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.events;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * An event read from the stream of all events of an aggregate type together with its position in that stream.
+ * Reading again from the position continues right after the event.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class PositionedEvent {
+
+    EventWithMetadata event;
+
+    EventStreamPosition position;
+
+    public static PositionedEvent of(EventWithMetadata event, EventStreamPosition position) {
+        notNull(event, "Event must be given");
+        notNull(position, "Event stream position must be given");
+
+        return new PositionedEvent(event, position);
+    }
+
+}
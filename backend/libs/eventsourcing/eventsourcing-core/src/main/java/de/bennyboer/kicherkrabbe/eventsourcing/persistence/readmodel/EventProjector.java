@@ -0,0 +1,15 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+
+/**
+ * Applies a single event to the current state of a read model.
+ * The returned read model must carry the given version.
+ */
+@FunctionalInterface
+public interface EventProjector<T> {
+
+    T apply(T current, HandleableEvent event, Version version);
+
+}
@@ -0,0 +1,180 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.HandleableEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Keeps a read model up to date by applying published events directly to the stored read model
+ * instead of replaying the whole aggregate for every event.
+ * <p>
+ * An event is only applied incrementally if a projector is registered for its name and the stored
+ * read model is exactly one version behind the event. Events the read model already reflects are skipped.
+ * In all other cases (unknown event, missing read model or a version gap) the read model is rebuilt
+ * using the given replay function, which usually loads the aggregate and writes the full read model.
+ */
+public class ReadModelProjection<ID, T extends VersionedReadModel<ID>> {
+
+    private final EventSourcingReadModelRepo<ID, T> repo;
+
+    private final Function<ID, Mono<T>> reader;
+
+    private final Function<AggregateId, ID> idMapper;
+
+    private final Function<ID, Mono<Void>> replay;
+
+    private final Map<EventName, EventProjector<T>> projectors;
+
+    private final Counter appliedCounter;
+
+    private final Counter replayedCounter;
+
+    private final Counter skippedCounter;
+
+    private ReadModelProjection(Builder<ID, T> builder) {
+        this.repo = builder.repo;
+        this.reader = builder.reader;
+        this.idMapper = builder.idMapper;
+        this.replay = builder.replay;
+        this.projectors = Map.copyOf(builder.projectors);
+
+        this.appliedCounter = createCounter(builder.registry, builder.name, "applied");
+        this.replayedCounter = createCounter(builder.registry, builder.name, "replayed");
+        this.skippedCounter = createCounter(builder.registry, builder.name, "skipped");
+    }
+
+    public static <ID, T extends VersionedReadModel<ID>> Builder<ID, T> builder(
+            String name,
+            EventSourcingReadModelRepo<ID, T> repo
+    ) {
+        notNull(name, "Name must be given");
+        notNull(repo, "Read model repo must be given");
+
+        return new Builder<>(name, repo);
+    }
+
+    public Mono<Void> handle(HandleableEvent event) {
+        ID id = idMapper.apply(event.getMetadata().getAggregateId());
+        Version version = event.getMetadata().getAggregateVersion();
+
+        EventProjector<T> projector = projectors.get(event.getEventName());
+        if (projector == null) {
+            return replay(id);
+        }
+
+        return reader.apply(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(current -> {
+                    if (current.isEmpty()) {
+                        return replay(id);
+                    }
+
+                    Version currentVersion = current.get().getVersion();
+                    if (currentVersion.compareTo(version) >= 0) {
+                        skippedCounter.increment();
+                        return Mono.empty();
+                    }
+                    if (!currentVersion.isPreviousTo(version)) {
+                        return replay(id);
+                    }
+
+                    T updated = projector.apply(current.get(), event, version);
+                    check(
+                            updated.getVersion().equals(version),
+                            "Projected read model must have version %s".formatted(version)
+                    );
+
+                    return repo.update(updated)
+                            .doOnSuccess(ignored -> appliedCounter.increment());
+                });
+    }
+
+    private Mono<Void> replay(ID id) {
+        return replay.apply(id)
+                .doOnSuccess(ignored -> replayedCounter.increment());
+    }
+
+    private static Counter createCounter(MeterRegistry registry, String name, String outcome) {
+        return Counter.builder("eventsourcing.readmodel.projection.events")
+                .description("Events handled by a read model projection by outcome")
+                .tag("readModel", name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public static class Builder<ID, T extends VersionedReadModel<ID>> {
+
+        private final String name;
+
+        private final EventSourcingReadModelRepo<ID, T> repo;
+
+        private final Map<EventName, EventProjector<T>> projectors = new HashMap<>();
+
+        private Function<ID, Mono<T>> reader;
+
+        private Function<AggregateId, ID> idMapper;
+
+        private Function<ID, Mono<Void>> replay;
+
+        private MeterRegistry registry = Metrics.globalRegistry;
+
+        private Builder(String name, EventSourcingReadModelRepo<ID, T> repo) {
+            this.name = name;
+            this.repo = repo;
+        }
+
+        public Builder<ID, T> reader(Function<ID, Mono<T>> reader) {
+            this.reader = reader;
+            return this;
+        }
+
+        public Builder<ID, T> idMapper(Function<AggregateId, ID> idMapper) {
+            this.idMapper = idMapper;
+            return this;
+        }
+
+        public Builder<ID, T> replay(Function<ID, Mono<Void>> replay) {
+            this.replay = replay;
+            return this;
+        }
+
+        public Builder<ID, T> on(EventName eventName, EventProjector<T> projector) {
+            notNull(eventName, "Event name must be given");
+            notNull(projector, "Projector must be given");
+            check(!projectors.containsKey(eventName), "Projector for event %s already registered".formatted(eventName));
+
+            projectors.put(eventName, projector);
+            return this;
+        }
+
+        public Builder<ID, T> registry(MeterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        public ReadModelProjection<ID, T> build() {
+            notNull(reader, "Reader must be given");
+            notNull(idMapper, "ID mapper must be given");
+            notNull(replay, "Replay must be given");
+            notNull(registry, "Meter registry must be given");
+
+            return new ReadModelProjection<>(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventMessageReader;
+import de.bennyboer.kicherkrabbe.messaging.MessagingJsonMappers;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares reading a typed event from a message by materializing the whole message as a map and converting
+ * the event map afterward against reading it in a single streaming pass.
+ * The streaming reader additionally builds the event metadata, which the map based variant leaves out.
+ */
+public class EventMessageReaderPerformanceTest {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int TEST_ITERATIONS = 200000;
+
+    private final JsonMapper jsonMapper = MessagingJsonMappers.create();
+
+    private final EventMessageReader reader = new EventMessageReader(jsonMapper);
+
+    private final byte[] message = EventMessageReaderTest.createMessage(jsonMapper, true);
+
+    @Test
+    void shouldCompareMapBasedWithStreamingDeserialization() {
+        Supplier<Object> mapBased = () -> {
+            Map<String, Object> payload = jsonMapper.readValue(message, Map.class);
+            return jsonMapper.convertValue(payload.get("event"), EventMessageReaderTest.CreatedEvent.class);
+        };
+        Supplier<Object> streaming = () -> reader.read(message, EventMessageReaderTest.CreatedEvent.class).getEvent();
+
+        assertThat(streaming.get()).isEqualTo(mapBased.get());
+
+        var mapBasedResult = measure(mapBased);
+        var streamingResult = measure(streaming);
+
+        System.out.printf("Typed event deserialization (%d messages):%n", TEST_ITERATIONS);
+        System.out.printf(
+                "  Map based: %d ns/op, %d bytes/op%n",
+                mapBasedResult.nanosPerOp,
+                mapBasedResult.bytesPerOp
+        );
+        System.out.printf(
+                "  Streaming: %d ns/op, %d bytes/op%n",
+                streamingResult.nanosPerOp,
+                streamingResult.bytesPerOp
+        );
+    }
+
+    private Result measure(Supplier<Object> deserialization) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            deserialization.get();
+        }
+
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < TEST_ITERATIONS; i++) {
+            deserialization.get();
+        }
+        long endNanos = System.nanoTime();
+        long endBytes = threadBean.getThreadAllocatedBytes(threadId);
+
+        return new Result(
+                (endNanos - startNanos) / TEST_ITERATIONS,
+                (endBytes - startBytes) / TEST_ITERATIONS
+        );
+    }
+
+    private record Result(long nanosPerOp, long bytesPerOp) {
+    }
+
+}
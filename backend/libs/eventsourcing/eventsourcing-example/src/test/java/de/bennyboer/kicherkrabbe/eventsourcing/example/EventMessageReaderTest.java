@@ -0,0 +1,116 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.listener.EventMessageReader;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.messaging.MessagingJsonMappers;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventMessageReaderTest {
+
+    public record CreatedEvent(String title, List<String> tags) {
+    }
+
+    private final JsonMapper jsonMapper = MessagingJsonMappers.create();
+
+    private final EventMessageReader reader = new EventMessageReader(jsonMapper);
+
+    private final EventMetadata expectedMetadata = EventMetadata.of(
+            AggregateId.of("SAMPLE_ID"),
+            AggregateType.of("SAMPLE"),
+            Version.of(3),
+            Agent.user(AgentId.of("USER_ID")),
+            Instant.parse("2024-03-12T10:15:30Z"),
+            false
+    );
+
+    @Test
+    void shouldReadEventWithMetadataAsMap() {
+        // given: a published event message
+        byte[] message = createMessage(true);
+
+        // when: reading the message
+        var event = reader.read(message);
+
+        // then: the metadata is read
+        assertThat(event.getMetadata()).isEqualTo(expectedMetadata);
+        assertThat(event.getEventName()).isEqualTo(EventName.of("CREATED"));
+        assertThat(event.getEventVersion()).isEqualTo(Version.of(1));
+
+        // and: the event is read as map
+        assertThat(event.getEvent()).isEqualTo(Map.of("title", "Title", "tags", List.of("A", "B")));
+    }
+
+    @Test
+    void shouldReadTypedEventRegardlessOfFieldOrder() {
+        // given: published event messages with the event before and after the metadata
+        byte[] eventFirst = createMessage(true);
+        byte[] metadataFirst = createMessage(false);
+
+        // when: reading the messages with a typed event
+        var fromEventFirst = reader.read(eventFirst, CreatedEvent.class);
+        var fromMetadataFirst = reader.read(metadataFirst, CreatedEvent.class);
+
+        // then: both messages are read the same way
+        var expectedEvent = new CreatedEvent("Title", List.of("A", "B"));
+        assertThat(fromEventFirst.getMetadata()).isEqualTo(expectedMetadata);
+        assertThat(fromEventFirst.getEvent()).isEqualTo(expectedEvent);
+        assertThat(fromMetadataFirst.getMetadata()).isEqualTo(expectedMetadata);
+        assertThat(fromMetadataFirst.getEvent()).isEqualTo(expectedEvent);
+    }
+
+    @Test
+    void shouldReadMetadataOnly() {
+        // given: a published event message
+        byte[] message = createMessage(true);
+
+        // when: reading only the metadata
+        var metadata = reader.readMetadata(message);
+
+        // then: the metadata is read
+        assertThat(metadata).isEqualTo(expectedMetadata);
+    }
+
+    static byte[] createMessage(JsonMapper jsonMapper, boolean eventFirst) {
+        Map<String, Object> event = Map.of("title", "Title", "tags", List.of("A", "B"));
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("aggregateId", "SAMPLE_ID");
+        metadata.put("aggregateType", "SAMPLE");
+        metadata.put("aggregateVersion", 3);
+        metadata.put("eventName", "CREATED");
+        metadata.put("eventVersion", 1);
+        metadata.put("agentType", "USER");
+        metadata.put("agentId", "USER_ID");
+        metadata.put("date", Instant.parse("2024-03-12T10:15:30Z"));
+        metadata.put("isSnapshot", false);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (eventFirst) {
+            payload.put("event", event);
+            payload.put("metadata", metadata);
+        } else {
+            payload.put("metadata", metadata);
+            payload.put("event", event);
+        }
+
+        return jsonMapper.writeValueAsBytes(payload);
+    }
+
+    private byte[] createMessage(boolean eventFirst) {
+        return createMessage(jsonMapper, eventFirst);
+    }
+
+}
@@ -0,0 +1,103 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares rehydrating an aggregate with a long event history using two round trips
+ * (latest snapshot, then events from there on) against the single reverse cursor query.
+ */
+@MongoTest
+public class MongoRehydrationPerformanceTest {
+
+    private static final int EVENT_COUNT = 2000;
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int TEST_ITERATIONS = 500;
+
+    private final ReactiveMongoTemplate template;
+
+    private final AggregateId id = AggregateId.of("PERF_TEST_ID");
+
+    private EventSourcingRepo repo;
+
+    @Autowired
+    public MongoRehydrationPerformanceTest(ReactiveMongoTemplate template) {
+        this.template = template;
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.remove(MongoEvent.class).inCollection("rehydration_perf_events").all().block();
+        repo = new MongoEventSourcingRepo("rehydration_perf_events", template, new SampleEventSerializer());
+
+        var service = new SampleAggregateService(repo, new LoggingEventPublisher(), Clock.systemUTC());
+        var agent = Agent.user(AgentId.of("TEST_USER"));
+
+        var version = service.create(id.getValue(), "Title", "Description", agent).block();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            version = service.updateTitle(id.getValue(), version, "Title " + i, agent).block();
+        }
+    }
+
+    @Test
+    void shouldCompareTwoRoundTripsWithSingleRoundTripRehydration() {
+        Supplier<Flux<EventWithMetadata>> twoRoundTrips = () -> repo
+                .findLatestSnapshotEventByAggregateIdAndType(id, SampleAggregate.TYPE)
+                .map(event -> event.getMetadata().getAggregateVersion())
+                .defaultIfEmpty(Version.zero())
+                .flatMapMany(fromVersion -> repo.findEventsByAggregateIdAndType(id, SampleAggregate.TYPE, fromVersion));
+        Supplier<Flux<EventWithMetadata>> singleRoundTrip = () -> repo
+                .findEventsSinceLatestSnapshotByAggregateIdAndType(id, SampleAggregate.TYPE);
+
+        var expected = toVersions(twoRoundTrips.get().collectList().block());
+        var actual = toVersions(singleRoundTrip.get().collectList().block());
+        assertThat(actual).isEqualTo(expected);
+
+        long twoRoundTripsMicros = measureAverageMicros(twoRoundTrips);
+        long singleRoundTripMicros = measureAverageMicros(singleRoundTrip);
+
+        System.out.printf("Rehydration with %d events (%d to replay):%n", EVENT_COUNT + 1, expected.size());
+        System.out.printf("  Two round trips:  avg %d µs/op%n", twoRoundTripsMicros);
+        System.out.printf("  Single round trip: avg %d µs/op%n", singleRoundTripMicros);
+    }
+
+    private long measureAverageMicros(Supplier<Flux<EventWithMetadata>> query) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            query.get().blockLast();
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < TEST_ITERATIONS; i++) {
+            query.get().blockLast();
+        }
+        long endNanos = System.nanoTime();
+
+        return (endNanos - startNanos) / 1000 / TEST_ITERATIONS;
+    }
+
+    private List<Version> toVersions(List<EventWithMetadata> events) {
+        return events.stream()
+                .map(event -> event.getMetadata().getAggregateVersion())
+                .toList();
+    }
+
+}
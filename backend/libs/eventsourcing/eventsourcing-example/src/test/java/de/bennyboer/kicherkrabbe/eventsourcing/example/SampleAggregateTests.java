@@ -4,6 +4,7 @@ import de.bennyboer.kicherkrabbe.eventsourcing.AggregateNotFoundError;
 import de.bennyboer.kicherkrabbe.eventsourcing.AggregateVersionOutdatedError;
 import de.bennyboer.kicherkrabbe.eventsourcing.Version;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
@@ -12,13 +13,17 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
 import de.bennyboer.kicherkrabbe.eventsourcing.example.events.CreatedEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.example.events.CreatedEvent2;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.events.TitleUpdatedEvent;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventStreamPosition;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.PositionedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -273,6 +278,92 @@ public abstract class SampleAggregateTests {
         }
     }
 
+    @Test
+    void shouldFindEventsSinceLatestSnapshot() {
+        var id = "SAMPLE_ID";
+
+        // given: an aggregate with snapshots at version 100, 200 and 300
+        var version = eventSourcingService.create(id, "Test title", "Test description", testAgent).block();
+        for (int i = 0; i < 300; i++) {
+            version = eventSourcingService.updateTitle(id, version, "New title " + i, testAgent).block();
+        }
+
+        // when: finding the events since the latest snapshot
+        var events = repo.findEventsSinceLatestSnapshotByAggregateIdAndType(AggregateId.of(id), SampleAggregate.TYPE)
+                .collectList()
+                .block();
+
+        // then: the latest snapshot and all following events are found in order
+        assertThat(events.stream().map(e -> e.getMetadata().getAggregateVersion()))
+                .containsExactly(Version.of(300), Version.of(301), Version.of(302), Version.of(303));
+        assertThat(events.get(0).getMetadata().isSnapshot()).isTrue();
+
+        // when: finding the events since the nearest snapshot until version 250
+        events = repo.findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(
+                AggregateId.of(id),
+                SampleAggregate.TYPE,
+                Version.of(250)
+        ).collectList().block();
+
+        // then: the events start at the snapshot at version 200 and end at version 250
+        assertThat(events.size()).isEqualTo(51);
+        assertThat(events.get(0).getMetadata().getAggregateVersion()).isEqualTo(Version.of(200));
+        assertThat(events.get(0).getMetadata().isSnapshot()).isTrue();
+        assertThat(events.get(50).getMetadata().getAggregateVersion()).isEqualTo(Version.of(250));
+    }
+
+    @Test
+    void shouldFindAllEventsSinceLatestSnapshotGivenNoSnapshot() {
+        var id = "SAMPLE_ID";
+
+        // given: an aggregate without snapshots
+        var version = eventSourcingService.create(id, "Test title", "Test description", testAgent).block();
+        eventSourcingService.updateTitle(id, version, "New title", testAgent).block();
+
+        // when: finding the events since the latest snapshot
+        var events = repo.findEventsSinceLatestSnapshotByAggregateIdAndType(AggregateId.of(id), SampleAggregate.TYPE)
+                .collectList()
+                .block();
+
+        // then: all events are found
+        assertThat(events.stream().map(e -> e.getMetadata().getAggregateVersion()))
+                .containsExactly(Version.zero(), Version.of(1));
+    }
+
+    @Test
+    void shouldInsertMultipleEventsAtOnce() {
+        var id = AggregateId.of("SAMPLE_ID");
+
+        // given: an aggregate
+        eventSourcingService.create(id.getValue(), "Test title", "Test description", testAgent).block();
+
+        // when: inserting multiple events at once
+        repo.insertAll(List.of(
+                titleUpdatedEvent(id, Version.of(1), "New title"),
+                titleUpdatedEvent(id, Version.of(2), "Newer title")
+        )).blockLast();
+
+        // then: the aggregate reflects both events
+        var aggregate = eventSourcingService.get(id.getValue()).block();
+        assertThat(aggregate.getTitle()).isEqualTo("Newer title");
+        assertThat(aggregate.getVersion()).isEqualTo(Version.of(2));
+    }
+
+    @Test
+    void shouldNotInsertMultipleEventsAtOnceGivenAnOutdatedVersion() {
+        var id = AggregateId.of("SAMPLE_ID");
+
+        // given: an aggregate with an update
+        var version = eventSourcingService.create(id.getValue(), "Test title", "Test description", testAgent).block();
+        eventSourcingService.updateTitle(id.getValue(), version, "New title", testAgent).block();
+
+        // when: inserting multiple events at once starting with an already existing version; then: an error is raised
+        assertThatThrownBy(() -> repo.insertAll(List.of(
+                titleUpdatedEvent(id, Version.of(1), "Other title"),
+                titleUpdatedEvent(id, Version.of(2), "Another title")
+        )).blockLast()).matches(e -> e.getCause() instanceof AggregateVersionOutdatedError);
+    }
+
     @Test
     void shouldPatchOldEventVersionsToTheLatestVersion() {
         var id = "SAMPLE_ID";
@@ -321,4 +412,92 @@ public abstract class SampleAggregateTests {
         assertThat(event.getMetadata().isSnapshot()).isTrue();
     }
 
+    @Test
+    void shouldStreamAllEventsOfAnAggregateTypeInInsertionOrder() {
+        // given: two aggregates with interleaved changes
+        var version1 = eventSourcingService.create("ID_1", "Title 1", "Description 1", testAgent).block();
+        var version2 = eventSourcingService.create("ID_2", "Title 2", "Description 2", testAgent).block();
+        eventSourcingService.updateTitle("ID_1", version1, "New title 1", testAgent).block();
+        eventSourcingService.updateTitle("ID_2", version2, "New title 2", testAgent).block();
+
+        // and: an event of another aggregate type
+        repo.insert(EventWithMetadata.of(
+                TitleUpdatedEvent.of("Other"),
+                EventMetadata.of(
+                        AggregateId.of("ID_1"),
+                        AggregateType.of("OTHER"),
+                        Version.zero(),
+                        testAgent,
+                        Instant.now(),
+                        false
+                )
+        )).block();
+
+        // when: streaming all events of the sample aggregate type in small batches
+        var events = repo.findEventsByAggregateType(SampleAggregate.TYPE, EventStreamPosition.start(), 1)
+                .collectList()
+                .block();
+
+        // then: the events of the sample aggregates are returned in insertion order
+        assertThat(events.stream().map(e -> e.getEvent().getMetadata().getAggregateId().getValue()
+                + "@" + e.getEvent().getMetadata().getAggregateVersion().getValue()))
+                .containsExactly("ID_1@0", "ID_2@0", "ID_1@1", "ID_2@1");
+    }
+
+    @Test
+    void shouldResumeStreamingEventsFromAPosition() {
+        // given: an aggregate with some changes
+        var version = eventSourcingService.create("SAMPLE_ID", "Title", "Description", testAgent).block();
+        version = eventSourcingService.updateTitle("SAMPLE_ID", version, "Title 1", testAgent).block();
+        eventSourcingService.updateTitle("SAMPLE_ID", version, "Title 2", testAgent).block();
+
+        // and: the position of the second event
+        var position = repo.findEventsByAggregateType(SampleAggregate.TYPE, EventStreamPosition.start(), 10)
+                .elementAt(1)
+                .map(PositionedEvent::getPosition)
+                .block();
+
+        // when: resuming the stream from that position
+        var events = repo.findEventsByAggregateType(SampleAggregate.TYPE, position, 10)
+                .collectList()
+                .block();
+
+        // then: only the events after that position are returned
+        assertThat(events.stream().map(e -> e.getEvent().getMetadata().getAggregateVersion()))
+                .containsExactly(Version.of(2));
+    }
+
+    @Test
+    void shouldNotStreamRemovedEvents() {
+        var id = "SAMPLE_ID";
+
+        // given: an aggregate whose events have been collapsed
+        var version = eventSourcingService.create(id, "Title", "Description", testAgent).block();
+        version = eventSourcingService.updateTitle(id, version, "New title", testAgent).block();
+        eventSourcingService.collapseEvents(id, version, testAgent).block();
+
+        // when: streaming all events
+        var events = repo.findEventsByAggregateType(SampleAggregate.TYPE, EventStreamPosition.start(), 10)
+                .collectList()
+                .block();
+
+        // then: only the snapshot is returned
+        assertThat(events).hasSize(1);
+        assertThat(events.getFirst().getEvent().getMetadata().isSnapshot()).isTrue();
+    }
+
+    private EventWithMetadata titleUpdatedEvent(AggregateId id, Version version, String title) {
+        return EventWithMetadata.of(
+                TitleUpdatedEvent.of(title),
+                EventMetadata.of(
+                        id,
+                        SampleAggregate.TYPE,
+                        version,
+                        testAgent,
+                        Instant.now(),
+                        false
+                )
+        );
+    }
+
 }
@@ -0,0 +1,177 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.cache;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.EventSourcingService;
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache.AggregateCache;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleAggregate;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.CreateCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.UpdateTitleCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.patches.CreatedEventPatch1;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AggregateCacheTest {
+
+    private final Agent testAgent = Agent.user(AgentId.of("USER_ID"));
+
+    private final AggregateId id = AggregateId.of("SAMPLE_ID");
+
+    private EventSourcingRepo repo;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EventSourcingService<SampleAggregate> service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryEventSourcingRepo();
+        meterRegistry = new SimpleMeterRegistry();
+        service = createCachedService(meterRegistry);
+    }
+
+    @Test
+    void shouldServeAggregateFromCacheAfterCommand() {
+        // given: a created aggregate
+        service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent).block();
+
+        // when: the aggregate is read
+        var aggregate = service.aggregateLatest(id).block();
+
+        // then: the aggregate is served from the cache
+        assertThat(aggregate.getTitle()).isEqualTo("Title");
+        assertThat(hits()).isEqualTo(1.0);
+        assertThat(misses()).isEqualTo(1.0);
+
+        // and: no events had to be replayed for the cached read
+        assertThat(maxReplayLength()).isEqualTo(0.0);
+    }
+
+    @Test
+    void shouldCatchUpWithEventsWrittenElsewhere() {
+        // given: a created aggregate that is cached
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+        service.aggregateLatest(id).block();
+
+        // when: another node (without a shared cache) updates the aggregate
+        var otherNode = createCachedService(new SimpleMeterRegistry());
+        otherNode.dispatchCommand(id, version, UpdateTitleCmd.of("New title"), testAgent).block();
+
+        // then: the cached service sees the latest state
+        var aggregate = service.aggregateLatest(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("New title");
+
+        // and: only the single newer event has been replayed on top of the cached state
+        assertThat(maxReplayLength()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldKeepCorrectStateAcrossSnapshots() {
+        // given: an aggregate with more events than the snapshot threshold
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+        for (int i = 0; i < 250; i++) {
+            version = service.dispatchCommand(id, version, UpdateTitleCmd.of("Title " + i), testAgent).block();
+        }
+
+        // when: the aggregate is read from the cache and from a fresh service
+        var cached = service.aggregateLatest(id).block();
+        var uncached = createCachedService(new SimpleMeterRegistry()).aggregateLatest(id).block();
+
+        // then: both yield the same state
+        assertThat(cached.getTitle()).isEqualTo("Title 249");
+        assertThat(cached).isEqualTo(uncached);
+    }
+
+    @Test
+    void shouldKeepAggregateWithManyEventsSinceLastSnapshotCachedWhenBoundedBySize() {
+        // given: a cache bounded by the number of aggregates, as used for settings singletons
+        service = createCachedService(AggregateCache.Config.builder()
+                .maximumSize(1)
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .build(), meterRegistry);
+
+        // and: an aggregate with more events since its last snapshot than the entry count bound
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+        for (int i = 0; i < 50; i++) {
+            version = service.dispatchCommand(id, version, UpdateTitleCmd.of("Title " + i), testAgent).block();
+        }
+
+        // when: the aggregate is read
+        var aggregate = service.aggregateLatest(id).block();
+
+        // then: the aggregate is served from the cache
+        assertThat(aggregate.getTitle()).isEqualTo("Title 49");
+        assertThat(hits()).isEqualTo(1.0);
+        assertThat(misses()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldInvalidateCacheWhenEventsAreCollapsed() {
+        // given: a cached aggregate with some events
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+        version = service.dispatchCommand(id, version, UpdateTitleCmd.of("New title"), testAgent).block();
+
+        // when: the events are collapsed
+        var snapshotVersion = service.collapseEvents(id, version, testAgent).block();
+
+        // then: the aggregate is rehydrated from the collapsed snapshot
+        double missesBefore = misses();
+        var aggregate = service.aggregateLatest(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("New title");
+        assertThat(misses()).isEqualTo(missesBefore + 1);
+        assertThat(snapshotVersion).isEqualTo(Version.of(2));
+    }
+
+    private EventSourcingService<SampleAggregate> createCachedService(SimpleMeterRegistry registry) {
+        return createCachedService(AggregateCache.Config.builder()
+                .maximumWeight(1_000)
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .build(), registry);
+    }
+
+    private EventSourcingService<SampleAggregate> createCachedService(
+            AggregateCache.Config config,
+            SimpleMeterRegistry registry
+    ) {
+        var cache = new AggregateCache(SampleAggregate.TYPE, config, registry);
+
+        return new EventSourcingService<>(
+                SampleAggregate.TYPE,
+                SampleAggregate.init(),
+                repo,
+                new LoggingEventPublisher(),
+                List.of(new CreatedEventPatch1()),
+                Clock.systemUTC(),
+                cache
+        );
+    }
+
+    private double hits() {
+        return meterRegistry.get("eventsourcing.aggregate.cache.hits").counter().count();
+    }
+
+    private double misses() {
+        return meterRegistry.get("eventsourcing.aggregate.cache.misses").counter().count();
+    }
+
+    private double maxReplayLength() {
+        return meterRegistry.get("eventsourcing.aggregate.replay.length").summary().max();
+    }
+
+}
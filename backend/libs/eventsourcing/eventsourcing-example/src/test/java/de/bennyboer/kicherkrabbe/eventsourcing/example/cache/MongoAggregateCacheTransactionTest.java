@@ -0,0 +1,147 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.cache;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.EventSourcingService;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.cache.AggregateCache;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleAggregate;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleEventSerializer;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.CreateCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.UpdateTitleCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.patches.CreatedEventPatch1;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@MongoTest
+public class MongoAggregateCacheTransactionTest {
+
+    private static final String COLLECTION = "cached_sample_events";
+
+    private final Agent testAgent = Agent.user(AgentId.of("USER_ID"));
+
+    private final AggregateId id = AggregateId.of("SAMPLE_ID");
+
+    private final ReactiveMongoTemplate template;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EventSourcingService<SampleAggregate> service;
+
+    @Autowired
+    public MongoAggregateCacheTransactionTest(
+            ReactiveMongoTemplate template,
+            ReactiveTransactionManager transactionManager
+    ) {
+        this.template = template;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.remove(MongoEvent.class).inCollection(COLLECTION).all().block();
+
+        meterRegistry = new SimpleMeterRegistry();
+        service = new EventSourcingService<>(
+                SampleAggregate.TYPE,
+                SampleAggregate.init(),
+                new MongoEventSourcingRepo(COLLECTION, template, new SampleEventSerializer()),
+                new LoggingEventPublisher(),
+                List.of(new CreatedEventPatch1()),
+                Clock.systemUTC(),
+                new AggregateCache(
+                        SampleAggregate.TYPE,
+                        AggregateCache.Config.builder()
+                                .maximumWeight(1_000)
+                                .expireAfterAccess(Duration.ofMinutes(5))
+                                .build(),
+                        meterRegistry
+                )
+        );
+    }
+
+    @Test
+    void shouldNotCacheAggregateOfRolledBackCommand() {
+        // given: a created aggregate
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+
+        // when: a command is dispatched in a transaction that is rolled back afterwards
+        var result = service.dispatchCommand(id, version, UpdateTitleCmd.of("Rolled back title"), testAgent)
+                .then(Mono.error(new IllegalStateException("Rollback")))
+                .as(transactionalOperator::transactional);
+        assertThatThrownBy(result::block).hasMessage("Rollback");
+
+        // then: the next read sees the last committed version
+        var aggregate = service.aggregateLatest(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("Title");
+        assertThat(aggregate.getVersion()).isEqualTo(version);
+
+        // and: the next command is applied on top of the last committed version
+        var newVersion = service.dispatchCommandToLatest(id, UpdateTitleCmd.of("New title"), testAgent).block();
+        assertThat(newVersion).isEqualTo(version.increment());
+        assertThat(service.aggregate(id, newVersion).block().getTitle()).isEqualTo("New title");
+    }
+
+    @Test
+    void shouldNotCacheAggregateReadInRolledBackTransaction() {
+        // given: a created aggregate
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+
+        // when: the aggregate is updated and read in a transaction that is rolled back afterwards
+        var result = service.dispatchCommand(id, version, UpdateTitleCmd.of("Rolled back title"), testAgent)
+                .then(service.aggregateLatest(id))
+                .then(Mono.error(new IllegalStateException("Rollback")))
+                .as(transactionalOperator::transactional);
+        assertThatThrownBy(result::block).hasMessage("Rollback");
+
+        // then: the next read sees the last committed version
+        var aggregate = service.aggregateLatest(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("Title");
+        assertThat(aggregate.getVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void shouldCacheAggregateOnceTransactionIsCommitted() {
+        // given: a created aggregate
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), testAgent)
+                .block();
+
+        // when: a command is dispatched in a transaction that is committed
+        var newVersion = service.dispatchCommand(id, version, UpdateTitleCmd.of("New title"), testAgent)
+                .as(transactionalOperator::transactional)
+                .block();
+
+        // then: the aggregate is served from the cache without replaying any events
+        double replayedEventsBefore = replayedEvents();
+        var aggregate = service.aggregateLatest(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("New title");
+        assertThat(aggregate.getVersion()).isEqualTo(newVersion);
+        assertThat(replayedEvents()).isEqualTo(replayedEventsBefore);
+    }
+
+    private double replayedEvents() {
+        return meterRegistry.get("eventsourcing.aggregate.replay.length").summary().totalAmount();
+    }
+
+}
@@ -0,0 +1,182 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.persistence;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleAggregate;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleAggregateService;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleEventSerializer;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.rebuild.MongoReadModelRebuilder;
+import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@MongoTest
+public class MongoReadModelRebuilderTest {
+
+    private static final String EVENTS_COLLECTION = "rebuild_sample_events";
+
+    private static final String READ_MODEL_COLLECTION = "rebuild_sample_read_models";
+
+    private final ReactiveMongoTemplate template;
+
+    private final Agent agent = Agent.user(AgentId.of("USER_ID"));
+
+    private MongoEventSourcingRepo eventRepo;
+
+    private SampleAggregateService service;
+
+    private MongoSampleAggregateReadModelRepo readModelRepo;
+
+    @Autowired
+    public MongoReadModelRebuilderTest(ReactiveMongoTemplate template) {
+        this.template = template;
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.dropCollection(EVENTS_COLLECTION).block();
+        template.dropCollection(READ_MODEL_COLLECTION).block();
+        template.dropCollection(READ_MODEL_COLLECTION + "_rebuild").block();
+        template.dropCollection("read_model_rebuilds").block();
+
+        eventRepo = new MongoEventSourcingRepo(EVENTS_COLLECTION, template, new SampleEventSerializer());
+        service = new SampleAggregateService(eventRepo, new LoggingEventPublisher(), Clock.systemUTC());
+        readModelRepo = new MongoSampleAggregateReadModelRepo(READ_MODEL_COLLECTION, template);
+    }
+
+    @Test
+    void shouldRebuildReadModelFromEventStore() {
+        // given: some aggregates with changes of which one is deleted
+        for (int i = 0; i < 25; i++) {
+            var version = service.create("ID_" + i, "Title", "Description " + i, agent).block();
+            service.updateTitle("ID_" + i, version, "Title " + i, agent).block();
+        }
+        service.delete("ID_0", Version.of(1), agent).block();
+
+        // and: an outdated read model with an entry that no longer belongs to it
+        readModelRepo.update(SampleAggregateReadModel.of("ID_1", Version.zero(), "Old", "Old")).block();
+        readModelRepo.update(SampleAggregateReadModel.of("ORPHAN", Version.zero(), "Orphan", "Orphan")).block();
+
+        // when: rebuilding the read model
+        var result = createRebuilder(this::load).rebuild().block();
+
+        // then: the read model reflects the event store
+        var readModels = readModelRepo.getAll().collectList().block();
+        assertThat(readModels).hasSize(24);
+        assertThat(readModels).noneMatch(readModel -> readModel.getId().equals("ID_0"));
+        assertThat(readModels).noneMatch(readModel -> readModel.getId().equals("ORPHAN"));
+        assertThat(readModelRepo.get("ID_1").block().getTitle()).isEqualTo("Title 1");
+
+        // and: the rebuild reports what it did
+        assertThat(result.getRebuiltAggregates()).isEqualTo(25);
+        assertThat(result.getAggregatesPerSecond()).isPositive();
+
+        // and: no rebuild state is left behind
+        assertThat(template.collectionExists(READ_MODEL_COLLECTION + "_rebuild").block()).isFalse();
+        assertThat(template.count(new Query(), "read_model_rebuilds").block()).isZero();
+    }
+
+    @Test
+    void shouldResumeInterruptedRebuild() {
+        // given: some aggregates
+        for (int i = 0; i < 20; i++) {
+            service.create("ID_" + i, "Title " + i, "Description", agent).block();
+        }
+
+        // and: a rebuild that crashes after some batches
+        var loads = new AtomicInteger();
+        Function<AggregateId, Mono<SampleAggregateReadModel>> failingLoader = id -> loads.incrementAndGet() > 12
+                ? Mono.error(new IllegalStateException("Crash"))
+                : load(id);
+        assertThatThrownBy(() -> createRebuilder(failingLoader).rebuild().block()).hasMessageContaining("Crash");
+
+        // when: restarting the rebuild
+        var resumedLoads = new AtomicInteger();
+        var result = createRebuilder(id -> {
+            resumedLoads.incrementAndGet();
+            return load(id);
+        }).rebuild().block();
+
+        // then: the read model is complete
+        assertThat(readModelRepo.getAll().collectList().block()).hasSize(20);
+        assertThat(result.getRebuiltAggregates()).isEqualTo(20);
+
+        // and: the rebuild continued after the last checkpoint (two batches of five) instead of starting over
+        assertThat(resumedLoads.get()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldReconcileAggregatesThatAreOutdatedAfterTheSwap() {
+        // given: some aggregates with changes
+        for (int i = 0; i < 5; i++) {
+            var version = service.create("ID_" + i, "Title", "Description " + i, agent).block();
+            service.updateTitle("ID_" + i, version, "Title " + i, agent).block();
+        }
+
+        // and: a loader that misses the last event of an aggregate once, as if the event stream skipped it
+        var staleLoads = new AtomicInteger();
+        Function<AggregateId, Mono<SampleAggregateReadModel>> loader = id -> {
+            if (id.getValue().equals("ID_1") && staleLoads.getAndIncrement() == 0) {
+                return Mono.just(SampleAggregateReadModel.of("ID_1", Version.zero(), "Title", "Description 1"));
+            }
+
+            return load(id);
+        };
+
+        // when: rebuilding the read model
+        var result = createRebuilder(loader).rebuild().block();
+
+        // then: the outdated aggregate has been reloaded after the swap
+        var readModel = readModelRepo.get("ID_1").block();
+        assertThat(readModel.getVersion()).isEqualTo(Version.of(1));
+        assertThat(readModel.getTitle()).isEqualTo("Title 1");
+        assertThat(result.getRebuiltAggregates()).isEqualTo(6);
+    }
+
+    private MongoReadModelRebuilder<String, SampleAggregateReadModel> createRebuilder(
+            Function<AggregateId, Mono<SampleAggregateReadModel>> loader
+    ) {
+        return new MongoReadModelRebuilder<>(
+                SampleAggregate.TYPE,
+                eventRepo,
+                readModelRepo,
+                loader,
+                AggregateId::getValue,
+                template,
+                MongoReadModelRebuilder.Config.builder()
+                        .workers(4)
+                        .batchSize(5)
+                        .maxAggregatesPerSecond(0)
+                        .build(),
+                Clock.systemUTC(),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private Mono<SampleAggregateReadModel> load(AggregateId id) {
+        return service.get(id.getValue())
+                .map(aggregate -> SampleAggregateReadModel.of(
+                        aggregate.getId(),
+                        aggregate.getVersion(),
+                        aggregate.getTitle(),
+                        aggregate.getDescription()
+                ));
+    }
+
+}
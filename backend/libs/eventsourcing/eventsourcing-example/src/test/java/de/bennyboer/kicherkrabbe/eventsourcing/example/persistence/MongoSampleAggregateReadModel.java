@@ -0,0 +1,24 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.persistence;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import static lombok.AccessLevel.PUBLIC;
+
+@ToString
+@EqualsAndHashCode
+@FieldDefaults(level = PUBLIC)
+public class MongoSampleAggregateReadModel {
+
+    @MongoId
+    String id;
+
+    long version;
+
+    String title;
+
+    String description;
+
+}
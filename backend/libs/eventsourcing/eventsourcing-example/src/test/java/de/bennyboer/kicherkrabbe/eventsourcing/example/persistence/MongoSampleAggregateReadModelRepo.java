@@ -0,0 +1,61 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.persistence;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.MongoEventSourcingReadModelRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.ReadModelSerializer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MongoSampleAggregateReadModelRepo
+        extends MongoEventSourcingReadModelRepo<String, SampleAggregateReadModel, MongoSampleAggregateReadModel>
+        implements SampleAggregateReadModelRepo {
+
+    public MongoSampleAggregateReadModelRepo(String collectionName, ReactiveMongoTemplate template) {
+        super(collectionName, template, new Serializer());
+    }
+
+    @Override
+    public Mono<SampleAggregateReadModel> get(String id) {
+        return template.findById(id, MongoSampleAggregateReadModel.class, collectionName)
+                .map(serializer::deserialize);
+    }
+
+    public Flux<SampleAggregateReadModel> getAll() {
+        return template.findAll(MongoSampleAggregateReadModel.class, collectionName)
+                .map(serializer::deserialize);
+    }
+
+    @Override
+    protected String stringifyId(String id) {
+        return id;
+    }
+
+    private static class Serializer
+            implements ReadModelSerializer<SampleAggregateReadModel, MongoSampleAggregateReadModel> {
+
+        @Override
+        public MongoSampleAggregateReadModel serialize(SampleAggregateReadModel readModel) {
+            var result = new MongoSampleAggregateReadModel();
+
+            result.id = readModel.getId();
+            result.version = readModel.getVersion().getValue();
+            result.title = readModel.getTitle();
+            result.description = readModel.getDescription();
+
+            return result;
+        }
+
+        @Override
+        public SampleAggregateReadModel deserialize(MongoSampleAggregateReadModel serialized) {
+            return SampleAggregateReadModel.of(
+                    serialized.id,
+                    Version.of(serialized.version),
+                    serialized.title,
+                    serialized.description
+            );
+        }
+
+    }
+
+}
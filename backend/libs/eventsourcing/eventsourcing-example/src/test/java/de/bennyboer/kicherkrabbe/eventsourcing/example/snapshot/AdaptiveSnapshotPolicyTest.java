@@ -0,0 +1,210 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.snapshot;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.EventSourcingService;
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.AdaptiveSnapshotPolicy;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleAggregate;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.CreateCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.commands.UpdateTitleCmd;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.patches.CreatedEventPatch1;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class AdaptiveSnapshotPolicyTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldUseStaticThresholdUntilEnoughSamplesAreRecorded() {
+        // given: a policy that needs 20 samples
+        var policy = createPolicy(Duration.ofMillis(50));
+
+        // when: fewer samples are recorded
+        recordAlternatingRehydrations(policy, 19, Duration.ofMillis(2), 10, Duration.ofMillis(12));
+
+        // then: the static threshold is used
+        assertThat(policy.getThreshold(100)).isEqualTo(100);
+        assertThat(threshold()).isEqualTo(0.0);
+    }
+
+    @Test
+    void shouldUseStaticThresholdWhileFixedCostCannotBeToldApartFromCostPerEvent() {
+        // given: a policy with a budget of 50 ms per command
+        var policy = createPolicy(Duration.ofMillis(50));
+
+        // when: all rehydrations replayed the same number of events
+        recordRehydrations(policy, 40, 10, Duration.ofMillis(10));
+        recordCommands(policy, 40);
+
+        // then: the static threshold is used
+        assertThat(policy.getThreshold(100)).isEqualTo(100);
+    }
+
+    @Test
+    void shouldDeriveThresholdFromReplayCost() {
+        // given: a policy with a budget of 50 ms per command
+        var policy = createPolicy(Duration.ofMillis(50));
+
+        // when: every command is followed by a single rehydration with a fixed cost of 2 ms and 1 ms per event
+        recordAlternatingRehydrations(policy, 20, Duration.ofMillis(2), 10, Duration.ofMillis(12));
+        recordCommands(policy, 20);
+
+        // then: the costs are derived
+        assertThat(policy.getFixedNanos()).isCloseTo(2_000_000, within(1.0));
+        assertThat(policy.getNanosPerEvent()).isCloseTo(1_000_000, within(1.0));
+
+        // and: a snapshot is taken after 50 events
+        assertThat(policy.getThreshold(100)).isEqualTo(50);
+        assertThat(threshold()).isEqualTo(50.0);
+    }
+
+    @Test
+    void shouldNotMistakeFixedCostOfShortReplaysForCostPerEvent() {
+        // given: a policy with a budget of 50 ms per command
+        var policy = createPolicy(Duration.ofMillis(50));
+
+        // when: replays of one or two events are dominated by the fixed cost of 4.9 ms
+        for (int i = 0; i < 10; i++) {
+            policy.recordRehydration(1, Duration.ofMillis(5));
+            policy.recordRehydration(2, Duration.ofNanos(5_100_000));
+        }
+        recordCommands(policy, 20);
+
+        // then: only the cost of 0.1 ms per event counts, so a snapshot is taken after 500 events
+        assertThat(policy.getThreshold(100)).isEqualTo(500);
+    }
+
+    @Test
+    void shouldLowerThresholdForFrequentlyReadAggregates() {
+        // given: a policy with a budget of 50 ms per command
+        var policy = createPolicy(Duration.ofMillis(50));
+
+        // when: every command is followed by two rehydrations with a fixed cost of 2 ms and 1 ms per event
+        recordAlternatingRehydrations(policy, 40, Duration.ofMillis(2), 10, Duration.ofMillis(12));
+        recordCommands(policy, 20);
+
+        // then: a snapshot is taken after 25 events
+        assertThat(policy.getThreshold(100)).isEqualTo(25);
+    }
+
+    @Test
+    void shouldClampThreshold() {
+        // given: a policy with a huge budget
+        var policy = createPolicy(Duration.ofSeconds(10));
+
+        // when: replaying is cheap
+        recordAlternatingRehydrations(policy, 20, Duration.ofMillis(1), 10, Duration.ofMillis(2));
+        recordCommands(policy, 20);
+
+        // then: the threshold is capped at the maximum
+        assertThat(policy.getThreshold(100)).isEqualTo(1000);
+    }
+
+    @Test
+    void shouldSnapshotAccordingToAdaptiveThreshold() {
+        // given: a service with a policy that already measured expensive replays
+        var repo = new InMemoryEventSourcingRepo();
+        var policy = createPolicy(Duration.ofMillis(50), 0.001);
+        recordAlternatingRehydrations(policy, 20, Duration.ofMillis(1), 1, Duration.ofSeconds(1));
+        var service = new EventSourcingService<>(
+                SampleAggregate.TYPE,
+                SampleAggregate.init(),
+                repo,
+                new LoggingEventPublisher(),
+                List.of(new CreatedEventPatch1()),
+                Clock.systemUTC(),
+                null,
+                null,
+                policy
+        );
+        var id = AggregateId.of("SAMPLE_ID");
+        var agent = Agent.user(AgentId.of("USER_ID"));
+
+        // when: some commands are dispatched
+        var version = service.dispatchCommandToLatest(id, CreateCmd.of("Title", "Description", null), agent).block();
+        for (int i = 0; i < 20; i++) {
+            version = service.dispatchCommand(id, version, UpdateTitleCmd.of("Title " + i), agent).block();
+        }
+
+        // then: snapshots are taken after the minimum threshold instead of the static one
+        var snapshotVersions = repo.findEventsByAggregateIdAndType(id, SampleAggregate.TYPE, Version.zero())
+                .filter(event -> event.getMetadata().isSnapshot())
+                .map(event -> event.getMetadata().getAggregateVersion().getValue())
+                .collectList()
+                .block();
+        assertThat(snapshotVersions).isNotEmpty();
+        assertThat(snapshotVersions.getFirst()).isEqualTo(10L);
+    }
+
+    private AdaptiveSnapshotPolicy createPolicy(Duration replayBudget) {
+        return createPolicy(replayBudget, 0.1);
+    }
+
+    private AdaptiveSnapshotPolicy createPolicy(Duration replayBudget, double smoothing) {
+        return new AdaptiveSnapshotPolicy(
+                SampleAggregate.TYPE,
+                AdaptiveSnapshotPolicy.Config.builder()
+                        .replayBudget(replayBudget)
+                        .minThreshold(10)
+                        .maxThreshold(1000)
+                        .minSamples(20)
+                        .smoothing(smoothing)
+                        .build(),
+                meterRegistry
+        );
+    }
+
+    /**
+     * Records rehydrations alternating between replaying no events and replaying the given number of events.
+     */
+    private void recordAlternatingRehydrations(
+            AdaptiveSnapshotPolicy policy,
+            int count,
+            Duration durationWithoutEvents,
+            long events,
+            Duration durationWithEvents
+    ) {
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                policy.recordRehydration(0, durationWithoutEvents);
+            } else {
+                policy.recordRehydration(events, durationWithEvents);
+            }
+        }
+    }
+
+    private void recordRehydrations(AdaptiveSnapshotPolicy policy, int count, long events, Duration duration) {
+        for (int i = 0; i < count; i++) {
+            policy.recordRehydration(events, duration);
+        }
+    }
+
+    private void recordCommands(AdaptiveSnapshotPolicy policy, int count) {
+        for (int i = 0; i < count; i++) {
+            policy.recordCommand();
+        }
+    }
+
+    private double threshold() {
+        return meterRegistry.get("eventsourcing.snapshot.threshold").gauge().value();
+    }
+
+}
@@ -0,0 +1,146 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.snapshot;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.AggregateVersionOutdatedError;
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.inmemory.InMemoryEventSourcingRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BackgroundSnapshotTest {
+
+    private final Agent testAgent = Agent.user(AgentId.of("USER_ID"));
+
+    private final String id = "SAMPLE_ID";
+
+    private EventSourcingRepo repo;
+
+    private BackgroundSnapshotter snapshotter;
+
+    private BackgroundSnapshotAggregateService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryEventSourcingRepo();
+        snapshotter = new BackgroundSnapshotter(
+                BackgroundSnapshotAggregate.TYPE,
+                BackgroundSnapshotter.Config.builder()
+                        .maxConcurrency(1)
+                        .queueCapacity(16)
+                        .delay(Duration.ofMillis(200))
+                        .build(),
+                new SimpleMeterRegistry()
+        );
+        service = new BackgroundSnapshotAggregateService(
+                repo,
+                new LoggingEventPublisher(),
+                Clock.systemUTC(),
+                snapshotter
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotter.dispose();
+    }
+
+    @Test
+    void shouldWriteSnapshotInBackground() {
+        // when: enough commands are dispatched to cross the snapshot threshold
+        var version = createWithUpdates(9);
+
+        // then: the command did not write the snapshot itself
+        assertThat(version).isEqualTo(Version.of(9));
+        assertThat(findSnapshotVersions()).isEmpty();
+
+        // and: the snapshot is written in the background
+        assertThat(awaitSnapshotVersions()).containsExactly(10L);
+
+        // and: the aggregate is unchanged
+        var aggregate = service.get(id).block();
+        assertThat(aggregate.getTitle()).isEqualTo("Title 8");
+        assertThat(aggregate.getVersion()).isEqualTo(Version.of(10));
+    }
+
+    @Test
+    void shouldApplyCommandWithVersionBeforeBackgroundSnapshot() {
+        // given: an aggregate that has been snapshotted in the background
+        var version = createWithUpdates(9);
+        awaitSnapshotVersions();
+
+        // when: a command is dispatched with the version the client knows from before the snapshot
+        var newVersion = service.updateTitle(id, version, "New title", testAgent).block();
+
+        // then: the command is applied on top of the snapshot
+        assertThat(newVersion).isEqualTo(Version.of(11));
+        assertThat(service.get(id).block().getTitle()).isEqualTo("New title");
+    }
+
+    @Test
+    void shouldStillRejectOutdatedVersionWhenStateChangedInBetween() {
+        // given: an aggregate that has been snapshotted in the background
+        createWithUpdates(9);
+        awaitSnapshotVersions();
+
+        // when: a command is dispatched with a version that missed a real change
+        var result = service.updateTitle(id, Version.of(8), "New title", testAgent);
+
+        // then: the command is rejected
+        assertThatThrownBy(result::block).hasCauseInstanceOf(AggregateVersionOutdatedError.class);
+    }
+
+    @Test
+    void shouldNotQueueSnapshotForAggregateWithPendingSnapshot() {
+        // given: a pending snapshot request
+        var aggregateId = AggregateId.of("OTHER_ID");
+        boolean firstRequestQueued = snapshotter.request(aggregateId, Mono::never);
+
+        // when: another snapshot is requested for the same aggregate
+        boolean secondRequestQueued = snapshotter.request(aggregateId, Mono::empty);
+
+        // then: only the first request is queued
+        assertThat(firstRequestQueued).isTrue();
+        assertThat(secondRequestQueued).isFalse();
+        assertThat(snapshotter.isPending(aggregateId)).isTrue();
+    }
+
+    private Version createWithUpdates(int updates) {
+        var version = service.create(id, "Title", "Description", testAgent).block();
+        for (int i = 0; i < updates; i++) {
+            version = service.updateTitle(id, version, "Title " + i, testAgent).block();
+        }
+
+        return version;
+    }
+
+    private List<Long> awaitSnapshotVersions() {
+        return Mono.fromSupplier(this::findSnapshotVersions)
+                .filter(versions -> !versions.isEmpty())
+                .repeatWhenEmpty(30, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private List<Long> findSnapshotVersions() {
+        return repo.findEventsByAggregateIdAndType(AggregateId.of(id), BackgroundSnapshotAggregate.TYPE, Version.zero())
+                .filter(event -> event.getMetadata().isSnapshot())
+                .map(event -> event.getMetadata().getAggregateVersion().getValue())
+                .collectList()
+                .block();
+    }
+
+}
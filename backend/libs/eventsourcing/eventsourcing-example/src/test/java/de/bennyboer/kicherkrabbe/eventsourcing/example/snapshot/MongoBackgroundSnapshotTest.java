@@ -0,0 +1,138 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.example.snapshot;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.AggregateVersionOutdatedError;
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.snapshot.BackgroundSnapshotter;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.LoggingEventPublisher;
+import de.bennyboer.kicherkrabbe.eventsourcing.example.SampleEventSerializer;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.mongo.MongoEventSourcingRepo;
+import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@MongoTest
+public class MongoBackgroundSnapshotTest {
+
+    private static final String COLLECTION = "background_snapshot_events";
+
+    private final Agent testAgent = Agent.user(AgentId.of("USER_ID"));
+
+    private final String id = "SAMPLE_ID";
+
+    private final ReactiveMongoTemplate template;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private EventSourcingRepo repo;
+
+    private BackgroundSnapshotter snapshotter;
+
+    private BackgroundSnapshotAggregateService service;
+
+    @Autowired
+    public MongoBackgroundSnapshotTest(ReactiveMongoTemplate template, ReactiveTransactionManager transactionManager) {
+        this.template = template;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.remove(MongoEvent.class).inCollection(COLLECTION).all().block();
+
+        repo = new MongoEventSourcingRepo(COLLECTION, template, new SampleEventSerializer());
+        snapshotter = new BackgroundSnapshotter(
+                BackgroundSnapshotAggregate.TYPE,
+                BackgroundSnapshotter.Config.builder()
+                        .maxConcurrency(1)
+                        .queueCapacity(16)
+                        .delay(Duration.ofMillis(200))
+                        .build(),
+                new SimpleMeterRegistry()
+        );
+        service = new BackgroundSnapshotAggregateService(
+                repo,
+                new LoggingEventPublisher(),
+                Clock.systemUTC(),
+                snapshotter
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotter.dispose();
+    }
+
+    @Test
+    void shouldApplyCommandWithVersionBeforeBackgroundSnapshotInTransaction() {
+        // given: an aggregate that has been snapshotted in the background
+        var version = createWithUpdates(9);
+        awaitSnapshotVersions();
+
+        // when: a command is dispatched in a transaction with the version the client knows from before the snapshot
+        var newVersion = service.updateTitle(id, version, "New title", testAgent)
+                .as(transactionalOperator::transactional)
+                .block();
+
+        // then: the command is applied on top of the snapshot
+        assertThat(newVersion).isEqualTo(Version.of(11));
+        assertThat(service.get(id).block().getTitle()).isEqualTo("New title");
+    }
+
+    @Test
+    void shouldStillRejectOutdatedVersionInTransactionWhenStateChangedInBetween() {
+        // given: an aggregate that has been snapshotted in the background
+        createWithUpdates(9);
+        awaitSnapshotVersions();
+
+        // when: a command is dispatched in a transaction with a version that missed a real change
+        var result = service.updateTitle(id, Version.of(8), "New title", testAgent)
+                .as(transactionalOperator::transactional);
+
+        // then: the command is rejected
+        assertThatThrownBy(result::block).hasCauseInstanceOf(AggregateVersionOutdatedError.class);
+    }
+
+    private Version createWithUpdates(int updates) {
+        var version = service.create(id, "Title", "Description", testAgent).block();
+        for (int i = 0; i < updates; i++) {
+            version = service.updateTitle(id, version, "Title " + i, testAgent).block();
+        }
+
+        return version;
+    }
+
+    private List<Long> awaitSnapshotVersions() {
+        return Mono.fromSupplier(this::findSnapshotVersions)
+                .filter(versions -> !versions.isEmpty())
+                .repeatWhenEmpty(30, attempts -> attempts.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private List<Long> findSnapshotVersions() {
+        return repo.findEventsByAggregateIdAndType(AggregateId.of(id), BackgroundSnapshotAggregate.TYPE, Version.zero())
+                .filter(event -> event.getMetadata().isSnapshot())
+                .map(event -> event.getMetadata().getAggregateVersion().getValue())
+                .collectList()
+                .block();
+    }
+
+}
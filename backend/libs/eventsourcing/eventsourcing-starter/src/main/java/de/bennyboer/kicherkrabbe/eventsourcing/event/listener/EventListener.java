@@ -8,7 +8,7 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class EventListener {
 
-    private final MessageListener messageListener;
+    private final MessageListener<?> messageListener;
 
     @PostConstruct
     public void init() {
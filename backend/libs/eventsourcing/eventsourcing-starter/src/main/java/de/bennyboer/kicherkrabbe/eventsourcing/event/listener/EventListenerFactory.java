@@ -1,37 +1,42 @@
 package de.bennyboer.kicherkrabbe.eventsourcing.event.listener;
 
-import de.bennyboer.kicherkrabbe.eventsourcing.Version;
-import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
 import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
-import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
-import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
-import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
-import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentType;
 import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageBatching;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageCoalescing;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageConcurrency;
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListener;
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerFactory;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
 import jakarta.annotation.Nullable;
-import lombok.AllArgsConstructor;
+import org.springframework.amqp.core.Message;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import tools.jackson.core.JacksonException;
 import tools.jackson.databind.json.JsonMapper;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
 
 import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 
-@AllArgsConstructor
 public class EventListenerFactory {
 
+    /**
+     * Listener containers prefetch at most this many unacknowledged messages,
+     * so larger batches could never fill up before the coalescing window closes.
+     */
+    private static final int MAX_COALESCED_BATCH_SIZE = 10;
+
     private final MessageListenerFactory messageListenerFactory;
 
-    private final JsonMapper jsonMapper;
+    private final EventMessageReader messageReader;
+
+    public EventListenerFactory(MessageListenerFactory messageListenerFactory, JsonMapper jsonMapper) {
+        this.messageListenerFactory = messageListenerFactory;
+        this.messageReader = new EventMessageReader(jsonMapper);
+    }
 
     public EventListener createEventListenerForAllEvents(
             String name,
@@ -56,7 +61,104 @@ public class EventListenerFactory {
         notNull(eventType, "Event type must be given");
         notNull(handler, "Handler must be given");
 
-        return createEventListener(name, aggregateType, null, toUntypedHandler(eventType, handler));
+        return createTypedEventListener(name, aggregateType, null, eventType, handler);
+    }
+
+    /**
+     * Creates a listener for all events of the aggregate type that collapses events of the same aggregate
+     * received within the given window into a single handler invocation with the event of the highest version.
+     * Only suitable for handlers that do not depend on the individual event, such as lookup refreshes.
+     */
+    public EventListener createCoalescingEventListenerForAllEvents(
+            String name,
+            AggregateType aggregateType,
+            Duration window,
+            EventListenerHandler handler
+    ) {
+        notNull(name, "Name must be given");
+        notNull(aggregateType, "Aggregate type must be given");
+        notNull(window, "Window must be given");
+        notNull(handler, "Handler must be given");
+
+        MessageCoalescing<HandleableEvent> coalescing = MessageCoalescing.of(
+                window,
+                MAX_COALESCED_BATCH_SIZE,
+                event -> event.getMetadata().getAggregateId().getValue(),
+                event -> event.getMetadata().getAggregateVersion().getValue()
+        );
+
+        MessageListener<HandleableEvent> messageListener = messageListenerFactory.createCoalescingListener(
+                toExchangeTarget(aggregateType),
+                toRoutingKey(null),
+                name,
+                delivery -> messageReader.read(delivery.getBody()),
+                coalescing,
+                handler::handle
+        );
+
+        return new EventListener(messageListener);
+    }
+
+    /**
+     * Creates a listener for all events of the aggregate type that handles up to the given number of events
+     * in parallel. Events of the same aggregate are still handled one after another in the order they were received.
+     */
+    public EventListener createConcurrentEventListenerForAllEvents(
+            String name,
+            AggregateType aggregateType,
+            int concurrency,
+            EventListenerHandler handler
+    ) {
+        notNull(name, "Name must be given");
+        notNull(aggregateType, "Aggregate type must be given");
+        notNull(handler, "Handler must be given");
+
+        MessageConcurrency<HandleableEvent> messageConcurrency = MessageConcurrency.of(
+                concurrency,
+                event -> event.getMetadata().getAggregateId().getValue()
+        );
+
+        MessageListener<HandleableEvent> messageListener = messageListenerFactory.createConcurrentListener(
+                toExchangeTarget(aggregateType),
+                toRoutingKey(null),
+                name,
+                delivery -> messageReader.read(delivery.getBody()),
+                messageConcurrency,
+                handler::handle
+        );
+
+        return new EventListener(messageListener);
+    }
+
+    /**
+     * Creates a listener for all events of the aggregate type that hands events to the handler in batches
+     * of up to the given size, waiting at most the given window for a batch to fill up.
+     * Each batch is handled in a single transaction. Should a batch fail, its events are retried one by one.
+     */
+    public EventListener createBatchEventListenerForAllEvents(
+            String name,
+            AggregateType aggregateType,
+            int maxBatchSize,
+            Duration window,
+            BatchEventListenerHandler handler
+    ) {
+        notNull(name, "Name must be given");
+        notNull(aggregateType, "Aggregate type must be given");
+        notNull(window, "Window must be given");
+        notNull(handler, "Handler must be given");
+
+        MessageListener<Message> messageListener = messageListenerFactory.createBatchListener(
+                toExchangeTarget(aggregateType),
+                toRoutingKey(null),
+                name,
+                MessageBatching.of(maxBatchSize, window),
+                deliveries -> Flux.fromIterable(deliveries)
+                        .concatMap(delivery -> parseMessageToEventWithMetadata(delivery.getBody()))
+                        .collectList()
+                        .flatMap(handler::handle)
+        );
+
+        return new EventListener(messageListener);
     }
 
     public Flux<HandleableEvent> createTransientEventListenerForAllEvents(String name, AggregateType aggregateType) {
@@ -93,7 +195,7 @@ public class EventListenerFactory {
         notNull(eventType, "Event type must be given");
         notNull(handler, "Handler must be given");
 
-        return createEventListener(name, aggregateType, eventName, toUntypedHandler(eventType, handler));
+        return createTypedEventListener(name, aggregateType, eventName, eventType, handler);
     }
 
     public Flux<HandleableEvent> createTransientEventListenerForEvent(
@@ -114,16 +216,10 @@ public class EventListenerFactory {
             @Nullable EventName eventName,
             EventListenerHandler handler
     ) {
-        var exchangeTarget = ExchangeTarget.of(aggregateType.getValue().toLowerCase(Locale.ROOT));
-        var routingKey = RoutingKey.ofParts(
-                "events",
-                Optional.ofNullable(eventName)
-                        .map(EventName::getValue)
-                        .map(String::toLowerCase)
-                        .orElse("*")
-        );
+        var exchangeTarget = toExchangeTarget(aggregateType);
+        var routingKey = toRoutingKey(eventName);
 
-        MessageListener messageListener = messageListenerFactory.createListener(
+        MessageListener<Message> messageListener = messageListenerFactory.createListener(
                 exchangeTarget,
                 routingKey,
                 name,
@@ -134,68 +230,55 @@ public class EventListenerFactory {
         return new EventListener(messageListener);
     }
 
+    private <T> EventListener createTypedEventListener(
+            String name,
+            AggregateType aggregateType,
+            @Nullable EventName eventName,
+            Class<T> eventType,
+            TypedEventListenerHandler<T> handler
+    ) {
+        var exchangeTarget = toExchangeTarget(aggregateType);
+        var routingKey = toRoutingKey(eventName);
+
+        MessageListener<Message> messageListener = messageListenerFactory.createListener(
+                exchangeTarget,
+                routingKey,
+                name,
+                delivery -> Mono.fromCallable(() -> messageReader.read(delivery.getBody(), eventType))
+                        .flatMap(eventMessage -> handler.handle(eventMessage.getMetadata(), eventMessage.getEvent()))
+        );
+
+        return new EventListener(messageListener);
+    }
+
     private Flux<HandleableEvent> createTransientEventListener(
             String name,
             AggregateType aggregateType,
             @Nullable EventName eventName
     ) {
-        var exchangeTarget = ExchangeTarget.of(aggregateType.getValue().toLowerCase(Locale.ROOT));
-        var routingKey = RoutingKey.ofParts(
+        var exchangeTarget = toExchangeTarget(aggregateType);
+        var routingKey = toRoutingKey(eventName);
+
+        return messageListenerFactory.createTransientListener(exchangeTarget, routingKey, name)
+                .flatMap(delivery -> parseMessageToEventWithMetadata(delivery.getBody()));
+    }
+
+    private ExchangeTarget toExchangeTarget(AggregateType aggregateType) {
+        return ExchangeTarget.of(aggregateType.getValue().toLowerCase(Locale.ROOT));
+    }
+
+    private RoutingKey toRoutingKey(@Nullable EventName eventName) {
+        return RoutingKey.ofParts(
                 "events",
                 Optional.ofNullable(eventName)
                         .map(EventName::getValue)
                         .map(String::toLowerCase)
                         .orElse("*")
         );
-
-        return messageListenerFactory.createTransientListener(exchangeTarget, routingKey, name)
-                .flatMap(delivery -> parseMessageToEventWithMetadata(delivery.getBody()));
     }
 
     private Mono<HandleableEvent> parseMessageToEventWithMetadata(byte[] message) {
-        return deserializeMessage(message)
-                .map(payload -> {
-                    Map<String, Object> metadataPayload = (Map<String, Object>) payload.get("metadata");
-                    var aggregateId = AggregateId.of((String) metadataPayload.get("aggregateId"));
-                    var aggregateType = AggregateType.of((String) metadataPayload.get("aggregateType"));
-                    var aggregateVersion = Version.of((Integer) metadataPayload.get("aggregateVersion"));
-                    var eventName = EventName.of((String) metadataPayload.get("eventName"));
-                    var eventVersion = Version.of((Integer) metadataPayload.get("eventVersion"));
-                    var agentId = AgentId.of((String) metadataPayload.get("agentId"));
-                    var agentType = AgentType.valueOf((String) metadataPayload.get("agentType"));
-                    var agent = Agent.of(agentType, agentId);
-                    var date = Instant.parse((String) metadataPayload.get("date"));
-                    boolean isSnapshot = (boolean) metadataPayload.get("isSnapshot");
-
-                    var metadata = EventMetadata.of(
-                            aggregateId,
-                            aggregateType,
-                            aggregateVersion,
-                            agent,
-                            date,
-                            isSnapshot
-                    );
-
-                    Map<String, Object> eventPayload = (Map<String, Object>) payload.get("event");
-
-                    return HandleableEvent.of(metadata, eventName, eventVersion, eventPayload);
-                });
-    }
-
-    private Mono<Map<String, Object>> deserializeMessage(byte[] message) {
-        try {
-            Map<String, Object> result = jsonMapper.readValue(message, Map.class);
-            return Mono.just(result);
-        } catch (JacksonException e) {
-            return Mono.error(e);
-        }
-    }
-
-    private <T> EventListenerHandler toUntypedHandler(Class<T> eventType, TypedEventListenerHandler<T> handler) {
-        return handleableEvent -> Mono.defer(() -> {
-            T typedEvent = jsonMapper.convertValue(handleableEvent.getEvent(), eventType);
-            return handler.handle(handleableEvent.getMetadata(), typedEvent);
-        });
+        return Mono.fromCallable(() -> messageReader.read(message));
     }
 
 }
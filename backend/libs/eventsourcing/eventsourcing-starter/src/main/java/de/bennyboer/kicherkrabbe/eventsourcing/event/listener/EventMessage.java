@@ -0,0 +1,41 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.event.listener;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * An event message received from the messaging system with its event bound to the requested type.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class EventMessage<T> {
+
+    EventMetadata metadata;
+
+    EventName eventName;
+
+    Version eventVersion;
+
+    T event;
+
+    public static <T> EventMessage<T> of(
+            EventMetadata metadata,
+            EventName eventName,
+            Version eventVersion,
+            T event
+    ) {
+        notNull(metadata, "Metadata must be given");
+        notNull(eventName, "Event name must be given");
+        notNull(eventVersion, "Event version must be given");
+        notNull(event, "Event must be given");
+
+        return new EventMessage<>(metadata, eventName, eventVersion, event);
+    }
+
+}
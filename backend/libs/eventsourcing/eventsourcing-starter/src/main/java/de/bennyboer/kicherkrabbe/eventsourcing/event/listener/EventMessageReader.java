@@ -0,0 +1,187 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.event.listener;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.EventName;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentType;
+import jakarta.annotation.Nullable;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Reads event messages as published by the messaging event publisher in a single streaming pass.
+ * Metadata fields are read straight into the event metadata, and the event is bound to the requested type
+ * with a cached reader, so no intermediate map of the whole message is built.
+ * The order of the fields in the message does not matter.
+ */
+public class EventMessageReader {
+
+    private final JsonMapper jsonMapper;
+
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public EventMessageReader(JsonMapper jsonMapper) {
+        notNull(jsonMapper, "Json mapper must be given");
+
+        this.jsonMapper = jsonMapper;
+    }
+
+    public HandleableEvent read(byte[] message) {
+        EventMessage<Map> eventMessage = read(message, Map.class);
+
+        return HandleableEvent.of(
+                eventMessage.getMetadata(),
+                eventMessage.getEventName(),
+                eventMessage.getEventVersion(),
+                (Map<String, Object>) eventMessage.getEvent()
+        );
+    }
+
+    public <T> EventMessage<T> read(byte[] message, Class<T> eventType) {
+        notNull(eventType, "Event type must be given");
+
+        ParsedMessage parsed = parse(message, getReader(eventType));
+        notNull(parsed.event, "Message must contain an event");
+
+        return EventMessage.of(
+                parsed.metadata.toEventMetadata(),
+                parsed.metadata.toEventName(),
+                parsed.metadata.toEventVersion(),
+                eventType.cast(parsed.event)
+        );
+    }
+
+    /**
+     * Reads only the metadata of the message and skips over the event.
+     */
+    public EventMetadata readMetadata(byte[] message) {
+        return parse(message, null).metadata.toEventMetadata();
+    }
+
+    private ParsedMessage parse(byte[] message, @Nullable ObjectReader eventReader) {
+        notNull(message, "Message must be given");
+
+        var result = new ParsedMessage();
+        try (JsonParser parser = jsonMapper.createParser(message)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if (name.equals("metadata")) {
+                    expect(value, JsonToken.START_OBJECT);
+                    result.metadata = readMetadataFields(parser);
+                } else if (name.equals("event") && eventReader != null) {
+                    result.event = eventReader.readValue(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        notNull(result.metadata, "Message must contain metadata");
+
+        return result;
+    }
+
+    private MetadataFields readMetadataFields(JsonParser parser) {
+        var fields = new MetadataFields();
+
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+
+            switch (name) {
+                case "aggregateId" -> fields.aggregateId = parser.getValueAsString();
+                case "aggregateType" -> fields.aggregateType = parser.getValueAsString();
+                case "aggregateVersion" -> fields.aggregateVersion = parser.getLongValue();
+                case "eventName" -> fields.eventName = parser.getValueAsString();
+                case "eventVersion" -> fields.eventVersion = parser.getLongValue();
+                case "agentType" -> fields.agentType = parser.getValueAsString();
+                case "agentId" -> fields.agentId = parser.getValueAsString();
+                case "date" -> fields.date = parser.getValueAsString();
+                case "isSnapshot" -> fields.isSnapshot = parser.getBooleanValue();
+                default -> parser.skipChildren();
+            }
+        }
+
+        return fields;
+    }
+
+    private ObjectReader getReader(Class<?> eventType) {
+        return readers.computeIfAbsent(eventType, jsonMapper::readerFor);
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalArgumentException("Expected %s in event message but got %s".formatted(expected, actual));
+        }
+    }
+
+    private static class ParsedMessage {
+
+        MetadataFields metadata;
+
+        Object event;
+
+    }
+
+    private static class MetadataFields {
+
+        String aggregateId;
+
+        String aggregateType;
+
+        long aggregateVersion;
+
+        String eventName;
+
+        long eventVersion;
+
+        String agentType;
+
+        String agentId;
+
+        String date;
+
+        boolean isSnapshot;
+
+        EventMetadata toEventMetadata() {
+            notNull(date, "Message metadata must contain a date");
+            notNull(agentType, "Message metadata must contain an agent type");
+
+            var agent = Agent.of(AgentType.valueOf(agentType), AgentId.of(agentId));
+
+            return EventMetadata.of(
+                    AggregateId.of(aggregateId),
+                    AggregateType.of(aggregateType),
+                    Version.of(aggregateVersion),
+                    agent,
+                    Instant.parse(date),
+                    isSnapshot
+            );
+        }
+
+        EventName toEventName() {
+            return EventName.of(eventName);
+        }
+
+        Version toEventVersion() {
+            return Version.of(eventVersion);
+        }
+
+    }
+
+}
@@ -5,32 +5,65 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.Event;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.publish.EventPublisher;
+import de.bennyboer.kicherkrabbe.messaging.MessagingJsonMappers;
 import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutbox;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
 import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
-import lombok.AllArgsConstructor;
 import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.time.Clock;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-@AllArgsConstructor
+/**
+ * Publishes events via the messaging outbox. The message payload is serialized to JSON right away, so that
+ * the outbox stores and publishes the final message bytes without converting the payload again.
+ */
 public class MessagingEventPublisher implements EventPublisher {
 
+    private static final JsonMapper DEFAULT_JSON_MAPPER = MessagingJsonMappers.create();
+
     private final MessagingOutbox outbox;
 
     private final EventSerializer serializer;
 
     private final Clock clock;
 
+    private final JsonMapper jsonMapper;
+
+    public MessagingEventPublisher(MessagingOutbox outbox, EventSerializer serializer, Clock clock) {
+        this(outbox, serializer, clock, DEFAULT_JSON_MAPPER);
+    }
+
+    public MessagingEventPublisher(
+            MessagingOutbox outbox,
+            EventSerializer serializer,
+            Clock clock,
+            JsonMapper jsonMapper
+    ) {
+        this.outbox = outbox;
+        this.serializer = serializer;
+        this.clock = clock;
+        this.jsonMapper = jsonMapper;
+    }
+
     @Override
     public Mono<Void> publish(EventWithMetadata event) {
-        MessagingOutboxEntry entry = toEntry(event);
+        return Mono.fromCallable(() -> toEntry(event))
+                .flatMap(entry -> outbox.insert(entry));
+    }
 
-        return outbox.insert(entry);
+    @Override
+    public Mono<Void> publishAll(List<EventWithMetadata> events) {
+        return Mono.fromCallable(() -> events.stream()
+                        .map(this::toEntry)
+                        .toList())
+                .flatMap(entries -> outbox.insert(entries));
     }
 
     private MessagingOutboxEntry toEntry(EventWithMetadata eventWithMetadata) {
@@ -67,7 +100,8 @@ public class MessagingEventPublisher implements EventPublisher {
         return MessagingOutboxEntry.create(
                 target,
                 routingKey,
-                payload,
+                metadata.getAggregateId().getValue(),
+                MessagingOutboxPayload.json(jsonMapper.writeValueAsBytes(payload)),
                 clock
         );
     }
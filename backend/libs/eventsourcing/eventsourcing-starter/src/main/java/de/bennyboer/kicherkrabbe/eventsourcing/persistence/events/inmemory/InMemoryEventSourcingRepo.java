@@ -7,16 +7,25 @@ import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.EventWithMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventStreamPosition;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.PositionedEvent;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
 
 /**
  * An in-memory implementation of {@link EventSourcingRepo}.
@@ -27,6 +36,14 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
     private final Map<AggregateIdAndType, CopyOnWriteArrayList<EventWithMetadata>> eventsLookup =
             new ConcurrentHashMap<>();
 
+    /**
+     * All events per aggregate type keyed by their insertion sequence number.
+     */
+    private final Map<AggregateType, ConcurrentNavigableMap<Long, EventWithMetadata>> streams =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
     @Override
     public Mono<EventWithMetadata> insert(EventWithMetadata event) {
         AggregateIdAndType aggregateIdAndType = toAggregateIdAndType(event);
@@ -40,6 +57,7 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
 
                     if (events.isEmpty()) {
                         events.add(event);
+                        appendToStream(event);
                         return Mono.just(e);
                     }
 
@@ -57,11 +75,18 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
                     }
 
                     events.add(e);
+                    appendToStream(e);
 
                     return Mono.just(e);
                 });
     }
 
+    @Override
+    public Flux<EventWithMetadata> insertAll(List<EventWithMetadata> events) {
+        return Flux.fromIterable(events)
+                .concatMap(this::insert);
+    }
+
     @Override
     public Mono<EventWithMetadata> findNearestSnapshotEventByAggregateIdAndType(
             AggregateId aggregateId,
@@ -120,6 +145,45 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
                 .filter(event -> event.getMetadata().getAggregateVersion().compareTo(version) <= 0);
     }
 
+    @Override
+    public Flux<EventWithMetadata> findEventsSinceLatestSnapshotByAggregateIdAndType(
+            AggregateId aggregateId,
+            AggregateType type
+    ) {
+        return findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(
+                aggregateId,
+                type,
+                Version.of(Long.MAX_VALUE)
+        );
+    }
+
+    @Override
+    public Flux<EventWithMetadata> findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(
+            AggregateId aggregateId,
+            AggregateType type,
+            Version version
+    ) {
+        return Flux.fromIterable(getEvents(AggregateIdAndType.of(aggregateId, type))
+                .map(events -> {
+                    var result = new ArrayList<EventWithMetadata>();
+
+                    for (int i = events.size() - 1; i >= 0; i--) {
+                        var event = events.get(i);
+                        if (event.getMetadata().getAggregateVersion().compareTo(version) > 0) {
+                            continue;
+                        }
+
+                        result.add(event);
+                        if (event.getMetadata().isSnapshot()) {
+                            break;
+                        }
+                    }
+
+                    return result.reversed();
+                })
+                .orElse(List.of()));
+    }
+
     @Override
     public Mono<Void> removeEventsByAggregateIdAndTypeUntilVersion(
             AggregateId aggregateId,
@@ -133,6 +197,36 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
             }
 
             events.removeIf(event -> event.getMetadata().getAggregateVersion().compareTo(version) <= 0);
+
+            var stream = streams.get(aggregateType);
+            if (stream != null) {
+                stream.values().removeIf(event -> event.getMetadata().getAggregateId().equals(aggregateId)
+                        && event.getMetadata().getAggregateVersion().compareTo(version) <= 0);
+            }
+        });
+    }
+
+    @Override
+    public Flux<PositionedEvent> findEventsByAggregateType(
+            AggregateType type,
+            EventStreamPosition after,
+            int batchSize
+    ) {
+        check(batchSize > 0, "Batch size must be greater than 0");
+
+        return Flux.defer(() -> {
+            var stream = streams.get(type);
+            if (stream == null) {
+                return Flux.empty();
+            }
+
+            long afterSequence = after.getValue().map(Long::parseLong).orElse(0L);
+
+            return Flux.fromIterable(stream.tailMap(afterSequence, false).entrySet())
+                    .map(entry -> PositionedEvent.of(
+                            entry.getValue(),
+                            EventStreamPosition.of(Long.toString(entry.getKey()))
+                    ));
         });
     }
 
@@ -145,6 +239,11 @@ public class InMemoryEventSourcingRepo implements EventSourcingRepo {
                 .orElse(Flux.empty());
     }
 
+    private void appendToStream(EventWithMetadata event) {
+        streams.computeIfAbsent(event.getMetadata().getAggregateType(), type -> new ConcurrentSkipListMap<>())
+                .put(sequence.incrementAndGet(), event);
+    }
+
     private Optional<CopyOnWriteArrayList<EventWithMetadata>> getEvents(AggregateIdAndType aggregateIdAndType) {
         return Optional.ofNullable(eventsLookup.get(aggregateIdAndType));
     }
@@ -14,6 +14,8 @@ import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentId;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.AgentType;
 import de.bennyboer.kicherkrabbe.eventsourcing.event.snapshot.SnapshotAwareEventSerializer;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventStreamPosition;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.PositionedEvent;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.dao.DuplicateKeyException;
@@ -27,6 +29,9 @@ import org.springframework.data.mongodb.core.query.Query;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
@@ -65,6 +70,30 @@ public class MongoEventSourcingRepo implements EventSourcingRepo {
                 .thenReturn(event);
     }
 
+    @Override
+    public Flux<EventWithMetadata> insertAll(List<EventWithMetadata> events) {
+        if (events.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<MongoEvent> mongoEvents = events.stream()
+                .map(this::toMongoEvent)
+                .toList();
+
+        /*
+        Inserting a batch is ordered, so the first conflicting event stops the insert. As events of a command
+        are consecutive versions, the conflict is always caused by another writer that got ahead of us.
+         */
+        EventMetadata firstMetadata = events.getFirst().getMetadata();
+        return template.insert(mongoEvents, collection)
+                .onErrorMap(DuplicateKeyException.class, e -> new AggregateVersionOutdatedError(
+                        firstMetadata.getAggregateType(),
+                        firstMetadata.getAggregateId(),
+                        firstMetadata.getAggregateVersion()
+                ))
+                .thenMany(Flux.fromIterable(events));
+    }
+
     @Override
     public Mono<EventWithMetadata> findNearestSnapshotEventByAggregateIdAndType(
             AggregateId aggregateId,
@@ -131,6 +160,61 @@ public class MongoEventSourcingRepo implements EventSourcingRepo {
                 .map(this::toEventWithMetadata);
     }
 
+    @Override
+    public Flux<EventWithMetadata> findEventsSinceLatestSnapshotByAggregateIdAndType(
+            AggregateId aggregateId,
+            AggregateType type
+    ) {
+        Criteria criteria = where("aggregate._id").is(aggregateId.getValue())
+                .and("aggregate.type").is(type.getValue());
+
+        return findEventsBackToSnapshot(criteria);
+    }
+
+    @Override
+    public Flux<EventWithMetadata> findEventsSinceNearestSnapshotByAggregateIdAndTypeUntilVersion(
+            AggregateId aggregateId,
+            AggregateType type,
+            Version version
+    ) {
+        Criteria criteria = where("aggregate._id").is(aggregateId.getValue())
+                .and("aggregate.type").is(type.getValue())
+                .and("aggregate.version").lte(version.getValue());
+
+        return findEventsBackToSnapshot(criteria);
+    }
+
+    /**
+     * Event IDs are ObjectIds generated on insert and stored as their hex string, which sorts the same way as the
+     * ObjectId itself: by creation second, then machine and counter. Reading is a single cursor on the
+     * type and ID index that fetches the given number of documents per round trip.
+     * <p>
+     * ObjectIds are generated by the client and not in commit order. An event written by another node within the
+     * same second, or by a transaction that commits late, may get an ID below a position that has already been read.
+     * Such an event is skipped when resuming after that position.
+     */
+    @Override
+    public Flux<PositionedEvent> findEventsByAggregateType(
+            AggregateType type,
+            EventStreamPosition after,
+            int batchSize
+    ) {
+        check(batchSize > 0, "Batch size must be greater than 0");
+
+        Criteria criteria = where("aggregate.type").is(type.getValue());
+        after.getValue().ifPresent(id -> criteria.and("_id").gt(id));
+
+        Query query = query(criteria)
+                .with(Sort.by(ASC, "_id"))
+                .cursorBatchSize(batchSize);
+
+        return template.find(query, MongoEvent.class, collection)
+                .map(mongoEvent -> PositionedEvent.of(
+                        toEventWithMetadata(mongoEvent),
+                        EventStreamPosition.of(mongoEvent.id)
+                ));
+    }
+
     @Override
     public Mono<Void> removeEventsByAggregateIdAndTypeUntilVersion(
             AggregateId aggregateId,
@@ -147,6 +231,22 @@ public class MongoEventSourcingRepo implements EventSourcingRepo {
                 .then();
     }
 
+    /**
+     * Walks the events matching the given criteria backwards on the version index and stops at the first snapshot.
+     * Cancelling the cursor there means we only ever read the events that are actually needed for rehydration,
+     * which usually fit into the first cursor batch since aggregates are snapshotted regularly.
+     */
+    private Flux<EventWithMetadata> findEventsBackToSnapshot(Criteria criteria) {
+        Query query = query(criteria)
+                .with(Sort.by(DESC, "aggregate.version"));
+
+        return template.find(query, MongoEvent.class, collection)
+                .takeUntil(mongoEvent -> mongoEvent.snapshot)
+                .collectList()
+                .flatMapMany(mongoEvents -> Flux.fromIterable(mongoEvents.reversed()))
+                .map(this::toEventWithMetadata);
+    }
+
     private MongoEvent toMongoEvent(EventWithMetadata event) {
         var result = new MongoEvent();
 
@@ -228,9 +328,14 @@ public class MongoEventSourcingRepo implements EventSourcingRepo {
                 .append("aggregate.version", 1)
                 .append("snapshot", 1));
 
+        IndexDefinition streamIndex = new CompoundIndexDefinition(new Document()
+                .append("aggregate.type", 1)
+                .append("_id", 1));
+
         Mono.zip(
                 indexOps.createIndex(versionIndex),
-                indexOps.createIndex(snapshotIndex)
+                indexOps.createIndex(snapshotIndex),
+                indexOps.createIndex(streamIndex)
         ).block();
     }
 
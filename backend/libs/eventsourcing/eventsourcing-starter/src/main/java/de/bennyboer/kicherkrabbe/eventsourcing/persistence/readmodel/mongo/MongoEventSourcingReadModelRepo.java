@@ -2,14 +2,24 @@ package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo;
 
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.EventSourcingReadModelRepo;
 import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.VersionedReadModel;
+import org.bson.Document;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
@@ -36,15 +46,7 @@ public abstract class MongoEventSourcingReadModelRepo<ID, T extends VersionedRea
 
     @Override
     public Mono<Void> update(T readModel) {
-        String id = stringifyId(readModel.getId());
-        long version = readModel.getVersion().getValue();
-
-        Criteria versionCriteria = allowSameVersionUpdate()
-                ? where("version").not().gt(version)
-                : where("version").not().gte(version);
-        Criteria criteria = where("_id").is(id).andOperator(versionCriteria);
-        Query query = query(criteria);
-
+        Query query = toVersionedUpdateQuery(readModel);
         S serialized = serializer.serialize(readModel);
 
         return template.findAndReplace(
@@ -57,6 +59,94 @@ public abstract class MongoEventSourcingReadModelRepo<ID, T extends VersionedRea
                 .then();
     }
 
+    /**
+     * Same as {@link #update(VersionedReadModel)} for many read models in a single unordered bulk write
+     * to the given collection. Writes rejected because of an outdated version are ignored.
+     */
+    public Mono<Void> updateAll(Collection<T> readModels, String targetCollectionName) {
+        if (readModels.isEmpty()) {
+            return Mono.empty();
+        }
+
+        ReactiveBulkOperations bulkOps = template.bulkOps(UNORDERED, targetCollectionName);
+        for (T readModel : readModels) {
+            bulkOps.replaceOne(
+                    toVersionedUpdateQuery(readModel),
+                    serializer.serialize(readModel),
+                    FindAndReplaceOptions.options().upsert()
+            );
+        }
+
+        return bulkOps.execute()
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Removes the read models with the given IDs from the given collection.
+     */
+    public Mono<Void> removeAll(Collection<ID> ids, String targetCollectionName) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<String> stringifiedIds = ids.stream()
+                .map(this::stringifyId)
+                .toList();
+
+        return template.remove(query(where("_id").in(stringifiedIds)), targetCollectionName)
+                .then();
+    }
+
+    /**
+     * Finds the versions of the read models with the given IDs in the given collection.
+     * IDs without a read model are missing from the result.
+     */
+    public Mono<Map<ID, Long>> findVersions(Collection<ID> ids, String targetCollectionName) {
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        Map<String, ID> idsByStringifiedId = ids.stream()
+                .collect(Collectors.toMap(this::stringifyId, Function.identity(), (a, b) -> a));
+
+        Query query = query(where("_id").in(idsByStringifiedId.keySet()));
+        query.fields().include("_id", "version");
+
+        return template.find(query, Document.class, targetCollectionName)
+                .collect(
+                        HashMap::new,
+                        (versions, document) -> versions.put(
+                                idsByStringifiedId.get(String.valueOf(document.get("_id"))),
+                                ((Number) document.get("version")).longValue()
+                        )
+                );
+    }
+
+    /**
+     * Creates the indices of this read model on the given collection, for example a shadow collection
+     * that a read model is rebuilt into.
+     */
+    public Mono<Void> initializeIndices(String targetCollectionName) {
+        return initializeIndices(template.indexOps(targetCollectionName));
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    private Query toVersionedUpdateQuery(T readModel) {
+        String id = stringifyId(readModel.getId());
+        long version = readModel.getVersion().getValue();
+
+        Criteria versionCriteria = allowSameVersionUpdate()
+                ? where("version").not().gt(version)
+                : where("version").not().gte(version);
+        Criteria criteria = where("_id").is(id).andOperator(versionCriteria);
+
+        return query(criteria);
+    }
+
     @Override
     public Mono<Void> remove(ID id) {
         Criteria criteria = where("_id").is(stringifyId(id));
@@ -0,0 +1,31 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.rebuild;
+
+import jakarta.annotation.Nullable;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import java.time.Instant;
+
+/**
+ * Progress of a running read model rebuild, keyed by the name of the collection that is rebuilt.
+ */
+@Document
+public class MongoReadModelRebuildCheckpoint {
+
+    @MongoId
+    public String id;
+
+    public String shadowCollection;
+
+    @Nullable
+    public String position;
+
+    public long rebuiltAggregates;
+
+    public boolean swapped;
+
+    public Instant startedAt;
+
+    public Instant updatedAt;
+
+}
@@ -0,0 +1,468 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.rebuild;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventSourcingRepo;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.EventStreamPosition;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.events.PositionedEvent;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.VersionedReadModel;
+import de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.MongoEventSourcingReadModelRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Rebuilds a read model collection from the event store, for example after the shape of its documents changed.
+ * <p>
+ * The events of the aggregate type are streamed in insertion order. Every aggregate seen in the stream is loaded
+ * by up to {@link Config#getWorkers()} workers in parallel and written with a single bulk upsert per batch into a
+ * shadow collection. After each batch the stream position is checkpointed, so that a crashed rebuild resumes where
+ * it stopped when started again. Aggregates that change while the rebuild is running show up again later in the
+ * stream and are reloaded. Once the stream is exhausted the shadow collection replaces the live collection with
+ * a single rename, followed by a last pass over events that were written in the meantime.
+ * <p>
+ * Stream positions do not follow commit order, so the passes may skip events written concurrently, and updates
+ * that live traffic wrote into the old collection right before the rename are lost with it. The rebuild thus ends
+ * with reconciling by version: the whole stream is read once more and every aggregate whose version in the live
+ * collection is below the latest version in the event store is reloaded.
+ * <p>
+ * To not starve live traffic, the number of parallel loads is bounded and the rebuild can be throttled to a maximum
+ * number of aggregates per second. A rebuild of a collection must only be started on a single instance at a time.
+ */
+@Slf4j
+public class MongoReadModelRebuilder<ID, T extends VersionedReadModel<ID>> {
+
+    private static final String CHECKPOINT_COLLECTION = "read_model_rebuilds";
+
+    private static final String SHADOW_COLLECTION_SUFFIX = "_rebuild";
+
+    private static final int MAX_CATCH_UP_PASSES = 10;
+
+    private final AggregateType aggregateType;
+
+    private final EventSourcingRepo eventSourcingRepo;
+
+    private final MongoEventSourcingReadModelRepo<ID, T, ?> readModelRepo;
+
+    /**
+     * Loads the read model of the aggregate with the given ID in its latest version.
+     * Returns empty if the aggregate has been deleted and thus should not be part of the read model.
+     */
+    private final Function<AggregateId, Mono<T>> loader;
+
+    private final Function<AggregateId, ID> idMapper;
+
+    private final ReactiveMongoTemplate template;
+
+    private final Config config;
+
+    private final Clock clock;
+
+    private final Counter rebuiltAggregates;
+
+    private volatile double aggregatesPerSecond;
+
+    public MongoReadModelRebuilder(
+            AggregateType aggregateType,
+            EventSourcingRepo eventSourcingRepo,
+            MongoEventSourcingReadModelRepo<ID, T, ?> readModelRepo,
+            Function<AggregateId, Mono<T>> loader,
+            Function<AggregateId, ID> idMapper,
+            ReactiveMongoTemplate template,
+            Config config,
+            Clock clock
+    ) {
+        this(
+                aggregateType,
+                eventSourcingRepo,
+                readModelRepo,
+                loader,
+                idMapper,
+                template,
+                config,
+                clock,
+                Metrics.globalRegistry
+        );
+    }
+
+    public MongoReadModelRebuilder(
+            AggregateType aggregateType,
+            EventSourcingRepo eventSourcingRepo,
+            MongoEventSourcingReadModelRepo<ID, T, ?> readModelRepo,
+            Function<AggregateId, Mono<T>> loader,
+            Function<AggregateId, ID> idMapper,
+            ReactiveMongoTemplate template,
+            Config config,
+            Clock clock,
+            MeterRegistry meterRegistry
+    ) {
+        notNull(aggregateType, "Aggregate type must be given");
+        notNull(eventSourcingRepo, "Event sourcing repo must be given");
+        notNull(readModelRepo, "Read model repo must be given");
+        notNull(loader, "Loader must be given");
+        notNull(idMapper, "ID mapper must be given");
+        notNull(template, "Template must be given");
+        notNull(config, "Config must be given");
+        notNull(clock, "Clock must be given");
+        notNull(meterRegistry, "Meter registry must be given");
+        check(config.getWorkers() > 0, "Workers must be greater than 0");
+        check(config.getBatchSize() > 0, "Batch size must be greater than 0");
+        check(config.getMaxAggregatesPerSecond() >= 0, "Max aggregates per second must not be negative");
+
+        this.aggregateType = aggregateType;
+        this.eventSourcingRepo = eventSourcingRepo;
+        this.readModelRepo = readModelRepo;
+        this.loader = loader;
+        this.idMapper = idMapper;
+        this.template = template;
+        this.config = config;
+        this.clock = clock;
+
+        String collectionTag = readModelRepo.getCollectionName();
+        this.rebuiltAggregates = Counter.builder("eventsourcing.readmodel.rebuild.aggregates")
+                .description("Aggregates written to a read model by a rebuild")
+                .tag("collection", collectionTag)
+                .register(meterRegistry);
+        Gauge.builder("eventsourcing.readmodel.rebuild.throughput", this, rebuilder -> rebuilder.aggregatesPerSecond)
+                .description("Aggregates per second written by the last batch of a read model rebuild")
+                .tag("collection", collectionTag)
+                .register(meterRegistry);
+    }
+
+    public Mono<ReadModelRebuildResult> rebuild() {
+        String collectionName = readModelRepo.getCollectionName();
+
+        return Mono.defer(() -> {
+                    long startNanos = System.nanoTime();
+
+                    return loadOrStartCheckpoint()
+                            .flatMap(checkpoint -> {
+                                var run = new Run(checkpoint);
+
+                                Mono<Void> rebuildIntoShadow = checkpoint.swapped
+                                        ? Mono.empty()
+                                        : catchUp(run, checkpoint.shadowCollection).then(swap(run));
+
+                                return rebuildIntoShadow
+                                        .then(Mono.defer(() -> catchUp(run, collectionName)))
+                                        .then(Mono.defer(() -> reconcile(run, collectionName)))
+                                        .then(removeCheckpoint())
+                                        .then(Mono.fromSupplier(() -> ReadModelRebuildResult.of(
+                                                collectionName,
+                                                run.checkpoint.rebuiltAggregates,
+                                                Duration.ofNanos(System.nanoTime() - startNanos)
+                                        )));
+                            });
+                })
+                .doOnNext(result -> log.info(
+                        "Rebuilt read model '{}' with {} aggregates in {} ({} aggregates/s)",
+                        result.getCollectionName(),
+                        result.getRebuiltAggregates(),
+                        result.getDuration(),
+                        "%.1f".formatted(result.getAggregatesPerSecond())
+                ));
+    }
+
+    private Mono<MongoReadModelRebuildCheckpoint> loadOrStartCheckpoint() {
+        String collectionName = readModelRepo.getCollectionName();
+
+        return template.findById(collectionName, MongoReadModelRebuildCheckpoint.class, CHECKPOINT_COLLECTION)
+                .flatMap(checkpoint -> template.collectionExists(checkpoint.shadowCollection)
+                        .flatMap(shadowExists -> {
+                            /*
+                            The rename is the only step that cannot be checkpointed together with its effect.
+                            A missing shadow collection after a checkpointed batch means we crashed right after it.
+                             */
+                            boolean swappedBeforeCrash = !shadowExists && checkpoint.position != null;
+                            if (swappedBeforeCrash) {
+                                checkpoint.swapped = true;
+                            }
+                            if (checkpoint.swapped) {
+                                return Mono.just(checkpoint);
+                            }
+
+                            log.info("Resuming rebuild of read model '{}'", collectionName);
+                            return createShadowCollection(checkpoint, shadowExists)
+                                    .thenReturn(checkpoint);
+                        }))
+                .switchIfEmpty(Mono.defer(this::startCheckpoint));
+    }
+
+    private Mono<MongoReadModelRebuildCheckpoint> startCheckpoint() {
+        String collectionName = readModelRepo.getCollectionName();
+        Instant now = clock.instant();
+
+        var checkpoint = new MongoReadModelRebuildCheckpoint();
+        checkpoint.id = collectionName;
+        checkpoint.shadowCollection = collectionName + SHADOW_COLLECTION_SUFFIX;
+        checkpoint.position = null;
+        checkpoint.rebuiltAggregates = 0;
+        checkpoint.swapped = false;
+        checkpoint.startedAt = now;
+        checkpoint.updatedAt = now;
+
+        log.info("Starting rebuild of read model '{}'", collectionName);
+
+        return template.dropCollection(checkpoint.shadowCollection)
+                .then(createShadowCollection(checkpoint, false))
+                .then(template.save(checkpoint, CHECKPOINT_COLLECTION));
+    }
+
+    private Mono<Void> createShadowCollection(MongoReadModelRebuildCheckpoint checkpoint, boolean exists) {
+        Mono<Void> create = exists
+                ? Mono.empty()
+                : template.createCollection(checkpoint.shadowCollection).then();
+
+        return create.then(readModelRepo.initializeIndices(checkpoint.shadowCollection));
+    }
+
+    /**
+     * Reads the event stream from the checkpointed position until no more events are found,
+     * so that aggregates changed by live traffic during a pass are picked up by the next one.
+     */
+    private Mono<Void> catchUp(Run run, String targetCollectionName) {
+        return Mono.defer(() -> pass(run, targetCollectionName))
+                .repeat(MAX_CATCH_UP_PASSES - 1)
+                .takeUntil(events -> events == 0)
+                .then();
+    }
+
+    private Mono<Long> pass(Run run, String targetCollectionName) {
+        EventStreamPosition position = Optional.ofNullable(run.checkpoint.position)
+                .map(EventStreamPosition::of)
+                .orElse(EventStreamPosition.start());
+
+        return eventSourcingRepo.findEventsByAggregateType(aggregateType, position, config.getBatchSize())
+                .buffer(config.getBatchSize())
+                .concatMap(batch -> processBatch(run, batch, targetCollectionName).thenReturn(batch.size()))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Void> processBatch(Run run, List<PositionedEvent> batch, String targetCollectionName) {
+        long startNanos = System.nanoTime();
+
+        Set<AggregateId> outdated = new LinkedHashSet<>();
+        for (PositionedEvent event : batch) {
+            var metadata = event.getEvent().getMetadata();
+            long loadedVersion = run.loadedVersions.getOrDefault(metadata.getAggregateId(), -1L);
+            if (loadedVersion < metadata.getAggregateVersion().getValue()) {
+                outdated.add(metadata.getAggregateId());
+            }
+        }
+
+        return loadAndWrite(run, outdated, targetCollectionName)
+                .flatMap(rebuilt -> saveCheckpoint(run, batch.getLast().getPosition(), rebuilt)
+                        .then(Mono.defer(() -> throttle(startNanos, rebuilt))));
+    }
+
+    /**
+     * Reads the whole event stream once more and reloads every aggregate whose version in the given collection
+     * is below the latest version in the event store. Nothing is checkpointed, as an interrupted reconciliation
+     * is simply started over.
+     */
+    private Mono<Void> reconcile(Run run, String targetCollectionName) {
+        return eventSourcingRepo.findEventsByAggregateType(
+                        aggregateType,
+                        EventStreamPosition.start(),
+                        config.getBatchSize()
+                )
+                .buffer(config.getBatchSize())
+                .concatMap(batch -> reconcileBatch(run, batch, targetCollectionName))
+                .then();
+    }
+
+    private Mono<Void> reconcileBatch(Run run, List<PositionedEvent> batch, String targetCollectionName) {
+        long startNanos = System.nanoTime();
+
+        Map<AggregateId, Long> latestVersions = new LinkedHashMap<>();
+        for (PositionedEvent event : batch) {
+            var metadata = event.getEvent().getMetadata();
+            long version = metadata.getAggregateVersion().getValue();
+            if (run.loadedVersions.getOrDefault(metadata.getAggregateId(), -1L) < version) {
+                latestVersions.merge(metadata.getAggregateId(), version, Math::max);
+            }
+        }
+
+        Set<ID> ids = new HashSet<>();
+        latestVersions.keySet().forEach(id -> ids.add(idMapper.apply(id)));
+
+        return readModelRepo.findVersions(ids, targetCollectionName)
+                .flatMap(storedVersions -> {
+                    Set<AggregateId> outdated = new LinkedHashSet<>();
+                    latestVersions.forEach((id, version) -> {
+                        long storedVersion = storedVersions.getOrDefault(idMapper.apply(id), -1L);
+                        if (storedVersion < version) {
+                            outdated.add(id);
+                        }
+                    });
+
+                    return loadAndWrite(run, outdated, targetCollectionName);
+                })
+                .flatMap(rebuilt -> {
+                    countRebuilt(run, rebuilt);
+                    return throttle(startNanos, rebuilt);
+                });
+    }
+
+    /**
+     * Loads the given aggregates and writes their read models to the given collection.
+     * Returns the number of aggregates written.
+     */
+    private Mono<Integer> loadAndWrite(Run run, Set<AggregateId> ids, String targetCollectionName) {
+        return Flux.fromIterable(ids)
+                .flatMap(this::load, config.getWorkers())
+                .collectList()
+                .flatMap(loaded -> {
+                    List<T> readModels = new ArrayList<>();
+                    List<ID> removed = new ArrayList<>();
+                    for (Loaded<T> l : loaded) {
+                        if (l.readModel().isPresent()) {
+                            readModels.add(l.readModel().get());
+                        } else {
+                            removed.add(idMapper.apply(l.id()));
+                        }
+                    }
+
+                    return readModelRepo.updateAll(readModels, targetCollectionName)
+                            .then(readModelRepo.removeAll(removed, targetCollectionName))
+                            .then(Mono.fromRunnable(() -> loaded.forEach(l -> run.loadedVersions.put(
+                                    l.id(),
+                                    l.readModel().map(r -> r.getVersion().getValue()).orElse(Long.MAX_VALUE)
+                            ))))
+                            .thenReturn(loaded.size());
+                });
+    }
+
+    private Mono<Loaded<T>> load(AggregateId id) {
+        return loader.apply(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .map(readModel -> new Loaded<>(id, readModel));
+    }
+
+    private Mono<Void> saveCheckpoint(Run run, EventStreamPosition position, int rebuilt) {
+        return Mono.defer(() -> {
+            run.checkpoint.position = position.getValue().orElse(null);
+            run.checkpoint.updatedAt = clock.instant();
+            countRebuilt(run, rebuilt);
+
+            return template.save(run.checkpoint, CHECKPOINT_COLLECTION).then();
+        });
+    }
+
+    private void countRebuilt(Run run, int rebuilt) {
+        run.checkpoint.rebuiltAggregates += rebuilt;
+        rebuiltAggregates.increment(rebuilt);
+    }
+
+    private Mono<Void> throttle(long startNanos, int rebuilt) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long minNanos = config.getMaxAggregatesPerSecond() > 0
+                ? rebuilt * 1_000_000_000L / config.getMaxAggregatesPerSecond()
+                : 0;
+
+        long batchNanos = Math.max(elapsedNanos, minNanos);
+        aggregatesPerSecond = batchNanos > 0 ? rebuilt * 1_000_000_000.0 / batchNanos : 0;
+
+        if (elapsedNanos >= minNanos) {
+            return Mono.empty();
+        }
+
+        return Mono.delay(Duration.ofNanos(minNanos - elapsedNanos)).then();
+    }
+
+    private Mono<Void> swap(Run run) {
+        String collectionName = readModelRepo.getCollectionName();
+        String shadowCollection = run.checkpoint.shadowCollection;
+
+        return renameCollection(shadowCollection, collectionName)
+                .then(Mono.defer(() -> {
+                    run.checkpoint.swapped = true;
+                    run.checkpoint.updatedAt = clock.instant();
+
+                    return template.save(run.checkpoint, CHECKPOINT_COLLECTION).then();
+                }))
+                .doOnSuccess(ignored -> log.info("Swapped rebuilt read model into '{}'", collectionName));
+    }
+
+    private Mono<Void> renameCollection(String from, String to) {
+        return template.getMongoDatabase()
+                .flatMap(db -> Mono.from(db.getCollection(from).renameCollection(
+                        new MongoNamespace(db.getName(), to),
+                        new RenameCollectionOptions().dropTarget(true)
+                )))
+                .then();
+    }
+
+    private Mono<Void> removeCheckpoint() {
+        return template.remove(
+                query(where("_id").is(readModelRepo.getCollectionName())),
+                CHECKPOINT_COLLECTION
+        ).then();
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Builder
+    public static class Config {
+
+        /**
+         * Number of aggregates loaded in parallel.
+         */
+        int workers;
+
+        /**
+         * Number of events read per batch. Aggregates of a batch are written with a single bulk write
+         * and the stream position is checkpointed after each batch.
+         */
+        int batchSize;
+
+        /**
+         * Upper bound of aggregates written per second, 0 for no limit.
+         */
+        int maxAggregatesPerSecond;
+
+    }
+
+    private static class Run {
+
+        final MongoReadModelRebuildCheckpoint checkpoint;
+
+        /**
+         * Version each aggregate had when it has last been loaded, so that it is only reloaded for newer events.
+         */
+        final Map<AggregateId, Long> loadedVersions = new ConcurrentHashMap<>();
+
+        Run(MongoReadModelRebuildCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+    }
+
+    private record Loaded<R>(AggregateId id, Optional<R> readModel) {
+    }
+
+}
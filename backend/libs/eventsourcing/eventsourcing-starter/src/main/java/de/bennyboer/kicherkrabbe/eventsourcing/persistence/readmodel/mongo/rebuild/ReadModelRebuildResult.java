@@ -0,0 +1,39 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.persistence.readmodel.mongo.rebuild;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Duration;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class ReadModelRebuildResult {
+
+    String collectionName;
+
+    /**
+     * Aggregates written to the read model by this run, including the ones written by an interrupted run
+     * that has been resumed.
+     */
+    long rebuiltAggregates;
+
+    Duration duration;
+
+    public static ReadModelRebuildResult of(String collectionName, long rebuiltAggregates, Duration duration) {
+        notNull(collectionName, "Collection name must be given");
+        check(rebuiltAggregates >= 0, "Rebuilt aggregates must not be negative");
+        notNull(duration, "Duration must be given");
+
+        return new ReadModelRebuildResult(collectionName, rebuiltAggregates, duration);
+    }
+
+    public double getAggregatesPerSecond() {
+        long millis = Math.max(1, duration.toMillis());
+        return rebuiltAggregates * 1000.0 / millis;
+    }
+
+}
@@ -0,0 +1,110 @@
+package de.bennyboer.kicherkrabbe.eventsourcing.testing;
+
+import de.bennyboer.kicherkrabbe.eventsourcing.Version;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.Aggregate;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateId;
+import de.bennyboer.kicherkrabbe.eventsourcing.aggregate.AggregateType;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.EventMetadata;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.metadata.agent.Agent;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.snapshot.AggregateSnapshotDeserializer;
+import de.bennyboer.kicherkrabbe.eventsourcing.event.snapshot.AggregateSnapshotSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how long it takes to snapshot and restore a realistic aggregate of a feature.
+ * Extend it in a feature test and provide a fully populated aggregate.
+ */
+public abstract class AggregateSnapshotBenchmark<A extends Aggregate> {
+
+    private static final int WARMUP_ITERATIONS = 1000;
+    private static final int TEST_ITERATIONS = 10000;
+    private static final long MAX_AVERAGE_MICROS = 500;
+
+    private final AggregateSnapshotSerializer serializer = new AggregateSnapshotSerializer();
+    private final AggregateSnapshotDeserializer deserializer = new AggregateSnapshotDeserializer();
+
+    protected abstract AggregateType getAggregateType();
+
+    protected abstract A createAggregate();
+
+    protected abstract A getInitialState();
+
+    protected abstract AggregateId getAggregateId(A aggregate);
+
+    protected abstract Version getAggregateVersion(A aggregate);
+
+    @Test
+    void shouldRestoreEqualAggregateFromSnapshot() {
+        var aggregate = createAggregate();
+
+        var snapshot = serializer.serialize(aggregate);
+        var restored = deserializer.deserialize(snapshot, getInitialState(), createMetadata(aggregate));
+
+        assertThat(restored).isEqualTo(aggregate);
+        assertThat(serializer.serialize(restored).getState()).isEqualTo(snapshot.getState());
+    }
+
+    @Test
+    void shouldSerializeWithinAcceptableTime() {
+        var aggregate = createAggregate();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            serializer.serialize(aggregate);
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < TEST_ITERATIONS; i++) {
+            serializer.serialize(aggregate);
+        }
+        long endNanos = System.nanoTime();
+
+        report("serialization", startNanos, endNanos);
+    }
+
+    @Test
+    void shouldDeserializeWithinAcceptableTime() {
+        var aggregate = createAggregate();
+        var snapshot = serializer.serialize(aggregate);
+        var metadata = createMetadata(aggregate);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            deserializer.deserialize(snapshot, getInitialState(), metadata);
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < TEST_ITERATIONS; i++) {
+            deserializer.deserialize(snapshot, getInitialState(), metadata);
+        }
+        long endNanos = System.nanoTime();
+
+        report("deserialization", startNanos, endNanos);
+    }
+
+    private void report(String operation, long startNanos, long endNanos) {
+        long totalMicros = (endNanos - startNanos) / 1000;
+        double avgMicros = (double) totalMicros / TEST_ITERATIONS;
+
+        System.out.printf("%s snapshot %s: %d iterations, total %d µs, avg %.2f µs/op%n",
+                getAggregateType().getValue(), operation, TEST_ITERATIONS, totalMicros, avgMicros);
+
+        assertThat(avgMicros)
+                .as("Average %s time should be under %d µs", operation, MAX_AVERAGE_MICROS)
+                .isLessThan(MAX_AVERAGE_MICROS);
+    }
+
+    private EventMetadata createMetadata(A aggregate) {
+        return EventMetadata.of(
+                getAggregateId(aggregate),
+                getAggregateType(),
+                getAggregateVersion(aggregate),
+                Agent.system(),
+                Instant.now(),
+                true
+        );
+    }
+
+}
@@ -1,23 +1,125 @@
 package de.bennyboer.kicherkrabbe.messaging.inbox;
 
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.MessagingInboxRepo;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 
 @Slf4j
-@AllArgsConstructor
 public class MessagingInbox {
 
+    private static final long DEFAULT_RECENTLY_SEEN_CAPACITY_PER_LISTENER = 10_000;
+
+    private static final Duration RECENTLY_SEEN_EXPIRY = Duration.ofHours(1);
+
     private final MessagingInboxRepo repo;
 
     private final Clock clock;
 
+    private final long recentlySeenCapacityPerListener;
+
+    private final MeterRegistry registry;
+
+    private final Map<String, RecentlySeenIncomingMessages> recentlySeenByListener = new ConcurrentHashMap<>();
+
+    private final Counter insertedCounter;
+
+    private final AtomicLong size = new AtomicLong();
+
+    public MessagingInbox(MessagingInboxRepo repo, Clock clock) {
+        this(repo, clock, DEFAULT_RECENTLY_SEEN_CAPACITY_PER_LISTENER, Metrics.globalRegistry);
+    }
+
+    public MessagingInbox(
+            MessagingInboxRepo repo,
+            Clock clock,
+            long recentlySeenCapacityPerListener,
+            MeterRegistry registry
+    ) {
+        notNull(repo, "Repo must be given");
+        notNull(clock, "Clock must be given");
+        notNull(registry, "Meter registry must be given");
+        check(recentlySeenCapacityPerListener > 0, "Recently seen capacity per listener must be positive");
+
+        this.repo = repo;
+        this.clock = clock;
+        this.recentlySeenCapacityPerListener = recentlySeenCapacityPerListener;
+        this.registry = registry;
+
+        this.insertedCounter = Counter.builder("messaging.inbox.inserted")
+                .description("Incoming messages written to the inbox")
+                .register(registry);
+        Gauge.builder("messaging.inbox.size", size, AtomicLong::get)
+                .description("Approximate number of incoming messages in the inbox")
+                .register(registry);
+    }
+
     public Mono<Void> addMessage(IncomingMessageId id) {
         var message = IncomingMessage.of(id, clock.instant());
-        return repo.insert(message);
+        return repo.insert(message)
+                .doOnSuccess(ignored -> insertedCounter.increment());
+    }
+
+    public Mono<Void> addMessages(Collection<IncomingMessageId> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+
+        Instant receivedAt = clock.instant();
+        var messages = ids.stream()
+                .map(id -> IncomingMessage.of(id, receivedAt))
+                .toList();
+
+        return repo.insertAll(messages)
+                .doOnSuccess(ignored -> insertedCounter.increment(messages.size()));
+    }
+
+    /**
+     * Checks whether the given listener has recently handled the message, without querying the inbox collection.
+     * A negative answer does not mean the message is new, only that the inbox collection has to decide.
+     */
+    public boolean isRecentlySeen(String listenerName, IncomingMessageId id) {
+        return getRecentlySeen(listenerName).contains(id);
+    }
+
+    /**
+     * Remembers that the given listener has handled the message.
+     * Must only be called once the transaction that added the message to the inbox has been committed.
+     */
+    public void markRecentlySeen(String listenerName, IncomingMessageId id) {
+        getRecentlySeen(listenerName).add(id);
+    }
+
+    public Mono<Void> updateSize() {
+        return repo.count()
+                .doOnNext(size::set)
+                .then();
+    }
+
+    private RecentlySeenIncomingMessages getRecentlySeen(String listenerName) {
+        return recentlySeenByListener.computeIfAbsent(
+                listenerName,
+                name -> new RecentlySeenIncomingMessages(
+                        name,
+                        recentlySeenCapacityPerListener,
+                        RECENTLY_SEEN_EXPIRY,
+                        registry
+                )
+        );
     }
 
 }
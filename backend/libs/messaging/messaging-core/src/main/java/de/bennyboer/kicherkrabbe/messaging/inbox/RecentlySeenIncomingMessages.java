@@ -0,0 +1,61 @@
+package de.bennyboer.kicherkrabbe.messaging.inbox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Remembers the messages a single listener has recently handled, so that most redeliveries can be detected
+ * without asking the inbox collection. The set is bounded and may forget messages at any time,
+ * which is fine since the inbox collection remains the source of truth.
+ */
+class RecentlySeenIncomingMessages {
+
+    private final Cache<IncomingMessageId, Boolean> messages;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    RecentlySeenIncomingMessages(String listenerName, long capacity, Duration expireAfterWrite, MeterRegistry registry) {
+        notNull(listenerName, "Listener name must be given");
+        notNull(expireAfterWrite, "Expire after write must be given");
+        notNull(registry, "Meter registry must be given");
+        check(capacity > 0, "Capacity must be positive");
+
+        this.messages = Caffeine.newBuilder()
+                .maximumSize(capacity)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        this.hits = Counter.builder("messaging.inbox.recently-seen.hits")
+                .description("Duplicate messages detected without querying the inbox collection")
+                .tag("listener", listenerName)
+                .register(registry);
+        this.misses = Counter.builder("messaging.inbox.recently-seen.misses")
+                .description("Messages that had to be checked against the inbox collection")
+                .tag("listener", listenerName)
+                .register(registry);
+    }
+
+    boolean contains(IncomingMessageId id) {
+        boolean seen = messages.getIfPresent(id) != null;
+        if (seen) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        return seen;
+    }
+
+    void add(IncomingMessageId id) {
+        messages.put(id, true);
+    }
+
+}
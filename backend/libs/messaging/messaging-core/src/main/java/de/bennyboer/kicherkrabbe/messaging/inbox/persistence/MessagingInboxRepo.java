@@ -3,8 +3,21 @@ package de.bennyboer.kicherkrabbe.messaging.inbox.persistence;
 import de.bennyboer.kicherkrabbe.messaging.inbox.IncomingMessage;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface MessagingInboxRepo {
 
     Mono<Void> insert(IncomingMessage message);
 
+    /**
+     * Inserts all given messages at once. Fails with an {@link IncomingMessageAlreadySeenException}
+     * if any of them has already been seen.
+     */
+    Mono<Void> insertAll(Collection<IncomingMessage> messages);
+
+    /**
+     * Returns the number of messages in the inbox. The number may be an estimate.
+     */
+    Mono<Long> count();
+
 }
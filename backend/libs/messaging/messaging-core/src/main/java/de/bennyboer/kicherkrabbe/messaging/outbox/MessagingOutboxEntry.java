@@ -9,8 +9,10 @@ import lombok.With;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
 import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
@@ -21,7 +23,9 @@ import static lombok.AccessLevel.PRIVATE;
 @AllArgsConstructor(access = PRIVATE)
 public class MessagingOutboxEntry {
 
-    private final static int MAX_RETRY_COUNT = 5;
+    public final static int MAX_RETRY_COUNT = 5;
+
+    private static final AtomicLong LAST_SEQUENCE = new AtomicLong();
 
     MessagingOutboxEntryId id;
 
@@ -29,10 +33,22 @@ public class MessagingOutboxEntry {
 
     RoutingKey routingKey;
 
-    Map<String, Object> payload;
+    MessagingOutboxPayload payload;
+
+    /**
+     * Entries of the same partition are published in order by a single instance.
+     */
+    MessagingOutboxPartition partition;
 
     Instant createdAt;
 
+    /**
+     * Orders entries that have been created at the same instant, as the creation date is only stored with millisecond
+     * precision. It is derived from the creation date in microseconds and increases with every entry created by this
+     * process, even if the clock did not advance in between.
+     */
+    long sequence;
+
     /**
      * We lock entries before we publish them to the messaging system. This is to ensure that we don't publish the same
      * entry multiple times. See also the lock attribute.
@@ -69,8 +85,10 @@ public class MessagingOutboxEntry {
             MessagingOutboxEntryId id,
             MessageTarget target,
             RoutingKey routingKey,
-            Map<String, Object> payload,
+            MessagingOutboxPayload payload,
+            MessagingOutboxPartition partition,
             Instant createdAt,
+            long sequence,
             Instant lockedAt,
             MessagingOutboxEntryLock lock,
             Instant acknowledgedAt,
@@ -81,6 +99,7 @@ public class MessagingOutboxEntry {
         notNull(target, "Target must be given");
         notNull(routingKey, "Routing key must be given");
         notNull(payload, "Payload must be given");
+        notNull(partition, "Partition must be given");
         notNull(createdAt, "Created at must be given");
 
         return new MessagingOutboxEntry(
@@ -88,7 +107,9 @@ public class MessagingOutboxEntry {
                 target,
                 routingKey,
                 payload,
+                partition,
                 createdAt,
+                sequence,
                 lockedAt,
                 lock,
                 acknowledgedAt,
@@ -97,22 +118,78 @@ public class MessagingOutboxEntry {
         );
     }
 
+    /**
+     * Create an entry without any ordering requirements. It is assigned to a partition based on its ID.
+     */
     public static MessagingOutboxEntry create(
             MessageTarget target,
             RoutingKey routingKey,
             Map<String, Object> payload,
             Clock clock
     ) {
-        Instant createdAt = clock.instant();
+        return create(target, routingKey, MessagingOutboxPayload.structured(payload), clock);
+    }
+
+    /**
+     * Create an entry without any ordering requirements. It is assigned to a partition based on its ID.
+     */
+    public static MessagingOutboxEntry create(
+            MessageTarget target,
+            RoutingKey routingKey,
+            MessagingOutboxPayload payload,
+            Clock clock
+    ) {
+        var id = MessagingOutboxEntryId.create();
+
+        return create(id, target, routingKey, MessagingOutboxPartition.forKey(id.getValue()), payload, clock);
+    }
+
+    /**
+     * Create an entry that is published in order with all other entries of the same partition key.
+     */
+    public static MessagingOutboxEntry create(
+            MessageTarget target,
+            RoutingKey routingKey,
+            String partitionKey,
+            Map<String, Object> payload,
+            Clock clock
+    ) {
+        return create(target, routingKey, partitionKey, MessagingOutboxPayload.structured(payload), clock);
+    }
 
+    /**
+     * Create an entry that is published in order with all other entries of the same partition key.
+     */
+    public static MessagingOutboxEntry create(
+            MessageTarget target,
+            RoutingKey routingKey,
+            String partitionKey,
+            MessagingOutboxPayload payload,
+            Clock clock
+    ) {
         var id = MessagingOutboxEntryId.create();
 
+        return create(id, target, routingKey, MessagingOutboxPartition.forKey(partitionKey), payload, clock);
+    }
+
+    private static MessagingOutboxEntry create(
+            MessagingOutboxEntryId id,
+            MessageTarget target,
+            RoutingKey routingKey,
+            MessagingOutboxPartition partition,
+            MessagingOutboxPayload payload,
+            Clock clock
+    ) {
+        Instant createdAt = clock.instant();
+
         return of(
                 id,
                 target,
                 routingKey,
                 payload,
+                partition,
                 createdAt,
+                nextSequence(createdAt),
                 null,
                 null,
                 null,
@@ -166,4 +243,10 @@ public class MessagingOutboxEntry {
         return getLockedAt().isPresent();
     }
 
+    private static long nextSequence(Instant createdAt) {
+        long createdAtMicros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+
+        return LAST_SEQUENCE.updateAndGet(last -> Math.max(last + 1, createdAtMicros));
+    }
+
 }
@@ -0,0 +1,36 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static java.util.UUID.randomUUID;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Identifies a running instance that publishes outbox entries of the partitions it holds a lease on.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessagingOutboxInstanceId {
+
+    String value;
+
+    public static MessagingOutboxInstanceId of(String value) {
+        notNull(value, "Messaging Outbox Instance ID must be given");
+        check(!value.isBlank(), "Messaging Outbox Instance ID must not be empty");
+
+        return new MessagingOutboxInstanceId(value);
+    }
+
+    public static MessagingOutboxInstanceId create() {
+        return new MessagingOutboxInstanceId(randomUUID().toString());
+    }
+
+    @Override
+    public String toString() {
+        return "MessagingOutboxInstanceId(%s)".formatted(value);
+    }
+
+}
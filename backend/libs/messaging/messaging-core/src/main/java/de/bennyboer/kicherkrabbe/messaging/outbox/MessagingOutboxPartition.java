@@ -0,0 +1,54 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Outbox entries are split into a fixed number of partitions. Entries sharing a partition key (for example the
+ * aggregate ID of an event) always end up in the same partition, which is drained in order by a single instance.
+ * The partition count must not be changed while entries are unpublished, as the key to partition mapping would change.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessagingOutboxPartition implements Comparable<MessagingOutboxPartition> {
+
+    public static final int COUNT = 16;
+
+    int value;
+
+    public static MessagingOutboxPartition of(int value) {
+        check(value >= 0 && value < COUNT, "Partition must be between 0 and %d".formatted(COUNT - 1));
+
+        return new MessagingOutboxPartition(value);
+    }
+
+    public static MessagingOutboxPartition forKey(String key) {
+        notNull(key, "Partition key must be given");
+
+        return of(Math.floorMod(key.hashCode(), COUNT));
+    }
+
+    public static List<MessagingOutboxPartition> all() {
+        return IntStream.range(0, COUNT)
+                .mapToObj(MessagingOutboxPartition::of)
+                .toList();
+    }
+
+    @Override
+    public int compareTo(MessagingOutboxPartition other) {
+        return Integer.compare(value, other.value);
+    }
+
+    @Override
+    public String toString() {
+        return "MessagingOutboxPartition(%d)".formatted(value);
+    }
+
+}
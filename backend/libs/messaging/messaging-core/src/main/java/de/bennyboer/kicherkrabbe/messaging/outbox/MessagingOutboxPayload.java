@@ -0,0 +1,64 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * The payload of an outbox entry. It is either a structured payload that is serialized to JSON when publishing,
+ * or the already serialized bytes that are sent as they are, using the given content type.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessagingOutboxPayload {
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    @Nullable
+    Map<String, Object> structured;
+
+    @Nullable
+    byte[] serialized;
+
+    String contentType;
+
+    public static MessagingOutboxPayload structured(Map<String, Object> payload) {
+        notNull(payload, "Payload must be given");
+
+        return new MessagingOutboxPayload(payload, null, JSON_CONTENT_TYPE);
+    }
+
+    public static MessagingOutboxPayload serialized(byte[] payload, String contentType) {
+        notNull(payload, "Payload must be given");
+        notNull(contentType, "Content type must be given");
+
+        return new MessagingOutboxPayload(null, payload, contentType);
+    }
+
+    public static MessagingOutboxPayload json(byte[] payload) {
+        return serialized(payload, JSON_CONTENT_TYPE);
+    }
+
+    public Optional<Map<String, Object>> getStructured() {
+        return Optional.ofNullable(structured);
+    }
+
+    public Optional<byte[]> getSerialized() {
+        return Optional.ofNullable(serialized);
+    }
+
+    public boolean isSerialized() {
+        return serialized != null;
+    }
+
+    public boolean isJson() {
+        return contentType.equals(JSON_CONTENT_TYPE);
+    }
+
+}
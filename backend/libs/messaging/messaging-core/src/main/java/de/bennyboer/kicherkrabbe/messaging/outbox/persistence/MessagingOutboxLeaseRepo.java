@@ -0,0 +1,44 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.persistence;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxInstanceId;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface MessagingOutboxLeaseRepo {
+
+    /**
+     * Register the given instance as alive until the given date.
+     */
+    Mono<Void> heartbeat(MessagingOutboxInstanceId instanceId, Instant aliveUntil);
+
+    /**
+     * Find all instances that are alive at the given date.
+     */
+    Flux<MessagingOutboxInstanceId> findAliveInstances(Instant now);
+
+    /**
+     * Remove the given instance, for example when it is shut down.
+     */
+    Mono<Void> unregister(MessagingOutboxInstanceId instanceId);
+
+    /**
+     * Acquire or renew the lease on the given partition. Succeeds if the partition is not leased yet, the current
+     * lease expired before the given date or the lease is already held by the given instance.
+     * Must be atomic, so that at most one instance holds a lease on a partition at any time.
+     */
+    Mono<Boolean> tryAcquire(
+            MessagingOutboxPartition partition,
+            MessagingOutboxInstanceId instanceId,
+            Instant now,
+            Instant expiresAt
+    );
+
+    /**
+     * Release the lease on the given partition if it is held by the given instance.
+     */
+    Mono<Void> release(MessagingOutboxPartition partition, MessagingOutboxInstanceId instanceId);
+
+}
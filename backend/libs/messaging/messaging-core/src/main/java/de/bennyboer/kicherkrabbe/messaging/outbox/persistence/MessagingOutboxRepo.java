@@ -1,7 +1,9 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox.persistence;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -23,26 +25,35 @@ public interface MessagingOutboxRepo {
     Mono<Void> insert(Collection<MessagingOutboxEntry> entries);
 
     /**
-     * Lock the next n publishable entries with the given lock. This is used to ensure that we don't publish the same
-     * entry multiple times. Use in connection with {@link #findLockedEntries(MessagingOutboxEntryLock)}  to find the
-     * locked entries (for example for publishing and unlocking them).
+     * Mark the entries with the given IDs as acknowledged using a single write.
      */
-    Mono<Void> lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock);
+    Mono<Void> acknowledgeAll(Collection<MessagingOutboxEntryId> ids, Instant acknowledgedAt);
 
-    Flux<MessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock);
+    /**
+     * Mark publishing the entries with the given IDs as failed using a single write.
+     * Entries that may still be retried are unlocked and their retry count is incremented,
+     * entries that reached the maximum retry count are marked as failed at the given date.
+     */
+    Mono<Void> markFailed(Collection<MessagingOutboxEntryId> ids, Instant failedAt);
 
     /**
-     * For some reason entries might have been locked (e. g. the service crashed). This method should be called
-     * periodically to unlock entries that have been locked for too long.
+     * Claim the next n publishable entries of the given partition (sorted by creation date and sequence) with the
+     * given lock and return them. Claiming must be atomic per entry, so that concurrent publishers never claim the
+     * same entry. An entry that has been retried before is claimed alone and ends the batch, so that later entries of
+     * the partition are held back until it has been delivered or parked.
      */
-    Mono<Void> unlockEntriesOlderThan(Instant date);
+    Flux<MessagingOutboxEntry> claimNextPublishableEntries(
+            MessagingOutboxPartition partition,
+            MessagingOutboxEntryLock lock,
+            int maxEntries,
+            Clock clock
+    );
 
     /**
-     * We don't want the repository to grow indefinitely. This method should be called periodically to remove old
-     * entries
-     * that have been acknowledged.
+     * For some reason entries might have been locked (e. g. the service crashed). This method should be called
+     * periodically to unlock entries that have been locked for too long.
      */
-    Mono<Void> removeAcknowledgedEntriesOlderThan(Instant date);
+    Mono<Void> unlockEntriesOlderThan(Instant date);
 
     Flux<MessagingOutboxEntry> findFailedEntriesOlderThan(Instant date);
     
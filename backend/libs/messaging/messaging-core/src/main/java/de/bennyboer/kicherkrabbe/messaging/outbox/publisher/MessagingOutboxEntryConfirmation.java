@@ -0,0 +1,34 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.publisher;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Outcome of publishing a single outbox entry.
+ * An acknowledged entry has been accepted by the broker, otherwise it has been rejected or could not be routed.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessagingOutboxEntryConfirmation {
+
+    MessagingOutboxEntryId entryId;
+
+    boolean acknowledged;
+
+    public static MessagingOutboxEntryConfirmation acknowledged(MessagingOutboxEntryId entryId) {
+        notNull(entryId, "Entry ID must be given");
+
+        return new MessagingOutboxEntryConfirmation(entryId, true);
+    }
+
+    public static MessagingOutboxEntryConfirmation rejected(MessagingOutboxEntryId entryId) {
+        notNull(entryId, "Entry ID must be given");
+
+        return new MessagingOutboxEntryConfirmation(entryId, false);
+    }
+
+}
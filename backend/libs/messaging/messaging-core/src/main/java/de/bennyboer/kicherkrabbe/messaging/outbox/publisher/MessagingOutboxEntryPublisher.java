@@ -1,6 +1,7 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox.publisher;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collection;
@@ -9,4 +10,15 @@ public interface MessagingOutboxEntryPublisher {
 
     Mono<Void> publishAll(Collection<MessagingOutboxEntry> entries);
 
+    /**
+     * Publish the given entries and emit a confirmation per entry as soon as its outcome is known.
+     * By default all entries are acknowledged together once publishing all of them succeeded.
+     * Entries may be sent before earlier entries are confirmed, so a rejected entry does not hold back later ones.
+     */
+    default Flux<MessagingOutboxEntryConfirmation> publishEach(Collection<MessagingOutboxEntry> entries) {
+        return publishAll(entries)
+                .thenMany(Flux.fromIterable(entries))
+                .map(entry -> MessagingOutboxEntryConfirmation.acknowledged(entry.getId()));
+    }
+
 }
@@ -3,9 +3,11 @@ package de.bennyboer.kicherkrabbe.messaging.inbox;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.IncomingMessageAlreadySeenException;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.inmemory.InMemoryMessagingInboxRepo;
 import de.bennyboer.kicherkrabbe.testing.time.TestClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -16,7 +18,9 @@ public class MessagingInboxTests {
 
     private final TestClock clock = new TestClock();
 
-    private final MessagingInbox inbox = new MessagingInbox(repo, clock);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MessagingInbox inbox = new MessagingInbox(repo, clock, 100, registry);
 
     @Test
     void shouldAddMessageToInbox() {
@@ -47,4 +51,34 @@ public class MessagingInboxTests {
         );
     }
 
+    @Test
+    void shouldRememberRecentlySeenMessagesPerListener() {
+        // given: a message that has not been seen yet
+        var messageId = IncomingMessageId.of("TEST");
+
+        // when: checking whether the message was recently seen; then: it was not
+        assertThat(inbox.isRecentlySeen("listener", messageId)).isFalse();
+
+        // when: marking the message as recently seen by the listener
+        inbox.markRecentlySeen("listener", messageId);
+
+        // then: the message was recently seen by the listener
+        assertThat(inbox.isRecentlySeen("listener", messageId)).isTrue();
+
+        // and: not by another listener
+        assertThat(inbox.isRecentlySeen("other-listener", messageId)).isFalse();
+    }
+
+    @Test
+    void shouldUpdateSize() {
+        // given: some messages in the inbox
+        inbox.addMessages(List.of(IncomingMessageId.of("TEST1"), IncomingMessageId.of("TEST2"))).block();
+
+        // when: updating the size
+        inbox.updateSize().block();
+
+        // then: the size is reported as metric
+        assertThat(registry.get("messaging.inbox.size").gauge().value()).isEqualTo(2.0);
+    }
+
 }
@@ -52,6 +52,45 @@ public abstract class MessagingInboxRepoTests {
         insert(msg2);
     }
 
+    @Test
+    void shouldInsertMultipleMessagesAtOnce() {
+        // given: some incoming messages
+        var msg1 = IncomingMessage.of(IncomingMessageId.of("TEST1"), Instant.parse("2023-02-22T11:15:00Z"));
+        var msg2 = IncomingMessage.of(IncomingMessageId.of("TEST2"), Instant.parse("2023-02-22T11:15:00Z"));
+
+        // when: inserting the messages at once
+        repo.insertAll(List.of(msg1, msg2)).block();
+
+        // then: the messages are stored
+        var entries = findAll();
+        assertThat(entries).containsExactlyInAnyOrder(msg1, msg2);
+    }
+
+    @Test
+    void shouldRaiseErrorWhenTryingToInsertMultipleMessagesOfWhichOneIsAlreadyThere() {
+        // given: an incoming message that is already stored
+        var msg = IncomingMessage.of(IncomingMessageId.of("TEST"), Instant.now());
+        insert(msg);
+
+        // when: trying to insert a batch containing the same message, then: an error is raised
+        var msg2 = IncomingMessage.of(IncomingMessageId.of("TEST2"), Instant.now());
+        assertThatThrownBy(() -> repo.insertAll(List.of(msg2, msg)).block())
+                .matches(e -> e.getCause() instanceof IncomingMessageAlreadySeenException);
+    }
+
+    @Test
+    void shouldCountMessages() {
+        // given: some incoming messages
+        insert(IncomingMessage.of(IncomingMessageId.of("TEST1"), Instant.now()));
+        insert(IncomingMessage.of(IncomingMessageId.of("TEST2"), Instant.now()));
+
+        // when: counting the messages
+        var count = repo.count().block();
+
+        // then: both messages are counted
+        assertThat(count).isEqualTo(2);
+    }
+
     private void insert(IncomingMessage message) {
         repo.insert(message).block();
     }
@@ -3,6 +3,7 @@ package de.bennyboer.kicherkrabbe.messaging.listener;
 import de.bennyboer.kicherkrabbe.messaging.inbox.MessagingInbox;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.inmemory.InMemoryMessagingInboxRepo;
 import de.bennyboer.kicherkrabbe.persistence.MockReactiveTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
@@ -21,6 +22,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -30,11 +32,11 @@ class MessageListenerConcurrencyLimiterTests {
 
     MessagingInbox inbox = new MessagingInbox(new InMemoryMessagingInboxRepo(false), Clock.systemUTC());
 
-    List<MessageListener> listeners = new ArrayList<>();
+    List<MessageListener<?>> listeners = new ArrayList<>();
 
     @AfterEach
     void tearDown() {
-        for (MessageListener listener : listeners) {
+        for (MessageListener<?> listener : listeners) {
             listener.destroy();
         }
         listeners.clear();
@@ -56,12 +58,13 @@ class MessageListenerConcurrencyLimiterTests {
             Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
             sinks.add(sink);
 
-            var listener = new MessageListener(
-                    transactionManager,
-                    inbox,
-                    sink::asFlux,
-                    "concurrency-listener-" + i,
-                    message -> Mono.fromCallable(() -> {
+            var listener = MessageListener.<Message>builder()
+                    .transactionManager(transactionManager)
+                    .inbox(inbox)
+                    .deliveries(sink::asFlux)
+                    .name("concurrency-listener-" + i)
+                    .decoder(Function.identity())
+                    .handler(message -> Mono.fromCallable(() -> {
                         int concurrent = currentConcurrent.incrementAndGet();
                         maxConcurrent.updateAndGet(current -> Math.max(current, concurrent));
 
@@ -70,9 +73,9 @@ class MessageListenerConcurrencyLimiterTests {
                         currentConcurrent.decrementAndGet();
                         allProcessedLatch.countDown();
                         return null;
-                    }),
-                    limiter
-            );
+                    }))
+                    .concurrencyLimiter(limiter)
+                    .build();
             listeners.add(listener);
             listener.start();
         }
@@ -103,18 +106,19 @@ class MessageListenerConcurrencyLimiterTests {
         var handlerCalled = new AtomicBoolean(false);
 
         Sinks.Many<AcknowledgableMessage> blockingSink = Sinks.many().unicast().onBackpressureBuffer();
-        var blockingListener = new MessageListener(
-                transactionManager,
-                inbox,
-                blockingSink::asFlux,
-                "blocking-listener",
-                message -> Mono.fromCallable(() -> {
+        var blockingListener = MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(blockingSink::asFlux)
+                .name("blocking-listener")
+                .decoder(Function.identity())
+                .handler(message -> Mono.fromCallable(() -> {
                     blockingStarted.countDown();
                     blockingLatch.await(60, TimeUnit.SECONDS);
                     return null;
-                }),
-                limiter
-        );
+                }))
+                .concurrencyLimiter(limiter)
+                .build();
         listeners.add(blockingListener);
         blockingListener.start();
 
@@ -126,17 +130,18 @@ class MessageListenerConcurrencyLimiterTests {
         assertThat(started).isTrue();
 
         Sinks.Many<AcknowledgableMessage> timeoutSink = Sinks.many().unicast().onBackpressureBuffer();
-        var timeoutListener = new MessageListener(
-                transactionManager,
-                inbox,
-                timeoutSink::asFlux,
-                "timeout-listener",
-                message -> {
+        var timeoutListener = MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(timeoutSink::asFlux)
+                .name("timeout-listener")
+                .decoder(Function.identity())
+                .handler(message -> {
                     handlerCalled.set(true);
                     return Mono.empty();
-                },
-                limiter
-        );
+                })
+                .concurrencyLimiter(limiter)
+                .build();
         listeners.add(timeoutListener);
         timeoutListener.start();
 
@@ -151,6 +156,76 @@ class MessageListenerConcurrencyLimiterTests {
         blockingLatch.countDown();
     }
 
+    @Test
+    void shouldGrantReservedPermitEvenIfSharedPoolIsExhausted() {
+        var limiter = new MessageListenerConcurrencyLimiter(1, 1, Duration.ofMillis(200), new SimpleMeterRegistry());
+
+        // given: a listener holding its reserved permit and the whole shared pool
+        assertThat(limiter.tryAcquire("slow-listener").block()).isTrue();
+        assertThat(limiter.tryAcquire("slow-listener").block()).isTrue();
+
+        // when: another listener tries to acquire a permit
+        var acquired = limiter.tryAcquire("other-listener").block();
+
+        // then: the permit is granted from its reserved quota
+        assertThat(acquired).isTrue();
+
+        // and: the slow listener cannot acquire any further permit
+        assertThat(limiter.tryAcquire("slow-listener").block()).isFalse();
+    }
+
+    @Test
+    void shouldGrantFreedSharedPermitToListenerWithFewestPermitsInUse() throws Exception {
+        var limiter = new MessageListenerConcurrencyLimiter(0, 2, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+        // given: a listener holding the whole shared pool
+        assertThat(limiter.tryAcquire("busy-listener").block()).isTrue();
+        assertThat(limiter.tryAcquire("busy-listener").block()).isTrue();
+
+        // and: the busy listener waits for another permit before a second listener does
+        var busyListenerRequest = limiter.tryAcquire("busy-listener").toFuture();
+        var otherListenerRequest = limiter.tryAcquire("other-listener").toFuture();
+
+        // when: the busy listener releases a permit
+        limiter.release("busy-listener");
+
+        // then: the permit is granted to the listener that holds no permit yet
+        assertThat(otherListenerRequest.get(1, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(busyListenerRequest.isDone()).isFalse();
+
+        // when: the busy listener releases another permit
+        limiter.release("busy-listener");
+
+        // then: the waiting request of the busy listener is served
+        assertThat(busyListenerRequest.get(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldCountRejectedPermitRequestsPerListener() {
+        var registry = new SimpleMeterRegistry();
+        var limiter = new MessageListenerConcurrencyLimiter(0, 1, Duration.ofMillis(100), registry);
+
+        // given: the only permit is held by a listener
+        assertThat(limiter.tryAcquire("holding-listener").block()).isTrue();
+
+        // when: another listener tries to acquire a permit
+        var acquired = limiter.tryAcquire("waiting-listener").block();
+
+        // then: the request is rejected after the timeout
+        assertThat(acquired).isFalse();
+
+        // and: the rejection and the wait times are recorded per listener
+        assertThat(registry.get("messaging.listener.permits.rejected")
+                .tag("listener", "waiting-listener")
+                .counter()
+                .count()).isEqualTo(1.0);
+        assertThat(registry.get("messaging.listener.permits.wait")
+                .tag("listener", "holding-listener")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
     private void emitAsync(Sinks.Many<AcknowledgableMessage> sink) {
         CompletableFuture.runAsync(() -> emit(sink));
     }
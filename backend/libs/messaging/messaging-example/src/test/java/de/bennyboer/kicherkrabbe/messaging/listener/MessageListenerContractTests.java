@@ -24,6 +24,8 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -38,13 +40,13 @@ abstract class MessageListenerContractTests {
     @Autowired
     ReactiveTransactionManager transactionManager;
 
-    List<MessageListener> listeners = new ArrayList<>();
+    List<MessageListener<?>> listeners = new ArrayList<>();
 
     List<Disposable> disposables = new ArrayList<>();
 
     @AfterEach
     void tearDown() {
-        for (MessageListener listener : listeners) {
+        for (MessageListener<?> listener : listeners) {
             listener.destroy();
         }
         listeners.clear();
@@ -254,6 +256,179 @@ abstract class MessageListenerContractTests {
         assertThat(processedMessages.stream().noneMatch(m -> m.contains("\"index\":2"))).isTrue();
     }
 
+    @Test
+    void shouldCoalesceMessagesWithSameKeyIntoSingleHandlerInvocation() throws InterruptedException {
+        var exchange = ExchangeTarget.of("contract-test-exchange-coalescing");
+        var routingKey = RoutingKey.parse("test.coalescing.key");
+
+        var handledMessages = Collections.synchronizedList(new ArrayList<String>());
+        var latch = new CountDownLatch(2);
+
+        MessageCoalescing<Message> coalescing = MessageCoalescing.of(
+                Duration.ofSeconds(2),
+                10,
+                message -> readField(message, "\"key\":\"(\\w+)\""),
+                message -> Long.parseLong(readField(message, "\"version\":(\\d+)"))
+        );
+        var listener = factory.createCoalescingListener(
+                exchange,
+                routingKey,
+                "contract-coalescing-listener",
+                Function.identity(),
+                coalescing,
+                message -> {
+                    handledMessages.add(new String(message.getBody(), StandardCharsets.UTF_8));
+                    latch.countDown();
+                    return Mono.empty();
+                }
+        );
+        listeners.add(listener);
+        listener.start();
+
+        send(exchange, routingKey, Map.of("key", "A", "version", 1));
+        send(exchange, routingKey, Map.of("key", "A", "version", 2));
+        send(exchange, routingKey, Map.of("key", "B", "version", 1));
+        send(exchange, routingKey, Map.of("key", "A", "version", 3));
+
+        boolean received = latch.await(15, TimeUnit.SECONDS);
+        Thread.sleep(500);
+
+        assertThat(received).isTrue();
+        assertThat(handledMessages).hasSize(2);
+        assertThat(handledMessages.stream().anyMatch(m -> m.contains("\"key\":\"A\"") && m.contains("\"version\":3")))
+                .isTrue();
+        assertThat(handledMessages.stream().anyMatch(m -> m.contains("\"key\":\"B\"") && m.contains("\"version\":1")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldHandleMessagesWithDifferentKeysInParallelAndSameKeyInOrder() throws InterruptedException {
+        var exchange = ExchangeTarget.of("contract-test-exchange-concurrent");
+        var routingKey = RoutingKey.parse("test.concurrent.key");
+
+        var handledMessages = Collections.synchronizedList(new ArrayList<String>());
+        var otherKeyHandled = new CountDownLatch(1);
+        var latch = new CountDownLatch(3);
+
+        MessageConcurrency<Message> concurrency = MessageConcurrency.of(4, message -> readField(message, "\"key\":\"(\\w+)\""));
+        var listener = factory.createConcurrentListener(
+                exchange,
+                routingKey,
+                "contract-concurrent-listener",
+                Function.identity(),
+                concurrency,
+                message -> Mono.fromCallable(() -> {
+                    String key = readField(message, "\"key\":\"(\\w+)\"");
+                    String version = readField(message, "\"version\":(\\d+)");
+                    if (key.equals("A") && version.equals("1")) {
+                        otherKeyHandled.await(10, TimeUnit.SECONDS);
+                    }
+                    if (key.equals("B")) {
+                        otherKeyHandled.countDown();
+                    }
+
+                    handledMessages.add(key + version);
+                    latch.countDown();
+                    return null;
+                }).then()
+        );
+        listeners.add(listener);
+        listener.start();
+
+        send(exchange, routingKey, Map.of("key", "A", "version", 1));
+        send(exchange, routingKey, Map.of("key", "A", "version", 2));
+        send(exchange, routingKey, Map.of("key", "B", "version", 1));
+
+        boolean received = latch.await(15, TimeUnit.SECONDS);
+
+        assertThat(received).isTrue();
+        assertThat(handledMessages).containsExactly("B1", "A1", "A2");
+    }
+
+    @Test
+    void shouldHandleMessagesReceivedWithinWindowAsBatch() throws InterruptedException {
+        var exchange = ExchangeTarget.of("contract-test-exchange-batch");
+        var routingKey = RoutingKey.parse("test.batch.key");
+
+        var batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        var latch = new CountDownLatch(1);
+
+        var listener = factory.createBatchListener(
+                exchange,
+                routingKey,
+                "contract-batch-listener",
+                MessageBatching.of(10, Duration.ofSeconds(2)),
+                messages -> {
+                    batchSizes.add(messages.size());
+                    latch.countDown();
+                    return Mono.empty();
+                }
+        );
+        listeners.add(listener);
+        listener.start();
+
+        for (int i = 0; i < 4; i++) {
+            send(exchange, routingKey, Map.of("index", i));
+        }
+
+        boolean received = latch.await(15, TimeUnit.SECONDS);
+        Thread.sleep(500);
+
+        assertThat(received).isTrue();
+        assertThat(batchSizes).containsExactly(4);
+    }
+
+    @Test
+    void shouldHandleMessagesOfFailedBatchOneByOne() throws InterruptedException {
+        var exchange = ExchangeTarget.of("contract-test-exchange-batch-fallback");
+        var routingKey = RoutingKey.parse("test.batch.fallback.key");
+
+        var processedMessages = Collections.synchronizedList(new ArrayList<String>());
+        var latch = new CountDownLatch(2);
+
+        var listener = factory.createBatchListener(
+                exchange,
+                routingKey,
+                "contract-batch-fallback-listener",
+                MessageBatching.of(10, Duration.ofSeconds(2)),
+                messages -> {
+                    var bodies = messages.stream()
+                            .map(message -> new String(message.getBody(), StandardCharsets.UTF_8))
+                            .toList();
+                    if (bodies.stream().anyMatch(body -> body.contains("\"fail\":true"))) {
+                        return Mono.error(new RuntimeException("Simulated failure"));
+                    }
+
+                    processedMessages.addAll(bodies);
+                    bodies.forEach(body -> latch.countDown());
+                    return Mono.empty();
+                }
+        );
+        listeners.add(listener);
+        listener.start();
+
+        send(exchange, routingKey, Map.of("index", 1, "fail", false));
+        send(exchange, routingKey, Map.of("index", 2, "fail", true));
+        send(exchange, routingKey, Map.of("index", 3, "fail", false));
+
+        boolean allReceived = latch.await(20, TimeUnit.SECONDS);
+
+        assertThat(allReceived).isTrue();
+        assertThat(processedMessages).hasSize(2);
+        assertThat(processedMessages.stream().anyMatch(m -> m.contains("\"index\":1"))).isTrue();
+        assertThat(processedMessages.stream().anyMatch(m -> m.contains("\"index\":3"))).isTrue();
+    }
+
+    private String readField(Message message, String pattern) {
+        var body = new String(message.getBody(), StandardCharsets.UTF_8);
+        var matcher = Pattern.compile(pattern).matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Message does not match " + pattern);
+        }
+
+        return matcher.group(1);
+    }
+
     private void send(ExchangeTarget exchange, RoutingKey routingKey, Map<String, Object> payload) {
         var messageTarget = MessageTarget.exchange(exchange);
         var entry = MessagingOutboxEntry.create(messageTarget, routingKey, payload, Clock.systemUTC());
@@ -5,6 +5,7 @@ import de.bennyboer.kicherkrabbe.messaging.inbox.MessagingInbox;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.inmemory.InMemoryMessagingInboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutbox;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.RabbitOutboxEntryPublisher;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
@@ -59,7 +60,7 @@ public class RabbitMessageListenerTests {
 
     MessagingOutbox outbox;
 
-    List<MessageListener> listeners = new ArrayList<>();
+    List<MessageListener<?>> listeners = new ArrayList<>();
 
     MessageListenerContainerManager containerManager = new MessageListenerContainerManager();
 
@@ -71,7 +72,7 @@ public class RabbitMessageListenerTests {
 
     @AfterEach
     void tearDown() {
-        for (MessageListener listener : listeners) {
+        for (MessageListener<?> listener : listeners) {
             listener.destroy();
         }
         listeners.clear();
@@ -183,7 +184,41 @@ public class RabbitMessageListenerTests {
         assertThat(attemptCount.get()).isEqualTo(4);
     }
 
+    @Test
+    void shouldPublishSerializedPayloadAsIs() throws InterruptedException {
+        var exchange = ExchangeTarget.of("test-exchange-serialized");
+        var routingKey = RoutingKey.parse("test.serialized.key");
+        var listenerName = "test-serialized-listener";
+
+        var receivedMessages = new ArrayList<Message>();
+        var latch = new CountDownLatch(1);
+
+        var inboxRepo = new InMemoryMessagingInboxRepo(false);
+        var inbox = new MessagingInbox(inboxRepo, Clock.systemUTC());
+        var concurrencyLimiter = new MessageListenerConcurrencyLimiter(100);
+        var factory = new RabbitMessageListenerFactory(connectionFactory, rabbitAdmin, transactionManager, inbox, containerManager, concurrencyLimiter);
+        var listener = factory.createListener(exchange, routingKey, listenerName, message -> {
+            receivedMessages.add(message);
+            latch.countDown();
+            return Mono.empty();
+        });
+        listeners.add(listener);
+        listener.start();
+
+        byte[] body = "{\"test\":\"serialized\"}".getBytes(StandardCharsets.UTF_8);
+        send(exchange, routingKey, MessagingOutboxPayload.json(body));
+
+        boolean received = latch.await(10, TimeUnit.SECONDS);
+        assertThat(received).isTrue();
+        assertThat(receivedMessages.getFirst().getBody()).isEqualTo(body);
+        assertThat(receivedMessages.getFirst().getMessageProperties().getContentType()).isEqualTo("application/json");
+    }
+
     private void send(ExchangeTarget exchange, RoutingKey routingKey, Map<String, Object> payload) {
+        send(exchange, routingKey, MessagingOutboxPayload.structured(payload));
+    }
+
+    private void send(ExchangeTarget exchange, RoutingKey routingKey, MessagingOutboxPayload payload) {
         var messageTarget = MessageTarget.exchange(exchange);
         var entry = MessagingOutboxEntry.create(messageTarget, routingKey, payload, Clock.systemUTC());
         var transactionalOperator = TransactionalOperator.create(transactionManager);
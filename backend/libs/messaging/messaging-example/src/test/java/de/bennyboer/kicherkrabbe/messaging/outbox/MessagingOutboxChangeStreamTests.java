@@ -16,8 +16,11 @@ import reactor.util.retry.Retry;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -85,13 +88,22 @@ public class MessagingOutboxChangeStreamTests {
             }
 
             @Override
-            public Mono<Void> lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock) {
+            public Flux<MessagingOutboxEntry> claimNextPublishableEntries(
+                    MessagingOutboxPartition partition,
+                    MessagingOutboxEntryLock lock,
+                    int maxEntries,
+                    Clock clock
+            ) {
+                if (!partition.equals(MessagingOutboxPartition.of(0))) {
+                    return Flux.empty();
+                }
+
                 int attempt = lockAttempts.incrementAndGet();
                 if (attempt <= 2) {
-                    return Mono.error(new RuntimeException("Simulated DB failure #" + attempt));
+                    return Flux.error(new RuntimeException("Simulated DB failure #" + attempt));
                 }
                 successLatch.countDown();
-                return Mono.empty();
+                return Flux.empty();
             }
         };
 
@@ -165,6 +177,7 @@ public class MessagingOutboxChangeStreamTests {
 
         for (int i = 0; i < expectedPublishes; i++) {
             var entry = MessagingOutboxEntry.create(target, routingKey, Map.of("i", i), Clock.systemUTC());
+            repo.publishable.add(entry);
             insertSink.tryEmitNext(entry);
             Thread.sleep(50);
         }
@@ -208,6 +221,7 @@ public class MessagingOutboxChangeStreamTests {
 
         for (int i = 1; i <= 3; i++) {
             var entry = MessagingOutboxEntry.create(target, routingKey, Map.of("n", i), Clock.systemUTC());
+            repo.publishable.add(entry);
             insertSink.tryEmitNext(entry);
             Thread.sleep(100);
         }
@@ -228,6 +242,9 @@ public class MessagingOutboxChangeStreamTests {
     }
 
     private static class FakeMessagingOutboxRepo implements MessagingOutboxRepo {
+
+        final Queue<MessagingOutboxEntry> publishable = new ConcurrentLinkedQueue<>();
+
         @Override
         public Mono<Void> save(Collection<MessagingOutboxEntry> entries) {
             return Mono.empty();
@@ -239,22 +256,34 @@ public class MessagingOutboxChangeStreamTests {
         }
 
         @Override
-        public Mono<Void> lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock) {
+        public Mono<Void> acknowledgeAll(Collection<MessagingOutboxEntryId> ids, Instant acknowledgedAt) {
             return Mono.empty();
         }
 
         @Override
-        public Flux<MessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock) {
-            return Flux.empty();
+        public Mono<Void> markFailed(Collection<MessagingOutboxEntryId> ids, Instant failedAt) {
+            return Mono.empty();
         }
 
         @Override
-        public Mono<Void> unlockEntriesOlderThan(Instant date) {
-            return Mono.empty();
+        public Flux<MessagingOutboxEntry> claimNextPublishableEntries(
+                MessagingOutboxPartition partition,
+                MessagingOutboxEntryLock lock,
+                int maxEntries,
+                Clock clock
+        ) {
+            return Flux.defer(() -> {
+                var claimed = new ArrayList<MessagingOutboxEntry>();
+                MessagingOutboxEntry entry;
+                while (claimed.size() < maxEntries && (entry = publishable.poll()) != null) {
+                    claimed.add(entry.lock(lock, clock));
+                }
+                return Flux.fromIterable(claimed);
+            });
         }
 
         @Override
-        public Mono<Void> removeAcknowledgedEntriesOlderThan(Instant date) {
+        public Mono<Void> unlockEntriesOlderThan(Instant date) {
             return Mono.empty();
         }
 
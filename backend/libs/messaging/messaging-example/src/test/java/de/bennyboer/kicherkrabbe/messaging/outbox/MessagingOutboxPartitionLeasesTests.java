@@ -0,0 +1,89 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxLeaseRepo;
+import de.bennyboer.kicherkrabbe.testing.time.TestClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessagingOutboxPartitionLeasesTests {
+
+    private final InMemoryMessagingOutboxLeaseRepo repo = new InMemoryMessagingOutboxLeaseRepo();
+
+    private final TestClock clock = new TestClock();
+
+    private final Duration leaseDuration = Duration.ofSeconds(30);
+
+    @Test
+    void shouldAcquireAllPartitionsAsSingleInstance() {
+        clock.setNow(Instant.parse("2024-03-12T10:00:00Z"));
+
+        // given: a single instance
+        var leases = new MessagingOutboxPartitionLeases(repo, leaseDuration, clock);
+
+        // when: sending a heartbeat
+        leases.heartbeat().block();
+
+        // then: the instance owns all partitions
+        assertThat(leases.getOwnedPartitions()).containsExactlyElementsOf(MessagingOutboxPartition.all());
+    }
+
+    @Test
+    void shouldSplitPartitionsBetweenInstances() {
+        // given: a first instance owning all partitions
+        clock.setNow(Instant.parse("2024-03-12T10:00:00Z"));
+        var first = new MessagingOutboxPartitionLeases(repo, leaseDuration, clock);
+        first.heartbeat().block();
+
+        // when: a second instance joins
+        var second = new MessagingOutboxPartitionLeases(repo, leaseDuration, clock);
+        second.heartbeat().block();
+
+        // then: the second instance does not own any partition yet
+        assertThat(second.getOwnedPartitions()).isEmpty();
+
+        // when: the first instance sends its next heartbeat
+        clock.setNow(Instant.parse("2024-03-12T10:00:10Z"));
+        first.heartbeat().block();
+        second.heartbeat().block();
+
+        // then: the first instance only publishes its fair share
+        assertThat(first.getOwnedPartitions()).hasSize(MessagingOutboxPartition.COUNT / 2);
+
+        // when: the handed over leases expired
+        clock.setNow(Instant.parse("2024-03-12T10:00:20Z"));
+        first.heartbeat().block();
+        second.heartbeat().block();
+        clock.setNow(Instant.parse("2024-03-12T10:00:31Z"));
+        first.heartbeat().block();
+        second.heartbeat().block();
+
+        // then: each instance owns half of the partitions
+        assertThat(first.getOwnedPartitions()).hasSize(MessagingOutboxPartition.COUNT / 2);
+        assertThat(second.getOwnedPartitions()).hasSize(MessagingOutboxPartition.COUNT / 2);
+        assertThat(first.getOwnedPartitions()).doesNotContainAnyElementsOf(second.getOwnedPartitions());
+    }
+
+    @Test
+    void shouldTakeOverPartitionsOfInstanceThatStoppedRenewing() {
+        // given: a first instance owning all partitions
+        clock.setNow(Instant.parse("2024-03-12T10:00:00Z"));
+        var first = new MessagingOutboxPartitionLeases(repo, leaseDuration, clock);
+        first.heartbeat().block();
+
+        // when: the first instance stops sending heartbeats and the leases expired
+        clock.setNow(Instant.parse("2024-03-12T10:00:31Z"));
+        var second = new MessagingOutboxPartitionLeases(repo, leaseDuration, clock);
+        second.heartbeat().block();
+
+        // then: the second instance owns all partitions
+        assertThat(second.getOwnedPartitions()).containsExactlyElementsOf(MessagingOutboxPartition.all());
+
+        // and: the first instance no longer considers any partition as owned
+        assertThat(first.getOwnedPartitions()).isEmpty();
+    }
+
+}
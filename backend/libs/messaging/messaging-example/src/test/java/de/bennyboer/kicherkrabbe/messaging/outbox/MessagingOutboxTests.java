@@ -3,6 +3,8 @@ package de.bennyboer.kicherkrabbe.messaging.outbox;
 import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.LoggingMessagingOutboxEntryPublisher;
+import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryConfirmation;
+import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryPublisher;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
 import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
 import de.bennyboer.kicherkrabbe.persistence.MockReactiveTransactionManager;
@@ -10,11 +12,15 @@ import de.bennyboer.kicherkrabbe.testing.time.TestClock;
 import org.junit.jupiter.api.Test;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -65,11 +71,11 @@ public class MessagingOutboxTests {
 
     @Test
     void shouldInsertEntries() {
-        // given: entries to insert
+        // given: entries of the same partition to insert
         clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, "test-aggregate", payload, clock);
         clock.setNow(Instant.parse("2022-05-17T10:30:01Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, "test-aggregate", payload, clock);
 
         // when: inserting the entries
         insert(entry1, entry2);
@@ -90,6 +96,148 @@ public class MessagingOutboxTests {
         assertThat(publishedEntryIds).containsExactly(entry2.getId(), entry1.getId());
     }
 
+    @Test
+    void shouldPublishAllEntriesOfBacklogInBatches() {
+        // given: more entries than fit into a single batch
+        clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
+        var entries = new MessagingOutboxEntry[5];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        }
+        insert(entries);
+
+        // when: trying to publish the next publishable entries once
+        publishNextUnpublishedEntries();
+
+        // then: the whole backlog has been published
+        var publishedEntries = publisher.getEntries();
+        assertThat(publishedEntries.size()).isEqualTo(5);
+
+        // and: all entries are acknowledged
+        var updatedEntries = repo.findAll().collectList().block();
+        assertThat(updatedEntries).allMatch(entry -> entry.getAcknowledgedAt().isPresent());
+    }
+
+    @Test
+    void shouldAcknowledgeConfirmedEntriesAndResetRejectedEntries() {
+        // given: two entries to insert
+        clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
+        var confirmedEntry = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var rejectedEntry = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+
+        // and: a publisher that gets the second entry rejected by the broker
+        var outboxWithRejectingPublisher = new MessagingOutbox(repo, new MessagingOutboxEntryPublisher() {
+            @Override
+            public Mono<Void> publishAll(Collection<MessagingOutboxEntry> entries) {
+                return Mono.error(new UnsupportedOperationException());
+            }
+
+            @Override
+            public Flux<MessagingOutboxEntryConfirmation> publishEach(Collection<MessagingOutboxEntry> entries) {
+                return Flux.fromIterable(entries)
+                        .map(entry -> entry.getId().equals(rejectedEntry.getId())
+                                ? MessagingOutboxEntryConfirmation.rejected(entry.getId())
+                                : MessagingOutboxEntryConfirmation.acknowledged(entry.getId()));
+            }
+        }, 2, clock);
+
+        // when: the entries are inserted and published
+        insertWithTransaction(outboxWithRejectingPublisher, confirmedEntry, rejectedEntry);
+        outboxWithRejectingPublisher.publishNextUnpublishedEntries().block();
+
+        // then: the confirmed entry is acknowledged
+        var updatedConfirmedEntry = findEntry(confirmedEntry.getId());
+        assertThat(updatedConfirmedEntry.getAcknowledgedAt()).isPresent();
+
+        // and: the rejected entry is unlocked to be retried
+        var updatedRejectedEntry = findEntry(rejectedEntry.getId());
+        assertThat(updatedRejectedEntry.getAcknowledgedAt()).isEmpty();
+        assertThat(updatedRejectedEntry.isLocked()).isFalse();
+        assertThat(updatedRejectedEntry.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldHoldBackPartitionUntilRejectedEntryIsDelivered() {
+        // given: some entries of the same partition
+        clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
+        var entries = new MessagingOutboxEntry[4];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = MessagingOutboxEntry.create(target, routingKey, "test-aggregate", payload, clock);
+        }
+        var rejectedEntry = entries[0];
+
+        // and: a publisher that gets the first entry rejected by the broker once
+        List<MessagingOutboxEntryId> publishedIds = new ArrayList<>();
+        var rejections = new AtomicInteger();
+        var outboxWithRejectingPublisher = new MessagingOutbox(repo, new MessagingOutboxEntryPublisher() {
+            @Override
+            public Mono<Void> publishAll(Collection<MessagingOutboxEntry> entries) {
+                return Mono.error(new UnsupportedOperationException());
+            }
+
+            @Override
+            public Flux<MessagingOutboxEntryConfirmation> publishEach(Collection<MessagingOutboxEntry> entries) {
+                return Flux.fromIterable(entries)
+                        .doOnNext(entry -> publishedIds.add(entry.getId()))
+                        .map(entry -> entry.getId().equals(rejectedEntry.getId()) && rejections.getAndIncrement() == 0
+                                ? MessagingOutboxEntryConfirmation.rejected(entry.getId())
+                                : MessagingOutboxEntryConfirmation.acknowledged(entry.getId()));
+            }
+        }, 2, clock);
+        insertWithTransaction(outboxWithRejectingPublisher, entries);
+
+        // when: publishing the entries
+        outboxWithRejectingPublisher.publishNextUnpublishedEntries().block();
+
+        // then: the drain of the partition stopped after the batch with the rejected entry
+        assertThat(publishedIds).containsExactly(entries[0].getId(), entries[1].getId());
+        assertThat(findEntry(entries[2].getId()).getAcknowledgedAt()).isEmpty();
+        assertThat(findEntry(entries[3].getId()).getAcknowledgedAt()).isEmpty();
+
+        // when: publishing again
+        publishedIds.clear();
+        outboxWithRejectingPublisher.publishNextUnpublishedEntries().block();
+
+        // then: the rejected entry has been retried on its own before the remaining entries
+        assertThat(publishedIds).containsExactly(entries[0].getId(), entries[2].getId(), entries[3].getId());
+        assertThat(repo.findAll().collectList().block()).allMatch(entry -> entry.getAcknowledgedAt().isPresent());
+    }
+
+    @Test
+    void shouldOnlyPublishEntriesOfOwnedPartitions() {
+        // given: an outbox that only owns the partition of a specific aggregate
+        var ownedPartition = MessagingOutboxPartition.forKey("owned-aggregate");
+        var partialOutbox = new MessagingOutbox(repo, publisher, 2, clock, new MessagingOutboxPartitionOwnership() {
+            @Override
+            public List<MessagingOutboxPartition> getOwnedPartitions() {
+                return List.of(ownedPartition);
+            }
+
+            @Override
+            public boolean isOwned(MessagingOutboxPartition partition) {
+                return partition.equals(ownedPartition);
+            }
+        });
+
+        // and: an entry of the owned partition and an entry of another partition
+        clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
+        var ownedEntry = MessagingOutboxEntry.create(target, routingKey, "owned-aggregate", payload, clock);
+        var otherKey = "other-aggregate";
+        for (int i = 0; MessagingOutboxPartition.forKey(otherKey).equals(ownedPartition); i++) {
+            otherKey = "other-aggregate-" + i;
+        }
+        var otherEntry = MessagingOutboxEntry.create(target, routingKey, otherKey, payload, clock);
+        insertWithTransaction(partialOutbox, ownedEntry, otherEntry);
+
+        // when: publishing the next publishable entries
+        partialOutbox.publishNextUnpublishedEntries().block();
+
+        // then: only the entry of the owned partition has been published
+        var publishedEntryIds = publisher.getEntries().stream().map(MessagingOutboxEntry::getId).toList();
+        assertThat(publishedEntryIds).containsExactly(ownedEntry.getId());
+        assertThat(findEntry(otherEntry.getId()).getAcknowledgedAt()).isEmpty();
+    }
+
     @Test
     void shouldFailWhenTryingToInsertWithoutActiveTransaction() {
         assertThatThrownBy(() -> outbox.insert(MessagingOutboxEntry.create(target, routingKey, payload, clock)).block())
@@ -222,38 +370,6 @@ public class MessagingOutboxTests {
         assertThat(updatedEntry.getLockedAt()).isEmpty();
     }
 
-    @Test
-    void shouldCleanupOldAcknowledgedEntriesAfter30Days() {
-        // when: an entry is inserted in the outbox
-        clock.setNow(Instant.parse("2022-05-17T12:30:00Z"));
-        var entry = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        insert(entry);
-
-        // and: the entry is published
-        publishNextUnpublishedEntries();
-
-        // then: the entry is acknowledged right away, as it is published
-        var entries = repo.findAll().collectList().block();
-        assertThat(entries.size()).isEqualTo(1);
-        var updatedEntry = entries.get(0);
-        assertThat(updatedEntry.getAcknowledgedAt()).isNotEmpty();
-
-        // when: trying to cleanup old acknowledged entries right away
-        cleanupOldAcknowledgedEntries();
-
-        // then: the entry is still in the outbox repo
-        entries = repo.findAll().collectList().block();
-        assertThat(entries.size()).isEqualTo(1);
-
-        // when: trying to cleanup old acknowledged entries after 30 days
-        clock.setNow(Instant.parse("2022-06-16T12:30:01Z"));
-        cleanupOldAcknowledgedEntries();
-
-        // then: the entry is not in the outbox repo anymore
-        entries = repo.findAll().collectList().block();
-        assertThat(entries.isEmpty()).isTrue();
-    }
-
     private void insert(MessagingOutboxEntry... entries) {
         insertWithTransaction(outbox, entries);
     }
@@ -266,8 +382,10 @@ public class MessagingOutboxTests {
         outbox.unlockStaleEntries().block();
     }
 
-    private void cleanupOldAcknowledgedEntries() {
-        outbox.cleanupOldAcknowledgedEntries().block();
+    private MessagingOutboxEntry findEntry(MessagingOutboxEntryId id) {
+        return repo.findAll()
+                .filter(entry -> entry.getId().equals(id))
+                .blockFirst();
     }
 
     private void insertWithTransaction(MessagingOutbox outbox, MessagingOutboxEntry... entries) {
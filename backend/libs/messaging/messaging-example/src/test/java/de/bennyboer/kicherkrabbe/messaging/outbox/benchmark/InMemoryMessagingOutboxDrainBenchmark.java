@@ -0,0 +1,23 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.benchmark;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxRepo;
+
+public class InMemoryMessagingOutboxDrainBenchmark extends MessagingOutboxDrainBenchmark {
+
+    private final InMemoryMessagingOutboxRepo repo = new InMemoryMessagingOutboxRepo();
+
+    @Override
+    protected MessagingOutboxRepo getRepo() {
+        return repo;
+    }
+
+    @Override
+    protected long countUnacknowledgedEntries() {
+        return repo.findAll()
+                .filter(entry -> entry.getAcknowledgedAt().isEmpty())
+                .count()
+                .block();
+    }
+
+}
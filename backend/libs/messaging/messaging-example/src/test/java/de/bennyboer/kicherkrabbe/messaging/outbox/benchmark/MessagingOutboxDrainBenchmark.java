@@ -0,0 +1,67 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.benchmark;
+
+import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutbox;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
+import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how many outbox entries per second can be claimed, published and acknowledged
+ * when draining a backlog with a publisher that does not do any I/O.
+ */
+public abstract class MessagingOutboxDrainBenchmark {
+
+    private static final int BACKLOG_SIZE = 5000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MessageTarget target = MessageTarget.exchange(ExchangeTarget.of("benchmark-exchange"));
+
+    private final RoutingKey routingKey = RoutingKey.parse("benchmark.key");
+
+    protected abstract MessagingOutboxRepo getRepo();
+
+    protected abstract long countUnacknowledgedEntries();
+
+    @Test
+    void shouldDrainBacklog() {
+        // given: a backlog of entries in the outbox
+        Clock clock = Clock.systemUTC();
+        List<MessagingOutboxEntry> entries = new ArrayList<>(BACKLOG_SIZE);
+        for (int i = 0; i < BACKLOG_SIZE; i++) {
+            entries.add(MessagingOutboxEntry.create(target, routingKey, Map.of("index", i), clock));
+        }
+        getRepo().insert(entries).block();
+
+        var outbox = new MessagingOutbox(getRepo(), published -> Mono.empty(), BATCH_SIZE, clock);
+
+        // when: draining the outbox
+        long startNanos = System.nanoTime();
+        outbox.publishNextUnpublishedEntries().block();
+        long endNanos = System.nanoTime();
+
+        // then: all entries have been acknowledged
+        assertThat(countUnacknowledgedEntries()).isZero();
+
+        double seconds = (endNanos - startNanos) / 1_000_000_000.0;
+        System.out.printf(
+                "%s drained %d outbox entries in %.2f s (%.0f entries/s)%n",
+                getClass().getSimpleName(),
+                BACKLOG_SIZE,
+                seconds,
+                BACKLOG_SIZE / seconds
+        );
+    }
+
+}
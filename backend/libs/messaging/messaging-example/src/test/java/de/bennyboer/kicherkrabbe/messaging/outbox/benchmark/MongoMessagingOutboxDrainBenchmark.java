@@ -0,0 +1,47 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.benchmark;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@MongoTest
+public class MongoMessagingOutboxDrainBenchmark extends MessagingOutboxDrainBenchmark {
+
+    private static final String COLLECTION = "outbox_drain_benchmark";
+
+    private final ReactiveMongoTemplate template;
+
+    private final MongoMessagingOutboxRepo repo;
+
+    @Autowired
+    public MongoMessagingOutboxDrainBenchmark(ReactiveMongoTemplate template) {
+        this.template = template;
+        this.repo = new MongoMessagingOutboxRepo(COLLECTION, template);
+    }
+
+    @BeforeEach
+    void clear() {
+        template.remove(MongoMessagingOutboxEntry.class)
+                .inCollection(COLLECTION)
+                .all()
+                .block();
+    }
+
+    @Override
+    protected MessagingOutboxRepo getRepo() {
+        return repo;
+    }
+
+    @Override
+    protected long countUnacknowledgedEntries() {
+        return template.count(query(where("acknowledgedAt").is(null)), COLLECTION).block();
+    }
+
+}
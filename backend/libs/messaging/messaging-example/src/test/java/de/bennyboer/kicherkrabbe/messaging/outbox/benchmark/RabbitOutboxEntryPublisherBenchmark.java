@@ -0,0 +1,95 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.benchmark;
+
+import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryConfirmation;
+import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.RabbitOutboxEntryPublisher;
+import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
+import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
+import de.bennyboer.kicherkrabbe.messaging.testing.RabbitMessagingTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how many outbox entries per second are published and confirmed by the test broker
+ * depending on how many confirms may be outstanding at the same time.
+ */
+@RabbitMessagingTest
+public class RabbitOutboxEntryPublisherBenchmark {
+
+    private static final int ENTRIES = 2000;
+
+    private final MessageTarget target = MessageTarget.exchange(ExchangeTarget.of("outbox-publisher-benchmark"));
+
+    private final RoutingKey routingKey = RoutingKey.parse("benchmark.key");
+
+    @Autowired
+    RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    RabbitAdmin rabbitAdmin;
+
+    @Autowired
+    JsonMapper jsonMapper;
+
+    @Test
+    void shouldPublishWithSingleOutstandingConfirm() {
+        runBenchmark(1);
+    }
+
+    @Test
+    void shouldPublishWithSmallSlidingWindow() {
+        runBenchmark(16);
+    }
+
+    @Test
+    void shouldPublishWithPipelinedConfirms() {
+        runBenchmark(256);
+    }
+
+    private void runBenchmark(int maxOutstandingConfirms) {
+        // given: a publisher allowing the given number of outstanding confirms
+        var publisher = new RabbitOutboxEntryPublisher(rabbitTemplate, rabbitAdmin, jsonMapper, maxOutstandingConfirms);
+
+        // and: some entries to publish
+        Clock clock = Clock.systemUTC();
+        List<MessagingOutboxEntry> entries = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(MessagingOutboxEntry.create(target, routingKey, Map.of("index", i), clock));
+        }
+
+        // and: the exchange has been declared upfront
+        publisher.publishAll(entries.subList(0, 1)).block();
+
+        // when: publishing all entries
+        long startNanos = System.nanoTime();
+        List<MessagingOutboxEntryConfirmation> confirmations = publisher.publishEach(entries)
+                .collectList()
+                .block();
+        long endNanos = System.nanoTime();
+
+        // then: all entries have been confirmed by the broker
+        assertThat(confirmations).hasSize(ENTRIES);
+        assertThat(confirmations).allMatch(MessagingOutboxEntryConfirmation::isAcknowledged);
+
+        double seconds = (endNanos - startNanos) / 1_000_000_000.0;
+        System.out.printf(
+                "Published %d outbox entries with %d outstanding confirms in %.2f s (%.0f entries/s)%n",
+                ENTRIES,
+                maxOutstandingConfirms,
+                seconds,
+                ENTRIES / seconds
+        );
+    }
+
+}
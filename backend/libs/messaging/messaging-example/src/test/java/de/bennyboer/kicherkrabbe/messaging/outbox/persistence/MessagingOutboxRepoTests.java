@@ -4,6 +4,8 @@ import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
 import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
 import de.bennyboer.kicherkrabbe.testing.time.TestClock;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.dao.DuplicateKeyException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.List;
@@ -31,6 +34,10 @@ public abstract class MessagingOutboxRepoTests {
 
     private final Map<String, Object> payload = Map.of("test", "value");
 
+    private final String partitionKey = "test-aggregate";
+
+    private final MessagingOutboxPartition partition = MessagingOutboxPartition.forKey(partitionKey);
+
     private final TestClock clock = new TestClock();
 
     protected abstract MessagingOutboxRepo createRepo();
@@ -47,8 +54,8 @@ public abstract class MessagingOutboxRepoTests {
         clock.setNow(Instant.parse("2023-08-13T13:45:00Z"));
 
         // given: some entries to save
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
 
         // when: saving the entries
         save(entry1, entry2);
@@ -64,8 +71,8 @@ public abstract class MessagingOutboxRepoTests {
         clock.setNow(Instant.parse("2023-08-13T13:45:00Z"));
 
         // given: some entries to insert
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
 
         // when: inserting the entries
         insert(entry1, entry2);
@@ -76,10 +83,31 @@ public abstract class MessagingOutboxRepoTests {
                 .containsExactlyInAnyOrder(entry1, entry2);
     }
 
+    @Test
+    void shouldInsertEntriesWithSerializedPayload() {
+        clock.setNow(Instant.parse("2023-08-13T13:45:00Z"));
+
+        // given: an entry with an already serialized payload
+        var serializedPayload = MessagingOutboxPayload.serialized(
+                "{\"test\":\"value\"}".getBytes(StandardCharsets.UTF_8),
+                "application/json"
+        );
+        var entry = MessagingOutboxEntry.create(target, routingKey, partitionKey, serializedPayload, clock);
+
+        // when: inserting the entry
+        insert(entry);
+
+        // then: the entry has been inserted with the serialized payload as is
+        var entries = findEntries();
+        assertThat(entries).containsExactly(entry);
+        assertThat(entries.getFirst().getPayload().getSerialized())
+                .hasValue("{\"test\":\"value\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     void shouldRaiseErrorWhenTryingToInsertEntryThatIsAlreadyThere() {
         // given: an entry
-        var entry = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         insert(entry);
 
         // when: trying to insert the same entry again, then: an error is raised
@@ -88,31 +116,35 @@ public abstract class MessagingOutboxRepoTests {
     }
 
     @Test
-    void shouldLockNextPublishableEntries() {
+    void shouldClaimNextPublishableEntries() {
         // given: some entries in the outbox
         clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T02:00:00Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T01:00:00Z"));
-        var entry3 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T00:30:00Z"));
-        var failedEntry = MessagingOutboxEntry.create(target, routingKey, payload, clock)
+        var failedEntry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock);
-        var acknowledgedEntry = MessagingOutboxEntry.create(target, routingKey, payload, clock)
+        var acknowledgedEntry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
                 .acknowledge(clock);
         save(entry1, entry2, entry3, failedEntry, acknowledgedEntry);
 
-        // when: locking the next 2 publishable entries
+        // when: claiming the next 2 publishable entries
         var lock = MessagingOutboxEntryLock.create();
-        lockNextPublishableEntries(lock, 2, clock);
+        var claimedEntries = claimNextPublishableEntries(lock, 2, clock);
+
+        // then: the next 2 publishable entries have been claimed (sorted by creation date)
+        assertThat(claimedEntries)
+                .containsExactly(findEntry(entry1.getId()), findEntry(entry3.getId()));
 
-        // then: the next 2 publishable entries have been locked (sorted by creation date)
+        // and: the claimed entries have been locked
         var updatedEntry1 = findEntry(entry1.getId());
         assertThat(updatedEntry1.isLocked()).isTrue();
         assertThat(updatedEntry1.getLock()).contains(lock);
@@ -127,52 +159,155 @@ public abstract class MessagingOutboxRepoTests {
     }
 
     @Test
-    void shouldFindLockedEntries() {
+    void shouldNotClaimEntriesThatHaveAlreadyBeenClaimed() {
         // given: some entries in the outbox
         clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T02:00:00Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T01:00:00Z"));
-        var entry3 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         save(entry1, entry2, entry3);
 
-        // and: locking the next publishable entries in two steps
-        var lock1 = MessagingOutboxEntryLock.create();
-        lockNextPublishableEntries(lock1, 1, clock);
+        // when: claiming the next publishable entries in two steps
+        var claimedEntries1 = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 1, clock);
+        var claimedEntries2 = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 5, clock);
 
-        var lock2 = MessagingOutboxEntryLock.create();
-        lockNextPublishableEntries(lock2, 2, clock);
+        // then: the first claim contains the oldest entry
+        assertThat(claimedEntries1)
+                .containsExactly(findEntry(entry1.getId()));
 
-        // when: finding the entries by the first lock
-        var lockedEntries1 = findLockedEntries(lock1);
+        // and: the second claim contains the remaining entries (sorted by creation date)
+        assertThat(claimedEntries2)
+                .containsExactly(findEntry(entry3.getId()), findEntry(entry2.getId()));
 
-        // then: the first publishable entry has been locked
-        assertThat(lockedEntries1)
-                .containsExactly(findEntry(entry1.getId()));
+        // when: claiming again
+        var claimedEntries3 = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 5, clock);
 
-        // when: finding the entries by the second lock
-        var lockedEntries2 = findLockedEntries(lock2);
+        // then: nothing is left to claim
+        assertThat(claimedEntries3).isEmpty();
+    }
 
-        // then: the other 2 publishable entries have been locked (sorted by creation date)
-        assertThat(lockedEntries2)
-                .containsExactly(findEntry(entry3.getId()), findEntry(entry2.getId()));
+    @Test
+    void shouldClaimEntriesCreatedAtTheSameInstantInCreationOrder() {
+        // given: some entries created at the same instant that are saved in reverse order
+        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        save(entry3, entry2, entry1);
+
+        // when: claiming the next publishable entries
+        var claimedEntries = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 5, clock);
+
+        // then: the entries have been claimed in the order they have been created
+        assertThat(claimedEntries)
+                .containsExactly(findEntry(entry1.getId()), findEntry(entry2.getId()), findEntry(entry3.getId()));
+    }
+
+    @Test
+    void shouldClaimRetriedEntryAlone() {
+        // given: an entry that failed to be published once and some later entries of the same partition
+        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
+        var retriedEntry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
+                .failed(clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        save(retriedEntry, entry2, entry3);
+
+        // when: claiming the next publishable entries
+        var claimedEntries = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 5, clock);
+
+        // then: only the retried entry has been claimed
+        assertThat(claimedEntries)
+                .containsExactly(findEntry(retriedEntry.getId()));
+        assertThat(findEntry(entry2.getId()).isLocked()).isFalse();
+        assertThat(findEntry(entry3.getId()).isLocked()).isFalse();
+    }
+
+    @Test
+    void shouldAcknowledgeEntries() {
+        // given: some claimed entries in the outbox
+        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        save(entry1, entry2, entry3);
+        claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 3, clock);
+
+        // when: acknowledging the first and the last entry
+        acknowledgeAll(List.of(entry1.getId(), entry3.getId()), Instant.parse("2023-08-13T01:00:00Z"));
+
+        // then: the first and the last entry have been acknowledged
+        assertThat(findEntry(entry1.getId()).getAcknowledgedAt()).contains(Instant.parse("2023-08-13T01:00:00Z"));
+        assertThat(findEntry(entry2.getId()).getAcknowledgedAt()).isEmpty();
+        assertThat(findEntry(entry3.getId()).getAcknowledgedAt()).contains(Instant.parse("2023-08-13T01:00:00Z"));
+    }
+
+    @Test
+    void shouldMarkEntriesAsFailed() {
+        // given: an entry that may still be retried and an entry that reached the maximum retry count
+        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
+        var retryableEntry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var exhaustedEntry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
+                .failed(clock)
+                .failed(clock)
+                .failed(clock)
+                .failed(clock)
+                .failed(clock);
+        save(retryableEntry, exhaustedEntry);
+
+        // and: both entries are locked
+        var lock = MessagingOutboxEntryLock.create();
+        save(retryableEntry.lock(lock, clock), exhaustedEntry.lock(lock, clock));
+
+        // when: marking both entries as failed
+        markFailed(List.of(retryableEntry.getId(), exhaustedEntry.getId()), Instant.parse("2023-08-13T01:00:00Z"));
+
+        // then: the retryable entry has been unlocked and its retry count incremented
+        var updatedRetryableEntry = findEntry(retryableEntry.getId());
+        assertThat(updatedRetryableEntry.isLocked()).isFalse();
+        assertThat(updatedRetryableEntry.getRetryCount()).isEqualTo(1);
+        assertThat(updatedRetryableEntry.getFailedAt()).isEmpty();
+
+        // and: the exhausted entry has been marked as failed
+        var updatedExhaustedEntry = findEntry(exhaustedEntry.getId());
+        assertThat(updatedExhaustedEntry.getFailedAt()).contains(Instant.parse("2023-08-13T01:00:00Z"));
+        assertThat(updatedExhaustedEntry.getRetryCount()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldOnlyClaimEntriesOfTheGivenPartition() {
+        // given: entries of two different partitions
+        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
+        var entry = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
+        var otherPartitionKey = findKeyOfOtherPartition();
+        var otherEntry = MessagingOutboxEntry.create(target, routingKey, otherPartitionKey, payload, clock);
+        save(entry, otherEntry);
+
+        // when: claiming entries of the first partition
+        var claimedEntries = claimNextPublishableEntries(MessagingOutboxEntryLock.create(), 5, clock);
+
+        // then: only the entry of the first partition has been claimed
+        assertThat(claimedEntries)
+                .containsExactly(findEntry(entry.getId()));
+        assertThat(findEntry(otherEntry.getId()).isLocked()).isFalse();
     }
 
     @Test
     void shouldUnlockEntriesAndMarkAsUnpublishedOlderThanASpecificDate() {
         // given: some entries in the outbox
         clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T02:00:00Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         clock.setNow(Instant.parse("2023-08-13T01:00:00Z"));
-        var entry3 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
+        var entry3 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock);
         save(entry1, entry2, entry3);
 
-        // and: locking the next publishable entries
+        // and: claiming the next publishable entries
         var lock = MessagingOutboxEntryLock.create();
-        lockNextPublishableEntries(lock, 3, clock);
+        claimNextPublishableEntries(lock, 3, clock);
 
         // when: unlocking the entries older than a specific date that is before all entries
         unlockEntriesAndMarkAsUnpublishedOlderThan(Instant.parse("2023-08-13T00:00:00Z"));
@@ -191,42 +326,11 @@ public abstract class MessagingOutboxRepoTests {
         assertThat(findEntry(entry3.getId()).isLocked()).isFalse();
     }
 
-    @Test
-    void shouldRemoveAcknowledgedEntriesOlderThanASpecificDate() {
-        // given: some entries in the outbox
-        clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        clock.setNow(Instant.parse("2023-08-13T02:00:00Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        clock.setNow(Instant.parse("2023-08-13T01:00:00Z"));
-        var entry3 = MessagingOutboxEntry.create(target, routingKey, payload, clock);
-        save(entry1, entry2, entry3);
-
-        // and: publishing and acknowledging the first and the last entry
-        entry1 = entry1.acknowledge(clock);
-        entry3 = entry3.acknowledge(clock);
-        save(entry1, entry3);
-
-        // when: removing the acknowledged entries older than a specific date that is before all entries
-        removeAcknowledgedEntriesOlderThan(Instant.parse("2023-08-13T00:00:00Z"));
-
-        // then: no entries have been removed
-        assertThat(findEntries())
-                .containsExactlyInAnyOrder(entry1, entry2, entry3);
-
-        // when: removing the acknowledged entries older than a specific date that is after all entries
-        removeAcknowledgedEntriesOlderThan(Instant.parse("2023-08-13T03:00:01Z"));
-
-        // then: all entries have been removed
-        assertThat(findEntries())
-                .containsExactlyInAnyOrder(entry2);
-    }
-
     @Test
     void shouldFindStaleFailedEntries() {
         // given: some failed entries in the outbox
         clock.setNow(Instant.parse("2023-08-13T00:00:00Z"));
-        var entry1 = MessagingOutboxEntry.create(target, routingKey, payload, clock)
+        var entry1 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock)
@@ -234,7 +338,7 @@ public abstract class MessagingOutboxRepoTests {
                 .failed(clock)
                 .failed(clock);
         clock.setNow(Instant.parse("2023-08-13T02:00:00Z"));
-        var entry2 = MessagingOutboxEntry.create(target, routingKey, payload, clock)
+        var entry2 = MessagingOutboxEntry.create(target, routingKey, partitionKey, payload, clock)
                 .failed(clock)
                 .failed(clock)
                 .failed(clock)
@@ -266,26 +370,39 @@ public abstract class MessagingOutboxRepoTests {
         repo.insert(List.of(entries)).block();
     }
 
-    private void lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock) {
-        repo.lockNextPublishableEntries(lock, maxEntries, clock).block();
+    private List<MessagingOutboxEntry> claimNextPublishableEntries(
+            MessagingOutboxEntryLock lock,
+            int maxEntries,
+            Clock clock
+    ) {
+        return repo.claimNextPublishableEntries(partition, lock, maxEntries, clock).collectList().block();
     }
 
-    private List<MessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock) {
-        return repo.findLockedEntries(lock).collectList().block();
+    private void acknowledgeAll(List<MessagingOutboxEntryId> ids, Instant acknowledgedAt) {
+        repo.acknowledgeAll(ids, acknowledgedAt).block();
     }
 
-    private void unlockEntriesAndMarkAsUnpublishedOlderThan(Instant date) {
-        repo.unlockEntriesOlderThan(date).block();
+    private void markFailed(List<MessagingOutboxEntryId> ids, Instant failedAt) {
+        repo.markFailed(ids, failedAt).block();
     }
 
-    private void removeAcknowledgedEntriesOlderThan(Instant date) {
-        repo.removeAcknowledgedEntriesOlderThan(date).block();
+    private void unlockEntriesAndMarkAsUnpublishedOlderThan(Instant date) {
+        repo.unlockEntriesOlderThan(date).block();
     }
 
     private List<MessagingOutboxEntry> findFailedEntriesOlderThan(Instant date) {
         return repo.findFailedEntriesOlderThan(date).collectList().block();
     }
 
+    private String findKeyOfOtherPartition() {
+        for (int i = 0; ; i++) {
+            String key = "other-aggregate-" + i;
+            if (!MessagingOutboxPartition.forKey(key).equals(partition)) {
+                return key;
+            }
+        }
+    }
+
     private MessagingOutboxEntry findEntry(MessagingOutboxEntryId id) {
         return findEntries().stream()
                 .filter(entry -> entry.getId().equals(id))
@@ -1,21 +1,41 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox.persistence;
 
+import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxPartitionMigration;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.transformer.MongoMessagingOutboxEntryTransformer;
+import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
+import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
 import de.bennyboer.kicherkrabbe.persistence.MongoTest;
+import de.bennyboer.kicherkrabbe.testing.time.TestClock;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @MongoTest
 public class MongoMessagingOutboxRepoTests extends MessagingOutboxRepoTests {
 
     private final ReactiveMongoTemplate template;
 
+    private final MessageTarget target = MessageTarget.exchange(ExchangeTarget.of("test-exchange"));
+
+    private final RoutingKey routingKey = RoutingKey.parse("test.key");
+
+    private final TestClock clock = new TestClock();
+
     @Autowired
     public MongoMessagingOutboxRepoTests(ReactiveMongoTemplate template) {
         super();
@@ -36,6 +56,34 @@ public class MongoMessagingOutboxRepoTests extends MessagingOutboxRepoTests {
                 .block();
     }
 
+    @Test
+    void shouldAssignFirstPartitionToEntriesWithoutPartition() {
+        // given: an entry that has been written before the outbox was partitioned
+        var entry = MessagingOutboxEntry.create(target, routingKey, "test-aggregate", Map.of("test", "value"), clock);
+        repo.insert(List.of(entry)).block();
+        template.updateFirst(
+                query(where("_id").is(entry.getId().getValue())),
+                new Update().unset("partition"),
+                MongoMessagingOutboxEntry.class,
+                "test"
+        ).block();
+
+        // when: running the migration
+        long migrated = new MongoMessagingOutboxPartitionMigration("test", template)
+                .assignPartitionToEntriesWithoutPartition()
+                .block();
+
+        // then: the entry has been assigned to the first partition
+        assertThat(migrated).isEqualTo(1);
+        var claimedEntries = repo.claimNextPublishableEntries(
+                MessagingOutboxPartition.of(0),
+                MessagingOutboxEntryLock.create(),
+                5,
+                clock
+        ).collectList().block();
+        assertThat(claimedEntries).extracting(MessagingOutboxEntry::getId).containsExactly(entry.getId());
+    }
+
     @Override
     protected List<MessagingOutboxEntry> findEntries() {
         return template.findAll(MongoMessagingOutboxEntry.class, "test")
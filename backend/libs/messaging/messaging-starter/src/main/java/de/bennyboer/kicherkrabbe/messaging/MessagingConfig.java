@@ -7,10 +7,12 @@ import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerContainerMana
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerFactory;
 import de.bennyboer.kicherkrabbe.messaging.listener.RabbitMessageListenerFactory;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxConfig;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.amqp.autoconfigure.RabbitProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -19,7 +21,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.transaction.ReactiveTransactionManager;
 import tools.jackson.databind.json.JsonMapper;
 
-import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import java.time.Duration;
 
 @Configuration
 @Import({
@@ -31,9 +33,7 @@ public class MessagingConfig {
     @Bean("messagingJsonMapper")
     @ConditionalOnMissingBean(name = "messagingJsonMapper")
     public JsonMapper messagingJsonMapper() {
-        return JsonMapper.builder()
-                .changeDefaultPropertyInclusion(incl -> incl.withValueInclusion(NON_NULL))
-                .build();
+        return MessagingJsonMappers.create();
     }
 
     @Bean
@@ -67,8 +67,17 @@ public class MessagingConfig {
 
     @Bean
     @ConditionalOnMissingBean
-    public MessageListenerConcurrencyLimiter messageListenerConcurrencyLimiter() {
-        return new MessageListenerConcurrencyLimiter(100);
+    public MessageListenerConcurrencyLimiter messageListenerConcurrencyLimiter(
+            @Value("${messaging.listener.reserved-permits-per-listener:1}") int reservedPermitsPerListener,
+            @Value("${messaging.listener.shared-permits:100}") int sharedPermits,
+            @Value("${messaging.listener.permit-acquire-timeout:2m}") Duration acquireTimeout
+    ) {
+        return new MessageListenerConcurrencyLimiter(
+                reservedPermitsPerListener,
+                sharedPermits,
+                acquireTimeout,
+                Metrics.globalRegistry
+        );
     }
 
     @Bean
@@ -0,0 +1,19 @@
+package de.bennyboer.kicherkrabbe.messaging;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+public class MessagingJsonMappers {
+
+    /**
+     * Creates the JSON mapper used to serialize message payloads.
+     * Payloads serialized ahead of publishing must use the same settings to produce the same messages.
+     */
+    public static JsonMapper create() {
+        return JsonMapper.builder()
+                .changeDefaultPropertyInclusion(incl -> incl.withValueInclusion(NON_NULL))
+                .build();
+    }
+
+}
@@ -2,32 +2,45 @@ package de.bennyboer.kicherkrabbe.messaging.inbox;
 
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.MessagingInboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.mongo.MongoMessagingInboxRepo;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Optional;
 
 @Configuration
+@EnableScheduling
+@Import(MessagingInboxTasks.class)
 public class MessagingInboxConfig {
 
     @Bean
     @ConditionalOnMissingBean(name = "messagingInboxRepo")
-    public MessagingInboxRepo messagingInboxRepo(ReactiveMongoTemplate template) {
-        return new MongoMessagingInboxRepo("inbox", template);
+    public MessagingInboxRepo messagingInboxRepo(
+            ReactiveMongoTemplate template,
+            @Value("${messaging.inbox.retention:30d}") Duration retention
+    ) {
+        return new MongoMessagingInboxRepo("inbox", template, retention);
     }
 
     @Bean
     @ConditionalOnMissingBean(MessagingInbox.class)
     public MessagingInbox messagingInbox(
             MessagingInboxRepo repo,
+            @Value("${messaging.inbox.recently-seen-capacity-per-listener:10000}") long recentlySeenCapacityPerListener,
             Optional<Clock> clock
     ) {
         return new MessagingInbox(
                 repo,
-                clock.orElse(Clock.systemUTC())
+                clock.orElse(Clock.systemUTC()),
+                recentlySeenCapacityPerListener,
+                Metrics.globalRegistry
         );
     }
 
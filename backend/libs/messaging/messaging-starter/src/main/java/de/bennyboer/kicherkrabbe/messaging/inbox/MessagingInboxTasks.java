@@ -0,0 +1,28 @@
+package de.bennyboer.kicherkrabbe.messaging.inbox;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class MessagingInboxTasks {
+
+    private final MessagingInbox inbox;
+
+    @Scheduled(fixedRate = 60 * 1000)
+    public void updateInboxSize() {
+        inbox.updateSize()
+                .onErrorResume(e -> {
+                    log.error("Failed to update inbox size", e);
+                    return Mono.empty();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+    }
+
+}
@@ -7,6 +7,7 @@ import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.MessagingInboxRepo;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,6 +32,20 @@ public class InMemoryMessagingInboxRepo implements MessagingInboxRepo {
                 .then(insertUnchecked(message));
     }
 
+    @Override
+    public Mono<Void> insertAll(Collection<IncomingMessage> messages) {
+        return Flux.fromIterable(messages)
+                .concatMap(message -> assertThatMessageHasNotBeenSeen(message.getId()))
+                .thenMany(Flux.fromIterable(messages))
+                .concatMap(this::insertUnchecked)
+                .then();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) messages.size());
+    }
+
     public Flux<IncomingMessage> findAll() {
         return Flux.defer(() -> Flux.fromIterable(messages.values()));
     }
@@ -3,18 +3,45 @@ package de.bennyboer.kicherkrabbe.messaging.inbox.persistence.mongo;
 import de.bennyboer.kicherkrabbe.messaging.inbox.IncomingMessage;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.IncomingMessageAlreadySeenException;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.MessagingInboxRepo;
-import lombok.AllArgsConstructor;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import reactor.core.publisher.Mono;
 
-@AllArgsConstructor
+import java.time.Duration;
+import java.util.Collection;
+
 public class MongoMessagingInboxRepo implements MessagingInboxRepo {
 
+    private static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+
+    private static final String RECEIVED_AT_INDEX = "receivedAt_1";
+
     private final String collection;
 
     private final ReactiveMongoTemplate template;
 
+    private final Duration retention;
+
+    public MongoMessagingInboxRepo(String collection, ReactiveMongoTemplate template) {
+        this(collection, template, DEFAULT_RETENTION);
+    }
+
+    /**
+     * Messages are removed by MongoDB using a TTL index once they are older than the given retention.
+     * A message redelivered after that would be handled again, so the retention must be well beyond
+     * the longest time a message may stay in a queue.
+     */
+    public MongoMessagingInboxRepo(String collection, ReactiveMongoTemplate template, Duration retention) {
+        this.collection = collection;
+        this.template = template;
+        this.retention = retention;
+
+        initializeIndices();
+    }
+
     @Override
     public Mono<Void> insert(IncomingMessage message) {
         MongoIncomingMessage msg = toMongoIncomingMessage(message);
@@ -24,6 +51,22 @@ public class MongoMessagingInboxRepo implements MessagingInboxRepo {
                 .then();
     }
 
+    @Override
+    public Mono<Void> insertAll(Collection<IncomingMessage> messages) {
+        var msgs = messages.stream()
+                .map(this::toMongoIncomingMessage)
+                .toList();
+
+        return template.insert(msgs, collection)
+                .onErrorMap(DuplicateKeyException.class, e -> new IncomingMessageAlreadySeenException())
+                .then();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return template.estimatedCount(collection);
+    }
+
     private MongoIncomingMessage toMongoIncomingMessage(IncomingMessage message) {
         var result = new MongoIncomingMessage();
 
@@ -33,4 +76,29 @@ public class MongoMessagingInboxRepo implements MessagingInboxRepo {
         return result;
     }
 
+    private void initializeIndices() {
+        ReactiveIndexOperations indexOps = template.indexOps(collection);
+
+        createReceivedAtTtlIndex(indexOps).block();
+    }
+
+    /**
+     * MongoDB refuses to create an index on the same key with different options,
+     * so an existing index with another expiry is dropped first.
+     */
+    private Mono<String> createReceivedAtTtlIndex(ReactiveIndexOperations indexOps) {
+        var ttlIndex = new Index()
+                .on("receivedAt", Sort.Direction.ASC)
+                .named(RECEIVED_AT_INDEX)
+                .expire(retention);
+
+        return indexOps.getIndexInfo()
+                .filter(info -> info.getName().equals(RECEIVED_AT_INDEX))
+                .filter(info -> !info.getExpireAfter()
+                        .map(expireAfter -> expireAfter.equals(retention))
+                        .orElse(false))
+                .concatMap(info -> indexOps.dropIndex(info.getName()))
+                .then(indexOps.createIndex(ttlIndex));
+    }
+
 }
@@ -1,8 +1,11 @@
 package de.bennyboer.kicherkrabbe.messaging.listener;
 
 import org.springframework.amqp.core.Message;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface AcknowledgableMessage {
 
     Message getMessage();
@@ -13,4 +16,15 @@ public interface AcknowledgableMessage {
 
     void nackSync(boolean requeue);
 
+    /**
+     * Acknowledges this message together with the given messages that have been received before it.
+     * The caller must make sure that no other message received before this one is still unacknowledged,
+     * since implementations may acknowledge everything up to this message at once.
+     */
+    default Mono<Void> ackWithPrevious(List<? extends AcknowledgableMessage> previous) {
+        return Flux.fromIterable(previous)
+                .concatMap(AcknowledgableMessage::ack)
+                .then(Mono.defer(this::ack));
+    }
+
 }
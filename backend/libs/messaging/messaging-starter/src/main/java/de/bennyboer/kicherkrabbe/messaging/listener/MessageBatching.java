@@ -0,0 +1,33 @@
+package de.bennyboer.kicherkrabbe.messaging.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Duration;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Describes how a message listener collects messages into batches. A batch is handed to the handler once it reached
+ * the max batch size or the window since its first message has passed, whatever happens first.
+ * The whole batch is handled in a single transaction and acknowledged at once.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessageBatching {
+
+    int maxBatchSize;
+
+    Duration window;
+
+    public static MessageBatching of(int maxBatchSize, Duration window) {
+        notNull(window, "Window must be given");
+        check(maxBatchSize > 0, "Max batch size must be positive");
+        check(!window.isNegative() && !window.isZero(), "Window must be positive");
+
+        return new MessageBatching(maxBatchSize, window);
+    }
+
+}
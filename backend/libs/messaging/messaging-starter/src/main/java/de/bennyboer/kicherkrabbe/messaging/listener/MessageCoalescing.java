@@ -0,0 +1,47 @@
+package de.bennyboer.kicherkrabbe.messaging.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Describes how a message listener may collapse messages received within a short window.
+ * Keys and versions are read from the decoded message.
+ * Messages with the same key are handled once using the message with the highest version,
+ * which is only correct for handlers that do not depend on the individual message (for example lookup refreshes).
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessageCoalescing<T> {
+
+    Duration window;
+
+    int maxBatchSize;
+
+    Function<T, String> key;
+
+    ToLongFunction<T> version;
+
+    public static <T> MessageCoalescing<T> of(
+            Duration window,
+            int maxBatchSize,
+            Function<T, String> key,
+            ToLongFunction<T> version
+    ) {
+        notNull(window, "Window must be given");
+        notNull(key, "Key function must be given");
+        notNull(version, "Version function must be given");
+        check(!window.isNegative() && !window.isZero(), "Window must be positive");
+        check(maxBatchSize > 0, "Max batch size must be positive");
+
+        return new MessageCoalescing<>(window, maxBatchSize, key, version);
+    }
+
+}
@@ -0,0 +1,33 @@
+package de.bennyboer.kicherkrabbe.messaging.listener;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.function.Function;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Describes how many messages a message listener may handle in parallel.
+ * Ordering keys are read from the decoded message.
+ * Messages with the same ordering key (for example the aggregate ID) are still handled one after another
+ * in the order they were received.
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class MessageConcurrency<T> {
+
+    int concurrency;
+
+    Function<T, String> orderingKey;
+
+    public static <T> MessageConcurrency<T> of(int concurrency, Function<T, String> orderingKey) {
+        notNull(orderingKey, "Ordering key function must be given");
+        check(concurrency > 0, "Concurrency must be positive");
+
+        return new MessageConcurrency<>(concurrency, orderingKey);
+    }
+
+}
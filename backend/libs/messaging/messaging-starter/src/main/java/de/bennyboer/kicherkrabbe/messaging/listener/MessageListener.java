@@ -3,9 +3,14 @@ package de.bennyboer.kicherkrabbe.messaging.listener;
 import de.bennyboer.kicherkrabbe.messaging.inbox.IncomingMessageId;
 import de.bennyboer.kicherkrabbe.messaging.inbox.MessagingInbox;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.IncomingMessageAlreadySeenException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.transaction.ReactiveTransactionManager;
@@ -17,14 +22,25 @@ import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Listens for messages and hands them to a handler once decoded to the payload type {@code T}.
+ * Each delivery is decoded at most once, no matter how many steps (coalescing or ordering keys, handler) need it.
+ */
 @Slf4j
-public class MessageListener {
+public class MessageListener<T> {
 
     private final ReactiveTransactionManager transactionManager;
 
@@ -34,34 +50,122 @@ public class MessageListener {
 
     private final String name;
 
-    private final Function<Message, Mono<Void>> handler;
+    private final Function<Message, T> decoder;
+
+    private final Function<T, Mono<Void>> handler;
 
     private final MessageListenerConcurrencyLimiter concurrencyLimiter;
 
+    @Nullable
+    private final MessageCoalescing<T> coalescing;
+
+    @Nullable
+    private final MessageConcurrency<T> concurrency;
+
+    @Nullable
+    private final MessageBatching batching;
+
+    @Nullable
+    private final Function<List<T>, Mono<Void>> batchHandler;
+
+    @Nullable
+    private final Counter coalescingReceivedCounter;
+
+    @Nullable
+    private final Counter coalescingHandledCounter;
+
     @Nullable
     private Disposable disposable;
 
-    public MessageListener(
+    /**
+     * Creates a listener that hands each message to the given handler.
+     * Given a coalescing, concurrency or batching configuration, messages are handled accordingly instead.
+     * Batching cannot be combined with coalescing or concurrency.
+     * A batching listener needs a batch handler only; should handling a batch fail, its messages are handled
+     * one by one as single-element batches.
+     */
+    @Builder
+    private MessageListener(
             ReactiveTransactionManager transactionManager,
             MessagingInbox inbox,
             Supplier<Flux<AcknowledgableMessage>> deliveries,
             String name,
-            Function<Message, Mono<Void>> handler,
-            MessageListenerConcurrencyLimiter concurrencyLimiter
+            Function<Message, T> decoder,
+            @Nullable Function<T, Mono<Void>> handler,
+            MessageListenerConcurrencyLimiter concurrencyLimiter,
+            @Nullable MessageCoalescing<T> coalescing,
+            @Nullable MessageConcurrency<T> concurrency,
+            @Nullable MessageBatching batching,
+            @Nullable Function<List<T>, Mono<Void>> batchHandler,
+            @Nullable MeterRegistry registry
     ) {
+        notNull(transactionManager, "Transaction manager must be given");
+        notNull(inbox, "Inbox must be given");
+        notNull(deliveries, "Deliveries must be given");
+        notNull(name, "Name must be given");
+        notNull(decoder, "Decoder must be given");
+        notNull(concurrencyLimiter, "Concurrency limiter must be given");
+        check(handler != null || batchHandler != null, "Message listener needs a handler");
+        check(coalescing == null || concurrency == null, "Coalescing listeners cannot handle messages in parallel");
+        check(batching == null || batchHandler != null, "Batching listeners need a batch handler");
+        check(
+                batching == null || (coalescing == null && concurrency == null),
+                "Batching listeners cannot coalesce messages or handle them in parallel"
+        );
+
         this.transactionManager = transactionManager;
         this.inbox = inbox;
         this.name = name;
-        this.handler = handler;
+        this.decoder = decoder;
+        this.handler = handler != null ? handler : payload -> batchHandler.apply(List.of(payload));
         this.deliveries = deliveries;
         this.concurrencyLimiter = concurrencyLimiter;
+        this.coalescing = coalescing;
+        this.concurrency = concurrency;
+        this.batching = batching;
+        this.batchHandler = batchHandler;
+
+        MeterRegistry meterRegistry = registry != null ? registry : Metrics.globalRegistry;
+
+        concurrencyLimiter.register(name, concurrency != null ? concurrency.getConcurrency() : 1);
+
+        if (coalescing != null) {
+            this.coalescingReceivedCounter = Counter.builder("messaging.listener.coalescing.received")
+                    .description("Messages received by a coalescing message listener")
+                    .tag("listener", name)
+                    .register(meterRegistry);
+            this.coalescingHandledCounter = Counter.builder("messaging.listener.coalescing.handled")
+                    .description("Handler invocations of a coalescing message listener")
+                    .tag("listener", name)
+                    .register(meterRegistry);
+            Gauge.builder("messaging.listener.coalescing.ratio", this, MessageListener::getCoalescingRatio)
+                    .description("Received messages per handler invocation of a coalescing message listener")
+                    .tag("listener", name)
+                    .register(meterRegistry);
+        } else {
+            this.coalescingReceivedCounter = null;
+            this.coalescingHandledCounter = null;
+        }
     }
 
     @PostConstruct
     public void start() {
         log.info("Starting message listener '{}'", name);
-        disposable = Flux.defer(deliveries::get)
-                .delayUntil(this::handleDelivery)
+        Flux<Delivery> messages = Flux.defer(deliveries::get).map(Delivery::new);
+        Flux<?> processed;
+        if (coalescing != null) {
+            processed = messages.bufferTimeout(coalescing.getMaxBatchSize(), coalescing.getWindow(), true)
+                    .delayUntil(this::handleDeliveries);
+        } else if (concurrency != null) {
+            processed = handleDeliveriesInParallel(messages);
+        } else if (batching != null) {
+            processed = messages.bufferTimeout(batching.getMaxBatchSize(), batching.getWindow(), true)
+                    .delayUntil(this::handleBatch);
+        } else {
+            processed = messages.delayUntil(this::handleDelivery);
+        }
+
+        disposable = processed
                 .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
                         .maxBackoff(Duration.ofMinutes(5))
                         .doBeforeRetry(signal -> log.warn(
@@ -80,8 +184,8 @@ public class MessageListener {
         Optional.ofNullable(disposable).ifPresent(Disposable::dispose);
     }
 
-    private Mono<Void> handleDelivery(AcknowledgableMessage delivery) {
-        return Mono.fromCallable(concurrencyLimiter::tryAcquire)
+    private Mono<Void> handleDelivery(Delivery delivery) {
+        return concurrencyLimiter.tryAcquire(name)
                 .flatMap(acquired -> {
                     if (!acquired) {
                         log.warn("Could not acquire concurrency permit for message listener '{}', nacking for requeue", name);
@@ -89,26 +193,228 @@ public class MessageListener {
                     }
 
                     return processDelivery(delivery)
-                            .doFinally(ignored -> concurrencyLimiter.release());
+                            .doFinally(ignored -> concurrencyLimiter.release(name));
                 });
     }
 
-    private Mono<Void> processDelivery(AcknowledgableMessage delivery) {
+    /**
+     * Distributes the deliveries to a fixed number of lanes by their ordering key. Lanes are handled in parallel,
+     * while the deliveries of a single lane are handled one after another. Thus, deliveries with the same ordering key
+     * keep their order. Each delivery is acknowledged on its own, so the order of acknowledgements does not matter.
+     */
+    private Flux<Void> handleDeliveriesInParallel(Flux<Delivery> messages) {
+        int lanes = concurrency.getConcurrency();
+
+        return messages.groupBy(this::toLane)
+                .flatMap(lane -> lane.concatMap(delivery -> handleDelivery(delivery)
+                        .subscribeOn(Schedulers.boundedElastic())), lanes);
+    }
+
+    private int toLane(Delivery delivery) {
+        String key;
+        try {
+            key = concurrency.getOrderingKey().apply(delivery.getPayload());
+        } catch (Exception e) {
+            log.warn("Could not determine ordering key of message in message listener '{}'", name, e);
+            key = "";
+        }
+
+        return Math.floorMod(key.hashCode(), concurrency.getConcurrency());
+    }
+
+    /**
+     * Handles a batch of deliveries received within the coalescing window.
+     * Deliveries sharing a key are handled once with the delivery of the highest version.
+     * All of them are still recorded in the inbox and acknowledged only after the handler succeeded.
+     */
+    private Mono<Void> handleDeliveries(List<Delivery> deliveries) {
+        Map<String, List<Delivery>> groups = new LinkedHashMap<>();
+        List<Delivery> uncoalescable = new ArrayList<>();
+        for (var delivery : deliveries) {
+            try {
+                String key = coalescing.getKey().apply(delivery.getPayload());
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(delivery);
+            } catch (Exception e) {
+                log.warn("Could not determine coalescing key of message in message listener '{}'", name, e);
+                uncoalescable.add(delivery);
+            }
+        }
+
+        coalescingReceivedCounter.increment(deliveries.size());
+
+        return Flux.fromIterable(groups.values())
+                .concatMap(this::handleDeliveryGroup)
+                .thenMany(Flux.fromIterable(uncoalescable))
+                .concatMap(delivery -> handleDelivery(delivery)
+                        .doOnSuccess(ignored -> coalescingHandledCounter.increment()))
+                .then();
+    }
+
+    private Mono<Void> handleDeliveryGroup(List<Delivery> group) {
+        if (group.size() == 1) {
+            return handleDelivery(group.getFirst())
+                    .doOnSuccess(ignored -> coalescingHandledCounter.increment());
+        }
+
+        return concurrencyLimiter.tryAcquire(name)
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        log.warn("Could not acquire concurrency permit for message listener '{}', nacking for requeue", name);
+                        return Flux.fromIterable(group)
+                                .concatMap(delivery -> delivery.nack(true))
+                                .then();
+                    }
+
+                    return processCoalescedDeliveries(group)
+                            .doFinally(ignored -> concurrencyLimiter.release(name));
+                });
+    }
+
+    private Mono<Void> processCoalescedDeliveries(List<Delivery> group) {
+        var transactionalOperator = TransactionalOperator.create(transactionManager);
+        Delivery latest = group.stream()
+                .max(Comparator.comparingLong(delivery -> coalescing.getVersion().applyAsLong(delivery.getPayload())))
+                .orElseThrow();
+
+        List<IncomingMessageId> incomingMessageIds = group.stream()
+                .map(delivery -> toIncomingMessageId(delivery.getMessage()))
+                .toList();
+
+        return inbox.addMessages(incomingMessageIds)
+                .then(Mono.defer(() -> handler.apply(latest.getPayload())))
+                .as(transactionalOperator::transactional)
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(200))
+                        .filter(e -> !(e instanceof IncomingMessageAlreadySeenException)))
+                .then(Mono.defer(() -> {
+                    incomingMessageIds.forEach(id -> inbox.markRecentlySeen(name, id));
+                    coalescingHandledCounter.increment();
+                    return Flux.fromIterable(group)
+                            .concatMap(delivery -> delivery.ack()
+                                    .onErrorResume(e -> {
+                                        log.error("Could not acknowledge message in message listener '{}'", name, e);
+                                        return Mono.empty();
+                                    }))
+                            .then();
+                }))
+                .onErrorResume(e -> {
+                    log.warn(
+                            "Could not process {} coalesced messages in message listener '{}', processing them one by one",
+                            group.size(),
+                            name,
+                            e
+                    );
+
+                    return Flux.fromIterable(group)
+                            .concatMap(delivery -> processDelivery(delivery)
+                                    .doOnSuccess(ignored -> coalescingHandledCounter.increment()))
+                            .then();
+                });
+    }
+
+    /**
+     * Handles a batch of deliveries in a single transaction that records all of them in the inbox at once.
+     * Since batches are handled one after another, no earlier delivery is unacknowledged at this point,
+     * which allows acknowledging the whole batch with its last delivery.
+     * Deliveries the listener has recently seen are acknowledged without being recorded or handled again.
+     * If the batch fails (for example because one of the messages was already seen), the deliveries are handled
+     * one by one, so a single bad message does not hold back the others.
+     */
+    private Mono<Void> handleBatch(List<Delivery> batch) {
+        if (batch.size() == 1) {
+            return handleDelivery(batch.getFirst());
+        }
+
+        return concurrencyLimiter.tryAcquire(name)
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        log.warn("Could not acquire concurrency permit for message listener '{}', nacking for requeue", name);
+                        return Flux.fromIterable(batch)
+                                .concatMap(delivery -> delivery.nack(true))
+                                .then();
+                    }
+
+                    return processBatch(batch)
+                            .doFinally(ignored -> concurrencyLimiter.release(name));
+                });
+    }
+
+    private Mono<Void> processBatch(List<Delivery> batch) {
+        var transactionalOperator = TransactionalOperator.create(transactionManager);
+        List<Delivery> unseen = batch.stream()
+                .filter(delivery -> !inbox.isRecentlySeen(name, toIncomingMessageId(delivery.getMessage())))
+                .toList();
+        List<IncomingMessageId> incomingMessageIds = unseen.stream()
+                .map(delivery -> toIncomingMessageId(delivery.getMessage()))
+                .toList();
+
+        Mono<Void> handleMessages = unseen.isEmpty()
+                ? Mono.empty()
+                : inbox.addMessages(incomingMessageIds)
+                        .then(Mono.defer(() -> batchHandler.apply(unseen.stream()
+                                .map(Delivery::getPayload)
+                                .toList())))
+                        .as(transactionalOperator::transactional)
+                        .retryWhen(Retry.backoff(3, Duration.ofMillis(200))
+                                .filter(e -> !(e instanceof IncomingMessageAlreadySeenException)))
+                        .doOnSuccess(ignored -> incomingMessageIds.forEach(id -> inbox.markRecentlySeen(name, id)));
+
+        return handleMessages
+                .then(Mono.defer(() -> batch.getLast()
+                        .ackWithPrevious(batch.subList(0, batch.size() - 1))
+                        .onErrorResume(e -> {
+                            log.error("Could not acknowledge {} messages in message listener '{}'", batch.size(), name, e);
+                            return Mono.empty();
+                        })))
+                .onErrorResume(e -> {
+                    log.warn(
+                            "Could not process batch of {} messages in message listener '{}', processing them one by one",
+                            batch.size(),
+                            name,
+                            e
+                    );
+
+                    return Flux.fromIterable(batch)
+                            .concatMap(this::processDelivery)
+                            .then();
+                });
+    }
+
+    private double getCoalescingRatio() {
+        double handled = coalescingHandledCounter.count();
+        if (handled == 0) {
+            return 1.0;
+        }
+
+        return coalescingReceivedCounter.count() / handled;
+    }
+
+    private IncomingMessageId toIncomingMessageId(Message message) {
+        return IncomingMessageId.of(name + message.getMessageProperties().getMessageId());
+    }
+
+    private Mono<Void> processDelivery(Delivery delivery) {
         var transactionalOperator = TransactionalOperator.create(transactionManager);
         Message message = delivery.getMessage();
-        var incomingMessageId = IncomingMessageId.of(name + message.getMessageProperties().getMessageId());
+        var incomingMessageId = toIncomingMessageId(message);
 
         var body = new String(message.getBody(), UTF_8);
 
+        if (inbox.isRecentlySeen(name, incomingMessageId)) {
+            log.warn("Message '{}' was recently seen in message listener '{}'. Ignoring...", incomingMessageId, name);
+            return delivery.ack();
+        }
+
         return inbox.addMessage(incomingMessageId)
-                .then(Mono.defer(() -> handler.apply(message)))
+                .then(Mono.defer(() -> handler.apply(delivery.getPayload())))
                 .as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> inbox.markRecentlySeen(name, incomingMessageId))
                 .onErrorResume(IncomingMessageAlreadySeenException.class, e -> {
                     log.warn(
                             "Message '{}' was already seen in message listener '{}'. Ignoring...",
                             incomingMessageId,
                             name
                     );
+                    inbox.markRecentlySeen(name, incomingMessageId);
                     return Mono.empty();
                 })
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(200)))
@@ -119,4 +425,46 @@ public class MessageListener {
                 });
     }
 
+    /**
+     * A received message that is decoded on first access only.
+     */
+    private class Delivery {
+
+        private final AcknowledgableMessage message;
+
+        @Nullable
+        private T payload;
+
+        Delivery(AcknowledgableMessage message) {
+            this.message = message;
+        }
+
+        Message getMessage() {
+            return message.getMessage();
+        }
+
+        T getPayload() {
+            if (payload == null) {
+                payload = decoder.apply(message.getMessage());
+            }
+
+            return payload;
+        }
+
+        Mono<Void> ack() {
+            return message.ack();
+        }
+
+        Mono<Void> nack(boolean requeue) {
+            return message.nack(requeue);
+        }
+
+        Mono<Void> ackWithPrevious(List<Delivery> previous) {
+            return message.ackWithPrevious(previous.stream()
+                    .map(delivery -> delivery.message)
+                    .toList());
+        }
+
+    }
+
 }
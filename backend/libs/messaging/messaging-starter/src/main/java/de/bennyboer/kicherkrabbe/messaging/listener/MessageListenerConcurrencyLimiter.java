@@ -1,37 +1,343 @@
 package de.bennyboer.kicherkrabbe.messaging.listener;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
 import java.time.Duration;
-import java.util.concurrent.Semaphore;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+
+/**
+ * Limits how many messages are handled at once across all message listeners without blocking any thread.
+ * <p>
+ * Every listener has a number of reserved permits that only it may use, so a slow listener cannot starve the others.
+ * Beyond that, listeners borrow permits from a shared burst pool. Once the pool is exhausted, waiting requests are
+ * served by weighted fair queueing: a free permit goes to the waiting listener with the fewest permits in use relative
+ * to its weight, and within a listener to the longest waiting request. Requests that are not served within the
+ * acquire timeout are rejected.
+ */
 public class MessageListenerConcurrencyLimiter {
 
     private static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofMinutes(2);
 
-    private final Semaphore semaphore;
+    private static final Comparator<ListenerPermits> FAIR_SHARE_ORDER = Comparator
+            .comparingDouble(ListenerPermits::getUsageByWeight)
+            .thenComparingLong(ListenerPermits::getOldestRequestTime);
+
+    private final int reservedPermitsPerListener;
+
+    private final int sharedPermits;
 
     private final Duration acquireTimeout;
 
+    private final MeterRegistry registry;
+
+    private final Map<String, ListenerPermits> listeners = new HashMap<>();
+
+    private final Set<ListenerPermits> waitingListeners = new LinkedHashSet<>();
+
+    private int sharedPermitsInUse;
+
     public MessageListenerConcurrencyLimiter(int maxConcurrency) {
         this(maxConcurrency, DEFAULT_ACQUIRE_TIMEOUT);
     }
 
     public MessageListenerConcurrencyLimiter(int maxConcurrency, Duration acquireTimeout) {
-        this.semaphore = new Semaphore(maxConcurrency);
+        this(0, maxConcurrency, acquireTimeout, Metrics.globalRegistry);
+    }
+
+    public MessageListenerConcurrencyLimiter(
+            int reservedPermitsPerListener,
+            int sharedPermits,
+            Duration acquireTimeout,
+            MeterRegistry registry
+    ) {
+        notNull(acquireTimeout, "Acquire timeout must be given");
+        notNull(registry, "Meter registry must be given");
+        check(reservedPermitsPerListener >= 0, "Reserved permits per listener must not be negative");
+        check(sharedPermits >= 0, "Shared permits must not be negative");
+        check(reservedPermitsPerListener + sharedPermits > 0, "At least one permit must be available");
+
+        this.reservedPermitsPerListener = reservedPermitsPerListener;
+        this.sharedPermits = sharedPermits;
         this.acquireTimeout = acquireTimeout;
+        this.registry = registry;
+    }
+
+    /**
+     * Sets the weight of a listener. Under contention, a listener receives shared permits in proportion to its weight.
+     * Listeners that are not registered have a weight of 1.
+     */
+    public synchronized void register(String listenerName, int weight) {
+        check(weight > 0, "Weight must be positive");
+
+        getListenerPermits(listenerName).weight = weight;
+    }
+
+    /**
+     * Emits true once a permit has been acquired for the given listener, which must be released afterward,
+     * or false if no permit became available within the acquire timeout.
+     */
+    public Mono<Boolean> tryAcquire(String listenerName) {
+        return Mono.create(sink -> {
+            var request = new PermitRequest(sink, System.nanoTime());
+            sink.onCancel(() -> cancel(request));
+
+            synchronized (this) {
+                if (request.done) {
+                    return;
+                }
+
+                ListenerPermits permits = getListenerPermits(listenerName);
+                request.listener = permits;
+
+                if (tryGrantImmediately(permits)) {
+                    request.done = true;
+                    request.granted = true;
+                } else {
+                    permits.requests.add(request);
+                    waitingListeners.add(permits);
+                    request.timeout = Schedulers.parallel().schedule(
+                            () -> expire(request),
+                            acquireTimeout.toMillis(),
+                            TimeUnit.MILLISECONDS
+                    );
+                }
+            }
+
+            if (request.granted) {
+                complete(request);
+            }
+        });
+    }
+
+    public void release(String listenerName) {
+        List<PermitRequest> granted;
+
+        synchronized (this) {
+            ListenerPermits permits = listeners.get(listenerName);
+            check(permits != null && permits.getInUse() > 0, "No permit to release for listener " + listenerName);
+
+            if (permits.sharedInUse > 0) {
+                permits.sharedInUse--;
+                sharedPermitsInUse--;
+            } else {
+                permits.reservedInUse--;
+            }
+
+            granted = dispatch();
+        }
+
+        granted.forEach(this::complete);
     }
 
-    public boolean tryAcquire() {
-        try {
-            return semaphore.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private boolean tryGrantImmediately(ListenerPermits permits) {
+        if (!permits.requests.isEmpty()) {
             return false;
         }
+
+        if (permits.reservedInUse < reservedPermitsPerListener) {
+            permits.reservedInUse++;
+            return true;
+        }
+
+        if (waitingListeners.isEmpty() && sharedPermitsInUse < sharedPermits) {
+            permits.sharedInUse++;
+            sharedPermitsInUse++;
+            return true;
+        }
+
+        return false;
     }
 
-    public void release() {
-        semaphore.release();
+    /**
+     * Hands out free permits to waiting requests. Must be called while holding the lock.
+     * The returned requests have been granted a permit and must be completed after releasing the lock.
+     */
+    private List<PermitRequest> dispatch() {
+        List<PermitRequest> granted = new ArrayList<>();
+
+        for (ListenerPermits permits : waitingListeners) {
+            while (!permits.requests.isEmpty() && permits.reservedInUse < reservedPermitsPerListener) {
+                permits.reservedInUse++;
+                granted.add(grantNextRequest(permits));
+            }
+        }
+
+        while (sharedPermitsInUse < sharedPermits) {
+            ListenerPermits next = waitingListeners.stream()
+                    .filter(permits -> !permits.requests.isEmpty())
+                    .min(FAIR_SHARE_ORDER)
+                    .orElse(null);
+            if (next == null) {
+                break;
+            }
+
+            next.sharedInUse++;
+            sharedPermitsInUse++;
+            granted.add(grantNextRequest(next));
+        }
+
+        waitingListeners.removeIf(permits -> permits.requests.isEmpty());
+
+        return granted;
+    }
+
+    private PermitRequest grantNextRequest(ListenerPermits permits) {
+        PermitRequest request = permits.requests.remove();
+        request.done = true;
+        request.granted = true;
+
+        return request;
+    }
+
+    private void complete(PermitRequest request) {
+        request.listener.waitTimer.record(System.nanoTime() - request.requestedAt, TimeUnit.NANOSECONDS);
+
+        if (request.timeout == null) {
+            request.sink.success(true);
+            return;
+        }
+
+        /*
+        Queued requests are granted while another listener releases its permit.
+        We do not want to continue handling the waiting message on that listener's thread.
+         */
+        request.timeout.dispose();
+        Schedulers.boundedElastic().schedule(() -> request.sink.success(true));
+    }
+
+    private void expire(PermitRequest request) {
+        synchronized (this) {
+            if (request.done) {
+                return;
+            }
+
+            request.done = true;
+            removeWaitingRequest(request);
+        }
+
+        request.listener.rejectedCounter.increment();
+        request.sink.success(false);
+    }
+
+    private void cancel(PermitRequest request) {
+        synchronized (this) {
+            if (!request.done) {
+                request.done = true;
+                if (request.listener != null) {
+                    removeWaitingRequest(request);
+                }
+                if (request.timeout != null) {
+                    request.timeout.dispose();
+                }
+                return;
+            }
+
+            if (!request.granted) {
+                return;
+            }
+        }
+
+        release(request.listener.name);
+    }
+
+    private void removeWaitingRequest(PermitRequest request) {
+        ListenerPermits permits = request.listener;
+        permits.requests.remove(request);
+        if (permits.requests.isEmpty()) {
+            waitingListeners.remove(permits);
+        }
+    }
+
+    private ListenerPermits getListenerPermits(String listenerName) {
+        return listeners.computeIfAbsent(listenerName, ListenerPermits::new);
+    }
+
+    private class ListenerPermits {
+
+        private final String name;
+
+        private final Queue<PermitRequest> requests = new ArrayDeque<>();
+
+        private final Timer waitTimer;
+
+        private final Counter rejectedCounter;
+
+        private int weight = 1;
+
+        private int reservedInUse;
+
+        private int sharedInUse;
+
+        ListenerPermits(String name) {
+            this.name = name;
+            this.waitTimer = Timer.builder("messaging.listener.permits.wait")
+                    .description("Time a message listener waited for a concurrency permit")
+                    .tag("listener", name)
+                    .register(registry);
+            this.rejectedCounter = Counter.builder("messaging.listener.permits.rejected")
+                    .description("Concurrency permit requests of a message listener that timed out")
+                    .tag("listener", name)
+                    .register(registry);
+            Gauge.builder("messaging.listener.permits.in-use", this, ListenerPermits::getInUse)
+                    .description("Concurrency permits currently held by a message listener")
+                    .tag("listener", name)
+                    .register(registry);
+        }
+
+        int getInUse() {
+            return reservedInUse + sharedInUse;
+        }
+
+        double getUsageByWeight() {
+            return (double) getInUse() / weight;
+        }
+
+        long getOldestRequestTime() {
+            PermitRequest oldest = requests.peek();
+            return oldest != null ? oldest.requestedAt : Long.MAX_VALUE;
+        }
+
+    }
+
+    private static class PermitRequest {
+
+        private final MonoSink<Boolean> sink;
+
+        private final long requestedAt;
+
+        private ListenerPermits listener;
+
+        private Disposable timeout;
+
+        private boolean done;
+
+        private boolean granted;
+
+        PermitRequest(MonoSink<Boolean> sink, long requestedAt) {
+            this.sink = sink;
+            this.requestedAt = requestedAt;
+        }
+
     }
 
 }
@@ -6,17 +6,58 @@ import org.springframework.amqp.core.Message;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.function.Function;
 
 public interface MessageListenerFactory {
 
-    MessageListener createListener(
+    MessageListener<Message> createListener(
             ExchangeTarget exchange,
             RoutingKey routingKey,
             String listenerName,
             Function<Message, Mono<Void>> handler
     );
 
+    /**
+     * Same as {@link #createListener(ExchangeTarget, RoutingKey, String, Function)} but collapses messages
+     * received within the window of the given coalescing into a single handler invocation per key.
+     * Each message is decoded once and the decoded message is used for the coalescing key, version and handler.
+     */
+    <T> MessageListener<T> createCoalescingListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageCoalescing<T> coalescing,
+            Function<T, Mono<Void>> handler
+    );
+
+    /**
+     * Same as {@link #createListener(ExchangeTarget, RoutingKey, String, Function)} but handles messages in parallel
+     * up to the given concurrency, while messages with the same ordering key are handled in order.
+     * Each message is decoded once and the decoded message is used for the ordering key and handler.
+     */
+    <T> MessageListener<T> createConcurrentListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageConcurrency<T> concurrency,
+            Function<T, Mono<Void>> handler
+    );
+
+    /**
+     * Same as {@link #createListener(ExchangeTarget, RoutingKey, String, Function)} but hands messages to the handler
+     * in batches as described by the given batching. Each batch is handled in a single transaction.
+     */
+    MessageListener<Message> createBatchListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            MessageBatching batching,
+            Function<List<Message>, Mono<Void>> handler
+    );
+
     Flux<Message> createTransientListener(
             ExchangeTarget exchange,
             RoutingKey routingKey,
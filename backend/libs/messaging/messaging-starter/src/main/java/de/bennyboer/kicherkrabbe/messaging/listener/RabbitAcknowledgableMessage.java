@@ -7,6 +7,8 @@ import org.springframework.amqp.core.Message;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.List;
+
 @Getter
 @AllArgsConstructor
 public class RabbitAcknowledgableMessage implements AcknowledgableMessage {
@@ -28,6 +30,29 @@ public class RabbitAcknowledgableMessage implements AcknowledgableMessage {
                 .then();
     }
 
+    /**
+     * Acknowledges this message and all previous ones with a single multiple-acknowledgement,
+     * as long as they have all been delivered on the same channel.
+     */
+    @Override
+    public Mono<Void> ackWithPrevious(List<? extends AcknowledgableMessage> previous) {
+        boolean sameChannel = previous.stream()
+                .allMatch(msg -> msg instanceof RabbitAcknowledgableMessage rabbitMsg && rabbitMsg.channel == channel);
+        if (!sameChannel) {
+            return AcknowledgableMessage.super.ackWithPrevious(previous);
+        }
+
+        return Mono.fromRunnable(() -> {
+                    try {
+                        channel.basicAck(message.getMessageProperties().getDeliveryTag(), true);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to acknowledge messages", e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
     @Override
     public Mono<Void> nack(boolean requeue) {
         return Mono.fromRunnable(() -> {
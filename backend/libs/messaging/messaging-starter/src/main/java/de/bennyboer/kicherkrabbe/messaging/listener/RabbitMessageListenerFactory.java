@@ -16,6 +16,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -43,7 +44,7 @@ public class RabbitMessageListenerFactory implements MessageListenerFactory {
     private final MessageListenerConcurrencyLimiter concurrencyLimiter;
 
     @Override
-    public MessageListener createListener(
+    public MessageListener<Message> createListener(
             ExchangeTarget exchange,
             RoutingKey routingKey,
             String listenerName,
@@ -51,14 +52,85 @@ public class RabbitMessageListenerFactory implements MessageListenerFactory {
     ) {
         MessageListenerQueues queues = setupQueuesAndBindings(exchange, routingKey, listenerName);
 
-        return new MessageListener(
-                transactionManager,
-                inbox,
-                () -> createMessageFlux(queues.getNormal()),
-                listenerName,
-                handler,
-                concurrencyLimiter
-        );
+        return MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(() -> createMessageFlux(queues.getNormal()))
+                .name(listenerName)
+                .decoder(Function.identity())
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .build();
+    }
+
+    @Override
+    public <T> MessageListener<T> createCoalescingListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageCoalescing<T> coalescing,
+            Function<T, Mono<Void>> handler
+    ) {
+        MessageListenerQueues queues = setupQueuesAndBindings(exchange, routingKey, listenerName);
+
+        return MessageListener.<T>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(() -> createMessageFlux(queues.getNormal()))
+                .name(listenerName)
+                .decoder(decoder)
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .coalescing(coalescing)
+                .build();
+    }
+
+    @Override
+    public <T> MessageListener<T> createConcurrentListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageConcurrency<T> concurrency,
+            Function<T, Mono<Void>> handler
+    ) {
+        MessageListenerQueues queues = setupQueuesAndBindings(exchange, routingKey, listenerName);
+        int prefetchCount = Math.max(DEFAULT_PREFETCH_COUNT, concurrency.getConcurrency() * 2);
+
+        return MessageListener.<T>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(() -> createMessageFlux(queues.getNormal(), prefetchCount))
+                .name(listenerName)
+                .decoder(decoder)
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .concurrency(concurrency)
+                .build();
+    }
+
+    @Override
+    public MessageListener<Message> createBatchListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            MessageBatching batching,
+            Function<List<Message>, Mono<Void>> handler
+    ) {
+        MessageListenerQueues queues = setupQueuesAndBindings(exchange, routingKey, listenerName);
+        int prefetchCount = Math.max(DEFAULT_PREFETCH_COUNT, batching.getMaxBatchSize());
+
+        return MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(() -> createMessageFlux(queues.getNormal(), prefetchCount))
+                .name(listenerName)
+                .decoder(Function.identity())
+                .batching(batching)
+                .batchHandler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .build();
     }
 
     @Override
@@ -143,11 +215,15 @@ public class RabbitMessageListenerFactory implements MessageListenerFactory {
     }
 
     private Flux<AcknowledgableMessage> createMessageFlux(String queueName) {
+        return createMessageFlux(queueName, DEFAULT_PREFETCH_COUNT);
+    }
+
+    private Flux<AcknowledgableMessage> createMessageFlux(String queueName, int prefetchCount) {
         Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
 
         SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
         container.setQueueNames(queueName);
-        container.setPrefetchCount(DEFAULT_PREFETCH_COUNT);
+        container.setPrefetchCount(prefetchCount);
         container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
         container.setMessageListener((ChannelAwareMessageListener) (message, channel) -> {
             var ackMessage = new RabbitAcknowledgableMessage(message, channel);
@@ -1,8 +1,8 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryConfirmation;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryPublisher;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.reactive.TransactionContext;
 import reactor.core.publisher.Flux;
@@ -12,16 +12,27 @@ import java.time.Clock;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes entries that have been inserted within a transaction, partition by partition.
+ * <p>
+ * Ordering within a partition is best-effort. The entries of a batch are sent without waiting for each other's
+ * confirmation, so when an entry is rejected by the broker, later entries of the same batch may already have been
+ * delivered. The rejected entry is retried afterwards and thus arrives out of order. Consumers that depend on the
+ * order of messages of an aggregate must check the versions they apply, as {@code ReadModelProjection} does.
+ */
 @Slf4j
-@AllArgsConstructor
 public class MessagingOutbox {
 
     private static final Duration OLD_FAILED_ENTRIES_DURATION = Duration.ofMinutes(30);
 
     private static final Duration STALE_LOCKED_ENTRIES_DURATION = Duration.ofMinutes(5);
 
-    private static final Duration ACKNOWLEDGED_ENTRIES_KEEP_DURATION = Duration.ofDays(30);
+    private static final Duration CONFIRMATIONS_BUFFER_TIMEOUT = Duration.ofMillis(20);
 
     private final MessagingOutboxRepo repo;
 
@@ -31,6 +42,33 @@ public class MessagingOutbox {
 
     private final Clock clock;
 
+    private final MessagingOutboxPartitionOwnership ownership;
+
+    private final Map<MessagingOutboxPartition, MessagingOutboxPartitionDrain> drains = new ConcurrentHashMap<>();
+
+    public MessagingOutbox(
+            MessagingOutboxRepo repo,
+            MessagingOutboxEntryPublisher publisher,
+            int batchSize,
+            Clock clock
+    ) {
+        this(repo, publisher, batchSize, clock, MessagingOutboxPartitionOwnership.all());
+    }
+
+    public MessagingOutbox(
+            MessagingOutboxRepo repo,
+            MessagingOutboxEntryPublisher publisher,
+            int batchSize,
+            Clock clock,
+            MessagingOutboxPartitionOwnership ownership
+    ) {
+        this.repo = repo;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.ownership = ownership;
+    }
+
     public Mono<Void> insert(MessagingOutboxEntry... entries) {
         return insert(List.of(entries));
     }
@@ -41,19 +79,71 @@ public class MessagingOutbox {
                 .doOnError(e -> log.error("Failed to insert entries into the outbox: {}", entries, e));
     }
 
+    /**
+     * Publishes the unpublished entries of all partitions owned by this instance. Partitions are drained in parallel,
+     * while the entries of a single partition are published in order by one drain at a time.
+     */
     public Mono<Void> publishNextUnpublishedEntries() {
-        var lock = MessagingOutboxEntryLock.create();
-
-        return repo.lockNextPublishableEntries(lock, batchSize, clock)
-                .thenMany(repo.findLockedEntries(lock))
-                .collectList()
-                .flatMap(entries -> publisher.publishAll(entries)
-                        .then(acknowledgeEntries(entries))
-                        .doOnSuccess(ignored -> log.debug("Published {} entries.", entries.size()))
-                        .onErrorResume(e -> {
-                            log.warn("Failed to publish entries. Unlocking entries.", e);
-                            return resetEntriesAfterPublishingFailed(entries).then(Mono.empty());
-                        }));
+        return Flux.fromIterable(ownership.getOwnedPartitions())
+                .flatMapDelayError(
+                        partition -> drains.computeIfAbsent(
+                                partition,
+                                p -> new MessagingOutboxPartitionDrain(() -> publishBacklog(p))
+                        ).request(),
+                        MessagingOutboxPartition.COUNT,
+                        1
+                )
+                .then();
+    }
+
+    /**
+     * Publishes batches of unpublished entries of the given partition until the backlog is drained, the partition is
+     * no longer owned or an entry of a batch has not been acknowledged. In the latter case the drain stops, so that
+     * the failed entry is retried on the next trigger before any entry of a later batch is published. Later entries
+     * of the same batch may have been delivered already, see the class documentation.
+     */
+    private Mono<Void> publishBacklog(MessagingOutboxPartition partition) {
+        return publishNextBatch(partition)
+                .expand(isDelivered -> isDelivered ? publishNextBatch(partition) : Mono.empty())
+                .then();
+    }
+
+    /**
+     * Returns whether all claimed entries have been acknowledged. Completes empty if there was nothing to claim.
+     */
+    private Mono<Boolean> publishNextBatch(MessagingOutboxPartition partition) {
+        return Mono.defer(() -> {
+            if (!ownership.isOwned(partition)) {
+                return Mono.empty();
+            }
+
+            var lock = MessagingOutboxEntryLock.create();
+
+            return repo.claimNextPublishableEntries(partition, lock, batchSize, clock)
+                    .collectList()
+                    .filter(entries -> !entries.isEmpty())
+                    .flatMap(entries -> publishEntries(entries).map(acknowledged -> acknowledged == entries.size()));
+        });
+    }
+
+    /**
+     * Publishes the given entries and applies their confirmations in small groups as they arrive,
+     * so that entries confirmed early do not wait for the slowest entry of the batch.
+     * Returns the number of acknowledged entries.
+     */
+    private Mono<Integer> publishEntries(List<MessagingOutboxEntry> entries) {
+        Set<MessagingOutboxEntryId> unconfirmed = ConcurrentHashMap.newKeySet();
+        entries.forEach(entry -> unconfirmed.add(entry.getId()));
+
+        return publisher.publishEach(entries)
+                .bufferTimeout(batchSize, CONFIRMATIONS_BUFFER_TIMEOUT)
+                .concatMap(confirmations -> applyConfirmations(confirmations, unconfirmed))
+                .reduce(0, Integer::sum)
+                .doOnNext(acknowledged -> log.debug("Published {} entries.", acknowledged))
+                .onErrorResume(e -> {
+                    log.warn("Failed to publish entries. Unlocking entries.", e);
+                    return resetEntriesAfterPublishingFailed(List.copyOf(unconfirmed)).thenReturn(0);
+                });
     }
 
     public Flux<MessagingOutboxEntry> findStaleFailedEntries() {
@@ -64,22 +154,30 @@ public class MessagingOutbox {
         return repo.unlockEntriesOlderThan(clock.instant().minus(STALE_LOCKED_ENTRIES_DURATION));
     }
 
-    public Mono<Void> cleanupOldAcknowledgedEntries() {
-        return repo.removeAcknowledgedEntriesOlderThan(clock.instant().minus(ACKNOWLEDGED_ENTRIES_KEEP_DURATION));
-    }
+    private Mono<Integer> applyConfirmations(
+            List<MessagingOutboxEntryConfirmation> confirmations,
+            Set<MessagingOutboxEntryId> unconfirmed
+    ) {
+        Map<Boolean, List<MessagingOutboxEntryId>> idsByOutcome = confirmations.stream()
+                .collect(Collectors.partitioningBy(
+                        MessagingOutboxEntryConfirmation::isAcknowledged,
+                        Collectors.mapping(MessagingOutboxEntryConfirmation::getEntryId, Collectors.toList())
+                ));
+        List<MessagingOutboxEntryId> acknowledged = idsByOutcome.get(true);
+        List<MessagingOutboxEntryId> rejected = idsByOutcome.get(false);
 
-    private Mono<Void> acknowledgeEntries(List<MessagingOutboxEntry> entries) {
-        return Flux.fromIterable(entries)
-                .map(entry -> entry.acknowledge(clock))
-                .collectList()
-                .flatMap(repo::save);
+        return repo.acknowledgeAll(acknowledged, clock.instant())
+                .then(resetEntriesAfterPublishingFailed(rejected))
+                .doOnSuccess(ignored -> confirmations.forEach(confirmation -> unconfirmed.remove(confirmation.getEntryId())))
+                .thenReturn(acknowledged.size());
     }
 
-    private Mono<Void> resetEntriesAfterPublishingFailed(List<MessagingOutboxEntry> entries) {
-        return Flux.fromIterable(entries)
-                .map(entry -> entry.failed(clock))
-                .collectList()
-                .flatMap(repo::save);
+    private Mono<Void> resetEntriesAfterPublishingFailed(Collection<MessagingOutboxEntryId> ids) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return repo.markFailed(ids, clock.instant());
     }
 
     private Mono<Void> assertThatWeAreInATransaction() {
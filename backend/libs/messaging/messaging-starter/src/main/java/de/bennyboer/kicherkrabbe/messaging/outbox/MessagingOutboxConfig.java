@@ -1,12 +1,16 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox;
 
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxLeaseRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxLeaseRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxPartitionMigration;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryPublisher;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.RabbitOutboxEntryPublisher;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +20,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import tools.jackson.databind.json.JsonMapper;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Optional;
 
 @Configuration
@@ -23,10 +28,36 @@ import java.util.Optional;
 @Import(MessagingOutboxTasks.class)
 public class MessagingOutboxConfig {
 
+    private static final String OUTBOX_COLLECTION = "outbox";
+
     @Bean
     @ConditionalOnMissingBean(MessagingOutboxRepo.class)
-    public MessagingOutboxRepo messagingOutboxRepo(ReactiveMongoTemplate template) {
-        return new MongoMessagingOutboxRepo("outbox", template);
+    public MessagingOutboxRepo messagingOutboxRepo(
+            ReactiveMongoTemplate template,
+            @Value("${messaging.outbox.acknowledged-entries-retention:30d}") Duration acknowledgedEntriesRetention
+    ) {
+        return new MongoMessagingOutboxRepo(OUTBOX_COLLECTION, template, acknowledgedEntriesRetention);
+    }
+
+    @Bean
+    public MongoMessagingOutboxPartitionMigration messagingOutboxPartitionMigration(ReactiveMongoTemplate template) {
+        return new MongoMessagingOutboxPartitionMigration(OUTBOX_COLLECTION, template);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(MessagingOutboxLeaseRepo.class)
+    public MessagingOutboxLeaseRepo messagingOutboxLeaseRepo(ReactiveMongoTemplate template) {
+        return new MongoMessagingOutboxLeaseRepo("outbox_leases", "outbox_instances", template);
+    }
+
+    @Bean(destroyMethod = "destroy")
+    @ConditionalOnMissingBean(MessagingOutboxPartitionOwnership.class)
+    public MessagingOutboxPartitionLeases messagingOutboxPartitionLeases(
+            MessagingOutboxLeaseRepo leaseRepo,
+            @Value("${messaging.outbox.partition-lease-duration:30s}") Duration leaseDuration,
+            Optional<Clock> clock
+    ) {
+        return new MessagingOutboxPartitionLeases(leaseRepo, leaseDuration, clock.orElse(Clock.systemUTC()));
     }
 
     @Bean
@@ -34,9 +65,10 @@ public class MessagingOutboxConfig {
     public MessagingOutboxEntryPublisher messagingOutboxEntryPublisher(
             RabbitTemplate rabbitTemplate,
             RabbitAdmin rabbitAdmin,
-            @Qualifier("messagingJsonMapper") JsonMapper jsonMapper
+            @Qualifier("messagingJsonMapper") JsonMapper jsonMapper,
+            @Value("${messaging.outbox.max-outstanding-confirms:256}") int maxOutstandingConfirms
     ) {
-        return new RabbitOutboxEntryPublisher(rabbitTemplate, rabbitAdmin, jsonMapper);
+        return new RabbitOutboxEntryPublisher(rabbitTemplate, rabbitAdmin, jsonMapper, maxOutstandingConfirms);
     }
 
     @Bean
@@ -44,13 +76,16 @@ public class MessagingOutboxConfig {
     public MessagingOutbox messagingOutbox(
             MessagingOutboxRepo repo,
             MessagingOutboxEntryPublisher publisher,
+            MessagingOutboxPartitionOwnership ownership,
+            @Value("${messaging.outbox.batch-size:${messaging.outbox.max-outstanding-confirms:256}}") int batchSize,
             Optional<Clock> clock
     ) {
         return new MessagingOutbox(
                 repo,
                 publisher,
-                10,
-                clock.orElse(Clock.systemUTC())
+                batchSize,
+                clock.orElse(Clock.systemUTC()),
+                ownership
         );
     }
 
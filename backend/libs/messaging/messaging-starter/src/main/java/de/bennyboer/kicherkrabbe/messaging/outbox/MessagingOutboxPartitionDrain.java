@@ -0,0 +1,66 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure a partition is only drained by one subscriber at a time, so that its entries are published in order.
+ * Requests arriving while a drain is running are served by a single follow-up drain, which completes all of them.
+ */
+class MessagingOutboxPartitionDrain {
+
+    private final Supplier<Mono<Void>> drain;
+
+    private final List<MonoSink<Void>> waiting = new ArrayList<>();
+
+    private boolean running;
+
+    MessagingOutboxPartitionDrain(Supplier<Mono<Void>> drain) {
+        this.drain = drain;
+    }
+
+    Mono<Void> request() {
+        return Mono.create(sink -> {
+            boolean start;
+            synchronized (this) {
+                waiting.add(sink);
+                start = !running;
+                running = true;
+            }
+
+            if (start) {
+                runNext();
+            }
+        });
+    }
+
+    private void runNext() {
+        List<MonoSink<Void>> served;
+        synchronized (this) {
+            if (waiting.isEmpty()) {
+                running = false;
+                return;
+            }
+
+            served = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+
+        Mono.defer(drain).subscribe(
+                null,
+                e -> {
+                    served.forEach(sink -> sink.error(e));
+                    runNext();
+                },
+                () -> {
+                    served.forEach(MonoSink::success);
+                    runNext();
+                }
+        );
+    }
+
+}
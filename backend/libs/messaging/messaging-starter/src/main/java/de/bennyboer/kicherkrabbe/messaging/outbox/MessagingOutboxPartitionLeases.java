@@ -0,0 +1,180 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxLeaseRepo;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+
+/**
+ * Leases outbox partitions to this instance, so that every partition is published by exactly one instance.
+ * <p>
+ * Each heartbeat registers the instance as alive, renews the leases it holds and acquires free or expired leases
+ * until it holds its fair share of partitions (the partition count divided by the number of alive instances).
+ * Partitions above the fair share are no longer renewed and taken over by other instances once the lease expired.
+ * A partition is only considered owned until shortly before the lease expires, so that an instance that fails
+ * to renew its leases stops publishing before another instance may take over.
+ */
+@Slf4j
+public class MessagingOutboxPartitionLeases implements MessagingOutboxPartitionOwnership {
+
+    private static final Duration BLOCKING_TIMEOUT = Duration.ofSeconds(5);
+
+    private final MessagingOutboxLeaseRepo repo;
+
+    private final MessagingOutboxInstanceId instanceId;
+
+    private final Duration leaseDuration;
+
+    private final Duration heartbeatInterval;
+
+    private final Clock clock;
+
+    private final Map<MessagingOutboxPartition, Instant> ownedUntil = new ConcurrentHashMap<>();
+
+    @Nullable
+    private Disposable disposable;
+
+    public MessagingOutboxPartitionLeases(MessagingOutboxLeaseRepo repo, Duration leaseDuration, Clock clock) {
+        check(!leaseDuration.isNegative() && !leaseDuration.isZero(), "Lease duration must be positive");
+
+        this.repo = repo;
+        this.instanceId = MessagingOutboxInstanceId.create();
+        this.leaseDuration = leaseDuration;
+        this.heartbeatInterval = leaseDuration.dividedBy(3);
+        this.clock = clock;
+    }
+
+    /**
+     * The first heartbeat is done synchronously, so that a single instance is able to publish right after startup.
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            heartbeat().block(BLOCKING_TIMEOUT);
+        } catch (Exception e) {
+            log.warn("Failed to acquire initial outbox partition leases", e);
+        }
+
+        disposable = Flux.interval(heartbeatInterval, heartbeatInterval, Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap(ignored -> heartbeat()
+                        .onErrorResume(e -> {
+                            log.warn("Failed to renew outbox partition leases", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (disposable != null) {
+            disposable.dispose();
+        }
+
+        List<MessagingOutboxPartition> partitions = List.copyOf(ownedUntil.keySet());
+        ownedUntil.clear();
+
+        try {
+            Flux.fromIterable(partitions)
+                    .concatMap(partition -> repo.release(partition, instanceId))
+                    .then(repo.unregister(instanceId))
+                    .block(BLOCKING_TIMEOUT);
+        } catch (Exception e) {
+            log.warn("Failed to release outbox partition leases", e);
+        }
+    }
+
+    @Override
+    public List<MessagingOutboxPartition> getOwnedPartitions() {
+        return ownedUntil.keySet()
+                .stream()
+                .filter(this::isOwned)
+                .sorted()
+                .toList();
+    }
+
+    @Override
+    public boolean isOwned(MessagingOutboxPartition partition) {
+        Instant until = ownedUntil.get(partition);
+
+        return until != null && clock.instant().isBefore(until.minus(heartbeatInterval));
+    }
+
+    Mono<Void> heartbeat() {
+        return Mono.defer(() -> {
+            Instant now = clock.instant();
+            Instant expiresAt = now.plus(leaseDuration);
+
+            return repo.heartbeat(instanceId, expiresAt)
+                    .then(repo.findAliveInstances(now).count())
+                    .flatMap(aliveInstances -> {
+                        int fairShare = (int) Math.ceil((double) MessagingOutboxPartition.COUNT / Math.max(aliveInstances, 1));
+
+                        return renewLeases(fairShare, now, expiresAt)
+                                .then(acquireLeases(fairShare, now, expiresAt));
+                    });
+        });
+    }
+
+    private Mono<Void> renewLeases(int fairShare, Instant now, Instant expiresAt) {
+        List<MessagingOutboxPartition> owned = ownedUntil.keySet()
+                .stream()
+                .sorted()
+                .toList();
+        List<MessagingOutboxPartition> toRenew = owned.stream()
+                .limit(fairShare)
+                .toList();
+
+        owned.stream()
+                .skip(fairShare)
+                .forEach(partition -> {
+                    ownedUntil.remove(partition);
+                    log.info("Handing over outbox {} to other instances", partition);
+                });
+
+        return Flux.fromIterable(toRenew)
+                .concatMap(partition -> repo.tryAcquire(partition, instanceId, now, expiresAt)
+                        .doOnNext(renewed -> {
+                            if (renewed) {
+                                ownedUntil.put(partition, expiresAt);
+                            } else {
+                                ownedUntil.remove(partition);
+                                log.warn("Lost lease on outbox {}", partition);
+                            }
+                        }))
+                .then();
+    }
+
+    private Mono<Void> acquireLeases(int fairShare, Instant now, Instant expiresAt) {
+        return Flux.fromIterable(MessagingOutboxPartition.all())
+                .filter(partition -> !ownedUntil.containsKey(partition))
+                .concatMap(partition -> {
+                    if (ownedUntil.size() >= fairShare) {
+                        return Mono.empty();
+                    }
+
+                    return repo.tryAcquire(partition, instanceId, now, expiresAt)
+                            .filter(acquired -> acquired)
+                            .doOnNext(acquired -> {
+                                ownedUntil.put(partition, expiresAt);
+                                log.info("Acquired lease on outbox {}", partition);
+                            });
+                })
+                .then();
+    }
+
+}
@@ -0,0 +1,31 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox;
+
+import java.util.List;
+
+/**
+ * Tells the outbox which partitions the current instance is allowed to publish.
+ */
+public interface MessagingOutboxPartitionOwnership {
+
+    List<MessagingOutboxPartition> getOwnedPartitions();
+
+    boolean isOwned(MessagingOutboxPartition partition);
+
+    /**
+     * Ownership of all partitions, for setups with a single publishing instance.
+     */
+    static MessagingOutboxPartitionOwnership all() {
+        return new MessagingOutboxPartitionOwnership() {
+            @Override
+            public List<MessagingOutboxPartition> getOwnedPartitions() {
+                return MessagingOutboxPartition.all();
+            }
+
+            @Override
+            public boolean isOwned(MessagingOutboxPartition partition) {
+                return true;
+            }
+        };
+    }
+
+}
@@ -53,15 +53,4 @@ public class MessagingOutboxTasks {
                 .subscribe();
     }
 
-    @Scheduled(fixedRate = 5 * 60 * 1000)
-    public void cleanupOldAcknowledgedOutboxEntries() {
-        outbox.cleanupOldAcknowledgedEntries()
-                .onErrorResume(e -> {
-                    log.error("Failed to cleanup old acknowledged outbox entries", e);
-                    return Mono.empty();
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .subscribe();
-    }
-
 }
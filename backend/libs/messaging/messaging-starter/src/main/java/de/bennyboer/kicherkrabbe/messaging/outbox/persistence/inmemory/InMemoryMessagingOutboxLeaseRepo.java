@@ -0,0 +1,76 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxInstanceId;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxLeaseRepo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryMessagingOutboxLeaseRepo implements MessagingOutboxLeaseRepo {
+
+    private final Map<MessagingOutboxInstanceId, Instant> instances = new ConcurrentHashMap<>();
+
+    private final Map<MessagingOutboxPartition, Lease> leases = new HashMap<>();
+
+    @Override
+    public Mono<Void> heartbeat(MessagingOutboxInstanceId instanceId, Instant aliveUntil) {
+        return Mono.fromRunnable(() -> instances.put(instanceId, aliveUntil));
+    }
+
+    @Override
+    public Flux<MessagingOutboxInstanceId> findAliveInstances(Instant now) {
+        return Flux.defer(() -> Flux.fromIterable(new ArrayList<>(instances.entrySet())))
+                .filter(entry -> entry.getValue().isAfter(now))
+                .map(Map.Entry::getKey);
+    }
+
+    @Override
+    public Mono<Void> unregister(MessagingOutboxInstanceId instanceId) {
+        return Mono.fromRunnable(() -> instances.remove(instanceId));
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(
+            MessagingOutboxPartition partition,
+            MessagingOutboxInstanceId instanceId,
+            Instant now,
+            Instant expiresAt
+    ) {
+        return Mono.fromCallable(() -> {
+            synchronized (leases) {
+                Lease current = leases.get(partition);
+                boolean acquirable = current == null
+                        || current.owner().equals(instanceId)
+                        || current.expiresAt().isBefore(now);
+
+                if (acquirable) {
+                    leases.put(partition, new Lease(instanceId, expiresAt));
+                }
+
+                return acquirable;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> release(MessagingOutboxPartition partition, MessagingOutboxInstanceId instanceId) {
+        return Mono.fromRunnable(() -> {
+            synchronized (leases) {
+                Lease current = leases.get(partition);
+                if (current != null && current.owner().equals(instanceId)) {
+                    leases.remove(partition);
+                }
+            }
+        });
+    }
+
+    private record Lease(MessagingOutboxInstanceId owner, Instant expiresAt) {
+    }
+
+}
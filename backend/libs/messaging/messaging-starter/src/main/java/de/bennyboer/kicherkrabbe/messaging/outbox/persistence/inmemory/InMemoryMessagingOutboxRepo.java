@@ -3,6 +3,7 @@ package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
 import org.springframework.dao.DuplicateKeyException;
 import reactor.core.publisher.Flux;
@@ -11,6 +12,7 @@ import reactor.core.publisher.Sinks;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -48,27 +50,31 @@ public class InMemoryMessagingOutboxRepo implements MessagingOutboxRepo {
     }
 
     @Override
-    public synchronized Mono<Void> lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock) {
-        var publishable = new ArrayList<>(entries.values()).stream()
-                .filter(entry -> entry.getLockedAt().isEmpty()
-                        && entry.getFailedAt().isEmpty()
-                        && entry.getAcknowledgedAt().isEmpty())
-                .sorted(Comparator.comparing(MessagingOutboxEntry::getCreatedAt))
-                .limit(maxEntries)
-                .toList();
+    public Mono<Void> acknowledgeAll(Collection<MessagingOutboxEntryId> ids, Instant acknowledgedAt) {
+        var clock = Clock.fixed(acknowledgedAt, ZoneOffset.UTC);
 
-        for (var entry : publishable) {
-            this.entries.put(entry.getId(), entry.lock(lock, clock));
-        }
+        return Flux.fromIterable(ids)
+                .doOnNext(id -> this.entries.computeIfPresent(id, (ignored, entry) -> entry.acknowledge(clock)))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> markFailed(Collection<MessagingOutboxEntryId> ids, Instant failedAt) {
+        var clock = Clock.fixed(failedAt, ZoneOffset.UTC);
 
-        return Mono.empty();
+        return Flux.fromIterable(ids)
+                .doOnNext(id -> this.entries.computeIfPresent(id, (ignored, entry) -> entry.failed(clock)))
+                .then();
     }
 
     @Override
-    public Flux<MessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock) {
-        return findAll()
-                .filter(entry -> entry.getLock().equals(Optional.of(lock)))
-                .sort(Comparator.comparing(MessagingOutboxEntry::getCreatedAt));
+    public Flux<MessagingOutboxEntry> claimNextPublishableEntries(
+            MessagingOutboxPartition partition,
+            MessagingOutboxEntryLock lock,
+            int maxEntries,
+            Clock clock
+    ) {
+        return Flux.defer(() -> Flux.fromIterable(claim(partition, lock, maxEntries, clock)));
     }
 
     @Override
@@ -80,16 +86,6 @@ public class InMemoryMessagingOutboxRepo implements MessagingOutboxRepo {
                 .then();
     }
 
-    @Override
-    public Mono<Void> removeAcknowledgedEntriesOlderThan(Instant date) {
-        return findAll()
-                .filter(entry -> entry.getAcknowledgedAt()
-                        .map(acknowledgedAt -> acknowledgedAt.isBefore(date))
-                        .orElse(false))
-                .doOnNext(entry -> this.entries.remove(entry.getId()))
-                .then();
-    }
-
     @Override
     public Flux<MessagingOutboxEntry> findFailedEntriesOlderThan(Instant date) {
         return findAll()
@@ -105,4 +101,39 @@ public class InMemoryMessagingOutboxRepo implements MessagingOutboxRepo {
         return Flux.defer(() -> Flux.fromIterable(new ArrayList<>(entries.values())));
     }
 
+    private synchronized List<MessagingOutboxEntry> claim(
+            MessagingOutboxPartition partition,
+            MessagingOutboxEntryLock lock,
+            int maxEntries,
+            Clock clock
+    ) {
+        var publishable = new ArrayList<>(entries.values()).stream()
+                .filter(entry -> entry.getPartition().equals(partition))
+                .filter(entry -> entry.getLockedAt().isEmpty()
+                        && entry.getFailedAt().isEmpty()
+                        && entry.getAcknowledgedAt().isEmpty())
+                .sorted(Comparator.comparing(MessagingOutboxEntry::getCreatedAt)
+                        .thenComparingLong(MessagingOutboxEntry::getSequence))
+                .limit(maxEntries)
+                .toList();
+
+        var claimed = new ArrayList<MessagingOutboxEntry>();
+        for (var entry : publishable) {
+            boolean isRetry = entry.getRetryCount() > 0;
+            if (isRetry && !claimed.isEmpty()) {
+                break;
+            }
+
+            var locked = entry.lock(lock, clock);
+            this.entries.put(locked.getId(), locked);
+            claimed.add(locked);
+
+            if (isRetry) {
+                break;
+            }
+        }
+
+        return claimed;
+    }
+
 }
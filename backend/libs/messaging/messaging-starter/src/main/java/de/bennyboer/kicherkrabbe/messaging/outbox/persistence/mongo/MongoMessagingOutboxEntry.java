@@ -26,10 +26,30 @@ public class MongoMessagingOutboxEntry {
 
     String routingKey;
 
+    /**
+     * Set for structured payloads only.
+     */
+    @Nullable
     Map<String, Object> payload;
 
+    /**
+     * Set for payloads that have been serialized when inserting the entry.
+     */
+    @Nullable
+    byte[] serializedPayload;
+
+    @Nullable
+    String contentType;
+
+    int partition;
+
     Instant createdAt;
 
+    /**
+     * Missing for entries written before the sequence was introduced, which are then only ordered by creation date.
+     */
+    long sequence;
+
     @Nullable
     Instant lockedAt;
 
@@ -0,0 +1,22 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import java.time.Instant;
+
+import static lombok.AccessLevel.PUBLIC;
+
+@ToString
+@EqualsAndHashCode
+@FieldDefaults(level = PUBLIC)
+public class MongoMessagingOutboxInstance {
+
+    @MongoId
+    String id;
+
+    Instant aliveUntil;
+
+}
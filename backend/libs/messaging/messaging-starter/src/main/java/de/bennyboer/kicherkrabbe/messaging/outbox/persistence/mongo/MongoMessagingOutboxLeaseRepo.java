@@ -0,0 +1,108 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo;
+
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxInstanceId;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxLeaseRepo;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.core.query.Update.update;
+
+public class MongoMessagingOutboxLeaseRepo implements MessagingOutboxLeaseRepo {
+
+    private final String leasesCollection;
+
+    private final String instancesCollection;
+
+    private final ReactiveMongoTemplate template;
+
+    public MongoMessagingOutboxLeaseRepo(
+            String leasesCollection,
+            String instancesCollection,
+            ReactiveMongoTemplate template
+    ) {
+        this.leasesCollection = leasesCollection;
+        this.instancesCollection = instancesCollection;
+        this.template = template;
+
+        initializeIndices();
+    }
+
+    @Override
+    public Mono<Void> heartbeat(MessagingOutboxInstanceId instanceId, Instant aliveUntil) {
+        var criteria = where("id").is(instanceId.getValue());
+        var update = update("aliveUntil", aliveUntil);
+
+        return template.upsert(query(criteria), update, MongoMessagingOutboxInstance.class, instancesCollection)
+                .then();
+    }
+
+    @Override
+    public Flux<MessagingOutboxInstanceId> findAliveInstances(Instant now) {
+        var criteria = where("aliveUntil").gt(now);
+
+        return template.find(query(criteria), MongoMessagingOutboxInstance.class, instancesCollection)
+                .map(instance -> MessagingOutboxInstanceId.of(instance.id));
+    }
+
+    @Override
+    public Mono<Void> unregister(MessagingOutboxInstanceId instanceId) {
+        var criteria = where("id").is(instanceId.getValue());
+
+        return template.remove(query(criteria), MongoMessagingOutboxInstance.class, instancesCollection)
+                .then();
+    }
+
+    /**
+     * Upserts the lease only if it is free, expired or already ours. If another instance holds the lease,
+     * the query does not match and the upsert fails with a duplicate key error on the partition ID.
+     */
+    @Override
+    public Mono<Boolean> tryAcquire(
+            MessagingOutboxPartition partition,
+            MessagingOutboxInstanceId instanceId,
+            Instant now,
+            Instant expiresAt
+    ) {
+        var criteria = where("id").is(partition.getValue())
+                .orOperator(
+                        where("owner").is(instanceId.getValue()),
+                        where("expiresAt").lt(now)
+                );
+        var update = update("owner", instanceId.getValue())
+                .set("expiresAt", expiresAt);
+
+        return template.upsert(query(criteria), update, MongoMessagingOutboxPartitionLease.class, leasesCollection)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false));
+    }
+
+    @Override
+    public Mono<Void> release(MessagingOutboxPartition partition, MessagingOutboxInstanceId instanceId) {
+        var criteria = where("id").is(partition.getValue())
+                .and("owner").is(instanceId.getValue());
+
+        return template.remove(query(criteria), MongoMessagingOutboxPartitionLease.class, leasesCollection)
+                .then();
+    }
+
+    private void initializeIndices() {
+        var aliveUntilIndex = new Index()
+                .on("aliveUntil", Sort.Direction.ASC)
+                .expire(Duration.ZERO);
+
+        template.indexOps(instancesCollection)
+                .createIndex(aliveUntilIndex)
+                .block();
+    }
+
+}
@@ -0,0 +1,60 @@
+package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo;
+
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.core.query.Update.update;
+
+/**
+ * Entries written before the outbox was partitioned do not have a partition. They are assigned to the first
+ * partition, so that they are still published. This runs in the background once the application is ready instead
+ * of blocking the startup. Until then, such entries are simply not claimed yet.
+ */
+@Slf4j
+public class MongoMessagingOutboxPartitionMigration {
+
+    private final String collection;
+
+    private final ReactiveMongoTemplate template;
+
+    public MongoMessagingOutboxPartitionMigration(String collection, ReactiveMongoTemplate template) {
+        notNull(collection, "Collection must be given");
+        notNull(template, "Template must be given");
+
+        this.collection = collection;
+        this.template = template;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent ignoredEvent) {
+        assignPartitionToEntriesWithoutPartition()
+                .doOnNext(migrated -> {
+                    if (migrated > 0) {
+                        log.info("Assigned a partition to {} outbox entries", migrated);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("Failed to assign a partition to outbox entries without partition", e);
+                    return Mono.empty();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+    }
+
+    public Mono<Long> assignPartitionToEntriesWithoutPartition() {
+        var criteria = where("partition").exists(false);
+        var update = update("partition", 0);
+
+        return template.updateMulti(query(criteria), update, MongoMessagingOutboxEntry.class, collection)
+                .map(UpdateResult::getModifiedCount);
+    }
+
+}
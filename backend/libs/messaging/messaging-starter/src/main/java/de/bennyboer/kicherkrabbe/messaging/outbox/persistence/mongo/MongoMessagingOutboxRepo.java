@@ -1,9 +1,12 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.transformer.MongoMessagingOutboxEntryTransformer;
+import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ChangeStreamEvent;
@@ -19,22 +22,47 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+import static de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry.MAX_RETRY_COUNT;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.ORDERED;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 import static org.springframework.data.mongodb.core.query.Update.update;
 
 public class MongoMessagingOutboxRepo implements MessagingOutboxRepo {
 
+    private static final Duration DEFAULT_ACKNOWLEDGED_ENTRIES_RETENTION = Duration.ofDays(30);
+
+    private static final String ACKNOWLEDGED_AT_INDEX = "acknowledgedAt_1";
+
+    private static final Sort CREATION_ORDER = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("sequence"));
+
     private final String collection;
 
     private final ReactiveMongoTemplate template;
 
+    private final Duration acknowledgedEntriesRetention;
+
     public MongoMessagingOutboxRepo(String collection, ReactiveMongoTemplate template) {
+        this(collection, template, DEFAULT_ACKNOWLEDGED_ENTRIES_RETENTION);
+    }
+
+    /**
+     * Acknowledged entries are removed by MongoDB using a TTL index once they are older than the given retention.
+     */
+    public MongoMessagingOutboxRepo(
+            String collection,
+            ReactiveMongoTemplate template,
+            Duration acknowledgedEntriesRetention
+    ) {
         this.collection = collection;
         this.template = template;
+        this.acknowledgedEntriesRetention = acknowledgedEntriesRetention;
 
         initializeIndices();
     }
@@ -57,20 +85,64 @@ public class MongoMessagingOutboxRepo implements MessagingOutboxRepo {
     }
 
     @Override
-    public Mono<Void> lockNextPublishableEntries(MessagingOutboxEntryLock lock, int maxEntries, Clock clock) {
-        return findNextPublishableEntries(maxEntries)
-                .map(entry -> entry.id)
-                .collectList()
-                .flatMap(ids -> lockEntries(ids, lock, clock));
+    public Mono<Void> acknowledgeAll(Collection<MessagingOutboxEntryId> ids, Instant acknowledgedAt) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+
+        var criteria = where("id").in(toIdValues(ids));
+        var update = update("acknowledgedAt", acknowledgedAt);
+
+        return template.updateMulti(query(criteria), update, MongoMessagingOutboxEntry.class, collection)
+                .then();
     }
 
     @Override
-    public Flux<MessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock) {
-        var criteria = where("lock").is(lock.getValue());
-        var query = query(criteria)
-                .with(Sort.by(Sort.Order.asc("createdAt")));
+    public Mono<Void> markFailed(Collection<MessagingOutboxEntryId> ids, Instant failedAt) {
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
 
-        return template.find(query, MongoMessagingOutboxEntry.class, collection)
+        List<String> idValues = toIdValues(ids);
+        var exhaustedCriteria = where("id").in(idValues)
+                .and("retryCount").gte(MAX_RETRY_COUNT);
+        var retryableCriteria = where("id").in(idValues)
+                .and("retryCount").lt(MAX_RETRY_COUNT);
+        var retryableUpdate = new Update()
+                .unset("lockedAt")
+                .unset("lock")
+                .inc("retryCount", 1);
+
+        return template.bulkOps(ORDERED, MongoMessagingOutboxEntry.class, collection)
+                .updateMulti(query(exhaustedCriteria), update("failedAt", failedAt))
+                .updateMulti(query(retryableCriteria), retryableUpdate)
+                .execute()
+                .then();
+    }
+
+    /**
+     * Claims a batch of entries in a constant number of round trips, independent of the batch size.
+     * MongoDB cannot limit a multi update, so the IDs of the oldest publishable entries are looked up first.
+     * A single multi update then stamps the lock on those of them that are still publishable, and the entries
+     * carrying the lock are read back. Entries claimed concurrently by someone else are simply left out.
+     * <p>
+     * An entry that failed to be published before is claimed on its own, so that no later entry of its partition is
+     * published until it has either been delivered or parked after exhausting its retries.
+     */
+    @Override
+    public Flux<MessagingOutboxEntry> claimNextPublishableEntries(
+            MessagingOutboxPartition partition,
+            MessagingOutboxEntryLock lock,
+            int maxEntries,
+            Clock clock
+    ) {
+        return findNextPublishableEntries(partition, maxEntries)
+                .collectList()
+                .map(MongoMessagingOutboxRepo::toClaimableIds)
+                .filter(ids -> !ids.isEmpty())
+                .flatMap(ids -> lockPublishableEntries(ids, lock, clock))
+                .filter(updateResult -> updateResult.getModifiedCount() > 0)
+                .flatMapMany(ignored -> findLockedEntries(lock))
                 .map(MongoMessagingOutboxEntryTransformer::toMessagingOutboxEntry);
     }
 
@@ -85,20 +157,11 @@ public class MongoMessagingOutboxRepo implements MessagingOutboxRepo {
                 .then();
     }
 
-    @Override
-    public Mono<Void> removeAcknowledgedEntriesOlderThan(Instant date) {
-        var criteria = where("acknowledgedAt").lt(date);
-        var query = query(criteria);
-
-        return template.remove(query, MongoMessagingOutboxEntry.class, collection)
-                .then();
-    }
-
     @Override
     public Flux<MessagingOutboxEntry> findFailedEntriesOlderThan(Instant date) {
         var criteria = where("failedAt").lt(date);
         var query = query(criteria)
-                .with(Sort.by(Sort.Order.asc("createdAt")));
+                .with(CREATION_ORDER);
 
         return template.find(query, MongoMessagingOutboxEntry.class, collection)
                 .map(MongoMessagingOutboxEntryTransformer::toMessagingOutboxEntry);
@@ -120,45 +183,110 @@ public class MongoMessagingOutboxRepo implements MessagingOutboxRepo {
                 .map(MongoMessagingOutboxEntryTransformer::toMessagingOutboxEntry);
     }
 
-    private Flux<MongoMessagingOutboxEntry> findNextPublishableEntries(int maxEntries) {
-        var criteria = where("lockedAt").is(null)
-                .and("failedAt").is(null)
-                .and("acknowledgedAt").is(null);
+    private Flux<MongoMessagingOutboxEntry> findNextPublishableEntries(
+            MessagingOutboxPartition partition,
+            int maxEntries
+    ) {
+        var criteria = publishableCriteria()
+                .and("partition").is(partition.getValue());
         var query = query(criteria)
-                .with(Sort.by(Sort.Order.asc("createdAt")))
+                .with(CREATION_ORDER)
                 .limit(maxEntries);
+        query.fields().include("_id", "retryCount");
 
         return template.find(query, MongoMessagingOutboxEntry.class, collection);
     }
 
-    private Mono<Void> lockEntries(Collection<String> ids, MessagingOutboxEntryLock lock, Clock clock) {
-        Instant now = clock.instant();
+    private static List<String> toClaimableIds(List<MongoMessagingOutboxEntry> candidates) {
+        List<String> ids = new ArrayList<>();
+
+        for (var candidate : candidates) {
+            boolean isRetry = candidate.retryCount > 0;
+            if (isRetry && !ids.isEmpty()) {
+                break;
+            }
 
-        var criteria = where("id").in(ids);
-        var update = update("lockedAt", now)
+            ids.add(candidate.id);
+
+            if (isRetry) {
+                break;
+            }
+        }
+
+        return ids;
+    }
+
+    private Mono<UpdateResult> lockPublishableEntries(
+            List<String> ids,
+            MessagingOutboxEntryLock lock,
+            Clock clock
+    ) {
+        var criteria = publishableCriteria()
+                .and("id").in(ids);
+        var update = update("lockedAt", clock.instant())
                 .set("lock", lock.getValue());
 
-        return template.updateMulti(query(criteria), update, MongoMessagingOutboxEntry.class, collection)
-                .then();
+        return template.updateMulti(query(criteria), update, MongoMessagingOutboxEntry.class, collection);
+    }
+
+    private Flux<MongoMessagingOutboxEntry> findLockedEntries(MessagingOutboxEntryLock lock) {
+        var criteria = where("lock").is(lock.getValue());
+        var query = query(criteria)
+                .with(CREATION_ORDER);
+
+        return template.find(query, MongoMessagingOutboxEntry.class, collection);
+    }
+
+    private Criteria publishableCriteria() {
+        return where("lockedAt").is(null)
+                .and("failedAt").is(null)
+                .and("acknowledgedAt").is(null);
+    }
+
+    private List<String> toIdValues(Collection<MessagingOutboxEntryId> ids) {
+        return ids.stream()
+                .map(MessagingOutboxEntryId::getValue)
+                .toList();
     }
 
     private void initializeIndices() {
         ReactiveIndexOperations indexOps = template.indexOps(collection);
 
         var publishableIndex = new CompoundIndexDefinition(new Document()
+                .append("partition", 1)
                 .append("lockedAt", 1)
                 .append("failedAt", 1)
-                .append("acknowledgedAt", 1));
+                .append("acknowledgedAt", 1)
+                .append("createdAt", 1)
+                .append("sequence", 1));
         var lockedAtIndex = new Index().on("lockedAt", Sort.Direction.ASC);
         var lockIndex = new Index().on("lock", Sort.Direction.ASC);
-        var acknowledgedIndex = new Index().on("acknowledgedAt", Sort.Direction.ASC);
 
         Mono.zip(
                 indexOps.createIndex(publishableIndex),
                 indexOps.createIndex(lockedAtIndex),
                 indexOps.createIndex(lockIndex),
-                indexOps.createIndex(acknowledgedIndex)
+                createAcknowledgedAtTtlIndex(indexOps)
         ).block();
     }
 
+    /**
+     * The acknowledged at index used to be a plain index. MongoDB refuses to create an index on the same key with
+     * different options, so an existing index without the expected expiry is dropped first.
+     */
+    private Mono<String> createAcknowledgedAtTtlIndex(ReactiveIndexOperations indexOps) {
+        var ttlIndex = new Index()
+                .on("acknowledgedAt", Sort.Direction.ASC)
+                .named(ACKNOWLEDGED_AT_INDEX)
+                .expire(acknowledgedEntriesRetention);
+
+        return indexOps.getIndexInfo()
+                .filter(info -> info.getName().equals(ACKNOWLEDGED_AT_INDEX))
+                .filter(info -> !info.getExpireAfter()
+                        .map(expireAfter -> expireAfter.equals(acknowledgedEntriesRetention))
+                        .orElse(false))
+                .concatMap(info -> indexOps.dropIndex(info.getName()))
+                .then(indexOps.createIndex(ttlIndex));
+    }
+
 }
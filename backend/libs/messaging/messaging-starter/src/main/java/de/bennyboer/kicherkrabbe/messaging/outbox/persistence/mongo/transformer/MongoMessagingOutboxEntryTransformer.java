@@ -4,6 +4,8 @@ import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryLock;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPartition;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.mongo.MongoMessagingOutboxEntry;
 import de.bennyboer.kicherkrabbe.messaging.target.ExchangeTarget;
 import de.bennyboer.kicherkrabbe.messaging.target.MessageTarget;
@@ -22,8 +24,12 @@ public class MongoMessagingOutboxEntryTransformer {
                 .map(ExchangeTarget::getName)
                 .orElse(null);
         result.routingKey = entry.getRoutingKey().asString();
-        result.payload = entry.getPayload();
+        result.payload = entry.getPayload().getStructured().orElse(null);
+        result.serializedPayload = entry.getPayload().getSerialized().orElse(null);
+        result.contentType = entry.getPayload().getContentType();
+        result.partition = entry.getPartition().getValue();
         result.createdAt = entry.getCreatedAt();
+        result.sequence = entry.getSequence();
         result.lockedAt = entry.getLockedAt().orElse(null);
         result.lock = entry.getLock()
                 .map(MessagingOutboxEntryLock::getValue)
@@ -42,8 +48,10 @@ public class MongoMessagingOutboxEntryTransformer {
             case EXCHANGE -> MessageTarget.exchange(ExchangeTarget.of(entry.exchange));
         };
         var routingKey = RoutingKey.parse(entry.routingKey);
-        var payload = entry.payload;
+        var payload = toMessagingOutboxPayload(entry);
+        var partition = MessagingOutboxPartition.of(entry.partition);
         var createdAt = entry.createdAt;
+        var sequence = entry.sequence;
         var lockedAt = entry.lockedAt;
         var lock = Optional.ofNullable(entry.lock)
                 .map(MessagingOutboxEntryLock::of)
@@ -57,7 +65,9 @@ public class MongoMessagingOutboxEntryTransformer {
                 target,
                 routingKey,
                 payload,
+                partition,
                 createdAt,
+                sequence,
                 lockedAt,
                 lock,
                 acknowledgedAt,
@@ -66,4 +76,12 @@ public class MongoMessagingOutboxEntryTransformer {
         );
     }
 
+    private static MessagingOutboxPayload toMessagingOutboxPayload(MongoMessagingOutboxEntry entry) {
+        if (entry.serializedPayload != null) {
+            return MessagingOutboxPayload.serialized(entry.serializedPayload, entry.contentType);
+        }
+
+        return MessagingOutboxPayload.structured(entry.payload);
+    }
+
 }
@@ -1,12 +1,15 @@
 package de.bennyboer.kicherkrabbe.messaging.outbox.publisher;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
-import lombok.AllArgsConstructor;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntryId;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.ExchangeBuilder;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import reactor.core.publisher.Flux;
@@ -15,19 +18,29 @@ import reactor.core.scheduler.Schedulers;
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.json.JsonMapper;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.check;
+
+/**
+ * Publishes outbox entries using correlated publisher confirms.
+ * All messages are sent on a single channel, so that they reach the broker in the order of the given entries.
+ * Sending uses a sliding window: at most the configured number of messages await their confirm at any time, and
+ * the next message is sent as soon as any outstanding confirm arrives.
+ */
 @Slf4j
-@AllArgsConstructor
 public class RabbitOutboxEntryPublisher implements MessagingOutboxEntryPublisher {
 
     private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(10);
 
+    private static final int DEFAULT_MAX_OUTSTANDING_CONFIRMS = 256;
+
     private final Set<String> declaredExchanges = ConcurrentHashMap.newKeySet();
 
     private final RabbitTemplate rabbitTemplate;
@@ -36,36 +49,118 @@ public class RabbitOutboxEntryPublisher implements MessagingOutboxEntryPublisher
 
     private final JsonMapper jsonMapper;
 
+    private final int maxOutstandingConfirms;
+
+    public RabbitOutboxEntryPublisher(RabbitTemplate rabbitTemplate, RabbitAdmin rabbitAdmin, JsonMapper jsonMapper) {
+        this(rabbitTemplate, rabbitAdmin, jsonMapper, DEFAULT_MAX_OUTSTANDING_CONFIRMS);
+    }
+
+    public RabbitOutboxEntryPublisher(
+            RabbitTemplate rabbitTemplate,
+            RabbitAdmin rabbitAdmin,
+            JsonMapper jsonMapper,
+            int maxOutstandingConfirms
+    ) {
+        check(maxOutstandingConfirms > 0, "Max outstanding confirms must be positive");
+
+        this.rabbitTemplate = rabbitTemplate;
+        this.rabbitAdmin = rabbitAdmin;
+        this.jsonMapper = jsonMapper;
+        this.maxOutstandingConfirms = maxOutstandingConfirms;
+    }
+
     @Override
     public Mono<Void> publishAll(Collection<MessagingOutboxEntry> entries) {
+        return publishEach(entries)
+                .filter(confirmation -> !confirmation.isAcknowledged())
+                .count()
+                .flatMap(rejected -> rejected > 0
+                        ? Mono.error(new RuntimeException("%d messages have been rejected by the broker".formatted(rejected)))
+                        : Mono.empty());
+    }
+
+    @Override
+    public Flux<MessagingOutboxEntryConfirmation> publishEach(Collection<MessagingOutboxEntry> entries) {
         return Flux.fromIterable(entries)
-                .flatMap(this::toMessage)
+                .concatMap(this::toMessage)
                 .delayUntil(this::declareExchangeIfNotExists)
                 .collectList()
-                .filter(messages -> !messages.isEmpty())
-                .flatMap(this::sendMessagesWithConfirm);
+                .flatMapMany(this::sendMessagesWithConfirm);
     }
 
-    private Mono<Void> sendMessagesWithConfirm(List<MessageWithExchange> messages) {
-        return Mono.fromCallable(() -> {
-                    rabbitTemplate.invoke(operations -> {
-                        for (var messageWithExchange : messages) {
-                            operations.send(
-                                    messageWithExchange.exchange(),
-                                    messageWithExchange.routingKey(),
-                                    messageWithExchange.message()
-                            );
-                        }
-                        boolean confirmed = operations.waitForConfirms(CONFIRM_TIMEOUT.toMillis());
-                        if (!confirmed) {
-                            throw new RuntimeException("Publisher confirms not received within timeout");
-                        }
-                        return null;
-                    });
-                    return null;
+    /**
+     * Sends the given messages in order on a single channel. Before each message a slot of the window is taken,
+     * which is given back once the confirm of the message arrived. Emits a confirmation per message as soon as its
+     * confirm arrives, while later messages are still being sent.
+     */
+    private Flux<MessagingOutboxEntryConfirmation> sendMessagesWithConfirm(List<MessageWithExchange> messages) {
+        Semaphore window = new Semaphore(maxOutstandingConfirms);
+
+        return Flux.<SentMessage>create(sink -> {
+                    try {
+                        rabbitTemplate.invoke(operations -> {
+                            for (var messageWithExchange : messages) {
+                                if (sink.isCancelled()) {
+                                    break;
+                                }
+                                acquireSlot(window);
+
+                                var correlationData = new CorrelationData(messageWithExchange.entryId().getValue());
+                                correlationData.getFuture().whenComplete((confirm, e) -> window.release());
+                                operations.send(
+                                        messageWithExchange.exchange(),
+                                        messageWithExchange.routingKey(),
+                                        messageWithExchange.message(),
+                                        correlationData
+                                );
+                                sink.next(new SentMessage(messageWithExchange.entryId(), correlationData));
+                            }
+
+                            return null;
+                        });
+                        sink.complete();
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
                 })
                 .subscribeOn(Schedulers.boundedElastic())
-                .then();
+                .flatMap(this::awaitConfirm, maxOutstandingConfirms);
+    }
+
+    /**
+     * Waits at most as long as a confirm may take, as a slot is only given back once a confirm arrived.
+     */
+    private void acquireSlot(Semaphore window) {
+        try {
+            if (!window.tryAcquire(CONFIRM_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Timed out waiting for outstanding publisher confirms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for outstanding publisher confirms", e);
+        }
+    }
+
+    private Mono<MessagingOutboxEntryConfirmation> awaitConfirm(SentMessage sentMessage) {
+        MessagingOutboxEntryId entryId = sentMessage.entryId();
+        CorrelationData correlationData = sentMessage.correlationData();
+
+        return Mono.fromFuture(correlationData.getFuture())
+                .timeout(CONFIRM_TIMEOUT)
+                .map(confirm -> {
+                    if (!confirm.isAck()) {
+                        log.warn("Message for outbox entry {} has been nacked: {}", entryId, confirm.getReason());
+                        return MessagingOutboxEntryConfirmation.rejected(entryId);
+                    }
+
+                    ReturnedMessage returned = correlationData.getReturned();
+                    if (returned != null) {
+                        log.warn("Message for outbox entry {} has been returned: {}", entryId, returned.getReplyText());
+                        return MessagingOutboxEntryConfirmation.rejected(entryId);
+                    }
+
+                    return MessagingOutboxEntryConfirmation.acknowledged(entryId);
+                });
     }
 
     private Mono<Void> declareExchangeIfNotExists(MessageWithExchange messageWithExchange) {
@@ -89,27 +184,43 @@ public class RabbitOutboxEntryPublisher implements MessagingOutboxEntryPublisher
         )).getName();
         String routingKey = entry.getRoutingKey().asString();
 
+        MessagingOutboxPayload payload = entry.getPayload();
         MessageProperties properties = new MessageProperties();
-        properties.setContentType("application/json");
-        properties.setContentEncoding("UTF-8");
+        properties.setContentType(payload.getContentType());
+        if (payload.isJson()) {
+            properties.setContentEncoding("UTF-8");
+        }
         properties.setMessageId(entry.getId().getValue());
 
         return serializePayload(entry)
-                .map(payload -> {
-                    Message message = new Message(payload.getBytes(StandardCharsets.UTF_8), properties);
-                    return new MessageWithExchange(exchange, routingKey, message);
+                .map(body -> {
+                    Message message = new Message(body, properties);
+                    return new MessageWithExchange(entry.getId(), exchange, routingKey, message);
                 });
     }
 
-    private Mono<String> serializePayload(MessagingOutboxEntry entry) {
+    private Mono<byte[]> serializePayload(MessagingOutboxEntry entry) {
+        MessagingOutboxPayload payload = entry.getPayload();
+        if (payload.isSerialized()) {
+            return Mono.justOrEmpty(payload.getSerialized());
+        }
+
         try {
-            return Mono.just(jsonMapper.writeValueAsString(entry.getPayload()));
+            return Mono.just(jsonMapper.writeValueAsBytes(payload.getStructured().orElseThrow()));
         } catch (JacksonException e) {
             return Mono.error(e);
         }
     }
 
-    private record MessageWithExchange(String exchange, String routingKey, Message message) {
+    private record SentMessage(MessagingOutboxEntryId entryId, CorrelationData correlationData) {
+    }
+
+    private record MessageWithExchange(
+            MessagingOutboxEntryId entryId,
+            String exchange,
+            String routingKey,
+            Message message
+    ) {
     }
 
 }
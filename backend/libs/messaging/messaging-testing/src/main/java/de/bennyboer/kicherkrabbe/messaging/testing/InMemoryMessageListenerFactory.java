@@ -3,6 +3,9 @@ package de.bennyboer.kicherkrabbe.messaging.testing;
 import de.bennyboer.kicherkrabbe.messaging.RoutingKey;
 import de.bennyboer.kicherkrabbe.messaging.inbox.MessagingInbox;
 import de.bennyboer.kicherkrabbe.messaging.listener.AcknowledgableMessage;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageBatching;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageCoalescing;
+import de.bennyboer.kicherkrabbe.messaging.listener.MessageConcurrency;
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListener;
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerConcurrencyLimiter;
 import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerFactory;
@@ -14,6 +17,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.util.List;
 import java.util.function.Function;
 
 @AllArgsConstructor
@@ -28,7 +32,7 @@ public class InMemoryMessageListenerFactory implements MessageListenerFactory {
     private final MessageListenerConcurrencyLimiter concurrencyLimiter;
 
     @Override
-    public MessageListener createListener(
+    public MessageListener<Message> createListener(
             ExchangeTarget exchange,
             RoutingKey routingKey,
             String listenerName,
@@ -37,14 +41,86 @@ public class InMemoryMessageListenerFactory implements MessageListenerFactory {
         Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
         messageBus.register(exchange.getName(), routingKey.asString(), sink);
 
-        return new MessageListener(
-                transactionManager,
-                inbox,
-                sink::asFlux,
-                listenerName,
-                handler,
-                concurrencyLimiter
-        );
+        return MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(sink::asFlux)
+                .name(listenerName)
+                .decoder(Function.identity())
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .build();
+    }
+
+    @Override
+    public <T> MessageListener<T> createCoalescingListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageCoalescing<T> coalescing,
+            Function<T, Mono<Void>> handler
+    ) {
+        Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+        messageBus.register(exchange.getName(), routingKey.asString(), sink);
+
+        return MessageListener.<T>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(sink::asFlux)
+                .name(listenerName)
+                .decoder(decoder)
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .coalescing(coalescing)
+                .build();
+    }
+
+    @Override
+    public <T> MessageListener<T> createConcurrentListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            Function<Message, T> decoder,
+            MessageConcurrency<T> concurrency,
+            Function<T, Mono<Void>> handler
+    ) {
+        Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+        messageBus.register(exchange.getName(), routingKey.asString(), sink);
+
+        return MessageListener.<T>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(sink::asFlux)
+                .name(listenerName)
+                .decoder(decoder)
+                .handler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .concurrency(concurrency)
+                .build();
+    }
+
+    @Override
+    public MessageListener<Message> createBatchListener(
+            ExchangeTarget exchange,
+            RoutingKey routingKey,
+            String listenerName,
+            MessageBatching batching,
+            Function<List<Message>, Mono<Void>> handler
+    ) {
+        Sinks.Many<AcknowledgableMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+        messageBus.register(exchange.getName(), routingKey.asString(), sink);
+
+        return MessageListener.<Message>builder()
+                .transactionManager(transactionManager)
+                .inbox(inbox)
+                .deliveries(sink::asFlux)
+                .name(listenerName)
+                .decoder(Function.identity())
+                .batching(batching)
+                .batchHandler(handler)
+                .concurrencyLimiter(concurrencyLimiter)
+                .build();
     }
 
     @Override
@@ -1,6 +1,7 @@
 package de.bennyboer.kicherkrabbe.messaging.testing;
 
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxEntry;
+import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutboxPayload;
 import de.bennyboer.kicherkrabbe.messaging.outbox.publisher.MessagingOutboxEntryPublisher;
 import lombok.AllArgsConstructor;
 import org.springframework.amqp.core.Message;
@@ -10,7 +11,6 @@ import reactor.core.publisher.Mono;
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.json.JsonMapper;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 
 @AllArgsConstructor
@@ -33,22 +33,30 @@ public class InMemoryOutboxEntryPublisher implements MessagingOutboxEntryPublish
         )).getName();
         String routingKey = entry.getRoutingKey().asString();
 
+        MessagingOutboxPayload payload = entry.getPayload();
         MessageProperties properties = new MessageProperties();
-        properties.setContentType("application/json");
-        properties.setContentEncoding("UTF-8");
+        properties.setContentType(payload.getContentType());
+        if (payload.isJson()) {
+            properties.setContentEncoding("UTF-8");
+        }
         properties.setMessageId(entry.getId().getValue());
 
         return serializePayload(entry)
-                .doOnNext(payload -> {
-                    Message message = new Message(payload.getBytes(StandardCharsets.UTF_8), properties);
+                .doOnNext(body -> {
+                    Message message = new Message(body, properties);
                     messageBus.publish(exchange, routingKey, message);
                 })
                 .then();
     }
 
-    private Mono<String> serializePayload(MessagingOutboxEntry entry) {
+    private Mono<byte[]> serializePayload(MessagingOutboxEntry entry) {
+        MessagingOutboxPayload payload = entry.getPayload();
+        if (payload.isSerialized()) {
+            return Mono.justOrEmpty(payload.getSerialized());
+        }
+
         try {
-            return Mono.just(jsonMapper.writeValueAsString(entry.getPayload()));
+            return Mono.just(jsonMapper.writeValueAsBytes(payload.getStructured().orElseThrow()));
         } catch (JacksonException e) {
             return Mono.error(e);
         }
@@ -3,7 +3,9 @@ package de.bennyboer.kicherkrabbe.messaging.testing;
 import de.bennyboer.kicherkrabbe.messaging.MessagingConfig;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.MessagingInboxRepo;
 import de.bennyboer.kicherkrabbe.messaging.inbox.persistence.inmemory.InMemoryMessagingInboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxLeaseRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.MessagingOutboxRepo;
+import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxLeaseRepo;
 import de.bennyboer.kicherkrabbe.messaging.outbox.persistence.inmemory.InMemoryMessagingOutboxRepo;
 import de.bennyboer.kicherkrabbe.persistence.MockReactiveTransactionManager;
 import org.springframework.boot.amqp.autoconfigure.RabbitProperties;
@@ -29,6 +31,11 @@ public class MessagingTestConfig {
         return new InMemoryMessagingOutboxRepo();
     }
 
+    @Bean
+    public MessagingOutboxLeaseRepo messagingOutboxLeaseRepo() {
+        return new InMemoryMessagingOutboxLeaseRepo();
+    }
+
     @Bean
     public ReactiveTransactionManager transactionManager() {
         return new MockReactiveTransactionManager();
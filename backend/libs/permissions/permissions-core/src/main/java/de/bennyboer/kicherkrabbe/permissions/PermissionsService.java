@@ -1,5 +1,6 @@
 package de.bennyboer.kicherkrabbe.permissions;
 
+import de.bennyboer.kicherkrabbe.permissions.events.PermissionEvent;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionsEventPublisher;
 import de.bennyboer.kicherkrabbe.permissions.persistence.PermissionsRepo;
 import de.bennyboer.kicherkrabbe.permissions.persistence.cache.CacheablePermissionsRepo;
@@ -7,6 +8,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -15,21 +17,44 @@ import static de.bennyboer.kicherkrabbe.permissions.events.PermissionEvent.remov
 
 public class PermissionsService {
 
-    private final PermissionsRepo permissionsRepo;
+    private final CacheablePermissionsRepo permissionsRepo;
 
     private final PermissionsEventPublisher eventPublisher;
 
     public PermissionsService(PermissionsRepo permissionsRepo, PermissionsEventPublisher eventPublisher) {
+        this("default", permissionsRepo, eventPublisher);
+    }
+
+    /**
+     * The name distinguishes the metrics of the permission caches of the different services.
+     */
+    public PermissionsService(String name, PermissionsRepo permissionsRepo, PermissionsEventPublisher eventPublisher) {
         this.permissionsRepo = new CacheablePermissionsRepo(
+                name,
                 permissionsRepo,
                 CacheablePermissionsRepo.Config.builder()
                         .maximumSize(10_000)
-                        .expireAfterWrite(Duration.ofMinutes(5))
+                        .expireAfterWrite(Duration.ofHours(1))
+                        .negativeExpireAfterWrite(Duration.ofMinutes(5))
                         .build()
         );
         this.eventPublisher = eventPublisher;
     }
 
+    /**
+     * Drops the cached permissions affected by a permission event that may have been caused by another node.
+     */
+    public void evictCached(PermissionEvent event) {
+        permissionsRepo.invalidate(event.getPermissions());
+    }
+
+    /**
+     * Drops all cached permissions, for example when permission events might have been missed.
+     */
+    public void evictAllCached() {
+        permissionsRepo.invalidateAll();
+    }
+
     public Mono<Void> addPermission(Permission permission) {
         return permissionsRepo.insert(permission)
                 .flatMap(addedPermission -> eventPublisher.publish(added(addedPermission)));
@@ -61,6 +86,17 @@ public class PermissionsService {
         return permissionsRepo.hasPermission(permission);
     }
 
+    /**
+     * Finds those of the given holders that are allowed to perform the action on the resource using a single query.
+     */
+    public Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource) {
+        if (holders.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return permissionsRepo.findHoldersWithPermission(holders, action, resource);
+    }
+
     public Flux<Permission> findPermissionsByHolder(Holder holder) {
         return permissionsRepo.findPermissionsByHolder(holder);
     }
@@ -23,6 +23,12 @@ public interface PermissionsRepo {
 
     Mono<Boolean> hasPermission(Permission permission);
 
+    /**
+     * Find those of the given holders that are allowed to perform the action on the resource.
+     * This is the same as calling {@link #hasPermission(Permission)} for every holder, but in a single query.
+     */
+    Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource);
+
     /**
      * Find all permissions for a specific holder.
      * This may be useful if you want to display all permissions for a holder.
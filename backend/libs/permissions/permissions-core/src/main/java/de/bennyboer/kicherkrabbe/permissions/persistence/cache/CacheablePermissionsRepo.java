@@ -1,65 +1,241 @@
 package de.bennyboer.kicherkrabbe.permissions.persistence.cache;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import de.bennyboer.kicherkrabbe.permissions.*;
 import de.bennyboer.kicherkrabbe.permissions.persistence.PermissionsRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
+import org.springframework.transaction.reactive.TransactionContext;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static de.bennyboer.kicherkrabbe.commons.Preconditions.notNull;
 
 /**
  * Permissions-Queries are putting a lot of load on the database as they are called frequently.
  * Generally, every call to the backend needs to check permissions before processing the request!
  * This cache is intended to reduce the load by caching a number of last-needed permissions in-memory.
+ * <p>
+ * Besides single permission checks, the results of queries for the permissions of a holder are cached per holder.
+ * Changes made through this repo invalidate the affected entries immediately. Changes made elsewhere
+ * (for example on another node) must be passed to {@link #invalidate(Collection)}.
+ * <p>
+ * Concurrent checks of the same permission share a single query, so that a cold cache or a popular resource
+ * does not cause a stampede of identical queries. Denied permissions are cached with their own expiry.
+ * <p>
+ * Queries within a transaction bypass the cache. They might see changes of their transaction that are not committed
+ * yet and may never be, so their results must neither be shared with other callers nor cached.
  */
 public class CacheablePermissionsRepo implements PermissionsRepo {
 
     private final PermissionsRepo delegate;
 
-    private final Cache<Permission, Boolean> cache;
+    private final AsyncCache<Permission, Boolean> cache;
+
+    private final Cache<Holder, Map<HolderQuery, List<Permission>>> holderQueryCache;
+
+    /**
+     * Incremented on every invalidation. A query result is only kept in the cache if no invalidation happened
+     * while it was loaded, as it might have been read before the invalidated change.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter coalesced;
+
+    private final Timer loads;
+
+    private final MeterRegistry meterRegistry;
+
+    public CacheablePermissionsRepo(String name, PermissionsRepo delegate, Config config) {
+        this(name, delegate, config, Metrics.globalRegistry);
+    }
+
+    public CacheablePermissionsRepo(String name, PermissionsRepo delegate, Config config, MeterRegistry meterRegistry) {
+        notNull(name, "Name must be given");
+        notNull(delegate, "Delegate must be given");
+        notNull(config, "Config must be given");
+        notNull(meterRegistry, "Meter registry must be given");
 
-    public CacheablePermissionsRepo(PermissionsRepo delegate, Config config) {
         this.delegate = delegate;
         this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(new PermissionCheckExpiry(
+                        config.getExpireAfterWrite(),
+                        config.getNegativeExpireAfterWrite()
+                ))
+                .buildAsync();
+        this.holderQueryCache = Caffeine.newBuilder()
                 .maximumSize(config.getMaximumSize())
                 .expireAfterWrite(config.getExpireAfterWrite())
                 .build();
+
+        this.meterRegistry = meterRegistry;
+        this.hits = Counter.builder("permissions.cache.hits")
+                .description("Permission checks answered from the cache")
+                .tag("permissions", name)
+                .register(meterRegistry);
+        this.misses = Counter.builder("permissions.cache.misses")
+                .description("Permission checks that had to query the database")
+                .tag("permissions", name)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("permissions.cache.coalesced")
+                .description("Permission checks that waited for a query already in flight for the same permission")
+                .tag("permissions", name)
+                .register(meterRegistry);
+        this.loads = Timer.builder("permissions.cache.load")
+                .description("Duration of the database queries for permission checks that missed the cache")
+                .tag("permissions", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drops all cached entries that might be affected by changes to the given permissions.
+     */
+    public void invalidate(Collection<Permission> permissions) {
+        invalidations.incrementAndGet();
+
+        for (Permission permission : permissions) {
+            invalidate(permission);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+
+        cache.synchronous().invalidateAll();
+        holderQueryCache.invalidateAll();
     }
 
     @Override
     public Mono<Permission> insert(Permission permission) {
         return delegate.insert(permission)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
     @Override
     public Flux<Permission> insert(Collection<Permission> permissions) {
         return delegate.insert(permissions)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
+    /**
+     * There is at most one query in flight per permission. Invalidating a permission drops its in-flight query
+     * from the cache, so that its possibly outdated result is only passed to the checks already waiting for it.
+     * Cancelling a check does not cancel the shared query.
+     */
     @Override
     public Mono<Boolean> hasPermission(Permission permission) {
-        return Mono.justOrEmpty(cache.getIfPresent(permission))
-                .switchIfEmpty(delegate.hasPermission(permission)
-                        .doOnNext(hasPermission -> cache.put(permission, hasPermission)));
+        return Mono.deferContextual(ctx -> {
+            if (isInTransaction(ctx)) {
+                return delegate.hasPermission(permission).defaultIfEmpty(false);
+            }
+
+            AtomicBoolean isLoading = new AtomicBoolean();
+            CompletableFuture<Boolean> result = cache.get(permission, (key, executor) -> {
+                isLoading.set(true);
+                return load(key);
+            });
+
+            if (isLoading.get()) {
+                misses.increment();
+            } else if (result.isDone()) {
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+
+            return Mono.fromFuture(result, true);
+        });
+    }
+
+    /**
+     * Only the holders whose permission is not cached yet are queried.
+     * The result of the query is cached for each of them.
+     */
+    @Override
+    public Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource) {
+        return Flux.deferContextual(ctx -> isInTransaction(ctx)
+                ? delegate.findHoldersWithPermission(holders, action, resource)
+                : findHoldersWithPermissionCached(holders, action, resource));
+    }
+
+    private Flux<Holder> findHoldersWithPermissionCached(Collection<Holder> holders, Action action, Resource resource) {
+        Set<Holder> allowed = new HashSet<>();
+        List<Holder> uncached = new ArrayList<>();
+        for (Holder holder : new HashSet<>(holders)) {
+            Boolean cached = cache.synchronous().getIfPresent(toPermission(holder, action, resource));
+            if (cached == null) {
+                uncached.add(holder);
+            } else if (cached) {
+                allowed.add(holder);
+            }
+        }
+
+        if (uncached.isEmpty()) {
+            return Flux.fromIterable(allowed);
+        }
+
+        long invalidationsBeforeQuery = invalidations.get();
+        return delegate.findHoldersWithPermission(uncached, action, resource)
+                .collect(Collectors.toSet())
+                .flatMapMany(found -> {
+                    for (Holder holder : uncached) {
+                        Permission permission = toPermission(holder, action, resource);
+                        putIfNotInvalidated(
+                                invalidationsBeforeQuery,
+                                () -> cache.synchronous().put(permission, found.contains(holder)),
+                                () -> cache.synchronous().invalidate(permission)
+                        );
+                    }
+                    allowed.addAll(found);
+
+                    return Flux.fromIterable(allowed);
+                });
     }
 
     @Override
     public Flux<Permission> findPermissionsByHolder(Holder holder) {
-        return delegate.findPermissionsByHolder(holder);
+        return findCachedForHolder(
+                HolderQuery.of(holder, null, null, null),
+                () -> delegate.findPermissionsByHolder(holder)
+        );
     }
 
     @Override
     public Flux<Permission> findPermissionsByHolderAndResourceType(Holder holder, ResourceType resourceType) {
-        return delegate.findPermissionsByHolderAndResourceType(holder, resourceType);
+        return findCachedForHolder(
+                HolderQuery.of(holder, resourceType, null, null),
+                () -> delegate.findPermissionsByHolderAndResourceType(holder, resourceType)
+        );
     }
 
     @Override
@@ -68,12 +244,18 @@ public class CacheablePermissionsRepo implements PermissionsRepo {
             ResourceType resourceType,
             Action action
     ) {
-        return delegate.findPermissionsByHolderAndResourceTypeAndAction(holder, resourceType, action);
+        return findCachedForHolder(
+                HolderQuery.of(holder, resourceType, action, null),
+                () -> delegate.findPermissionsByHolderAndResourceTypeAndAction(holder, resourceType, action)
+        );
     }
 
     @Override
     public Flux<Permission> findPermissionsByHolderAndResource(Holder holder, Resource resource) {
-        return delegate.findPermissionsByHolderAndResource(holder, resource);
+        return findCachedForHolder(
+                HolderQuery.of(holder, null, null, resource),
+                () -> delegate.findPermissionsByHolderAndResource(holder, resource)
+        );
     }
 
     @Override
@@ -84,31 +266,105 @@ public class CacheablePermissionsRepo implements PermissionsRepo {
     @Override
     public Flux<Permission> removeByHolder(Holder holder) {
         return delegate.removeByHolder(holder)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
     @Override
     public Flux<Permission> removeByResource(Resource resource) {
         return delegate.removeByResource(resource)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
     @Override
     public Flux<Permission> removeByHolderAndResource(Holder holder, Resource resource) {
         return delegate.removeByHolderAndResource(holder, resource)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
     @Override
     public Mono<Permission> removeByPermission(Permission permission) {
         return delegate.removeByPermission(permission)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
     }
 
     @Override
     public Flux<Permission> removePermissions(Permission... permissions) {
         return delegate.removePermissions(permissions)
-                .doOnNext(cache::invalidate);
+                .doOnNext(this::invalidate);
+    }
+
+    /**
+     * The query is subscribed to outside of the calling pipeline and shared with other callers,
+     * so it deliberately does not take part in the context of the caller that started it.
+     */
+    private CompletableFuture<Boolean> load(Permission permission) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        return delegate.hasPermission(permission)
+                .defaultIfEmpty(false)
+                .doFinally(signal -> sample.stop(loads))
+                .toFuture();
+    }
+
+    private Flux<Permission> findCachedForHolder(HolderQuery query, Supplier<Flux<Permission>> load) {
+        Holder holder = query.getHolder();
+
+        return Flux.deferContextual(ctx -> {
+            if (isInTransaction(ctx)) {
+                return load.get();
+            }
+
+            Map<HolderQuery, List<Permission>> cachedQueries = holderQueryCache.getIfPresent(holder);
+            List<Permission> cached = cachedQueries != null ? cachedQueries.get(query) : null;
+            if (cached != null) {
+                return Flux.fromIterable(cached);
+            }
+
+            long invalidationsBeforeQuery = invalidations.get();
+            return load.get()
+                    .collectList()
+                    .doOnNext(permissions -> putIfNotInvalidated(
+                            invalidationsBeforeQuery,
+                            () -> holderQueryCache.get(holder, ignored -> new ConcurrentHashMap<>())
+                                    .put(query, List.copyOf(permissions)),
+                            () -> holderQueryCache.invalidate(holder)
+                    ))
+                    .flatMapIterable(permissions -> permissions);
+        });
+    }
+
+    /**
+     * Puts a loaded result into the cache unless an invalidation happened since loading started.
+     * The invalidation counter is checked again after putting, as an invalidation might have run in between.
+     */
+    private void putIfNotInvalidated(long invalidationsBeforeQuery, Runnable put, Runnable remove) {
+        if (invalidations.get() != invalidationsBeforeQuery) {
+            return;
+        }
+
+        put.run();
+
+        if (invalidations.get() != invalidationsBeforeQuery) {
+            remove.run();
+        }
+    }
+
+    private boolean isInTransaction(ContextView ctx) {
+        return ctx.getOrEmpty(TransactionContext.class).isPresent();
+    }
+
+    private void invalidate(Permission permission) {
+        invalidations.incrementAndGet();
+
+        cache.synchronous().invalidate(permission);
+        holderQueryCache.invalidate(permission.getHolder());
+    }
+
+    private Permission toPermission(Holder holder, Action action, Resource resource) {
+        return Permission.builder()
+                .holder(holder)
+                .isAllowedTo(action)
+                .on(resource);
     }
 
     @Value
@@ -119,12 +375,91 @@ public class CacheablePermissionsRepo implements PermissionsRepo {
         long maximumSize;
 
         /**
-         * A short duration is recommended to avoid stale date.
+         * A short duration is recommended to avoid stale date, unless changes made on other nodes are passed to
+         * {@link #invalidate(Collection)}.
          * For example when permissions are taken away from a user, the cache should not keep the old permissions for
          * too long.
          */
         Duration expireAfterWrite;
 
+        /**
+         * Expiry of denied permission checks. Keeping it shorter than the expiry of granted ones limits how long
+         * a permission granted elsewhere stays invisible when its event is missed, and how long checks for
+         * resources that were only ever probed occupy the cache.
+         */
+        Duration negativeExpireAfterWrite;
+
+    }
+
+    /**
+     * Expires granted and denied permission checks after their respective durations.
+     * Reading an entry does not extend its lifetime.
+     */
+    private static class PermissionCheckExpiry implements Expiry<Permission, Boolean> {
+
+        private final long expireAfterWriteNanos;
+
+        private final long negativeExpireAfterWriteNanos;
+
+        PermissionCheckExpiry(Duration expireAfterWrite, Duration negativeExpireAfterWrite) {
+            notNull(expireAfterWrite, "Expire after write must be given");
+            notNull(negativeExpireAfterWrite, "Negative expire after write must be given");
+
+            this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+            this.negativeExpireAfterWriteNanos = negativeExpireAfterWrite.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Permission permission, Boolean hasPermission, long currentTime) {
+            return hasPermission ? expireAfterWriteNanos : negativeExpireAfterWriteNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                Permission permission,
+                Boolean hasPermission,
+                long currentTime,
+                long currentDuration
+        ) {
+            return expireAfterCreate(permission, hasPermission, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(
+                Permission permission,
+                Boolean hasPermission,
+                long currentTime,
+                long currentDuration
+        ) {
+            return currentDuration;
+        }
+
+    }
+
+    @Value
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class HolderQuery {
+
+        Holder holder;
+
+        @Nullable
+        ResourceType resourceType;
+
+        @Nullable
+        Action action;
+
+        @Nullable
+        Resource resource;
+
+        static HolderQuery of(
+                Holder holder,
+                @Nullable ResourceType resourceType,
+                @Nullable Action action,
+                @Nullable Resource resource
+        ) {
+            return new HolderQuery(holder, resourceType, action, resource);
+        }
+
     }
 
 }
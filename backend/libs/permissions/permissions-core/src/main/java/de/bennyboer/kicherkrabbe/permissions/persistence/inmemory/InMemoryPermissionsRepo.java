@@ -37,6 +37,16 @@ public class InMemoryPermissionsRepo implements PermissionsRepo {
         return Mono.fromCallable(() -> permissions.contains(permission));
     }
 
+    @Override
+    public Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource) {
+        return Flux.fromIterable(holders)
+                .distinct()
+                .filter(holder -> permissions.contains(Permission.builder()
+                        .holder(holder)
+                        .isAllowedTo(action)
+                        .on(resource)));
+    }
+
     @Override
     public Flux<Permission> findPermissionsByHolder(Holder holder) {
         return Flux.fromIterable(permissions)
@@ -171,6 +171,89 @@ public abstract class PermissionsServiceTest {
         assertThat(seenEvents).contains(PermissionEvent.added(permissions));
     }
 
+    @Test
+    void shouldFindHoldersWithPermission() {
+        var holder1 = Holder.user(HolderId.of("USER_ID_1"));
+        var holder2 = Holder.user(HolderId.of("USER_ID_2"));
+        var holder3 = Holder.user(HolderId.of("USER_ID_3"));
+        var otherResource = Resource.of(resourceType, ResourceId.of("OTHER_RESOURCE_ID"));
+
+        // given: holder 1 and 3 are allowed to perform the test action on the resource
+        addPermissions(Set.of(
+                Permission.builder()
+                        .holder(holder1)
+                        .isAllowedTo(testAction)
+                        .on(resource),
+                Permission.builder()
+                        .holder(holder3)
+                        .isAllowedTo(testAction)
+                        .on(resource),
+                Permission.builder()
+                        .holder(holder2)
+                        .isAllowedTo(testAction)
+                        .on(otherResource)
+        ));
+
+        // and: the permission of holder 1 has been checked before
+        assertThat(hasPermission(Permission.builder()
+                .holder(holder1)
+                .isAllowedTo(testAction)
+                .on(resource))).isTrue();
+
+        // when: finding the holders with permission to perform the test action on the resource
+        var holders = service.findHoldersWithPermission(List.of(holder1, holder2, holder3), testAction, resource)
+                .collectList()
+                .block();
+
+        // then: holder 1 and 3 are found
+        assertThat(holders).containsExactlyInAnyOrder(holder1, holder3);
+    }
+
+    @Test
+    void shouldEvictCachedPermissionsChangedByAnotherNode() {
+        Permission permission = Permission.builder()
+                .holder(holder)
+                .isAllowedTo(testAction)
+                .on(resource);
+
+        // given: the permissions of the holder have been queried and cached
+        assertThat(hasPermission(permission)).isFalse();
+        assertThat(findPermissionsByHolderAndResourceType(holder, resourceType)).isEmpty();
+
+        // and: the permission has been added by another node
+        permissionsRepo.insert(permission).block();
+
+        // when: evicting the cached permissions affected by the published event
+        service.evictCached(PermissionEvent.added(permission));
+
+        // then: the added permission is visible
+        assertThat(hasPermission(permission)).isTrue();
+        assertThat(findPermissionsByHolderAndResourceType(holder, resourceType)).containsExactly(permission);
+    }
+
+    @Test
+    void shouldServeHolderQueriesFromCacheUntilEvicted() {
+        Permission permission = Permission.builder()
+                .holder(holder)
+                .isAllowedTo(testAction)
+                .on(resource);
+
+        // given: the permissions of the holder have been queried and cached
+        assertThat(findPermissionsByHolderAndResourceType(holder, resourceType)).isEmpty();
+
+        // when: the permission is added by another node without the event being received yet
+        permissionsRepo.insert(permission).block();
+
+        // then: the cached result is still returned
+        assertThat(findPermissionsByHolderAndResourceType(holder, resourceType)).isEmpty();
+
+        // when: evicting all cached permissions
+        service.evictAllCached();
+
+        // then: the added permission is visible
+        assertThat(findPermissionsByHolderAndResourceType(holder, resourceType)).containsExactly(permission);
+    }
+
     @Test
     void shouldNotFailOnAddingMultiplePermissionsWithOneDuplicate() {
         var holder1 = Holder.user(HolderId.of("USER_ID_1"));
@@ -0,0 +1,230 @@
+package de.bennyboer.kicherkrabbe.permissions.cache;
+
+import de.bennyboer.kicherkrabbe.permissions.*;
+import de.bennyboer.kicherkrabbe.permissions.persistence.cache.CacheablePermissionsRepo;
+import de.bennyboer.kicherkrabbe.permissions.persistence.inmemory.InMemoryPermissionsRepo;
+import de.bennyboer.kicherkrabbe.persistence.MockReactiveTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionContext;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheablePermissionsRepoTest {
+
+    private final Permission permission = Permission.builder()
+            .holder(Holder.user(HolderId.of("USER_ID")))
+            .isAllowedTo(Action.of("READ"))
+            .on(Resource.of(ResourceType.of("RESOURCE_TYPE"), ResourceId.of("RESOURCE_ID")));
+
+    private final TransactionalOperator transactionalOperator = TransactionalOperator.create(
+            new MockReactiveTransactionManager()
+    );
+
+    private GatedPermissionsRepo delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CacheablePermissionsRepo repo;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new GatedPermissionsRepo();
+        meterRegistry = new SimpleMeterRegistry();
+        repo = new CacheablePermissionsRepo(
+                "test",
+                delegate,
+                CacheablePermissionsRepo.Config.builder()
+                        .maximumSize(100)
+                        .expireAfterWrite(Duration.ofHours(1))
+                        .negativeExpireAfterWrite(Duration.ZERO)
+                        .build(),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void shouldShareInFlightQueryForConcurrentChecks() {
+        // given: a granted permission
+        delegate.insert(permission).block();
+
+        // when: checking the permission concurrently while the query is in flight
+        delegate.closeGate();
+        CompletableFuture<List<Boolean>> results = Flux.range(0, 10)
+                .flatMap(ignored -> repo.hasPermission(permission))
+                .collectList()
+                .toFuture();
+
+        // then: a single query has been started
+        assertThat(delegate.getQueries()).isEqualTo(1);
+        assertThat(counter("permissions.cache.misses")).isEqualTo(1.0);
+        assertThat(counter("permissions.cache.coalesced")).isEqualTo(9.0);
+
+        // when: the query completes
+        delegate.openGate();
+
+        // then: all checks receive the result
+        assertThat(results.join()).hasSize(10).containsOnly(true);
+        assertThat(meterRegistry.get("permissions.cache.load").timer().count()).isEqualTo(1);
+
+        // and: further checks are served from the cache
+        assertThat(repo.hasPermission(permission).block()).isTrue();
+        assertThat(delegate.getQueries()).isEqualTo(1);
+        assertThat(counter("permissions.cache.hits")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldExpireDeniedChecksSeparately() {
+        // when: checking a permission that is not granted twice
+        assertThat(repo.hasPermission(permission).block()).isFalse();
+        assertThat(repo.hasPermission(permission).block()).isFalse();
+
+        // then: the denied check has not been kept with the expiry of granted checks
+        assertThat(delegate.getQueries()).isEqualTo(2);
+
+        // when: the permission is granted and checked twice
+        repo.insert(permission).block();
+        assertThat(repo.hasPermission(permission).block()).isTrue();
+        assertThat(repo.hasPermission(permission).block()).isTrue();
+
+        // then: the granted check has been cached
+        assertThat(delegate.getQueries()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotCacheResultOfQueryInvalidatedWhileInFlight() {
+        // given: a check of a permission that is not granted yet is in flight
+        delegate.closeGate();
+        CompletableFuture<Boolean> inFlight = repo.hasPermission(permission).toFuture();
+
+        // when: the permission is granted before the query completes
+        repo.insert(permission).block();
+        delegate.openGate();
+
+        // then: the check in flight may still see the old state
+        assertThat(inFlight.join()).isFalse();
+
+        // and: the next check queries again and sees the granted permission
+        assertThat(repo.hasPermission(permission).block()).isTrue();
+        assertThat(delegate.getQueries()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheChecksWithinTransaction() {
+        // given: a granted permission
+        delegate.insert(permission).block();
+
+        // when: checking the permission twice within a transaction
+        var results = repo.hasPermission(permission)
+                .concatWith(repo.hasPermission(permission))
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .block();
+
+        // then: both checks queried the database within the transaction of the caller
+        assertThat(results).containsExactly(true, true);
+        assertThat(delegate.getQueries()).isEqualTo(2);
+        assertThat(delegate.getLastContext().getOrEmpty(TransactionContext.class)).isPresent();
+
+        // and: the results have not been cached for checks outside the transaction
+        assertThat(repo.hasPermission(permission).block()).isTrue();
+        assertThat(delegate.getQueries()).isEqualTo(3);
+        assertThat(delegate.getLastContext().getOrEmpty(TransactionContext.class)).isEmpty();
+    }
+
+    @Test
+    void shouldNotShareInFlightQueryWithCheckWithinTransaction() {
+        // given: a check outside a transaction is in flight
+        delegate.closeGate();
+        CompletableFuture<Boolean> outside = repo.hasPermission(permission).toFuture();
+
+        // when: the same permission is checked within a transaction
+        CompletableFuture<Boolean> inside = repo.hasPermission(permission)
+                .as(transactionalOperator::transactional)
+                .toFuture();
+        delegate.openGate();
+
+        // then: the check within the transaction made its own query
+        assertThat(outside.join()).isFalse();
+        assertThat(inside.join()).isFalse();
+        assertThat(delegate.getQueries()).isEqualTo(2);
+        assertThat(counter("permissions.cache.coalesced")).isZero();
+    }
+
+    @Test
+    void shouldNotCacheHolderQueriesWithinTransaction() {
+        // given: the permissions of a holder are queried within a transaction
+        var withinTransaction = repo.findPermissionsByHolder(permission.getHolder())
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .block();
+        assertThat(withinTransaction).isEmpty();
+
+        // when: a permission is granted without passing through the cache
+        delegate.insert(permission).block();
+
+        // then: the permissions of the holder are queried again outside the transaction
+        assertThat(repo.findPermissionsByHolder(permission.getHolder()).collectList().block())
+                .containsExactly(permission);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private static class GatedPermissionsRepo extends InMemoryPermissionsRepo {
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private Sinks.Empty<Void> gate = Sinks.empty();
+
+        private volatile ContextView lastContext = Context.empty();
+
+        GatedPermissionsRepo() {
+            openGate();
+        }
+
+        @Override
+        public Mono<Boolean> hasPermission(Permission permission) {
+            Mono<Void> currentGate = gate.asMono();
+
+            return super.hasPermission(permission)
+                    .doOnSubscribe(ignored -> queries.incrementAndGet())
+                    .delayUntil(ignored -> currentGate)
+                    .contextWrite(ctx -> {
+                        lastContext = ctx;
+                        return ctx;
+                    });
+        }
+
+        ContextView getLastContext() {
+            return lastContext;
+        }
+
+        int getQueries() {
+            return queries.get();
+        }
+
+        void closeGate() {
+            gate = Sinks.empty();
+        }
+
+        void openGate() {
+            gate.tryEmitEmpty();
+        }
+
+    }
+
+}
@@ -4,7 +4,9 @@ import de.bennyboer.kicherkrabbe.messaging.listener.MessageListenerFactory;
 import de.bennyboer.kicherkrabbe.messaging.outbox.MessagingOutbox;
 import de.bennyboer.kicherkrabbe.permissions.events.MessagingPermissionsEventPublisher;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionEventListenerFactory;
+import de.bennyboer.kicherkrabbe.permissions.events.PermissionsCacheInvalidation;
 import de.bennyboer.kicherkrabbe.permissions.events.PermissionsEventPublisher;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -30,4 +32,12 @@ public class PermissionsConfig {
         return new PermissionEventListenerFactory(messageListenerFactory, jsonMapper.orElseGet(() -> JsonMapper.builder().build()));
     }
 
+    @Bean
+    public PermissionsCacheInvalidation permissionsCacheInvalidation(
+            PermissionEventListenerFactory permissionEventListenerFactory,
+            ObjectProvider<PermissionsService> permissionsServices
+    ) {
+        return new PermissionsCacheInvalidation(permissionEventListenerFactory, permissionsServices);
+    }
+
 }
@@ -16,13 +16,28 @@ import reactor.core.publisher.Mono;
 import java.time.Clock;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Publishes permission events of all resource types to a single exchange, routed by resource type.
+ * This allows listening to the events of a single resource type as well as to all of them.
+ * <p>
+ * Previous versions published to an exchange per resource type. To not lose events during a rolling deploy,
+ * each event is published to that legacy exchange as well, marked as a copy. Nodes of the previous version
+ * keep receiving the events there, while listeners of this version skip the copies.
+ * The legacy exchanges can be dropped once no node of the previous version is running and the outbox
+ * holds no entries written by them anymore.
+ */
 @AllArgsConstructor
 public class MessagingPermissionsEventPublisher implements PermissionsEventPublisher {
 
+    public static final String EXCHANGE_NAME = "permissions";
+
+    static final String LEGACY_COPY_FIELD = "legacyCopy";
+
     private final MessagingOutbox outbox;
 
     private final Clock clock;
@@ -32,7 +47,10 @@ public class MessagingPermissionsEventPublisher implements PermissionsEventPubli
         Map<ResourceType, PermissionEvent> eventsByResourceType = splitEventByResourceType(event);
         List<MessagingOutboxEntry> entries = eventsByResourceType.entrySet()
                 .stream()
-                .map(entry -> toEntry(entry.getKey(), entry.getValue()))
+                .flatMap(entry -> Stream.of(
+                        toEntry(entry.getKey(), entry.getValue()),
+                        toLegacyEntry(entry.getKey(), entry.getValue())
+                ))
                 .toList();
 
         return outbox.insert(entries);
@@ -54,32 +72,56 @@ public class MessagingPermissionsEventPublisher implements PermissionsEventPubli
     }
 
     private MessagingOutboxEntry toEntry(ResourceType resourceType, PermissionEvent event) {
-        String normalizedResourceType = resourceType
-                .getName()
-                .toLowerCase(Locale.ROOT);
-        String exchangeName = normalizedResourceType + ".permissions";
-        var exchange = ExchangeTarget.of(exchangeName);
+        var exchange = ExchangeTarget.of(EXCHANGE_NAME);
         var target = MessageTarget.exchange(exchange);
+        var routingKey = RoutingKey.ofParts(normalize(resourceType), "events", toEventName(event));
+
+        return MessagingOutboxEntry.create(
+                target,
+                routingKey,
+                serializeEvent(event),
+                clock
+        );
+    }
+
+    private MessagingOutboxEntry toLegacyEntry(ResourceType resourceType, PermissionEvent event) {
+        var exchange = legacyExchange(resourceType);
+        var target = MessageTarget.exchange(exchange);
+        var routingKey = RoutingKey.ofParts("events", toEventName(event));
+
+        Map<String, Object> payload = new HashMap<>(serializeEvent(event));
+        payload.put(LEGACY_COPY_FIELD, true);
+
+        return MessagingOutboxEntry.create(
+                target,
+                routingKey,
+                payload,
+                clock
+        );
+    }
 
-        String eventName = event.getType()
+    static ExchangeTarget legacyExchange(ResourceType resourceType) {
+        return ExchangeTarget.of(normalize(resourceType) + ".permissions");
+    }
+
+    private static String normalize(ResourceType resourceType) {
+        return resourceType.getName().toLowerCase(Locale.ROOT);
+    }
+
+    private String toEventName(PermissionEvent event) {
+        return event.getType()
                 .name()
                 .toLowerCase(Locale.ROOT);
-        var routingKey = RoutingKey.ofParts("events", eventName);
+    }
 
-        Map<String, Object> payload = Map.of(
+    private Map<String, Object> serializeEvent(PermissionEvent event) {
+        return Map.of(
                 "type", event.getType().name(),
                 "permissions", event.getPermissions()
                         .stream()
                         .map(this::serializePermission)
                         .toList()
         );
-
-        return MessagingOutboxEntry.create(
-                target,
-                routingKey,
-                payload,
-                clock
-        );
     }
 
     private Map<String, Object> serializePermission(Permission permission) {
@@ -25,30 +25,58 @@ public class PermissionEventListenerFactory {
 
     public Flux<PermissionEvent> listen(ResourceType resourceType, String description) {
         String normalizedResourceType = resourceType.getName().toLowerCase(Locale.ROOT);
-        ExchangeTarget exchange = ExchangeTarget.of(normalizedResourceType + ".permissions");
+        RoutingKey routingKey = RoutingKey.ofParts(normalizedResourceType, "events", "*");
+
+        return Flux.merge(
+                listen(routingKey, description),
+                listenToLegacyExchange(resourceType, description)
+        );
+    }
+
+    /**
+     * Listens to the permission events of all resource types.
+     */
+    public Flux<PermissionEvent> listenToAll(String description) {
+        return listen(RoutingKey.ofParts("#"), description);
+    }
+
+    private Flux<PermissionEvent> listen(RoutingKey routingKey, String description) {
+        ExchangeTarget exchange = ExchangeTarget.of(MessagingPermissionsEventPublisher.EXCHANGE_NAME);
+
+        return messageListenerFactory.createTransientListener(exchange, routingKey, description)
+                .flatMap(delivery -> deserializeEventMap(delivery.getBody()))
+                .map(this::toEvent);
+    }
+
+    /**
+     * Nodes of the previous version, and outbox entries written by them, still publish to the exchange of the
+     * resource type. Copies published there by nodes of this version are skipped, as they are received from the
+     * single exchange already.
+     */
+    private Flux<PermissionEvent> listenToLegacyExchange(ResourceType resourceType, String description) {
+        ExchangeTarget exchange = MessagingPermissionsEventPublisher.legacyExchange(resourceType);
         RoutingKey routingKey = RoutingKey.ofParts("events", "*");
 
         return messageListenerFactory.createTransientListener(exchange, routingKey, description)
-                .flatMap(delivery -> deserializeEvent(delivery.getBody()));
+                .flatMap(delivery -> deserializeEventMap(delivery.getBody()))
+                .filter(map -> !map.containsKey(MessagingPermissionsEventPublisher.LEGACY_COPY_FIELD))
+                .map(this::toEvent);
     }
 
-    private Mono<PermissionEvent> deserializeEvent(byte[] body) {
-        return deserializeEventMap(body)
-                .map(map -> {
-                    String typeStr = map.get("type").toString();
-                    PermissionEventType type = typeStr.equals("ADDED")
-                            ? PermissionEventType.ADDED
-                            : PermissionEventType.REMOVED;
-
-                    List<Map<String, Object>> permissionMaps = (List<Map<String, Object>>) map.get("permissions");
-                    Set<Permission> permissions = permissionMaps.stream()
-                            .map(this::toPermission)
-                            .collect(Collectors.toSet());
-
-                    return type == PermissionEventType.ADDED
-                            ? PermissionEvent.added(permissions)
-                            : PermissionEvent.removed(permissions);
-                });
+    private PermissionEvent toEvent(Map<String, Object> map) {
+        String typeStr = map.get("type").toString();
+        PermissionEventType type = typeStr.equals("ADDED")
+                ? PermissionEventType.ADDED
+                : PermissionEventType.REMOVED;
+
+        List<Map<String, Object>> permissionMaps = (List<Map<String, Object>>) map.get("permissions");
+        Set<Permission> permissions = permissionMaps.stream()
+                .map(this::toPermission)
+                .collect(Collectors.toSet());
+
+        return type == PermissionEventType.ADDED
+                ? PermissionEvent.added(permissions)
+                : PermissionEvent.removed(permissions);
     }
 
     private Permission toPermission(Map<String, Object> permissionMap) {
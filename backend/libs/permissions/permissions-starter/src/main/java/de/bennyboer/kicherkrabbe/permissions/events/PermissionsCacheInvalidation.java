@@ -0,0 +1,72 @@
+package de.bennyboer.kicherkrabbe.permissions.events;
+
+import de.bennyboer.kicherkrabbe.permissions.PermissionsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Keeps the permission caches of this node in sync with changes made on any node by evicting the entries
+ * affected by each published permission event.
+ * Whenever the subscription to the events is (re)established, events might have been missed in between,
+ * so all cached permissions are dropped.
+ */
+@Slf4j
+public class PermissionsCacheInvalidation implements SmartLifecycle {
+
+    private final PermissionEventListenerFactory permissionEventListenerFactory;
+
+    private final ObjectProvider<PermissionsService> permissionsServices;
+
+    private Disposable subscription;
+
+    public PermissionsCacheInvalidation(
+            PermissionEventListenerFactory permissionEventListenerFactory,
+            ObjectProvider<PermissionsService> permissionsServices
+    ) {
+        this.permissionEventListenerFactory = permissionEventListenerFactory;
+        this.permissionsServices = permissionsServices;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+
+        subscription = Flux.defer(() -> permissionEventListenerFactory.listenToAll("invalidate-permissions-cache"))
+                .doOnSubscribe(ignored -> permissionsServices.orderedStream()
+                        .forEach(PermissionsService::evictAllCached))
+                .doOnNext(event -> permissionsServices.orderedStream()
+                        .forEach(service -> service.evictCached(event)))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> log.warn(
+                                "Retrying permissions cache invalidation after error (attempt {})",
+                                signal.totalRetries() + 1,
+                                signal.failure()
+                        )))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return subscription != null;
+    }
+
+}
@@ -84,6 +84,33 @@ public class MongoPermissionsRepo implements PermissionsRepo {
         return template.exists(query(criteria), collectionName);
     }
 
+    @Override
+    public Flux<Holder> findHoldersWithPermission(Collection<Holder> holders, Action action, Resource resource) {
+        Set<Holder> candidates = Set.copyOf(holders);
+        if (candidates.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Set<String> holderIds = candidates.stream()
+                .map(holder -> holder.getId().getValue())
+                .collect(Collectors.toSet());
+        String resourceTypeName = resource.getType().getName();
+        String resourceId = resource.getId()
+                .map(ResourceId::getValue)
+                .orElse(null);
+
+        Criteria criteria = where("action").is(action.getName())
+                .and("holder._id").in(holderIds)
+                .and("resource.type").is(resourceTypeName)
+                .and("resource._id").is(resourceId);
+
+        return template.find(query(criteria), MongoPermission.class, collectionName)
+                .map(MongoPermissionSerializer::deserialize)
+                .map(Permission::getHolder)
+                .filter(candidates::contains)
+                .distinct();
+    }
+
     @Override
     public Flux<Permission> findPermissionsByHolder(Holder holder) {
         MongoHolderType holderType = MongoHolderTypeSerializer.serialize(holder.getType());